@@ -0,0 +1,96 @@
+package fr.foop.ws.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.foop.ws.CxfClientBuilder;
+import fr.foop.ws.tools.stub.EchoClient;
+import fr.foop.ws.tools.stub.StubSoapServer;
+
+/**
+ * Cost of building a client, dominated by the server election, depending on
+ * the servers being up, down (connection refused) or slow to answer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildBenchmark {
+
+	/**
+	 * The servers in priority order, as <code>up</code>, <code>down</code>
+	 * or <code>slow</code> (answering after 50ms).
+	 */
+	@Param({ "up", "down,up", "down,down,down,up", "slow,up" })
+	public String servers;
+
+	@Param({ "1", "4" })
+	public int electionParallelism;
+
+	private final List<StubSoapServer> stubs = new ArrayList<StubSoapServer>();
+
+	private String[] addresses;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final String[] kinds = servers.split(",");
+		addresses = new String[kinds.length];
+		for (int i = 0; i < kinds.length; ++i) {
+			switch (kinds[i]) {
+			case "up":
+				addresses[i] = start(Payloads.echoServer(16, 0));
+				break;
+			case "slow":
+				addresses[i] = start(Payloads.echoServer(16, 50));
+				break;
+			case "down":
+				// Nothing listens on a port freshly released.
+				final StubSoapServer released = Payloads.echoServer(16, 0);
+				released.close();
+				addresses[i] = released.server();
+				break;
+			default:
+				throw new IllegalArgumentException("unknown server kind : "
+						+ kinds[i]);
+			}
+		}
+	}
+
+	private String start(final StubSoapServer stub) {
+		stubs.add(stub);
+		return stub.server();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		for (final StubSoapServer stub : stubs) {
+			stub.close();
+		}
+	}
+
+	@Benchmark
+	public EchoClient build() {
+		final EchoClient client = new CxfClientBuilder(Payloads.ENDPOINT,
+				addresses).withParallelElection(electionParallelism).build(
+				EchoClient.class);
+		client.close();
+		return client;
+	}
+}
@@ -0,0 +1,143 @@
+package fr.foop.ws.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.foop.ws.CxfClientBuilder;
+import fr.foop.ws.tools.logging.PayloadLogPolicy;
+import fr.foop.ws.tools.stub.EchoClient;
+import fr.foop.ws.tools.stub.EchoPort;
+import fr.foop.ws.tools.stub.StubSoapServer;
+import fr.foop.ws.tools.wsse.WsseMode;
+
+/**
+ * Latency and throughput of a call through the client, for each feature
+ * which adds work on the call path.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CallBenchmark {
+
+	/**
+	 * <code>plain</code>, <code>inLogger</code>, <code>outLogger</code>,
+	 * <code>logger</code> (both), <code>payloadLogger</code> (both, through
+	 * the background writer), <code>wsse</code> or <code>streamingWsse</code>.
+	 */
+	@Param({ "plain", "inLogger", "outLogger", "logger", "payloadLogger",
+			"wsse", "streamingWsse" })
+	public String feature;
+
+	/** Request and response payload size in chars. */
+	@Param({ "128", "16384" })
+	public int payloadSize;
+
+	/**
+	 * <code>buffered</code> (default, requests buffered to send their
+	 * length), <code>chunked</code> or <code>gzip</code> (compressed
+	 * requests).
+	 */
+	@Param({ "buffered", "chunked", "gzip" })
+	public String transport;
+
+	/** Pooled ports, 0 shares a single port between the threads. */
+	@Param({ "0", "16" })
+	public int portPool;
+
+	private StubSoapServer server;
+
+	private EchoClient client;
+
+	private EchoPort port;
+
+	private String payload;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		server = Payloads.echoServer(payloadSize, 0);
+		payload = Payloads.of(payloadSize);
+
+		CxfClientBuilder builder = new CxfClientBuilder(Payloads.ENDPOINT,
+				server.server());
+		switch (feature) {
+		case "plain":
+			break;
+		case "inLogger":
+			builder = builder.withInLogger("bench.payload");
+			break;
+		case "outLogger":
+			builder = builder.withOutLogger("bench.payload");
+			break;
+		case "logger":
+			builder = builder.withLogger("bench.payload");
+			break;
+		case "payloadLogger":
+			builder = builder.withLogger("bench.payload").withPayloadLogging(
+					new PayloadLogPolicy(4096));
+			break;
+		case "wsse":
+			builder = builder.withWsseCredentials("bench", "secret");
+			break;
+		case "streamingWsse":
+			builder = builder.withWsseCredentials("bench", "secret")
+					.withWsseMode(WsseMode.STREAMING);
+			break;
+		default:
+			throw new IllegalArgumentException("unknown feature : " + feature);
+		}
+		switch (transport) {
+		case "buffered":
+			break;
+		case "chunked":
+			builder = builder.withChunking(4096);
+			break;
+		case "gzip":
+			builder = builder.withCompression(1024);
+			break;
+		default:
+			throw new IllegalArgumentException("unknown transport : "
+					+ transport);
+		}
+		if (portPool > 0) {
+			builder = builder.withPortPool(portPool, portPool);
+		}
+
+		client = builder.build(EchoClient.class);
+		port = client.service();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		client.close();
+		server.close();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String singleThread() {
+		return port.echo(payload);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public String eightThreads() {
+		return port.echo(payload);
+	}
+}
@@ -0,0 +1,31 @@
+package fr.foop.ws.benchmarks;
+
+import com.google.common.base.Strings;
+
+import fr.foop.ws.tools.stub.EchoPort;
+import fr.foop.ws.tools.stub.StubSoapServer;
+
+final class Payloads {
+
+	public final static String PATH = "/echo";
+
+	public final static String ENDPOINT = "http://{{server}}" + PATH;
+
+	private Payloads() {
+	}
+
+	public static String of(final int size) {
+		return Strings.repeat("x", size);
+	}
+
+	/**
+	 * Start a stub server answering the echo operation with a payload of the
+	 * given size, after the given delay in millis.
+	 */
+	public static StubSoapServer echoServer(final int size, final int delay) {
+		return StubSoapServer.onFreePort().respond(
+				PATH,
+				"<ns:echoResponse xmlns:ns=\"" + EchoPort.NS + "\">" + of(size)
+						+ "</ns:echoResponse>", delay);
+	}
+}
@@ -0,0 +1,114 @@
+package fr.foop.ws;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+
+import fr.foop.ws.tools.service.SharedResources;
+
+/**
+ * The clients of an application, registered by name and built on the same
+ * shared resources : one CXF bus, one set of service managers, one timer and
+ * one worker pool, whatever the number of clients.
+ *
+ * Closing the registry destroys the registered clients, then releases the
+ * shared resources.
+ */
+public class ClientRegistry implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(ClientRegistry.class);
+
+	private final SharedResources resources;
+	private final ConcurrentMap<String, CxfClient<?, ?>> clients = new ConcurrentHashMap<String, CxfClient<?, ?>>();
+	/**
+	 * The names of the registered clients and of the ones being built.
+	 */
+	private final Set<String> reserved = Collections
+			.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	public ClientRegistry(final SharedResources resources) {
+		this.resources = resources;
+	}
+
+	/**
+	 * A registry sharing a new bus.
+	 */
+	public ClientRegistry() {
+		this(new SharedResources());
+	}
+
+	public SharedResources resources() {
+		return resources;
+	}
+
+	/**
+	 * Build the client on the shared resources and register it. The name is
+	 * reserved first, so that a duplicate is rejected before being built.
+	 *
+	 * @throws IllegalArgumentException
+	 *             when a client is already registered with this name.
+	 */
+	public <Port, Client extends CxfClient<Port, ?>> Client register(
+			final String name, final CxfClientBuilder builder,
+			final Class<Client> clazz) {
+		if (!reserved.add(name)) {
+			throw new IllegalArgumentException("a client named " + name
+					+ " is already registered");
+		}
+
+		final Client client;
+		try {
+			client = builder.withSharedResources(resources).build(clazz);
+		} catch (RuntimeException | Error e) {
+			reserved.remove(name);
+			throw e;
+		}
+		clients.put(name, client);
+		return client;
+	}
+
+	public <Client extends CxfClient<?, ?>> Optional<Client> get(
+			final String name, final Class<Client> clazz) {
+		final CxfClient<?, ?> client = clients.get(name);
+		return client == null ? Optional.<Client> absent() : Optional.of(clazz
+				.cast(client));
+	}
+
+	public ImmutableSet<String> names() {
+		return ImmutableSet.copyOf(clients.keySet());
+	}
+
+	/**
+	 * Unregister and destroy the named client, the shared resources stay open.
+	 */
+	public void close(final String name) {
+		final CxfClient<?, ?> client = clients.remove(name);
+		if (client != null) {
+			try {
+				client.destroy();
+			} finally {
+				reserved.remove(name);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		for (final String name : names()) {
+			try {
+				close(name);
+			} catch (final RuntimeException e) {
+				LOGGER.warn("failed to destroy client {}", name, e);
+			}
+		}
+		resources.close();
+	}
+}
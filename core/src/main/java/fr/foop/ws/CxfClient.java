@@ -0,0 +1,1015 @@
+package fr.foop.ws;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.cxf.frontend.ClientProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fr.foop.ws.tools.WebServicePortConfigurer;
+import fr.foop.ws.tools.async.AsyncPort;
+import fr.foop.ws.tools.cache.CachingInvoker;
+import fr.foop.ws.tools.coalescing.CoalescingInvoker;
+import fr.foop.ws.tools.deadline.AdaptiveTimeouts;
+import fr.foop.ws.tools.health.CircuitBreaker;
+import fr.foop.ws.tools.health.HealthChecker;
+import fr.foop.ws.tools.hedging.HedgingInvoker;
+import fr.foop.ws.tools.invocation.PortInvocationHandler;
+import fr.foop.ws.tools.invocation.PortInvoker;
+import fr.foop.ws.tools.logging.PayloadLogWriter;
+import fr.foop.ws.tools.metrics.ClientMetrics;
+import fr.foop.ws.tools.metrics.MetricsInvoker;
+import fr.foop.ws.tools.pool.PortLease;
+import fr.foop.ws.tools.pool.PortPool;
+import fr.foop.ws.tools.pool.PortPoolStats;
+import fr.foop.ws.tools.ratelimit.RateLimitStats;
+import fr.foop.ws.tools.ratelimit.RateLimits;
+import fr.foop.ws.tools.replay.CallRecorder;
+import fr.foop.ws.tools.replay.RecordingInvoker;
+import fr.foop.ws.tools.replay.Replay;
+import fr.foop.ws.tools.routing.ConcurrencyLimiter;
+import fr.foop.ws.tools.routing.ConnectionLimit;
+import fr.foop.ws.tools.routing.ElectionReport;
+import fr.foop.ws.tools.routing.LoadBalancing;
+import fr.foop.ws.tools.routing.NoServerAvailableException;
+import fr.foop.ws.tools.routing.ProbeResult;
+import fr.foop.ws.tools.routing.RoutingInvoker;
+import fr.foop.ws.tools.routing.ServerElection;
+import fr.foop.ws.tools.routing.ServerNode;
+import fr.foop.ws.tools.routing.ServerRouter;
+import fr.foop.ws.tools.service.ServiceManagerCache;
+import fr.foop.ws.tools.streaming.StreamingPort;
+import fr.foop.ws.tools.timing.PhaseStatistics;
+import fr.foop.ws.tools.warmup.Initialization;
+import fr.foop.ws.tools.warmup.WarmUp;
+import fr.foop.ws.tools.warmup.WarmUpReport;
+import fr.foop.ws.tools.wsse.WsseMode;
+
+public abstract class CxfClient<Port, ServiceManager> implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(CxfClient.class);
+
+	private final CxfClientBuilder config;
+	private final Port port;
+	private final Class<ServiceManager> smClazz;
+	private final Supplier<String> endpoint;
+	private final Supplier<Port> mockedPort;
+	private volatile Wiring<Port> wiring;
+	private final Supplier<AsyncPort<Port>> asyncPort;
+	private final Supplier<StreamingPort<Port>> streamingPort;
+	private final Optional<AdaptiveTimeouts> adaptiveTimeouts;
+	private final Optional<PhaseStatistics> phaseStatistics;
+	private final Optional<PayloadLogWriter> payloadLogWriter;
+	private volatile ExecutorService asyncCallbacks;
+	private volatile AsyncPort<Port> builtAsyncPort;
+	private volatile StreamingPort<Port> builtStreamingPort;
+	private final SettableFuture<Void> initialization = SettableFuture.create();
+
+	protected CxfClient(final CxfClientBuilder config,
+			final Class<ServiceManager> smClazz) {
+		this.config = config;
+		this.smClazz = smClazz;
+		this.phaseStatistics = config.phaseTimingEnabled ? Optional
+				.of(new PhaseStatistics(config.phaseTimingListener)) : Optional
+				.<PhaseStatistics> absent();
+		this.payloadLogWriter = config.payloadLogging.isPresent() ? Optional
+				.of(new PayloadLogWriter(config.payloadLogging.get()))
+				: Optional.<PayloadLogWriter> absent();
+		this.adaptiveTimeouts = config.adaptiveTimeouts.isPresent() ? Optional
+				.of(new AdaptiveTimeouts(config.adaptiveTimeouts.get(),
+						config.receiveTimeout)) : Optional
+				.<AdaptiveTimeouts> absent();
+		this.endpoint = Suppliers.memoize(new Supplier<String>() {
+			@Override
+			public String get() {
+				return detectEndpoint();
+			}
+		});
+		this.mockedPort = Suppliers.memoize(new Supplier<Port>() {
+			@Override
+			public Port get() {
+				return newMockedPort();
+			}
+		});
+		this.asyncPort = Suppliers.memoize(new Supplier<AsyncPort<Port>>() {
+			@Override
+			public AsyncPort<Port> get() {
+				return newAsyncPort();
+			}
+		});
+		this.streamingPort = Suppliers.memoize(new Supplier<StreamingPort<Port>>() {
+			@Override
+			public StreamingPort<Port> get() {
+				return newStreamingPort();
+			}
+		});
+
+		if (config.initialization == Initialization.EAGER) {
+			this.port = initialize().port;
+		} else {
+			this.port = exposeLazyPort();
+			if (config.initialization == Initialization.BACKGROUND) {
+				initializeInBackground();
+			}
+		}
+	}
+
+	/**
+	 * @return the elected servers and the invokers routing the calls to them,
+	 *         initialized on first use.
+	 */
+	private Wiring<Port> wiring() {
+		Wiring<Port> current = wiring;
+		if (current == null) {
+			synchronized (this) {
+				current = wiring;
+				if (current == null) {
+					current = wire();
+					wiring = current;
+					if (config.initialization != Initialization.BACKGROUND) {
+						initialization.set(null);
+					}
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Elect the servers, then chain the invokers routing the calls to them.
+	 */
+	private Wiring<Port> wire() {
+		final ElectionReport<Port> electionReport = electServers();
+		final ImmutableList<ServerNode<Port>> nodes = enableMockIfRequired(electionReport);
+		final ServerRouter<Port> router = new ServerRouter<Port>(nodes,
+				config.loadBalancing.newBalancer());
+		final Optional<HealthChecker<Port>> healthChecker = enableHealthCheckIfRequired(nodes);
+
+		final Optional<ClientMetrics> metrics = enableMetricsIfRequired(nodes);
+
+		final Optional<RateLimits> rateLimits = enableRateLimitsIfRequired();
+		final RoutingInvoker<Port> routing = new RoutingInvoker<Port>(router, metrics, rateLimits);
+		final Optional<HedgingInvoker<Port>> hedging = enableHedgingIfRequired(nodes, routing);
+		PortInvoker invoker = hedging.isPresent() ? hedging.get() : routing;
+		final Optional<CallRecorder> recorder = enableRecordingIfRequired(nodes);
+		invoker = recorder.isPresent() ? new RecordingInvoker(invoker, recorder.get()) : invoker;
+		final Optional<CoalescingInvoker> coalescing = enableCoalescingIfRequired(nodes, invoker);
+		invoker = coalescing.isPresent() ? coalescing.get() : invoker;
+		final Optional<CachingInvoker> cache = enableCacheIfRequired(nodes, invoker);
+		invoker = cache.isPresent() ? cache.get() : invoker;
+		invoker = metrics.isPresent() ? new MetricsInvoker(invoker, metrics.get()) : invoker;
+
+		final boolean featureEnabled = healthChecker.isPresent()
+				|| coalescing.isPresent() || cache.isPresent()
+				|| metrics.isPresent() || hedging.isPresent()
+				|| rateLimits.isPresent() || recorder.isPresent();
+		return new Wiring<Port>(electionReport, nodes, router, healthChecker,
+				metrics, rateLimits, hedging, recorder, coalescing, cache,
+				exposePort(nodes, invoker, featureEnabled));
+	}
+
+	/**
+	 * The port returned by service(), a proxy giving the calls to the invoker
+	 * when calls have to be spread between several ports, the server may
+	 * change, or a feature is enabled on the calls.
+	 * 
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private Port exposePort(final ImmutableList<ServerNode<Port>> nodes,
+			final PortInvoker invoker, final boolean featureEnabled) {
+		if (config.useMock && config.mockedPort.isPresent()) {
+			return mockedPort.get();
+		} else if (nodes.isEmpty()) {
+			return null;
+		} else if (!isProxyRequired(nodes, featureEnabled)) {
+			return nodes.get(0).port().get();
+		} else {
+			final Class<?> portClazz = portInterface();
+			return (Port) Proxy.newProxyInstance(portClazz.getClassLoader(),
+					new Class<?>[] { portClazz },
+					new PortInvocationHandler(invoker));
+		}
+	}
+
+	private boolean isProxyRequired(final ImmutableList<ServerNode<Port>> nodes,
+			final boolean featureEnabled) {
+		return nodes.size() > 1 || nodes.get(0).isPooled() || featureEnabled
+				|| config.maxConnectionsPerHost > 0
+				|| config.concurrencyLimit.isPresent();
+	}
+
+	/**
+	 * Elect the servers, then open the warm-up connections when configured.
+	 */
+	private Wiring<Port> initialize() {
+		final Wiring<Port> initialized = wiring();
+		if (config.warmUpConnections > 0 && !initialized.nodes.isEmpty()) {
+			warmUp(WarmUp.<Port> connections(config.warmUpConnections));
+		}
+		return initialized;
+	}
+
+	/**
+	 * Initialize on the shared workers, or on a thread of the client which
+	 * ends with the initialization.
+	 */
+	private void initializeInBackground() {
+		final ExecutorService initializer = workers().isPresent() ? workers()
+				.get() : Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+				.setDaemon(true)
+				.setNameFormat("cxf-client-init-" + getClass().getSimpleName())
+				.build());
+		initializer.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					initialize();
+					initialization.set(null);
+				} catch (RuntimeException e) {
+					LOGGER.warn("Failed to initialize Service [{}], retrying on first call",
+							getClass().getSimpleName(), e);
+					initialization.setException(e);
+				} catch (Error e) {
+					initialization.setException(e);
+					throw e;
+				}
+			}
+		});
+		if (!workers().isPresent()) {
+			initializer.shutdown();
+		}
+	}
+
+	/**
+	 * The port returned by service() until the servers are elected : each
+	 * call waits for the election, then goes to the elected port.
+	 */
+	@SuppressWarnings("unchecked")
+	private Port exposeLazyPort() {
+		if (config.useMock && config.mockedPort.isPresent()) {
+			return mockedPort.get();
+		}
+
+		final Class<?> portClazz = portInterface();
+		return (Port) Proxy.newProxyInstance(portClazz.getClassLoader(),
+				new Class<?>[] { portClazz },
+				new PortInvocationHandler(new PortInvoker() {
+					@Override
+					public Object invoke(final Method method, final Object[] args)
+							throws Throwable {
+						final Port elected = wiring().port;
+						if (elected == null) {
+							throw new NoServerAvailableException(
+									"no server available for " + endpoint.get());
+						}
+						try {
+							return method.invoke(elected, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+
+					@Override
+					public String toString() {
+						return wiring == null ? "[not initialized]"
+								: String.valueOf(wiring.port);
+					}
+				}));
+	}
+
+	/**
+	 * The mocked port object, or a port replaying a recording.
+	 */
+	@SuppressWarnings("unchecked")
+	private Port newMockedPort() {
+		final Object mocked = config.mockedPort.get();
+		if (mocked instanceof Replay) {
+			return (Port) ((Replay) mocked).port(portInterface());
+		}
+		return (Port) mocked;
+	}
+
+	private ImmutableList<ServerNode<Port>> enableMockIfRequired(final ElectionReport<Port> electionReport) {
+		if(config.useMock && config.mockedPort.isPresent()) {
+			return ImmutableList.of();
+		}
+		else if(isElectingSingleServer()) {
+			return electPort(electionReport);
+		}
+		else {
+			return electPorts(electionReport);
+		}
+	}
+
+	private Optional<HealthChecker<Port>> enableHealthCheckIfRequired(final ImmutableList<ServerNode<Port>> nodes) {
+		if (nodes.isEmpty() || !config.isHealthCheckEnabled()) {
+			return Optional.absent();
+		}
+
+		final HealthChecker<Port> checker = new HealthChecker<Port>(nodes,
+				new HealthChecker.ProbePortFactory<Port>() {
+					@Override
+					public Port create(final String server) {
+						return instanciateForServer(server);
+					}
+				}, new HealthChecker.Probe<Port>() {
+					@Override
+					public void check(final Port port) throws Exception {
+						checkIfPortUp(port);
+					}
+				}, timer());
+		checker.start(config.healthCheckInterval);
+
+		return Optional.of(checker);
+	}
+
+	private Optional<ClientMetrics> enableMetricsIfRequired(final ImmutableList<ServerNode<Port>> nodes) {
+		if (nodes.isEmpty() || !config.metricsEnabled) {
+			return Optional.absent();
+		}
+
+		final List<String> servers = new ArrayList<String>();
+		for (final ServerNode<Port> node : nodes) {
+			servers.add(node.server());
+		}
+
+		final ClientMetrics clientMetrics = new ClientMetrics(portInterface(), servers);
+		clientMetrics.register(getClass().getSimpleName() + "@"
+				+ Integer.toHexString(System.identityHashCode(this)));
+
+		return Optional.of(clientMetrics);
+	}
+
+	private Optional<RateLimits> enableRateLimitsIfRequired() {
+		if (!config.rateLimit.isPresent() && config.operationRateLimits.isEmpty()) {
+			return Optional.absent();
+		}
+
+		return Optional.of(new RateLimits(endpoint.get(), config.rateLimit,
+				portInterface(), config.operationRateLimits));
+	}
+
+	private Optional<HedgingInvoker<Port>> enableHedgingIfRequired(
+			final ImmutableList<ServerNode<Port>> nodes, final RoutingInvoker<Port> routing) {
+		if (nodes.size() < 2 || config.hedgedOperations.isEmpty()) {
+			return Optional.absent();
+		}
+
+		return Optional.of(new HedgingInvoker<Port>(routing, portInterface(),
+				config.hedgingPolicy, config.hedgedOperations, workers()));
+	}
+
+	private Optional<CallRecorder> enableRecordingIfRequired(
+			final ImmutableList<ServerNode<Port>> nodes) {
+		if (nodes.isEmpty() || !config.recording.isPresent()) {
+			return Optional.absent();
+		}
+
+		return Optional.of(new CallRecorder(new File(config.recording.get())));
+	}
+
+	private Optional<CoalescingInvoker> enableCoalescingIfRequired(
+			final ImmutableList<ServerNode<Port>> nodes, final PortInvoker invoker) {
+		if (nodes.isEmpty() || config.coalescedOperations.isEmpty()) {
+			return Optional.absent();
+		}
+
+		return Optional.of(new CoalescingInvoker(invoker, portInterface(),
+				config.coalescedOperations));
+	}
+
+	private Optional<CachingInvoker> enableCacheIfRequired(
+			final ImmutableList<ServerNode<Port>> nodes, final PortInvoker invoker) {
+		if (nodes.isEmpty() || config.responseCaches.isEmpty()) {
+			return Optional.absent();
+		}
+
+		return Optional.of(new CachingInvoker(invoker, portInterface(),
+				config.responseCaches, workers()));
+	}
+
+	/**
+	 * Resolve the Port interface from the generic types of the concrete client
+	 * class.
+	 * 
+	 * @return
+	 */
+	protected Class<?> portInterface() {
+		final Class<?> portClazz = new TypeToken<Port>(getClass()) {
+			private static final long serialVersionUID = 1L;
+		}.getRawType();
+
+		if (!portClazz.isInterface()) {
+			throw new IllegalStateException(
+					"unable to resolve the port interface of "
+							+ getClass().getName() + ", found : " + portClazz);
+		}
+
+		return portClazz;
+	}
+	
+	public CxfClientBuilder config() {
+		return config;
+	}
+
+	public abstract void checkIfPortUp(final Port port) throws Exception;
+
+	public abstract Port newPort(final ServiceManager serviceManager);
+
+	private String detectEndpoint() {
+		if (config.endpoint.isPresent()) {
+			return config.endpoint.get();
+		} else {
+			return ClientProxy.getClient(newSharedPort(serviceManagers()
+					.withDefaultWsdl(smClazz))).getEndpoint().getEndpointInfo()
+					.getAddress();
+		}
+	}
+
+	/**
+	 * Create a port from a service manager shared with the other ports of the
+	 * contract, one at a time.
+	 */
+	private Port newSharedPort(final ServiceManager serviceManager) {
+		synchronized (serviceManager) {
+			return newPort(serviceManager);
+		}
+	}
+
+	private Port newNoEndpointPort() {
+		return newSharedPort(serviceManagers().noEndpoint(smClazz));
+	}
+
+	private ServiceManagerCache serviceManagers() {
+		return config.sharedResources.isPresent() ? config.sharedResources
+				.get().serviceManagers() : ServiceManagerCache.shared();
+	}
+
+	private Optional<ScheduledExecutorService> timer() {
+		return config.sharedResources.isPresent() ? Optional
+				.of(config.sharedResources.get().timer()) : Optional
+				.<ScheduledExecutorService> absent();
+	}
+
+	private Optional<ExecutorService> workers() {
+		return config.sharedResources.isPresent() ? Optional
+				.of(config.sharedResources.get().workers()) : Optional
+				.<ExecutorService> absent();
+	}
+
+	/**
+	 * Instanciate a configured web service port the provided server.
+	 * @param server
+	 * @return
+	 */
+	private Port instanciateForServer(final String server) {
+		final Port port = newNoEndpointPort();
+		configure(new WebServicePortConfigurer<Port>(port), server);
+		return port;
+	}
+
+	/**
+	 * Instanciate a configured web service port for asynchronous calls to the
+	 * provided server.
+	 * @param server
+	 * @return
+	 */
+	private Port instanciateAsyncForServer(final String server) {
+		final Port port = newNoEndpointPort();
+		final WebServicePortConfigurer<Port> configurer = new WebServicePortConfigurer<Port>(port);
+		configure(configurer, server);
+		configurer.configureAsyncTransport();
+		return port;
+	}
+
+	/**
+	 * Instanciate a configured web service port for streamed calls to the
+	 * provided server.
+	 * @param server
+	 * @return
+	 */
+	private Port instanciateStreamingForServer(final String server) {
+		final Port port = newNoEndpointPort();
+		final WebServicePortConfigurer<Port> configurer = new WebServicePortConfigurer<Port>(port);
+		configure(configurer, server);
+		configurer.configureStreaming();
+		return port;
+	}
+
+	private void configure(final WebServicePortConfigurer<Port> configurer, final String server) {
+		configurer.configureEndpoint(endpoint.get(), server);
+		
+		if(payloadLogWriter.isPresent()) {
+			configurer.configurePayloadLogging(payloadLogWriter.get(), config.inLogger, config.outLogger);
+		} else {
+			if(config.inLogger.isPresent()) {
+				configurer.configureInLogger(config.inLogger.get());
+			}
+
+			if(config.outLogger.isPresent()) {
+				configurer.configureOutLogger(config.outLogger.get());
+			}
+		}
+		
+		if(config.wsseUser.isPresent() && config.wssePwd.isPresent()) {
+			if(config.wsseMode.isStreaming()) {
+				configurer.configureStreamingWsse(config.wsseUser.get(), config.wssePwd.get(),
+						config.wsseMode == WsseMode.STREAMING_NONCE,
+						config.wsseMode == WsseMode.STREAMING_DIGEST);
+			} else {
+				configurer.configureWsse(config.wsseUser.get(), config.wssePwd.get());
+			}
+		}
+		
+		if(phaseStatistics.isPresent()) {
+			configurer.configurePhaseTiming(phaseStatistics.get());
+		}
+		
+		configurer.configureTimeouts(config.connectionTimeout, config.receiveTimeout);
+		configurer.configureDeadlines(config.connectionTimeout, config.receiveTimeout, adaptiveTimeouts);
+		configurer.configureChunking(config.allowChunking, config.chunkingThreshold);
+		configurer.configureKeepAlive(config.keepAlive);
+
+		if(config.isCompressionEnabled()) {
+			configurer.configureCompression(config.compressionThreshold);
+		}
+
+		if(config.isMtomEnabled()) {
+			configurer.configureMtom(config.mtomThreshold);
+		}
+
+		configurer.configureAttachmentSpooling(config.attachmentDirectory, config.attachmentMemoryThreshold);
+	}
+
+	private AsyncPort<Port> newAsyncPort() {
+		if (config.useMock && config.mockedPort.isPresent()) {
+			return AsyncPort.mocked(portInterface(), mockedPort.get());
+		}
+
+		final Wiring<Port> wired = wiring();
+		final Map<String, Port> ports = new HashMap<String, Port>();
+		for (final ServerNode<Port> node : wired.nodes) {
+			ports.put(node.server(), instanciateAsyncForServer(node.server()));
+		}
+
+		builtAsyncPort = new AsyncPort<Port>(portInterface(), wired.router,
+				ports, wired.rateLimits, asyncCallbacks());
+		return builtAsyncPort;
+	}
+
+	/**
+	 * @return the shared workers, or the client own threads completing the
+	 *         asynchronous calls : the callbacks must not run on the HTTP
+	 *         conduit threads.
+	 */
+	private ExecutorService asyncCallbacks() {
+		if (workers().isPresent()) {
+			return workers().get();
+		}
+		asyncCallbacks = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+				.setDaemon(true).setNameFormat("cxf-client-async-%d").build());
+		return asyncCallbacks;
+	}
+
+	private StreamingPort<Port> newStreamingPort() {
+		if (config.useMock && config.mockedPort.isPresent()) {
+			return StreamingPort.mocked(portInterface(), mockedPort.get());
+		}
+
+		final Wiring<Port> wired = wiring();
+		final Map<String, Port> ports = new HashMap<String, Port>();
+		for (final ServerNode<Port> node : wired.nodes) {
+			ports.put(node.server(), instanciateStreamingForServer(node.server()));
+		}
+
+		builtStreamingPort = new StreamingPort<Port>(portInterface(),
+				wired.router, ports, wired.rateLimits);
+		return builtStreamingPort;
+	}
+
+	/**
+	 * Wrap a checked port in a server node, backed by a port pool when
+	 * enabled.
+	 * 
+	 * @param server
+	 * @param checkedPort
+	 * @return
+	 */
+	private ServerNode<Port> newNode(final String server, final Port checkedPort) {
+		final Optional<CircuitBreaker> breaker = config.isHealthCheckEnabled() ? Optional
+				.of(new CircuitBreaker(config.circuitBreakerFailures,
+						config.circuitBreakerOpenTime)) : Optional
+				.<CircuitBreaker> absent();
+		final ConnectionLimit connections = ConnectionLimit.of(
+				config.maxConnectionsPerHost, config.connectionTimeout);
+		final Optional<ConcurrencyLimiter> limiter = config.concurrencyLimit
+				.isPresent() ? Optional.of(new ConcurrencyLimiter(
+				config.concurrencyLimit.get())) : Optional
+				.<ConcurrencyLimiter> absent();
+
+		if (!config.isPortPoolEnabled()) {
+			return ServerNode.single(server, checkedPort, breaker, connections,
+					limiter);
+		}
+
+		return ServerNode.pooled(server, new PortPool<Port>(
+				new PortPool.PortFactory<Port>() {
+					@Override
+					public Port create() {
+						return instanciateForServer(server);
+					}
+				}, config.portPoolMin, config.portPoolMax,
+				config.portPoolTimeout), breaker, connections, limiter);
+	}
+
+	/**
+	 * Probe the configured servers : only until one is up in the default
+	 * failover mode, all of them when balancing calls or health checking.
+	 * @return
+	 */
+	private ElectionReport<Port> electServers() {
+		if ((config.useMock && config.mockedPort.isPresent())
+				|| config.servers.size() == 0) {
+			return ElectionReport.empty();
+		}
+
+		final ServerElection<Port> election = new ServerElection<Port>(
+				new HealthChecker.ProbePortFactory<Port>() {
+					@Override
+					public Port create(final String server) {
+						return instanciateForServer(server);
+					}
+				}, new HealthChecker.Probe<Port>() {
+					@Override
+					public void check(final Port port) throws Exception {
+						checkIfPortUp(port);
+					}
+				}, config.electionParallelism);
+
+		final ElectionReport<Port> report = isElectingSingleServer() ? election
+				.elect(config.servers, config.electionPolicy) : election
+				.probeAll(config.servers);
+
+		for (final ProbeResult<Port> result : report.results) {
+			if (result.status == ProbeResult.Status.DOWN) {
+				LOGGER.warn("Failed to instanciate Service [{}] : {}",
+						endpoint.get() + " <-- " + result.server,
+						result.error.orNull());
+			}
+		}
+		LOGGER.info("Service [{}] {}", endpoint.get(), report);
+
+		return report;
+	}
+
+	private boolean isElectingSingleServer() {
+		return config.loadBalancing == LoadBalancing.FAILOVER
+				&& !config.isHealthCheckEnabled();
+	}
+
+	/**
+	 * Try to find a working Web Service Port for the given server list.
+	 * @return
+	 */
+	private ImmutableList<ServerNode<Port>> electPort(final ElectionReport<Port> electionReport) {
+		if (config.servers.size() == 0) {
+			return ImmutableList.of(newNode("", instanciateForServer("")));
+		}
+
+		for (final ProbeResult<Port> result : electionReport.results) {
+			if (result.isUp()) {
+				return ImmutableList.of(newNode(result.server, result.port()
+						.get()));
+			}
+		}
+
+		return ImmutableList.of();
+	}
+
+	/**
+	 * Find all the working Web Service Ports, to balance the calls between
+	 * them. When health checking is enabled, the servers down are kept with
+	 * an open circuit breaker, so they can come back later.
+	 * @return
+	 */
+	private ImmutableList<ServerNode<Port>> electPorts(final ElectionReport<Port> electionReport) {
+		if (config.servers.size() == 0) {
+			return electPort(electionReport);
+		}
+
+		final ImmutableList.Builder<ServerNode<Port>> upNodes = ImmutableList.builder();
+
+		for (final ProbeResult<Port> result : electionReport.results) {
+			if (result.isUp()) {
+				upNodes.add(newNode(result.server, result.port().get()));
+			} else if (config.isHealthCheckEnabled()) {
+				final ServerNode<Port> down = newNode(result.server, result
+						.port().isPresent() ? result.port().get()
+						: instanciateForServer(result.server));
+				down.breaker().get().trip();
+				upNodes.add(down);
+			}
+		}
+
+		return upNodes.build();
+	}
+
+	/**
+	 * When the port pool, the load balancing or the health check is enabled,
+	 * the returned port is a proxy routing each call to a server port, it can
+	 * be shared between threads. In lazy and background initialization, it is
+	 * a proxy waiting for the servers to be elected.
+	 * 
+	 * @return
+	 */
+	public Port service() {
+		return port;
+	}
+
+	/**
+	 * @return true once the servers are elected, always true in eager mode.
+	 */
+	public boolean isInitialized() {
+		return wiring != null;
+	}
+
+	/**
+	 * @return completed once the servers are elected, and in background
+	 *         initialization the warm-up connections opened. It fails when the
+	 *         background initialization fails : the calls then retry the
+	 *         election.
+	 */
+	public ListenableFuture<Void> initialization() {
+		return initialization;
+	}
+
+	/**
+	 * Open connections to every server and replay the sample calls, waiting
+	 * for the servers to be elected first.
+	 * 
+	 * @return
+	 */
+	public WarmUpReport warmUp(final WarmUp<Port> warmUp) {
+		return warmUp.run(portInterface(), wiring().nodes,
+				new HealthChecker.Probe<Port>() {
+					@Override
+					public void check(final Port port) throws Exception {
+						checkIfPortUp(port);
+					}
+				});
+	}
+
+	/**
+	 * The non blocking facade of the service, its ports are created on first
+	 * use. Futures are completed on the shared workers, or on threads of the
+	 * client when it does not use shared resources.
+	 * 
+	 * @return
+	 */
+	public AsyncPort<Port> async() {
+		return asyncPort.get();
+	}
+
+	/**
+	 * @param executor
+	 *            the executor completing the futures.
+	 * @return
+	 */
+	public AsyncPort<Port> async(final Executor executor) {
+		return asyncPort.get().withExecutor(executor);
+	}
+
+	/**
+	 * The streaming facade of the service, to read large responses record
+	 * after record. Its ports are created on first use.
+	 * 
+	 * @return
+	 */
+	public StreamingPort<Port> streaming() {
+		return streamingPort.get();
+	}
+
+	/**
+	 * Lease a port from the pool for a sequence of calls. The lease must be
+	 * closed afterward to give the port back.
+	 * 
+	 * @return
+	 */
+	public PortLease<Port> lease() {
+		final Wiring<Port> wired = wiring();
+		if (wired.nodes.isEmpty() || !config.isPortPoolEnabled()) {
+			throw new IllegalStateException(
+					"port pool is not enabled for this client");
+		}
+		return wired.router.select().lease();
+	}
+
+	/**
+	 * @return the pool statistics for each server, empty when the pool is
+	 *         disabled.
+	 */
+	public ImmutableMap<String, PortPoolStats> poolStats() {
+		final ImmutableMap.Builder<String, PortPoolStats> stats = ImmutableMap.builder();
+
+		for (final ServerNode<Port> node : wiring().nodes) {
+			if (node.poolStats().isPresent()) {
+				stats.put(node.server(), node.poolStats().get());
+			}
+		}
+
+		return stats.build();
+	}
+
+	/**
+	 * @return the servers receiving the calls, with their live statistics.
+	 */
+	public ImmutableList<ServerNode<Port>> nodes() {
+		return wiring().nodes;
+	}
+
+	/**
+	 * @return how long the server election took when the client was built,
+	 *         and what each server probe returned.
+	 */
+	public ElectionReport<Port> electionReport() {
+		return wiring().electionReport;
+	}
+
+	/**
+	 * @return the hit, miss and eviction counters of each cached operation.
+	 */
+	public ImmutableMap<String, CacheStats> cacheStats() {
+		final Optional<CachingInvoker> cache = wiring().cache;
+		if (cache.isPresent()) {
+			return cache.get().stats();
+		}
+		return ImmutableMap.of();
+	}
+
+	/**
+	 * @return the number of calls which shared the in-flight request of an
+	 *         identical call.
+	 */
+	public long coalescedCalls() {
+		final Optional<CoalescingInvoker> coalescing = wiring().coalescing;
+		if (coalescing.isPresent()) {
+			return coalescing.get().coalescedCalls();
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the call metrics by operation and by server, absent when
+	 *         metrics are disabled. They are also exposed through JMX.
+	 */
+	public Optional<ClientMetrics> metrics() {
+		return wiring().metrics;
+	}
+
+	/**
+	 * @return the time spent in each phase of the calls, absent when phase
+	 *         timing is disabled.
+	 */
+	public Optional<PhaseStatistics> phaseStatistics() {
+		return phaseStatistics;
+	}
+
+	/**
+	 * @return the number of payloads not logged because the log queue was
+	 *         full, 0 when payload logging is disabled.
+	 */
+	public long droppedPayloadLogs() {
+		return payloadLogWriter.isPresent() ? payloadLogWriter.get().dropped() : 0;
+	}
+
+	/**
+	 * @return the adaptive receive timeout in millis of each called operation,
+	 *         empty when adaptive timeouts are disabled.
+	 */
+	public ImmutableMap<String, Long> receiveTimeouts() {
+		return adaptiveTimeouts.isPresent() ? adaptiveTimeouts.get()
+				.receiveTimeouts() : ImmutableMap.<String, Long> of();
+	}
+
+	/**
+	 * @return the rate limit statistics by operation, the endpoint ones under
+	 *         {@link RateLimits#ENDPOINT}, empty when not rate limited.
+	 */
+	public ImmutableMap<String, RateLimitStats> rateLimitStats() {
+		final Optional<RateLimits> rateLimits = wiring().rateLimits;
+		return rateLimits.isPresent() ? rateLimits.get().stats() : ImmutableMap
+				.<String, RateLimitStats> of();
+	}
+
+	/**
+	 * @return the number of calls sent to a second server, 0 when hedging is
+	 *         disabled.
+	 */
+	public long hedgedCalls() {
+		final Optional<HedgingInvoker<Port>> hedging = wiring().hedging;
+		return hedging.isPresent() ? hedging.get().hedgedCalls() : 0;
+	}
+
+	/**
+	 * @return the number of hedged calls answered first by the second server.
+	 */
+	public long hedgeWins() {
+		final Optional<HedgingInvoker<Port>> hedging = wiring().hedging;
+		return hedging.isPresent() ? hedging.get().hedgeWins() : 0;
+	}
+
+	/**
+	 * @return the number of hedged calls whose losing attempt is still
+	 *         running.
+	 */
+	public int hedgeLosersRunning() {
+		final Optional<HedgingInvoker<Port>> hedging = wiring().hedging;
+		return hedging.isPresent() ? hedging.get().runningLosers() : 0;
+	}
+
+	/**
+	 * Drop all the cached responses.
+	 */
+	public void invalidateCache() {
+		final Optional<CachingInvoker> cache = wiring().cache;
+		if (cache.isPresent()) {
+			cache.get().invalidateAll();
+		}
+	}
+
+	/**
+	 * Stop the background health checks, cache refreshes, payload logging,
+	 * hedged calls and asynchronous callbacks, and unregister the metrics
+	 * MBean.
+	 */
+	@Override
+	public void close() {
+		final Wiring<Port> wired = wiring;
+		if (wired != null) {
+			wired.close();
+		}
+		if (payloadLogWriter.isPresent()) {
+			payloadLogWriter.get().close();
+		}
+		if (asyncCallbacks != null) {
+			asyncCallbacks.shutdown();
+		}
+	}
+
+	/**
+	 * Close the client, then the HTTP conduits of its server ports, of its
+	 * health check ports, and of the ports of the asynchronous and streaming
+	 * facades. The calls in flight must be done, the client cannot be used
+	 * anymore.
+	 */
+	public void destroy() {
+		close();
+
+		final Wiring<Port> wired = wiring;
+		if (wired == null) {
+			return;
+		}
+		for (final ServerNode<Port> node : wired.nodes) {
+			destroyPorts(node.evictPorts());
+		}
+		if (wired.healthChecker.isPresent()) {
+			destroyPorts(wired.healthChecker.get().probePorts());
+		}
+		if (builtAsyncPort != null) {
+			destroyPorts(builtAsyncPort.ports());
+		}
+		if (builtStreamingPort != null) {
+			destroyPorts(builtStreamingPort.ports());
+		}
+	}
+
+	private static void destroyPorts(final Iterable<?> ports) {
+		for (final Object port : ports) {
+			ClientProxy.getClient(port).destroy();
+		}
+	}
+}
@@ -0,0 +1,1150 @@
+package fr.foop.ws;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import fr.foop.ws.tools.cache.CachePolicy;
+import fr.foop.ws.tools.configurators.CxfClientBuilderConfigurator;
+import fr.foop.ws.tools.configurators.PropertyMeta;
+import fr.foop.ws.tools.deadline.AdaptiveTimeoutPolicy;
+import fr.foop.ws.tools.hedging.HedgingPolicy;
+import fr.foop.ws.tools.logging.PayloadLogPolicy;
+import fr.foop.ws.tools.ratelimit.RateLimitPolicy;
+import fr.foop.ws.tools.replay.Replay;
+import fr.foop.ws.tools.routing.ConcurrencyLimitPolicy;
+import fr.foop.ws.tools.routing.ElectionPolicy;
+import fr.foop.ws.tools.routing.LoadBalancing;
+import fr.foop.ws.tools.service.SharedResources;
+import fr.foop.ws.tools.timing.PhaseTimingListener;
+import fr.foop.ws.tools.warmup.Initialization;
+import fr.foop.ws.tools.wsse.WsseMode;
+
+public class CxfClientBuilder {
+
+	public final Optional<String> endpoint;
+
+	public final Optional<String> wsseUser;
+
+	public final Optional<String> wssePwd;
+
+	public final long connectionTimeout;
+
+	public final long receiveTimeout;
+
+	public final ImmutableList<String> servers;
+
+	public final Optional<Logger> inLogger;
+
+	public final Optional<Logger> outLogger;
+	
+	public final Optional<Object> mockedPort;
+	
+	public final boolean useMock;
+
+	public final int portPoolMin;
+
+	public final int portPoolMax;
+
+	public final long portPoolTimeout;
+
+	public final LoadBalancing loadBalancing;
+
+	public final long healthCheckInterval;
+
+	public final int circuitBreakerFailures;
+
+	public final long circuitBreakerOpenTime;
+
+	public final int electionParallelism;
+
+	public final ElectionPolicy electionPolicy;
+
+	public final ImmutableMap<String, CachePolicy> responseCaches;
+
+	public final ImmutableSet<String> coalescedOperations;
+
+	public final boolean metricsEnabled;
+
+	public final boolean phaseTimingEnabled;
+
+	public final Optional<PhaseTimingListener> phaseTimingListener;
+
+	public final Optional<PayloadLogPolicy> payloadLogging;
+
+	public final WsseMode wsseMode;
+
+	public final boolean allowChunking;
+
+	public final int chunkingThreshold;
+
+	public final boolean keepAlive;
+
+	public final int maxConnectionsPerHost;
+
+	public final int compressionThreshold;
+
+	public final int mtomThreshold;
+
+	public final Optional<String> attachmentDirectory;
+
+	public final long attachmentMemoryThreshold;
+
+	public final HedgingPolicy hedgingPolicy;
+
+	public final ImmutableSet<String> hedgedOperations;
+
+	public final Optional<AdaptiveTimeoutPolicy> adaptiveTimeouts;
+
+	public final Optional<ConcurrencyLimitPolicy> concurrencyLimit;
+
+	public final Optional<RateLimitPolicy> rateLimit;
+
+	public final ImmutableMap<String, RateLimitPolicy> operationRateLimits;
+
+	public final Initialization initialization;
+
+	public final int warmUpConnections;
+
+	public final Optional<SharedResources> sharedResources;
+
+	public final Optional<String> recording;
+
+	private final static String[] propNames = new String[] { "endpoint",
+			"wsseUser", "wssePwd", "connectionTimeout", "receiveTimeout",
+			"inLogger", "outLogger", "logger", "mockedPort", "useMock", "servers",
+			"portPool", "portPoolTimeout", "loadBalancing",
+			"healthCheckInterval", "circuitBreakerFailures", "circuitBreakerOpenTime",
+			"electionParallelism", "electionPolicy",
+			"responseCaches", "coalescedOperations",
+			"metrics", "phaseTiming", "payloadLogging", "wsseMode",
+			"chunking", "chunkingThreshold", "keepAlive",
+			"maxConnectionsPerHost", "compressionThreshold", "mtomThreshold",
+			"attachmentDirectory", "attachmentMemoryThreshold",
+			"hedging", "hedgedOperations", "adaptiveTimeouts", "concurrencyLimit",
+			"rateLimit", "operationRateLimits", "initialization", "warmUpConnections", "recording" };
+	
+	private final static ImmutableMap<String, PropertyMeta> propMetas = ImmutableMap
+			.<String, PropertyMeta> builder()
+			.put("endpoint",
+					new PropertyMeta(
+							"The web service endpoint, can contain the variable {{server}}, in this case it would be replaced by one of the server defined in servers.",
+							CxfClientBuilderConfigurator.ENDPOINT_CONFIGURATOR))
+			.put("wsseUser",
+					new PropertyMeta(
+							"The user to pass as WSSE user credential", CxfClientBuilderConfigurator.WSSE_USER_CONFIGURATOR))
+			.put("wssePwd",
+					new PropertyMeta(
+							"The password to pass as the WSSE password credential (only PasswordText supported for now)",
+							CxfClientBuilderConfigurator.WSSE_PWD_CONFIGURATOR))
+			.put("connectionTimeout",
+					new PropertyMeta(
+							"the time in millis before timeout during connection",
+							CxfClientBuilderConfigurator.CONNECTION_TIMEOUT_CONFIGURATOR))
+			.put("receiveTimeout",
+					new PropertyMeta(
+							"The time in millis to wait before timeout while not receiving data",
+							CxfClientBuilderConfigurator.RECEIVE_TIMEOUT_CONFIGURATOR))
+			.put("inLogger",
+					new PropertyMeta(
+							"The logger name to use for client request sent to the server (seen from server side)",
+							CxfClientBuilderConfigurator.INLOGGER_CONFIGURATOR))
+			.put("outLogger",
+					new PropertyMeta(
+							"The logger name to log server response sent to the client (seen from server side)",
+							CxfClientBuilderConfigurator.OUTLOGGER_CONFIGURATOR))
+			.put("logger",
+					new PropertyMeta(
+							"The logger name to use for both in/out logger. It will override in/out logger settings",
+							CxfClientBuilderConfigurator.LOGGER_CONFIGURATOR))
+			.put("mockedPort",
+					new PropertyMeta(
+							"The mocked object to use as port, it must implements the CXF generated port interface, or replay:file[,latencyScale] to replay a recording",
+							CxfClientBuilderConfigurator.MOCKED_PORT_CONFIGURATOR))
+			.put("useMock",
+					new PropertyMeta(
+							"A flag to enable or disable the use of the mocked port object",
+							CxfClientBuilderConfigurator.USE_MOCK_CONFIGURATOR))
+			.put("servers",
+					new PropertyMeta(
+							"Comma separated list of server to use in the endpoint, they will be tried turn by turn at service initialisation",
+							CxfClientBuilderConfigurator.SERVERS_CONFIGURATOR))
+			.put("portPool",
+					new PropertyMeta(
+							"The port pool bounds as min,max. When set, each call leases its own port from the pool instead of sharing a single port",
+							CxfClientBuilderConfigurator.PORT_POOL_CONFIGURATOR))
+			.put("portPoolTimeout",
+					new PropertyMeta(
+							"The time in millis to wait for a pooled port when all of them are in use",
+							CxfClientBuilderConfigurator.PORT_POOL_TIMEOUT_CONFIGURATOR))
+			.put("loadBalancing",
+					new PropertyMeta(
+							"How calls are routed between servers : failover (default, first server up), round-robin, least-outstanding or ewma (lowest latency)",
+							CxfClientBuilderConfigurator.LOAD_BALANCING_CONFIGURATOR))
+			.put("healthCheckInterval",
+					new PropertyMeta(
+							"The time in millis between two background health checks of every server, 0 disables the health checks",
+							CxfClientBuilderConfigurator.HEALTH_CHECK_INTERVAL_CONFIGURATOR))
+			.put("circuitBreakerFailures",
+					new PropertyMeta(
+							"The number of consecutive call failures before a server is considered down",
+							CxfClientBuilderConfigurator.CIRCUIT_BREAKER_FAILURES_CONFIGURATOR))
+			.put("circuitBreakerOpenTime",
+					new PropertyMeta(
+							"The time in millis a down server is left alone before being health checked again",
+							CxfClientBuilderConfigurator.CIRCUIT_BREAKER_OPEN_TIME_CONFIGURATOR))
+			.put("electionParallelism",
+					new PropertyMeta(
+							"The number of servers probed at the same time when the client is built, 1 (default) probes them one after the other",
+							CxfClientBuilderConfigurator.ELECTION_PARALLELISM_CONFIGURATOR))
+			.put("electionPolicy",
+					new PropertyMeta(
+							"Which server is elected when probed concurrently : priority (default, first up in the server list) or fastest (first to answer)",
+							CxfClientBuilderConfigurator.ELECTION_POLICY_CONFIGURATOR))
+			.put("responseCaches",
+					new PropertyMeta(
+							"Comma separated list of cached operations, as operation:ttl:maxEntries[:refreshAfter], times in millis",
+							CxfClientBuilderConfigurator.RESPONSE_CACHES_CONFIGURATOR))
+			.put("coalescedOperations",
+					new PropertyMeta(
+							"Comma separated list of operations whose identical concurrent calls share a single request",
+							CxfClientBuilderConfigurator.COALESCED_OPERATIONS_CONFIGURATOR))
+			.put("metrics",
+					new PropertyMeta(
+							"A flag to record calls, errors and latency percentiles per operation and per server, exposed through JMX",
+							CxfClientBuilderConfigurator.METRICS_CONFIGURATOR))
+			.put("phaseTiming",
+					new PropertyMeta(
+							"A flag to time each phase of the calls (marshalling, security, network, unmarshalling...)",
+							CxfClientBuilderConfigurator.PHASE_TIMING_CONFIGURATOR))
+			.put("payloadLogging",
+					new PropertyMeta(
+							"Log the payloads to the in/out loggers from a background thread, as maxBytes[:sampling|errors[:queueSize]] : the bytes kept per payload, one call logged out of sampling or only the failed ones, the payloads waiting to be written",
+							CxfClientBuilderConfigurator.PAYLOAD_LOGGING_CONFIGURATOR))
+			.put("wsseMode",
+					new PropertyMeta(
+							"How the WSSE credentials are added : dom (default, WSS4J), streaming (written without DOM conversion) or streaming-nonce (with nonce and created timestamp)",
+							CxfClientBuilderConfigurator.WSSE_MODE_CONFIGURATOR))
+			.put("chunking",
+					new PropertyMeta(
+							"A flag to stream the requests with chunked transfer encoding instead of buffering them to compute their length (default false)",
+							CxfClientBuilderConfigurator.CHUNKING_CONFIGURATOR))
+			.put("chunkingThreshold",
+					new PropertyMeta(
+							"The request size in bytes from which chunked transfer encoding is used, when chunking is enabled",
+							CxfClientBuilderConfigurator.CHUNKING_THRESHOLD_CONFIGURATOR))
+			.put("keepAlive",
+					new PropertyMeta(
+							"A flag to keep the HTTP connections open between calls (default true)",
+							CxfClientBuilderConfigurator.KEEP_ALIVE_CONFIGURATOR))
+			.put("maxConnectionsPerHost",
+					new PropertyMeta(
+							"The maximum number of connections, so of calls in flight, to each server, 0 (default) for no limit",
+							CxfClientBuilderConfigurator.MAX_CONNECTIONS_PER_HOST_CONFIGURATOR))
+			.put("compressionThreshold",
+					new PropertyMeta(
+							"The request size in bytes from which requests are GZIP compressed, GZIP responses are accepted as soon as it is set",
+							CxfClientBuilderConfigurator.COMPRESSION_THRESHOLD_CONFIGURATOR))
+			.put("mtomThreshold",
+					new PropertyMeta(
+							"Enable MTOM : the binary contents from this size in bytes are sent as attachments instead of base64 in the body",
+							CxfClientBuilderConfigurator.MTOM_THRESHOLD_CONFIGURATOR))
+			.put("attachmentDirectory",
+					new PropertyMeta(
+							"The directory where the large attachments received are spooled",
+							CxfClientBuilderConfigurator.ATTACHMENT_DIRECTORY_CONFIGURATOR))
+			.put("attachmentMemoryThreshold",
+					new PropertyMeta(
+							"The size in bytes from which the attachments received are spooled to disk (default 102400)",
+							CxfClientBuilderConfigurator.ATTACHMENT_MEMORY_THRESHOLD_CONFIGURATOR))
+			.put("hedging",
+					new PropertyMeta(
+							"When the hedged operations calls are sent again to another server, as delay[:quantile[:budget]] : the delay in millis used until the quantile of the operation latency is known (default 100:0.95:0.05)",
+							CxfClientBuilderConfigurator.HEDGING_CONFIGURATOR))
+			.put("hedgedOperations",
+					new PropertyMeta(
+							"Comma separated list of idempotent operations sent again to another server when they are slow to answer",
+							CxfClientBuilderConfigurator.HEDGED_OPERATIONS_CONFIGURATOR))
+			.put("adaptiveTimeouts",
+					new PropertyMeta(
+							"Derive the receive timeout of each operation from its latency, as quantile[:factor[:minTimeout]] : the timeout is factor times the latency quantile, between minTimeout and receiveTimeout (default 0.99:3:100)",
+							CxfClientBuilderConfigurator.ADAPTIVE_TIMEOUTS_CONFIGURATOR))
+			.put("concurrencyLimit",
+					new PropertyMeta(
+							"The calls in flight allowed to each server, as fixed:limit[:queueTimeout] or aimd:initialLimit:maxLimit[:queueTimeout] to adapt the limit to the server latency; calls over the limit wait up to queueTimeout millis, or fail at once when 0 (default)",
+							CxfClientBuilderConfigurator.CONCURRENCY_LIMIT_CONFIGURATOR))
+			.put("rateLimit",
+					new PropertyMeta(
+							"The calls per second allowed to the endpoint, all servers included, as rate[:burst[:maxWait]] : burst calls can be sent at once after an idle time, calls over the rate wait up to maxWait millis or fail at once when 0 (default)",
+							CxfClientBuilderConfigurator.RATE_LIMIT_CONFIGURATOR))
+			.put("operationRateLimits",
+					new PropertyMeta(
+							"Comma separated list of operation rate limits, as operation:rate[:burst[:maxWait]]",
+							CxfClientBuilderConfigurator.OPERATION_RATE_LIMITS_CONFIGURATOR))
+			.put("initialization",
+					new PropertyMeta(
+							"When the servers are elected and the ports created : eager (default) while building the client, lazy on first use, or background right after the client is built",
+							CxfClientBuilderConfigurator.INITIALIZATION_CONFIGURATOR))
+			.put("warmUpConnections",
+					new PropertyMeta(
+							"The connections opened to each server by running the health check once the servers are elected, 0 (default) for none",
+							CxfClientBuilderConfigurator.WARM_UP_CONNECTIONS_CONFIGURATOR))
+			.put("recording",
+					new PropertyMeta(
+							"The file the calls, their responses and latencies are appended to, for replay as mocked port",
+							CxfClientBuilderConfigurator.RECORDING_CONFIGURATOR))
+			.build();
+
+	public CxfClientBuilder() {
+		this(Optional.<String> absent(), Optional.<String> absent(), Optional
+				.<String> absent(), 1000, 3000, Optional.<Logger> absent(),
+				Optional.<Logger> absent(), Optional.<Object> absent(), false, ImmutableList.<String> of());
+	}
+
+	public CxfClientBuilder(final String endPoint, final String... servers) {
+		this(Optional.of(endPoint), Optional.<String> absent(), Optional
+				.<String> absent(), 1000, 3000, Optional.<Logger> absent(),
+				Optional.<Logger> absent(),  Optional.<Object> absent(), false, ImmutableList.copyOf(servers));
+	}
+
+	public CxfClientBuilder(final Optional<String> endpoint,
+			final Optional<String> username, final Optional<String> password,
+			final long connectionTimeout, final long receiveTimeout,
+			final Optional<Logger> inLogger, final Optional<Logger> outLogger,
+			final Optional<Object> mockedPort,
+			final boolean useMock,
+			final ImmutableList<String> servers) {
+		this.endpoint = endpoint;
+		this.wsseUser = username;
+		this.wssePwd = password;
+		this.connectionTimeout = connectionTimeout;
+		this.receiveTimeout = receiveTimeout;
+		this.outLogger = outLogger;
+		this.inLogger = inLogger;
+		this.mockedPort = mockedPort;
+		this.useMock = useMock;
+		this.servers = ImmutableList.<String> copyOf(servers);
+		this.portPoolMin = 0;
+		this.portPoolMax = 0;
+		this.portPoolTimeout = 1000;
+		this.loadBalancing = LoadBalancing.FAILOVER;
+		this.healthCheckInterval = 0;
+		this.circuitBreakerFailures = 5;
+		this.circuitBreakerOpenTime = 10000;
+		this.electionParallelism = 1;
+		this.electionPolicy = ElectionPolicy.PRIORITY;
+		this.responseCaches = ImmutableMap.of();
+		this.coalescedOperations = ImmutableSet.of();
+		this.metricsEnabled = false;
+		this.phaseTimingEnabled = false;
+		this.phaseTimingListener = Optional.absent();
+		this.payloadLogging = Optional.absent();
+		this.wsseMode = WsseMode.DOM;
+		this.allowChunking = false;
+		this.chunkingThreshold = 4096;
+		this.keepAlive = true;
+		this.maxConnectionsPerHost = 0;
+		this.compressionThreshold = -1;
+		this.mtomThreshold = -1;
+		this.attachmentDirectory = Optional.absent();
+		this.attachmentMemoryThreshold = 102400;
+		this.hedgingPolicy = new HedgingPolicy(100);
+		this.hedgedOperations = ImmutableSet.of();
+		this.adaptiveTimeouts = Optional.absent();
+		this.concurrencyLimit = Optional.absent();
+		this.rateLimit = Optional.absent();
+		this.operationRateLimits = ImmutableMap.of();
+		this.initialization = Initialization.EAGER;
+		this.warmUpConnections = 0;
+		this.sharedResources = Optional.<SharedResources> absent();
+		this.recording = Optional.<String> absent();
+	}
+
+	private CxfClientBuilder(final Settings settings) {
+		this.endpoint = settings.endpoint;
+		this.wsseUser = settings.wsseUser;
+		this.wssePwd = settings.wssePwd;
+		this.connectionTimeout = settings.connectionTimeout;
+		this.receiveTimeout = settings.receiveTimeout;
+		this.outLogger = settings.outLogger;
+		this.inLogger = settings.inLogger;
+		this.mockedPort = settings.mockedPort;
+		this.useMock = settings.useMock;
+		this.servers = settings.servers;
+		this.portPoolMin = settings.portPoolMin;
+		this.portPoolMax = settings.portPoolMax;
+		this.portPoolTimeout = settings.portPoolTimeout;
+		this.loadBalancing = settings.loadBalancing;
+		this.healthCheckInterval = settings.healthCheckInterval;
+		this.circuitBreakerFailures = settings.circuitBreakerFailures;
+		this.circuitBreakerOpenTime = settings.circuitBreakerOpenTime;
+		this.electionParallelism = settings.electionParallelism;
+		this.electionPolicy = settings.electionPolicy;
+		this.responseCaches = settings.responseCaches;
+		this.coalescedOperations = settings.coalescedOperations;
+		this.metricsEnabled = settings.metricsEnabled;
+		this.phaseTimingEnabled = settings.phaseTimingEnabled;
+		this.phaseTimingListener = settings.phaseTimingListener;
+		this.payloadLogging = settings.payloadLogging;
+		this.wsseMode = settings.wsseMode;
+		this.allowChunking = settings.allowChunking;
+		this.chunkingThreshold = settings.chunkingThreshold;
+		this.keepAlive = settings.keepAlive;
+		this.maxConnectionsPerHost = settings.maxConnectionsPerHost;
+		this.compressionThreshold = settings.compressionThreshold;
+		this.mtomThreshold = settings.mtomThreshold;
+		this.attachmentDirectory = settings.attachmentDirectory;
+		this.attachmentMemoryThreshold = settings.attachmentMemoryThreshold;
+		this.hedgingPolicy = settings.hedgingPolicy;
+		this.hedgedOperations = settings.hedgedOperations;
+		this.adaptiveTimeouts = settings.adaptiveTimeouts;
+		this.concurrencyLimit = settings.concurrencyLimit;
+		this.rateLimit = settings.rateLimit;
+		this.operationRateLimits = settings.operationRateLimits;
+		this.initialization = settings.initialization;
+		this.warmUpConnections = settings.warmUpConnections;
+		this.sharedResources = settings.sharedResources;
+		this.recording = settings.recording;
+	}
+
+	/**
+	 * Mutable copy of a builder state, used by the <code>with</code> methods to
+	 * derive a new builder while keeping every other setting.
+	 */
+	private static class Settings {
+		private Optional<String> endpoint;
+		private Optional<String> wsseUser;
+		private Optional<String> wssePwd;
+		private long connectionTimeout;
+		private long receiveTimeout;
+		private ImmutableList<String> servers;
+		private Optional<Logger> inLogger;
+		private Optional<Logger> outLogger;
+		private Optional<Object> mockedPort;
+		private boolean useMock;
+		private int portPoolMin;
+		private int portPoolMax;
+		private long portPoolTimeout;
+		private LoadBalancing loadBalancing;
+		private long healthCheckInterval;
+		private int circuitBreakerFailures;
+		private long circuitBreakerOpenTime;
+		private int electionParallelism;
+		private ElectionPolicy electionPolicy;
+		private ImmutableMap<String, CachePolicy> responseCaches;
+		private ImmutableSet<String> coalescedOperations;
+		private boolean metricsEnabled;
+		private boolean phaseTimingEnabled;
+		private Optional<PhaseTimingListener> phaseTimingListener;
+		private Optional<PayloadLogPolicy> payloadLogging;
+		private WsseMode wsseMode;
+		private boolean allowChunking;
+		private int chunkingThreshold;
+		private boolean keepAlive;
+		private int maxConnectionsPerHost;
+		private int compressionThreshold;
+		private int mtomThreshold;
+		private Optional<String> attachmentDirectory;
+		private long attachmentMemoryThreshold;
+		private HedgingPolicy hedgingPolicy;
+		private ImmutableSet<String> hedgedOperations;
+		private Optional<AdaptiveTimeoutPolicy> adaptiveTimeouts;
+		private Optional<ConcurrencyLimitPolicy> concurrencyLimit;
+		private Optional<RateLimitPolicy> rateLimit;
+		private ImmutableMap<String, RateLimitPolicy> operationRateLimits;
+		private Initialization initialization;
+		private int warmUpConnections;
+		private Optional<SharedResources> sharedResources;
+		private Optional<String> recording;
+
+		private Settings(final CxfClientBuilder from) {
+			this.endpoint = from.endpoint;
+			this.wsseUser = from.wsseUser;
+			this.wssePwd = from.wssePwd;
+			this.connectionTimeout = from.connectionTimeout;
+			this.receiveTimeout = from.receiveTimeout;
+			this.servers = from.servers;
+			this.inLogger = from.inLogger;
+			this.outLogger = from.outLogger;
+			this.mockedPort = from.mockedPort;
+			this.useMock = from.useMock;
+			this.portPoolMin = from.portPoolMin;
+			this.portPoolMax = from.portPoolMax;
+			this.portPoolTimeout = from.portPoolTimeout;
+			this.loadBalancing = from.loadBalancing;
+			this.healthCheckInterval = from.healthCheckInterval;
+			this.circuitBreakerFailures = from.circuitBreakerFailures;
+			this.circuitBreakerOpenTime = from.circuitBreakerOpenTime;
+			this.electionParallelism = from.electionParallelism;
+			this.electionPolicy = from.electionPolicy;
+			this.responseCaches = from.responseCaches;
+			this.coalescedOperations = from.coalescedOperations;
+			this.metricsEnabled = from.metricsEnabled;
+			this.phaseTimingEnabled = from.phaseTimingEnabled;
+			this.phaseTimingListener = from.phaseTimingListener;
+			this.payloadLogging = from.payloadLogging;
+			this.wsseMode = from.wsseMode;
+			this.allowChunking = from.allowChunking;
+			this.chunkingThreshold = from.chunkingThreshold;
+			this.keepAlive = from.keepAlive;
+			this.maxConnectionsPerHost = from.maxConnectionsPerHost;
+			this.compressionThreshold = from.compressionThreshold;
+			this.mtomThreshold = from.mtomThreshold;
+			this.attachmentDirectory = from.attachmentDirectory;
+			this.attachmentMemoryThreshold = from.attachmentMemoryThreshold;
+			this.hedgingPolicy = from.hedgingPolicy;
+			this.hedgedOperations = from.hedgedOperations;
+			this.adaptiveTimeouts = from.adaptiveTimeouts;
+			this.concurrencyLimit = from.concurrencyLimit;
+			this.rateLimit = from.rateLimit;
+			this.operationRateLimits = from.operationRateLimits;
+			this.initialization = from.initialization;
+			this.warmUpConnections = from.warmUpConnections;
+			this.sharedResources = from.sharedResources;
+			this.recording = from.recording;
+		}
+	}
+
+	public CxfClientBuilder withEndpoint(final String endpoint) {
+		final Settings settings = new Settings(this);
+		settings.endpoint = Optional.of(endpoint);
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withReceiveTimeout(final long receiveTimeout) {
+		final Settings settings = new Settings(this);
+		settings.receiveTimeout = receiveTimeout;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withConnectionTimeout(final long connectionTimeout) {
+		final Settings settings = new Settings(this);
+		settings.connectionTimeout = connectionTimeout;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Derive the receive timeout of each operation from its observed latency,
+	 * never above the configured receive timeout.
+	 */
+	public CxfClientBuilder withAdaptiveTimeouts(
+			final AdaptiveTimeoutPolicy policy) {
+		final Settings settings = new Settings(this);
+		settings.adaptiveTimeouts = Optional.of(policy);
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withAdaptiveTimeouts() {
+		return withAdaptiveTimeouts(new AdaptiveTimeoutPolicy());
+	}
+
+	/**
+	 * Bound the calls in flight to each server, with a fixed or an adaptive
+	 * limit.
+	 */
+	public CxfClientBuilder withConcurrencyLimit(
+			final ConcurrencyLimitPolicy policy) {
+		final Settings settings = new Settings(this);
+		settings.concurrencyLimit = Optional.of(policy);
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Elect the servers and create the ports while building the client, on
+	 * first use, or in the background once the client is built.
+	 */
+	public CxfClientBuilder withInitialization(
+			final Initialization initialization) {
+		final Settings settings = new Settings(this);
+		settings.initialization = initialization;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder lazy() {
+		return withInitialization(Initialization.LAZY);
+	}
+
+	public CxfClientBuilder inBackground() {
+		return withInitialization(Initialization.BACKGROUND);
+	}
+
+	/**
+	 * Open connections to each server by running the health check on them,
+	 * once the servers are elected.
+	 */
+	public CxfClientBuilder withWarmUpConnections(final int connections) {
+		final Settings settings = new Settings(this);
+		settings.warmUpConnections = connections;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Run the client on a bus, service managers and threads shared with other
+	 * clients, they are left open when the client is destroyed.
+	 */
+	public CxfClientBuilder withSharedResources(final SharedResources resources) {
+		final Settings settings = new Settings(this);
+		settings.sharedResources = Optional.of(resources);
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withWsseUser(final String username) {
+		final Settings settings = new Settings(this);
+		settings.wsseUser = Optional.fromNullable(username);
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withWssePwd(final String password) {
+		final Settings settings = new Settings(this);
+		settings.wssePwd = Optional.fromNullable(password);
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withWsseCredentials(final String username,
+			final String password) {
+		return this.withWsseUser(username).withWssePwd(password);
+	}
+
+	/**
+	 * Choose how the WSSE UsernameToken is added to the requests, the
+	 * streaming modes avoid the DOM conversion of each request done by WSS4J.
+	 * 
+	 * @param wsseMode
+	 * @return
+	 */
+	public CxfClientBuilder withWsseMode(final WsseMode wsseMode) {
+		final Settings settings = new Settings(this);
+		settings.wsseMode = wsseMode;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Stream the requests with chunked transfer encoding once they reach the
+	 * threshold, instead of buffering them to compute their length.
+	 * 
+	 * @param threshold
+	 *            the request size in bytes from which chunking is used.
+	 * @return
+	 */
+	public CxfClientBuilder withChunking(final int threshold) {
+		final Settings settings = new Settings(this);
+		settings.allowChunking = true;
+		settings.chunkingThreshold = threshold;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder enableChunking() {
+		return withChunking(chunkingThreshold);
+	}
+
+	public CxfClientBuilder withChunkingThreshold(final int threshold) {
+		final Settings settings = new Settings(this);
+		settings.chunkingThreshold = threshold;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder disableChunking() {
+		final Settings settings = new Settings(this);
+		settings.allowChunking = false;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withKeepAlive(final boolean keepAlive) {
+		final Settings settings = new Settings(this);
+		settings.keepAlive = keepAlive;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Bound the connections to each server, the calls above wait up to the
+	 * connection timeout for one of them.
+	 * 
+	 * @param maxConnections
+	 *            0 for no limit.
+	 * @return
+	 */
+	public CxfClientBuilder withMaxConnectionsPerHost(final int maxConnections) {
+		final Settings settings = new Settings(this);
+		settings.maxConnectionsPerHost = maxConnections;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * GZIP compress the requests from the given size, and accept GZIP
+	 * responses. The servers must accept compressed requests.
+	 * 
+	 * @param threshold
+	 *            the request size in bytes from which requests are compressed.
+	 * @return
+	 */
+	public CxfClientBuilder withCompression(final int threshold) {
+		final Settings settings = new Settings(this);
+		settings.compressionThreshold = threshold;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder disableCompression() {
+		final Settings settings = new Settings(this);
+		settings.compressionThreshold = -1;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Enable MTOM : the binary contents (<code>DataHandler</code> or
+	 * <code>byte[]</code> marked as MTOM in the WSDL) reaching the threshold
+	 * are streamed as attachments instead of inlined as base64.
+	 * 
+	 * @param threshold
+	 *            the size in bytes from which binary contents are sent as
+	 *            attachments.
+	 * @return
+	 */
+	public CxfClientBuilder withMtom(final int threshold) {
+		final Settings settings = new Settings(this);
+		settings.mtomThreshold = threshold;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder disableMtom() {
+		final Settings settings = new Settings(this);
+		settings.mtomThreshold = -1;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Spool the attachments received to the directory once they reach the
+	 * memory threshold.
+	 * 
+	 * @param directory
+	 * @param memoryThreshold
+	 *            the size in bytes kept in memory.
+	 * @return
+	 */
+	public CxfClientBuilder withAttachmentSpooling(final String directory,
+			final long memoryThreshold) {
+		final Settings settings = new Settings(this);
+		settings.attachmentDirectory = Optional.of(directory);
+		settings.attachmentMemoryThreshold = memoryThreshold;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withAttachmentDirectory(final String directory) {
+		return withAttachmentSpooling(directory, attachmentMemoryThreshold);
+	}
+
+	public CxfClientBuilder withAttachmentMemoryThreshold(
+			final long memoryThreshold) {
+		final Settings settings = new Settings(this);
+		settings.attachmentMemoryThreshold = memoryThreshold;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withInLogger(final Logger logger) {
+		final Settings settings = new Settings(this);
+		settings.inLogger = Optional.fromNullable(logger);
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withInLogger(final String loggerName) {
+		return withInLogger(LoggerFactory.getLogger(loggerName));
+	}
+
+	public CxfClientBuilder withOutLogger(final Logger logger) {
+		final Settings settings = new Settings(this);
+		settings.outLogger = Optional.fromNullable(logger);
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withOutLogger(final String loggerName) {
+		return withOutLogger(LoggerFactory.getLogger(loggerName));
+	}
+
+	public CxfClientBuilder withLogger(final Logger logger) {
+		return this.withInLogger(logger).withOutLogger(logger);
+	}
+
+	public CxfClientBuilder withLogger(final String loggerName) {
+		return this.withInLogger(loggerName).withOutLogger(loggerName);
+	}
+
+	public CxfClientBuilder withInOutLogger(final Logger logger) {
+		return this.withInLogger(logger).withOutLogger(logger);
+	}
+
+	public CxfClientBuilder withServers(final String... servers) {
+		final Settings settings = new Settings(this);
+		settings.servers = ImmutableList.copyOf(servers);
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Lend ports from a bounded pool instead of sharing a single port between
+	 * threads. The client service becomes a proxy leasing a port per call.
+	 * 
+	 * @param min
+	 *            the number of ports created when the client is built.
+	 * @param max
+	 *            the maximum number of ports, hence of concurrent calls.
+	 * @return
+	 */
+	public CxfClientBuilder withPortPool(final int min, final int max) {
+		final Settings settings = new Settings(this);
+		settings.portPoolMin = min;
+		settings.portPoolMax = max;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withPortPoolTimeout(final long portPoolTimeout) {
+		final Settings settings = new Settings(this);
+		settings.portPoolTimeout = portPoolTimeout;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Route each call to one of the servers up at build time, instead of
+	 * sending everything to the first one found up.
+	 * 
+	 * @param loadBalancing
+	 * @return
+	 */
+	public CxfClientBuilder withLoadBalancing(final LoadBalancing loadBalancing) {
+		final Settings settings = new Settings(this);
+		settings.loadBalancing = loadBalancing;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Health check every server in the background, using the client
+	 * <code>checkIfPortUp</code>. Calls are only routed to the servers up,
+	 * with a circuit breaker per server also fed by the call failures.
+	 * 
+	 * @param healthCheckInterval
+	 *            the time in millis between two checks.
+	 * @return
+	 */
+	public CxfClientBuilder withHealthCheck(final long healthCheckInterval) {
+		final Settings settings = new Settings(this);
+		settings.healthCheckInterval = healthCheckInterval;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * @param failures
+	 *            the number of consecutive call failures opening the circuit.
+	 * @param openTime
+	 *            the time in millis before checking an open server again.
+	 * @return
+	 */
+	public CxfClientBuilder withCircuitBreaker(final int failures,
+			final long openTime) {
+		final Settings settings = new Settings(this);
+		settings.circuitBreakerFailures = failures;
+		settings.circuitBreakerOpenTime = openTime;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Probe up to <code>parallelism</code> servers at the same time when the
+	 * client is built, instead of one after the other.
+	 * 
+	 * @param parallelism
+	 * @return
+	 */
+	public CxfClientBuilder withParallelElection(final int parallelism) {
+		final Settings settings = new Settings(this);
+		settings.electionParallelism = parallelism;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withElectionPolicy(final ElectionPolicy electionPolicy) {
+		final Settings settings = new Settings(this);
+		settings.electionPolicy = electionPolicy;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Cache the responses of a read only operation, keyed by the call
+	 * arguments. Cached responses are shared between callers.
+	 * 
+	 * @param operation
+	 *            the port method name.
+	 * @param policy
+	 *            the time to live, size and refresh of the cache.
+	 * @return
+	 */
+	public CxfClientBuilder withResponseCache(final String operation,
+			final CachePolicy policy) {
+		final Map<String, CachePolicy> caches = new HashMap<String, CachePolicy>(
+				responseCaches);
+		caches.put(operation, policy);
+
+		final Settings settings = new Settings(this);
+		settings.responseCaches = ImmutableMap.copyOf(caches);
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Limit the calls per second to the endpoint, all servers included.
+	 */
+	public CxfClientBuilder withRateLimit(final RateLimitPolicy policy) {
+		final Settings settings = new Settings(this);
+		settings.rateLimit = Optional.of(policy);
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Limit the calls per second of an operation, on top of the endpoint
+	 * limit.
+	 * 
+	 * @param operation
+	 *            the port method name.
+	 */
+	public CxfClientBuilder withRateLimit(final String operation,
+			final RateLimitPolicy policy) {
+		final Map<String, RateLimitPolicy> limits = new HashMap<String, RateLimitPolicy>(
+				operationRateLimits);
+		limits.put(operation, policy);
+
+		final Settings settings = new Settings(this);
+		settings.operationRateLimits = ImmutableMap.copyOf(limits);
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Concurrent calls of these operations with equal arguments share a
+	 * single in-flight request, and get the same result or exception.
+	 * 
+	 * @param operations
+	 *            the port method names.
+	 * @return
+	 */
+	public CxfClientBuilder withCoalescing(final String... operations) {
+		final Settings settings = new Settings(this);
+		settings.coalescedOperations = ImmutableSet.<String> builder()
+				.addAll(coalescedOperations).add(operations).build();
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * When a call of these operations is not answered within the hedging
+	 * delay, send it again to another available server and return the first
+	 * answer. The operations must be idempotent.
+	 * 
+	 * @param operations
+	 *            the port method names.
+	 * @return
+	 */
+	public CxfClientBuilder withHedging(final String... operations) {
+		final Settings settings = new Settings(this);
+		settings.hedgedOperations = ImmutableSet.<String> builder()
+				.addAll(hedgedOperations).add(operations).build();
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder withHedging(final HedgingPolicy policy,
+			final String... operations) {
+		final Settings settings = new Settings(withHedging(operations));
+		settings.hedgingPolicy = policy;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Record call counts, errors by fault type, calls in flight and latency
+	 * histograms, per operation and per server.
+	 * 
+	 * @return
+	 */
+	public CxfClientBuilder enableMetrics() {
+		final Settings settings = new Settings(this);
+		settings.metricsEnabled = true;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder disableMetrics() {
+		final Settings settings = new Settings(this);
+		settings.metricsEnabled = false;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Time each phase of the calls (marshalling, security, network,
+	 * unmarshalling...), aggregated in the client phase statistics.
+	 * 
+	 * @return
+	 */
+	public CxfClientBuilder enablePhaseTiming() {
+		final Settings settings = new Settings(this);
+		settings.phaseTimingEnabled = true;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder disablePhaseTiming() {
+		final Settings settings = new Settings(this);
+		settings.phaseTimingEnabled = false;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Time each phase of the calls, and give the breakdown of each call to the
+	 * listener.
+	 * 
+	 * @param listener
+	 * @return
+	 */
+	public CxfClientBuilder withPhaseTiming(final PhaseTimingListener listener) {
+		final Settings settings = new Settings(this);
+		settings.phaseTimingEnabled = true;
+		settings.phaseTimingListener = Optional.of(listener);
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Log the payloads to the in/out loggers with a low overhead : nothing is
+	 * captured when the logger is disabled, only the first bytes of the
+	 * payloads are kept, calls can be sampled or logged only on error, and
+	 * the log lines are formatted and written by a background thread.
+	 * 
+	 * @param policy
+	 * @return
+	 */
+	public CxfClientBuilder withPayloadLogging(final PayloadLogPolicy policy) {
+		final Settings settings = new Settings(this);
+		settings.payloadLogging = Optional.of(policy);
+		return new CxfClientBuilder(settings);
+	}
+
+	public boolean isHealthCheckEnabled() {
+		return healthCheckInterval > 0;
+	}
+
+	public boolean isMtomEnabled() {
+		return mtomThreshold >= 0;
+	}
+
+	public boolean isCompressionEnabled() {
+		return compressionThreshold >= 0;
+	}
+
+	public boolean isPortPoolEnabled() {
+		return portPoolMax > 0;
+	}
+
+	public CxfClientBuilder withProperties(final String rootKey,
+			final Properties props) {
+		CxfClientBuilder configured = this;
+
+		final boolean rootKeyEndsWithDot = rootKey.endsWith(".");
+		
+		for (final String property : propNames) {
+			final String rootedProperty = Joiner.on(rootKeyEndsWithDot?"":".").join(rootKey, property);
+			configured = Optional
+					.fromNullable(propMetas.get(property).configurator)
+					.or(CxfClientBuilderConfigurator.NOOP_CONFIGURATOR)
+					.configure(configured,
+							Optional.fromNullable((String) props.get(rootedProperty)));
+		}
+
+		return configured;
+	}
+	
+	public <Port> CxfClientBuilder withMockedPort(final Port port) {
+		final Settings settings = new Settings(this);
+		settings.mockedPort = Optional.<Object> of((Object) port);
+		return new CxfClientBuilder(settings);
+	}
+	
+	public <Port> CxfClientBuilder withMockedPort(final Class<Port> portClass) {
+		try {
+			return withMockedPort(portClass.newInstance());
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new RuntimeException("unable to instianciate mocked port class : " + portClass.getName(), e);
+		}
+	}
+	
+	public CxfClientBuilder enableMocking() {
+		final Settings settings = new Settings(this);
+		settings.useMock = true;
+		return new CxfClientBuilder(settings);
+	}
+
+	public CxfClientBuilder disableMocking() {
+		final Settings settings = new Settings(this);
+		settings.useMock = false;
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Mock the port with a replay of recorded calls.
+	 */
+	public CxfClientBuilder withReplay(final Replay replay) {
+		final Settings settings = new Settings(this);
+		settings.mockedPort = Optional.<Object> of(replay);
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * Record the calls, their response and latency, to the file.
+	 */
+	public CxfClientBuilder withRecording(final String file) {
+		final Settings settings = new Settings(this);
+		settings.recording = Optional.of(file);
+		return new CxfClientBuilder(settings);
+	}
+
+	/**
+	 * @param portClassName
+	 *            the mocked port class, or replay:file[,latencyScale] to
+	 *            replay a recording.
+	 */
+	public CxfClientBuilder withMockedPort(final String portClassName) {
+		if (portClassName.startsWith(Replay.PREFIX)) {
+			return withReplay(Replay.fromString(portClassName
+					.substring(Replay.PREFIX.length())));
+		}
+		try {
+			return withMockedPort(Class.forName(portClassName));
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("unable to find class for named mocked port : " + portClassName, e);
+		}
+	}
+
+	public <Port, Client extends CxfClient<Port, ?>> Client build(
+			Class<Client> clazz) {
+		try {
+			return clazz.getConstructor(CxfClientBuilder.class).newInstance(
+					this);
+		} catch (InstantiationException | IllegalAccessException
+				| IllegalArgumentException | InvocationTargetException
+				| NoSuchMethodException | SecurityException e) {
+			throw new IllegalArgumentException(
+					"failed to build CxfClient with class : "
+							+ clazz.toString(), e);
+		}
+	}
+
+	/**
+	 * Build a client from the properties on top of this builder, which can be
+	 * reloaded from new properties while it is used.
+	 * 
+	 * @param drainTimeout
+	 *            the time in millis the calls of a replaced client are given to
+	 *            finish.
+	 */
+	public <Port, Client extends CxfClient<Port, ?>> ReloadableClient<Port, Client> buildReloadable(
+			final String rootKey, final Properties props,
+			final Class<Client> clazz, final long drainTimeout) {
+		return new ReloadableClient<Port, Client>(this, rootKey, props, clazz,
+				drainTimeout);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,322 @@
+package fr.foop.ws;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fr.foop.ws.tools.invocation.PortInvocationHandler;
+import fr.foop.ws.tools.invocation.PortInvoker;
+import fr.foop.ws.tools.routing.NoServerAvailableException;
+
+/**
+ * A client which configuration can be reloaded from a new properties
+ * snapshot, or from a watched properties file, while it is used.
+ * 
+ * The new client is built in the background, then swapped with the current
+ * one : the calls already made finish on the old client, which is destroyed
+ * once they are done or after the drain timeout. The old clients are drained
+ * in the background, so a drain never delays the next reload. The port
+ * returned by {@link #service()} always calls the current client.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ * @param <Client>
+ *            the client class.
+ */
+public class ReloadableClient<Port, Client extends CxfClient<Port, ?>>
+		implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(ReloadableClient.class);
+
+	private final CxfClientBuilder base;
+	private final String rootKey;
+	private final Class<Client> clazz;
+	private final long drainTimeout;
+	private final ListeningScheduledExecutorService reloader;
+	private final ListeningExecutorService drainer;
+	private final Port port;
+	private final Object lock = new Object();
+
+	private volatile Generation<Client> current;
+	private volatile boolean closed;
+
+	/**
+	 * Build the client from the properties, on top of the base builder.
+	 * 
+	 * @param drainTimeout
+	 *            the time in millis the calls of a replaced client are
+	 *            given to finish.
+	 */
+	public ReloadableClient(final CxfClientBuilder base, final String rootKey,
+			final Properties props, final Class<Client> clazz,
+			final long drainTimeout) {
+		this.base = base;
+		this.rootKey = rootKey;
+		this.clazz = clazz;
+		this.drainTimeout = drainTimeout;
+		this.reloader = MoreExecutors.listeningDecorator(Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+						.setDaemon(true)
+						.setNameFormat("cxf-client-reload-%d").build()));
+		this.drainer = MoreExecutors.listeningDecorator(Executors
+				.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+						.setNameFormat("cxf-client-drain-%d").build()));
+
+		final Client client = build(props);
+		this.current = new Generation<Client>(client);
+		this.port = exposePort(client.portInterface());
+	}
+
+	@SuppressWarnings("unchecked")
+	private Port exposePort(final Class<?> portClazz) {
+		return (Port) Proxy.newProxyInstance(portClazz.getClassLoader(),
+				new Class<?>[] { portClazz }, new PortInvocationHandler(
+						new PortInvoker() {
+							@Override
+							public Object invoke(final Method method,
+									final Object[] args) throws Throwable {
+								return invokeCurrent(method, args);
+							}
+
+							@Override
+							public String toString() {
+								return String.valueOf(current.client
+										.service());
+							}
+						}));
+	}
+
+	private Object invokeCurrent(final Method method, final Object[] args)
+			throws Throwable {
+		final Generation<Client> generation = acquire();
+		try {
+			final Port target = generation.client.service();
+			if (target == null) {
+				throw new NoServerAvailableException(
+						"no server available for " + clazz.getSimpleName());
+			}
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			generation.release();
+		}
+	}
+
+	/**
+	 * Count the call on the current client, unless it was replaced meanwhile.
+	 * 
+	 * @throws IllegalStateException
+	 *             once closed.
+	 */
+	private Generation<Client> acquire() {
+		while (true) {
+			final Generation<Client> generation = current;
+			generation.inFlight.incrementAndGet();
+			if (!generation.retired) {
+				return generation;
+			}
+			generation.release();
+			if (closed) {
+				throw new IllegalStateException(clazz.getSimpleName()
+						+ " is closed");
+			}
+		}
+	}
+
+	/**
+	 * @return the port calling the current client, it can be kept across
+	 *         reloads.
+	 */
+	public Port service() {
+		return port;
+	}
+
+	/**
+	 * @return the current client.
+	 */
+	public Client client() {
+		return current.client;
+	}
+
+	/**
+	 * Build a client from the new properties in the background, then swap it
+	 * with the current one. The current client is kept when the build fails.
+	 * 
+	 * @return completed once the old client is drained and destroyed.
+	 */
+	public ListenableFuture<Client> reload(final Properties props) {
+		return Futures.dereference(reloader
+				.submit(new Callable<ListenableFuture<Client>>() {
+					@Override
+					public ListenableFuture<Client> call() {
+						return swap(props);
+					}
+				}));
+	}
+
+	/**
+	 * Reload the client each time the properties file changes.
+	 * 
+	 * @param interval
+	 *            the time in millis between two checks of the file.
+	 */
+	public ReloadableClient<Port, Client> watch(final File file,
+			final long interval) {
+		reloader.scheduleWithFixedDelay(new Runnable() {
+			private long lastModified = file.lastModified();
+
+			@Override
+			public void run() {
+				final long modified = file.lastModified();
+				if (modified == lastModified) {
+					return;
+				}
+				lastModified = modified;
+
+				try {
+					swap(load(file));
+				} catch (RuntimeException | IOException e) {
+					LOGGER.warn("Failed to reload {} from {}",
+							clazz.getSimpleName(), file, e);
+				}
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+		return this;
+	}
+
+	private static Properties load(final File file) throws IOException {
+		final Properties props = new Properties();
+		try (final InputStream in = new FileInputStream(file)) {
+			props.load(in);
+		}
+		return props;
+	}
+
+	private Client build(final Properties props) {
+		return base.withProperties(rootKey, props).build(clazz);
+	}
+
+	/**
+	 * Swap the current client with one built from the properties.
+	 * 
+	 * @return completed once the replaced client is drained and destroyed.
+	 */
+	private ListenableFuture<Client> swap(final Properties props) {
+		final Client client = build(props);
+		synchronized (lock) {
+			if (closed) {
+				// Built while closing : nobody would destroy it.
+				client.destroy();
+				throw new IllegalStateException(clazz.getSimpleName()
+						+ " closed while reloading");
+			}
+			final Generation<Client> old = current;
+			current = new Generation<Client>(client);
+			old.retire();
+			LOGGER.info("Reloaded {}, draining the previous client",
+					clazz.getSimpleName());
+
+			// Submitted under the lock, before close() shuts the drainer down.
+			return drainer.submit(new Callable<Client>() {
+				@Override
+				public Client call() {
+					drain(old);
+					old.client.destroy();
+					return client;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Wait for the calls of a retired client, up to the drain timeout.
+	 */
+	private void drain(final Generation<Client> old) {
+		try {
+			if (!old.drained.await(drainTimeout, TimeUnit.MILLISECONDS)) {
+				LOGGER.warn(
+						"{} calls of the previous {} still in flight after {}ms, closing it",
+						old.inFlight.get(), clazz.getSimpleName(), drainTimeout);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stop watching and reloading, wait for the calls of the current client
+	 * up to the drain timeout, then destroy it. The clients replaced before
+	 * are still drained in the background, a reload in progress fails.
+	 */
+	@Override
+	public void close() {
+		final Generation<Client> last;
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			last = current;
+			last.retire();
+		}
+		reloader.shutdown();
+		drainer.shutdown();
+
+		drain(last);
+		last.client.destroy();
+	}
+
+	/**
+	 * A built client and its calls in flight.
+	 */
+	private static class Generation<Client> {
+
+		private final Client client;
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final CountDownLatch drained = new CountDownLatch(1);
+		private volatile boolean retired;
+
+		private Generation(final Client client) {
+			this.client = client;
+		}
+
+		private void release() {
+			if (inFlight.decrementAndGet() == 0 && retired) {
+				drained.countDown();
+			}
+		}
+
+		/**
+		 * No new call is counted once retired, the client is drained when
+		 * the calls in flight are done.
+		 */
+		private void retire() {
+			retired = true;
+			if (inFlight.get() == 0) {
+				drained.countDown();
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package fr.foop.ws;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+import fr.foop.ws.tools.cache.CachingInvoker;
+import fr.foop.ws.tools.coalescing.CoalescingInvoker;
+import fr.foop.ws.tools.health.HealthChecker;
+import fr.foop.ws.tools.hedging.HedgingInvoker;
+import fr.foop.ws.tools.metrics.ClientMetrics;
+import fr.foop.ws.tools.ratelimit.RateLimits;
+import fr.foop.ws.tools.replay.CallRecorder;
+import fr.foop.ws.tools.routing.ElectionReport;
+import fr.foop.ws.tools.routing.ServerNode;
+import fr.foop.ws.tools.routing.ServerRouter;
+
+/**
+ * The elected servers of a client and the invokers routing the calls to
+ * them.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+final class Wiring<Port> {
+
+	final ElectionReport<Port> electionReport;
+	final ImmutableList<ServerNode<Port>> nodes;
+	final ServerRouter<Port> router;
+	final Optional<HealthChecker<Port>> healthChecker;
+	final Optional<ClientMetrics> metrics;
+	final Optional<RateLimits> rateLimits;
+	final Optional<HedgingInvoker<Port>> hedging;
+	final Optional<CallRecorder> recorder;
+	final Optional<CoalescingInvoker> coalescing;
+	final Optional<CachingInvoker> cache;
+
+	/**
+	 * The port returned by service(), null when no server is available.
+	 */
+	final Port port;
+
+	Wiring(final ElectionReport<Port> electionReport,
+			final ImmutableList<ServerNode<Port>> nodes,
+			final ServerRouter<Port> router,
+			final Optional<HealthChecker<Port>> healthChecker,
+			final Optional<ClientMetrics> metrics,
+			final Optional<RateLimits> rateLimits,
+			final Optional<HedgingInvoker<Port>> hedging,
+			final Optional<CallRecorder> recorder,
+			final Optional<CoalescingInvoker> coalescing,
+			final Optional<CachingInvoker> cache, final Port port) {
+		this.electionReport = electionReport;
+		this.nodes = nodes;
+		this.router = router;
+		this.healthChecker = healthChecker;
+		this.metrics = metrics;
+		this.rateLimits = rateLimits;
+		this.hedging = hedging;
+		this.recorder = recorder;
+		this.coalescing = coalescing;
+		this.cache = cache;
+		this.port = port;
+	}
+
+	/**
+	 * Stop the health checks, the cache refreshes and the hedged calls, close
+	 * the recording and unregister the metrics MBean.
+	 */
+	void close() {
+		if (healthChecker.isPresent()) {
+			healthChecker.get().close();
+		}
+		if (cache.isPresent()) {
+			cache.get().close();
+		}
+		if (metrics.isPresent()) {
+			metrics.get().close();
+		}
+		if (hedging.isPresent()) {
+			hedging.get().close();
+		}
+		if (recorder.isPresent()) {
+			recorder.get().close();
+		}
+	}
+}
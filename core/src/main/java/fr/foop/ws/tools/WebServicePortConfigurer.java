@@ -0,0 +1,310 @@
+package fr.foop.ws.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.soap.SOAPBinding;
+
+import org.apache.cxf.attachment.AttachmentDeserializer;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.frontend.ClientProxy;
+import org.apache.cxf.interceptor.LoggingInInterceptor;
+import org.apache.cxf.interceptor.LoggingOutInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.transport.common.gzip.GZIPInInterceptor;
+import org.apache.cxf.transport.common.gzip.GZIPOutInterceptor;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+import org.apache.cxf.ws.security.wss4j.WSS4JOutInterceptor;
+import org.apache.ws.security.WSConstants;
+import org.apache.ws.security.handler.WSHandlerConstants;
+import org.slf4j.Logger;
+
+import com.google.common.base.Optional;
+
+import fr.foop.ws.tools.deadline.AdaptiveTimeouts;
+import fr.foop.ws.tools.deadline.TimeoutInterceptor;
+import fr.foop.ws.tools.logging.PayloadLogWriter;
+import fr.foop.ws.tools.logging.PayloadLoggingInterceptor;
+
+import fr.foop.ws.tools.streaming.StreamingInterceptor;
+import fr.foop.ws.tools.timing.CallPhase;
+import fr.foop.ws.tools.timing.PhaseMarkInterceptor;
+import fr.foop.ws.tools.timing.PhaseTimingListener;
+import fr.foop.ws.tools.wsse.UsernameToken;
+import fr.foop.ws.tools.wsse.UsernameTokenInterceptor;
+
+public class WebServicePortConfigurer<Port> {
+
+	private static final String USE_ASYNC_HTTP_CONDUIT = "use.async.http.conduit";
+
+	private final Client client;
+	private final HTTPConduit http;
+	private final BindingProvider provider;
+	private final Endpoint cxfEndpoint;
+	private HTTPClientPolicy clientPolicy;
+
+	public WebServicePortConfigurer(final Port port) {
+		this.client = ClientProxy.getClient(port);
+		this.http = (HTTPConduit) client.getConduit();
+		this.provider = (BindingProvider) port;
+		this.cxfEndpoint = client.getEndpoint();
+	}
+
+	public void configureEndpoint(final String endpoint, final String server) {
+		final String concreteEndpoint = endpoint.replaceFirst(
+				"\\{\\{server\\}\\}", server);
+
+		provider.getRequestContext().put(
+				BindingProvider.ENDPOINT_ADDRESS_PROPERTY, concreteEndpoint);
+	}
+
+	public void configureWsse(final String wsseUser, final String wssePwd) {
+		Map<String, Object> outProps = new HashMap<String, Object>();
+		outProps.put(WSHandlerConstants.ACTION,
+				WSHandlerConstants.USERNAME_TOKEN);
+		outProps.put(WSHandlerConstants.USER, wsseUser);
+		outProps.put(WSHandlerConstants.PASSWORD_TYPE, WSConstants.PW_TEXT);
+		outProps.put(WSHandlerConstants.PW_CALLBACK_REF,
+				new ClientPasswordCallback(wsseUser, wssePwd));
+
+		WSS4JOutInterceptor wssOut = new WSS4JOutInterceptor(outProps);
+		cxfEndpoint.getOutInterceptors().add(wssOut);
+	}
+
+	/**
+	 * Write the UsernameToken straight to the StAX output, with a nonce and a
+	 * created timestamp when asked for, instead of WSS4J.
+	 * 
+	 * @param digest
+	 *            send the password digest instead of the password text.
+	 */
+	public void configureStreamingWsse(final String wsseUser,
+			final String wssePwd, final boolean nonce, final boolean digest) {
+		cxfEndpoint.getOutInterceptors().add(
+				new UsernameTokenInterceptor(new UsernameToken(wsseUser,
+						new ClientPasswordCallback(wsseUser, wssePwd), nonce,
+						digest)));
+	}
+
+	public void configureInLogger(final Logger logger) {
+		cxfEndpoint.getInInterceptors().add(new LoggingInInterceptor() {
+
+			@Override
+			protected void log(java.util.logging.Logger arg0, String arg1) {
+				logger.info(arg1);
+			}
+		});
+	}
+
+	public void configureOutLogger(final Logger logger) {
+		cxfEndpoint.getOutInterceptors().add(new LoggingOutInterceptor() {
+
+			@Override
+			protected void log(java.util.logging.Logger arg0, String arg1) {
+				logger.info(arg1);
+			}
+		});
+	}
+
+	/**
+	 * Log the payloads through the background writer, capturing only what its
+	 * policy requires, instead of the CXF logging interceptors.
+	 */
+	public void configurePayloadLogging(final PayloadLogWriter writer,
+			final Optional<Logger> inLogger, final Optional<Logger> outLogger) {
+		cxfEndpoint.getOutInterceptors().add(
+				PayloadLoggingInterceptor.outbound(writer, outLogger));
+		cxfEndpoint.getOutInterceptors().add(
+				PayloadLoggingInterceptor.flushingOut(writer));
+		cxfEndpoint.getInInterceptors().add(
+				PayloadLoggingInterceptor.inbound(writer, inLogger));
+		cxfEndpoint.getInInterceptors().add(
+				PayloadLoggingInterceptor.flushingIn(writer, false));
+		cxfEndpoint.getInFaultInterceptors().add(
+				PayloadLoggingInterceptor.flushingIn(writer, true));
+	}
+
+	/**
+	 * Use the asynchronous HTTP conduit (cxf-rt-transports-http-hc) for this
+	 * port, so callback calls do not hold a thread while waiting for the
+	 * response.
+	 */
+	public void configureAsyncTransport() {
+		provider.getRequestContext().put(USE_ASYNC_HTTP_CONDUIT, Boolean.TRUE);
+	}
+
+	/**
+	 * Read the responses of the streamed calls record after record.
+	 */
+	public void configureStreaming() {
+		cxfEndpoint.getInInterceptors().add(new StreamingInterceptor());
+	}
+
+	/**
+	 * Timestamp each phase of the interceptor chains, the breakdown of each
+	 * call is given to the listener.
+	 */
+	public void configurePhaseTiming(final PhaseTimingListener listener) {
+		for (final CallPhase phase : CallPhase.values()) {
+			final PhaseMarkInterceptor mark = PhaseMarkInterceptor.marking(
+					phase, listener);
+			if (mark.isInbound()) {
+				cxfEndpoint.getInInterceptors().add(mark);
+			} else {
+				cxfEndpoint.getOutInterceptors().add(mark);
+			}
+		}
+
+		cxfEndpoint.getInInterceptors().add(
+				PhaseMarkInterceptor.reportingIn(listener));
+		cxfEndpoint.getOutInterceptors().add(
+				PhaseMarkInterceptor.reportingOut(listener));
+	}
+
+	public void configureTimeouts(final long connectionTimeout, final long receiveTimeout) {
+		final HTTPClientPolicy httpClientPolicy = clientPolicy();
+		httpClientPolicy.setConnectionTimeout(connectionTimeout);
+		httpClientPolicy.setReceiveTimeout(receiveTimeout);
+	}
+
+	/**
+	 * Cap the timeouts of each call to the time left by the caller deadline,
+	 * and use the adaptive receive timeout of the operation when enabled.
+	 */
+	public void configureDeadlines(final long connectionTimeout,
+			final long receiveTimeout, final Optional<AdaptiveTimeouts> adaptive) {
+		cxfEndpoint.getOutInterceptors().add(
+				TimeoutInterceptor.capping(connectionTimeout, receiveTimeout,
+						adaptive));
+		if (adaptive.isPresent()) {
+			cxfEndpoint.getInInterceptors().add(
+					TimeoutInterceptor.recording(adaptive.get()));
+		}
+	}
+
+	/**
+	 * Stream the requests reaching the threshold with chunked transfer
+	 * encoding, or buffer all of them to send their length when not allowed.
+	 */
+	public void configureChunking(final boolean allowChunking, final int threshold) {
+		final HTTPClientPolicy httpClientPolicy = clientPolicy();
+		httpClientPolicy.setAllowChunking(allowChunking);
+		httpClientPolicy.setChunkingThreshold(threshold);
+	}
+
+	public void configureKeepAlive(final boolean keepAlive) {
+		clientPolicy().setConnection(
+				keepAlive ? ConnectionType.KEEP_ALIVE : ConnectionType.CLOSE);
+	}
+
+	/**
+	 * GZIP compress the requests reaching the threshold, and accept GZIP
+	 * responses.
+	 */
+	public void configureCompression(final int threshold) {
+		final GZIPOutInterceptor gzipOut = new GZIPOutInterceptor(threshold);
+		gzipOut.setForce(true);
+		cxfEndpoint.getOutInterceptors().add(gzipOut);
+		cxfEndpoint.getInInterceptors().add(new GZIPInInterceptor());
+		cxfEndpoint.getInFaultInterceptors().add(new GZIPInInterceptor());
+	}
+
+	/**
+	 * Send the binary contents reaching the threshold as MTOM attachments.
+	 */
+	public void configureMtom(final int threshold) {
+		((SOAPBinding) provider.getBinding()).setMTOMEnabled(true);
+		provider.getRequestContext().put(Message.MTOM_THRESHOLD,
+				Integer.valueOf(threshold));
+		cxfEndpoint.getService().getDataBinding().setMtomThreshold(threshold);
+	}
+
+	/**
+	 * Spool the attachments received to the directory (the temporary
+	 * directory when absent) once they reach the memory threshold, instead of
+	 * holding them in memory.
+	 */
+	public void configureAttachmentSpooling(final Optional<String> directory,
+			final long memoryThreshold) {
+		if (directory.isPresent()) {
+			cxfEndpoint.put(AttachmentDeserializer.ATTACHMENT_DIRECTORY,
+					directory.get());
+		}
+		cxfEndpoint.put(AttachmentDeserializer.ATTACHMENT_MEMORY_THRESHOLD,
+				Long.valueOf(memoryThreshold));
+	}
+
+	/**
+	 * @return the client policy of this port conduit, a copy of the
+	 *         configured one : the policy set by the bus or Spring
+	 *         configuration may be shared with the conduits of other clients.
+	 */
+	private HTTPClientPolicy clientPolicy() {
+		if (clientPolicy == null) {
+			clientPolicy = http.getClient() == null ? new HTTPClientPolicy()
+					: copyOf(http.getClient());
+			http.setClient(clientPolicy);
+		}
+		return clientPolicy;
+	}
+
+	/**
+	 * @return a policy with the same attributes set.
+	 */
+	static HTTPClientPolicy copyOf(final HTTPClientPolicy policy) {
+		final HTTPClientPolicy copy = new HTTPClientPolicy();
+		copy.setElementType(policy.getElementType());
+		copy.setRequired(policy.getRequired());
+		if (policy.isSetConnectionTimeout()) {
+			copy.setConnectionTimeout(policy.getConnectionTimeout());
+		}
+		if (policy.isSetReceiveTimeout()) {
+			copy.setReceiveTimeout(policy.getReceiveTimeout());
+		}
+		if (policy.isSetAsyncExecuteTimeout()) {
+			copy.setAsyncExecuteTimeout(policy.getAsyncExecuteTimeout());
+		}
+		if (policy.isSetAsyncExecuteTimeoutRejection()) {
+			copy.setAsyncExecuteTimeoutRejection(policy
+					.isAsyncExecuteTimeoutRejection());
+		}
+		if (policy.isSetAutoRedirect()) {
+			copy.setAutoRedirect(policy.isAutoRedirect());
+		}
+		if (policy.isSetMaxRetransmits()) {
+			copy.setMaxRetransmits(policy.getMaxRetransmits());
+		}
+		if (policy.isSetAllowChunking()) {
+			copy.setAllowChunking(policy.isAllowChunking());
+		}
+		if (policy.isSetChunkingThreshold()) {
+			copy.setChunkingThreshold(policy.getChunkingThreshold());
+		}
+		if (policy.isSetChunkLength()) {
+			copy.setChunkLength(policy.getChunkLength());
+		}
+		if (policy.isSetProxyServerPort()) {
+			copy.setProxyServerPort(policy.getProxyServerPort());
+		}
+		copy.setAccept(policy.getAccept());
+		copy.setAcceptLanguage(policy.getAcceptLanguage());
+		copy.setAcceptEncoding(policy.getAcceptEncoding());
+		copy.setContentType(policy.getContentType());
+		copy.setHost(policy.getHost());
+		copy.setConnection(policy.getConnection());
+		copy.setCacheControl(policy.getCacheControl());
+		copy.setCookie(policy.getCookie());
+		copy.setBrowserType(policy.getBrowserType());
+		copy.setReferer(policy.getReferer());
+		copy.setDecoupledEndpoint(policy.getDecoupledEndpoint());
+		copy.setProxyServer(policy.getProxyServer());
+		copy.setNonProxyHosts(policy.getNonProxyHosts());
+		copy.setProxyServerType(policy.getProxyServerType());
+		return copy;
+	}
+
+}
@@ -0,0 +1,25 @@
+package fr.foop.ws.tools.async;
+
+/**
+ * The port operation to call asynchronously, written as a regular call on the
+ * given port :
+ * 
+ * <pre>
+ * new AsyncCall&lt;CRMServicePT, List&lt;CustomerType&gt;&gt;() {
+ * 	public List&lt;CustomerType&gt; on(CRMServicePT port) {
+ * 		return port.getAll();
+ * 	}
+ * }
+ * </pre>
+ * 
+ * The port only records the operation and its arguments, so exactly one
+ * operation must be called, and its returned value ignored.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ * @param <T>
+ *            the operation return type.
+ */
+public interface AsyncCall<Port, T> {
+	T on(final Port port);
+}
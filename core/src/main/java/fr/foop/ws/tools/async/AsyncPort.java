@@ -0,0 +1,250 @@
+package fr.foop.ws.tools.async;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.ClientCallback;
+import org.apache.cxf.frontend.ClientProxy;
+import org.apache.cxf.service.invoker.MethodDispatcher;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import fr.foop.ws.tools.deadline.Deadline;
+import fr.foop.ws.tools.ratelimit.RateLimits;
+import fr.foop.ws.tools.routing.ServerNode;
+import fr.foop.ws.tools.routing.ServerRouter;
+
+/**
+ * Non blocking facade of the client port. Calls are sent through the CXF
+ * client callback API, so with the asynchronous HTTP conduit no thread waits
+ * for the response. The ports are configured as the synchronous ones
+ * (endpoint, WSSE, loggers, timeouts).
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class AsyncPort<Port> {
+
+	private final Class<?> portClazz;
+	private final ServerRouter<Port> router;
+	private final ImmutableMap<String, Port> ports;
+	private final Optional<RateLimits> rateLimits;
+	private final Optional<Port> mockedPort;
+	private final Executor executor;
+
+	/**
+	 * @param ports
+	 *            the asynchronous port of each router server.
+	 * @param rateLimits
+	 *            the rate limits shared with the synchronous port.
+	 * @param executor
+	 *            the executor completing the futures.
+	 */
+	public AsyncPort(final Class<?> portClazz, final ServerRouter<Port> router,
+			final Map<String, Port> ports,
+			final Optional<RateLimits> rateLimits, final Executor executor) {
+		this(portClazz, router, ImmutableMap.copyOf(ports), rateLimits,
+				Optional.<Port> absent(), executor);
+	}
+
+	/**
+	 * Run the calls synchronously on the mocked port.
+	 */
+	public static <Port> AsyncPort<Port> mocked(final Class<?> portClazz,
+			final Port mockedPort) {
+		return new AsyncPort<Port>(portClazz, null,
+				ImmutableMap.<String, Port> of(),
+				Optional.<RateLimits> absent(), Optional.of(mockedPort),
+				MoreExecutors.sameThreadExecutor());
+	}
+
+	private AsyncPort(final Class<?> portClazz,
+			final ServerRouter<Port> router,
+			final ImmutableMap<String, Port> ports,
+			final Optional<RateLimits> rateLimits,
+			final Optional<Port> mockedPort, final Executor executor) {
+		this.portClazz = portClazz;
+		this.router = router;
+		this.ports = ports;
+		this.rateLimits = rateLimits;
+		this.mockedPort = mockedPort;
+		this.executor = executor;
+	}
+
+	/**
+	 * @return a facade sharing the same ports, completing the futures on the
+	 *         given executor.
+	 */
+	public AsyncPort<Port> withExecutor(final Executor executor) {
+		return new AsyncPort<Port>(portClazz, router, ports, rateLimits,
+				mockedPort, executor);
+	}
+
+	/**
+	 * @return the port of each server, empty when mocked : they are destroyed
+	 *         with the client.
+	 */
+	public ImmutableCollection<Port> ports() {
+		return ports.values();
+	}
+
+	/**
+	 * Send the recorded operation without waiting for the response. The call
+	 * is checked against the caller deadline and the rate, concurrency and
+	 * connection limits, but never waits for them : it fails at once when one
+	 * of them is reached.
+	 * 
+	 * @return the future operation result, failed as the synchronous port
+	 *         would throw : the declared fault, a {@link javax.xml.ws.soap.SOAPFaultException}
+	 *         or a {@link javax.xml.ws.WebServiceException} on transport
+	 *         failure or when a limit is reached.
+	 * @throws IllegalArgumentException
+	 *             when the operation is not bound to the port.
+	 */
+	public <T> ListenableFuture<T> invoke(final AsyncCall<Port, T> call) {
+		final RecordedCall recorded = RecordedCall.record(portClazz, call);
+
+		if (mockedPort.isPresent()) {
+			return invokeMock(recorded);
+		}
+
+		final Optional<Deadline> deadline = Deadline.current();
+		final ServerNode<Port> node;
+		try {
+			Deadline.check(recorded.method().getName());
+			node = router.select();
+		} catch (WebServiceException e) {
+			return Futures.immediateFailedFuture(e);
+		}
+
+		// Resolved before taking any limit, which it would not give back.
+		final Port port = ports.get(node.server());
+		final Client client = ClientProxy.getClient(port);
+		final BindingOperationInfo operation = bindingOperation(client,
+				recorded);
+
+		final long start;
+		try {
+			if (rateLimits.isPresent()) {
+				rateLimits.get().acquireNow(recorded.method());
+			}
+			start = node.callStartedNow();
+		} catch (WebServiceException e) {
+			return Futures.immediateFailedFuture(e);
+		}
+
+		final SettableFuture<T> future = SettableFuture.create();
+
+		try {
+			client.invoke(new ClientCallback() {
+				@Override
+				public void handleResponse(final Map<String, Object> ctx,
+						final Object[] res) {
+					super.handleResponse(ctx, res);
+					callEnded(node, start, null, deadline);
+					complete(future, res);
+				}
+
+				@Override
+				public void handleException(final Map<String, Object> ctx,
+						final Throwable ex) {
+					super.handleException(ctx, ex);
+					final Throwable failure = toJaxWs(recorded, port, ex);
+					callEnded(node, start, failure, deadline);
+					fail(future, failure);
+				}
+			}, operation, recorded.args());
+		} catch (Exception e) {
+			final Throwable failure = toJaxWs(recorded, port, e);
+			node.callEnded(start, failure);
+			future.setException(failure);
+		}
+
+		return future;
+	}
+
+	/**
+	 * End the call on the response thread, with the caller deadline, so that
+	 * a call cut short by it is not taken for a server failure.
+	 */
+	private static void callEnded(final ServerNode<?> node, final long start,
+			final Throwable failure, final Optional<Deadline> deadline) {
+		if (!deadline.isPresent()) {
+			node.callEnded(start, failure);
+			return;
+		}
+		final Deadline propagated = deadline.get().propagate();
+		try {
+			node.callEnded(start, failure);
+		} finally {
+			propagated.close();
+		}
+	}
+
+	private Throwable toJaxWs(final RecordedCall recorded, final Port port,
+			final Throwable t) {
+		return Faults.toJaxWs(recorded.method(),
+				((BindingProvider) port).getBinding(), t);
+	}
+
+	private BindingOperationInfo bindingOperation(final Client client,
+			final RecordedCall recorded) {
+		final MethodDispatcher dispatcher = (MethodDispatcher) client
+				.getEndpoint().getService()
+				.get(MethodDispatcher.class.getName());
+
+		final BindingOperationInfo operation = dispatcher.getBindingOperation(
+				recorded.method(), client.getEndpoint());
+
+		if (operation == null) {
+			throw new IllegalArgumentException("no operation bound to "
+					+ recorded.method());
+		}
+
+		return operation;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> ListenableFuture<T> invokeMock(final RecordedCall recorded) {
+		try {
+			return Futures.immediateFuture((T) recorded.method().invoke(
+					mockedPort.get(), recorded.args()));
+		} catch (InvocationTargetException e) {
+			return Futures.immediateFailedFuture(e.getCause());
+		} catch (IllegalAccessException e) {
+			return Futures.immediateFailedFuture(e);
+		}
+	}
+
+	private <T> void complete(final SettableFuture<T> future,
+			final Object[] res) {
+		executor.execute(new Runnable() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public void run() {
+				future.set(res == null || res.length == 0 ? null : (T) res[0]);
+			}
+		});
+	}
+
+	private <T> void fail(final SettableFuture<T> future, final Throwable ex) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				future.setException(ex);
+			}
+		});
+	}
+}
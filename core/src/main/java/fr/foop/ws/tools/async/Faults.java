@@ -0,0 +1,98 @@
+package fr.foop.ws.tools.async;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import javax.xml.namespace.QName;
+import javax.xml.soap.Detail;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPFault;
+import javax.xml.ws.Binding;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.soap.SOAPBinding;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import org.apache.cxf.binding.soap.SoapFault;
+import org.apache.cxf.interceptor.Fault;
+import org.w3c.dom.Node;
+
+/**
+ * Turn the exceptions of the CXF client API into the ones the JAX-WS proxy
+ * throws : the declared faults are kept, a transport failure becomes a
+ * {@link WebServiceException}, any other fault a {@link SOAPFaultException}.
+ * The server nodes and the callers can then tell a server answer from a
+ * transport failure whichever API made the call.
+ */
+public final class Faults {
+
+	private static final QName HANDLER_FAULT = new QName(
+			"http://cxf.apache.org/faultcode", "HandlerFault");
+
+	private Faults() {
+	}
+
+	/**
+	 * @param method
+	 *            the called operation, whose declared faults are kept.
+	 * @param binding
+	 *            the binding of the port the operation was called on.
+	 * @param t
+	 *            the exception raised by the CXF client.
+	 */
+	public static Throwable toJaxWs(final Method method, final Binding binding,
+			final Throwable t) {
+		if (t instanceof WebServiceException || t instanceof Error) {
+			return t;
+		}
+		for (final Class<?> declared : method.getExceptionTypes()) {
+			if (declared.isInstance(t)) {
+				return t;
+			}
+		}
+		if (t instanceof Fault && t.getCause() instanceof IOException) {
+			return new WebServiceException(t.getMessage(), t.getCause());
+		}
+		if (!(binding instanceof SOAPBinding)) {
+			return new WebServiceException(t);
+		}
+
+		final SOAPFault fault;
+		try {
+			fault = soapFault((SOAPBinding) binding, t);
+		} catch (SOAPException e) {
+			return new WebServiceException(t);
+		}
+		final SOAPFaultException exception = new SOAPFaultException(fault);
+		exception.initCause(t instanceof Fault && t.getCause() != null ? t
+				.getCause() : t);
+		return exception;
+	}
+
+	private static SOAPFault soapFault(final SOAPBinding binding,
+			final Throwable t) throws SOAPException {
+		final SOAPFault fault = binding.getSOAPFactory().createFault();
+
+		if (!(t instanceof SoapFault)) {
+			fault.setFaultString(t.getMessage() == null ? t.toString() : t
+					.getMessage());
+			fault.setFaultCode(HANDLER_FAULT);
+			return fault;
+		}
+
+		final SoapFault soapFault = (SoapFault) t;
+		fault.setFaultString(soapFault.getReason());
+		fault.setFaultCode(soapFault.getFaultCode());
+		if (soapFault.getRole() != null) {
+			fault.setFaultActor(soapFault.getRole());
+		}
+		if (soapFault.hasDetails()) {
+			final Detail detail = fault.addDetail();
+			for (Node child = soapFault.getDetail().getFirstChild(); child != null; child = child
+					.getNextSibling()) {
+				detail.appendChild(detail.getOwnerDocument().importNode(child,
+						true));
+			}
+		}
+		return fault;
+	}
+}
@@ -0,0 +1,83 @@
+package fr.foop.ws.tools.async;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Capture the operation called on a recording port.
+ */
+public class RecordedCall implements InvocationHandler {
+
+	private Method method;
+	private Object[] args;
+
+	public static <Port> RecordedCall record(final Class<?> portClazz,
+			final AsyncCall<Port, ?> call) {
+		final RecordedCall recorded = new RecordedCall();
+
+		@SuppressWarnings("unchecked")
+		final Port recorder = (Port) Proxy.newProxyInstance(
+				portClazz.getClassLoader(), new Class<?>[] { portClazz },
+				recorded);
+		call.on(recorder);
+
+		if (recorded.method == null) {
+			throw new IllegalArgumentException(
+					"no operation called on the port by " + call);
+		}
+
+		return recorded;
+	}
+
+	@Override
+	public Object invoke(final Object proxy, final Method method,
+			final Object[] args) {
+		if (method.getDeclaringClass() == Object.class) {
+			throw new UnsupportedOperationException(method.getName()
+					+ " is not supported on a recording port");
+		}
+
+		if (this.method != null) {
+			throw new IllegalStateException(
+					"only one operation can be recorded, found "
+							+ this.method.getName() + " and "
+							+ method.getName());
+		}
+
+		this.method = method;
+		this.args = args == null ? new Object[0] : args;
+
+		return defaultValue(method.getReturnType());
+	}
+
+	private static Object defaultValue(final Class<?> type) {
+		if (!type.isPrimitive() || type == void.class) {
+			return null;
+		} else if (type == boolean.class) {
+			return false;
+		} else if (type == char.class) {
+			return '\0';
+		} else if (type == byte.class) {
+			return (byte) 0;
+		} else if (type == short.class) {
+			return (short) 0;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		} else if (type == float.class) {
+			return 0f;
+		} else {
+			return 0d;
+		}
+	}
+
+	public Method method() {
+		return method;
+	}
+
+	public Object[] args() {
+		return args;
+	}
+}
@@ -0,0 +1,234 @@
+package fr.foop.ws.tools.cache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.Duration;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A call arguments key, compared by value.
+ * 
+ * CXF generated types do not implement equals and hashCode, so the arguments
+ * are turned into a tree of immutable values by walking their fields. The JDK
+ * types are values themselves, their fields are never walked.
+ */
+public class ArgumentsKey {
+
+	private static final int MAX_DEPTH = 32;
+
+	/**
+	 * The value of a null argument, distinct from any argument value.
+	 */
+	private static final Object NULL = new Object() {
+		@Override
+		public String toString() {
+			return "null";
+		}
+	};
+
+	private volatile Object[] args;
+	private final ImmutableList<Object> value;
+	private final int hash;
+
+	public ArgumentsKey(final Object[] args) {
+		this.args = args;
+		this.value = ImmutableList.copyOf(valuesOf(Arrays.asList(args), 0));
+		this.hash = value.hashCode();
+	}
+
+	/**
+	 * @return the original arguments, to perform the call again.
+	 */
+	public Object[] args() {
+		return args;
+	}
+
+	/**
+	 * Replace the arguments by a copy before they are sent by a cache loader,
+	 * as the caller may reuse or modify its request objects.
+	 */
+	void detach() {
+		this.args = DeepCopy.of(args);
+	}
+
+	private static List<Object> valuesOf(final Collection<?> objects,
+			final int depth) {
+		final List<Object> values = new ArrayList<Object>(objects.size());
+		for (final Object object : objects) {
+			values.add(valueOf(object, depth));
+		}
+		return values;
+	}
+
+	private static Object valueOf(final Object object, final int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new IllegalArgumentException(
+					"arguments are too deep to be used as a cache key");
+		}
+
+		if (object == null) {
+			return NULL;
+		} else if (isValue(object)) {
+			return object;
+		} else if (object instanceof XMLGregorianCalendar) {
+			return ImmutableList.of(XMLGregorianCalendar.class.getName(),
+					((XMLGregorianCalendar) object).toXMLFormat());
+		} else if (object instanceof Date) {
+			return ImmutableList.of(Date.class.getName(),
+					((Date) object).getTime());
+		} else if (object instanceof Calendar) {
+			final Calendar calendar = (Calendar) object;
+			return ImmutableList.of(Calendar.class.getName(),
+					calendar.getTimeInMillis(), calendar.getTimeZone().getID());
+		} else if (object instanceof JAXBElement) {
+			final JAXBElement<?> element = (JAXBElement<?>) object;
+			return ImmutableList.of(JAXBElement.class.getName(),
+					element.getName(), element.getDeclaredType(),
+					valueOf(element.getValue(), depth + 1));
+		} else if (object instanceof Collection) {
+			return valuesOf((Collection<?>) object, depth + 1);
+		} else if (object instanceof Map) {
+			final ImmutableMap.Builder<Object, Object> values = ImmutableMap
+					.builder();
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+				values.put(valueOf(entry.getKey(), depth + 1),
+						valueOf(entry.getValue(), depth + 1));
+			}
+			return values.build();
+		} else if (object.getClass().isArray()) {
+			return arrayValueOf(object, depth);
+		} else if (isJdkType(object.getClass())) {
+			return ImmutableList.of(object.getClass().getName(),
+					String.valueOf(object));
+		} else {
+			return fieldsValueOf(object, depth);
+		}
+	}
+
+	/**
+	 * @return true for the JDK types, which fields are not to be walked.
+	 */
+	static boolean isJdkType(final Class<?> clazz) {
+		final String name = clazz.getName();
+		return name.startsWith("java.") || name.startsWith("javax.")
+				|| name.startsWith("jdk.") || name.startsWith("sun.")
+				|| name.startsWith("com.sun.");
+	}
+
+	private static boolean isValue(final Object object) {
+		return object instanceof String || object instanceof Number
+				|| object instanceof Boolean || object instanceof Character
+				|| object instanceof Enum || object instanceof UUID
+				|| object instanceof QName || object instanceof Class
+				|| object instanceof Duration;
+	}
+
+	private static Object arrayValueOf(final Object array, final int depth) {
+		final int length = java.lang.reflect.Array.getLength(array);
+		final List<Object> values = new ArrayList<Object>(length);
+		for (int i = 0; i < length; ++i) {
+			values.add(valueOf(java.lang.reflect.Array.get(array, i),
+					depth + 1));
+		}
+		return values;
+	}
+
+	private static Object fieldsValueOf(final Object object, final int depth) {
+		final List<Object> values = new ArrayList<Object>();
+		values.add(object.getClass().getName());
+
+		for (Class<?> clazz = object.getClass(); !isJdkType(clazz); clazz = clazz
+				.getSuperclass()) {
+			for (final Field field : clazz.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())
+						|| field.isSynthetic()) {
+					continue;
+				}
+
+				field.setAccessible(true);
+				try {
+					values.add(valueOf(field.get(object), depth + 1));
+				} catch (IllegalAccessException e) {
+					throw new IllegalArgumentException(
+							"unable to read argument field " + field, e);
+				}
+			}
+		}
+
+		return values;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ArgumentsKey)) {
+			return false;
+		}
+		final ArgumentsKey other = (ArgumentsKey) obj;
+		return hash == other.hash && value.equals(other.value);
+	}
+
+	/**
+	 * @return the arguments as text, each value tagged with its type : unlike
+	 *         {@link #toString()}, two keys have the same text only when they
+	 *         are equal.
+	 */
+	public String toTypedString() {
+		final StringBuilder text = new StringBuilder();
+		appendTyped(text, value);
+		return text.toString();
+	}
+
+	private static void appendTyped(final StringBuilder text, final Object value) {
+		if (value == NULL) {
+			text.append("null");
+		} else if (value instanceof List) {
+			text.append('[');
+			for (final Object element : (List<?>) value) {
+				appendTyped(text, element);
+				text.append(',');
+			}
+			text.append(']');
+		} else if (value instanceof Map) {
+			text.append('{');
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				appendTyped(text, entry.getKey());
+				text.append('=');
+				appendTyped(text, entry.getValue());
+				text.append(',');
+			}
+			text.append('}');
+		} else {
+			final String string = value instanceof Class ? ((Class<?>) value)
+					.getName() : String.valueOf(value);
+			text.append(value.getClass().getName()).append(':')
+					.append(string.length()).append(':').append(string);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return value.toString();
+	}
+}
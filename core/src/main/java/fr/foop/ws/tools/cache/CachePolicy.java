@@ -0,0 +1,66 @@
+package fr.foop.ws.tools.cache;
+
+import java.util.List;
+
+import com.google.common.base.Splitter;
+
+/**
+ * How the responses of an operation are cached.
+ */
+public class CachePolicy {
+
+	public final long ttl;
+	public final long maxEntries;
+	public final long refreshAfter;
+
+	/**
+	 * @param ttl
+	 *            the time in millis a response is kept.
+	 * @param maxEntries
+	 *            the maximum number of responses kept, the least recently used
+	 *            are evicted first.
+	 * @param refreshAfter
+	 *            the time in millis after which a response still requested is
+	 *            refreshed in the background, 0 to disable.
+	 */
+	public CachePolicy(final long ttl, final long maxEntries,
+			final long refreshAfter) {
+		this.ttl = ttl;
+		this.maxEntries = maxEntries;
+		this.refreshAfter = refreshAfter;
+	}
+
+	public CachePolicy(final long ttl, final long maxEntries) {
+		this(ttl, maxEntries, 0);
+	}
+
+	public boolean isRefreshEnabled() {
+		return refreshAfter > 0 && refreshAfter < ttl;
+	}
+
+	/**
+	 * Parse a policy written as <code>ttl:maxEntries[:refreshAfter]</code>.
+	 */
+	public static CachePolicy fromString(final String policy) {
+		final List<String> values = Splitter.on(":").trimResults()
+				.splitToList(policy);
+
+		if (values.size() == 2) {
+			return new CachePolicy(Long.valueOf(values.get(0)),
+					Long.valueOf(values.get(1)));
+		} else if (values.size() == 3) {
+			return new CachePolicy(Long.valueOf(values.get(0)),
+					Long.valueOf(values.get(1)), Long.valueOf(values.get(2)));
+		}
+
+		throw new IllegalArgumentException(
+				"cache policy must be defined as ttl:maxEntries[:refreshAfter] : "
+						+ policy);
+	}
+
+	@Override
+	public String toString() {
+		return "CachePolicy [ttl=" + ttl + ", maxEntries=" + maxEntries
+				+ ", refreshAfter=" + refreshAfter + "]";
+	}
+}
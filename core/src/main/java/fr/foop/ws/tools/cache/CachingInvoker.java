@@ -0,0 +1,202 @@
+package fr.foop.ws.tools.cache;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import fr.foop.ws.tools.invocation.PortInvoker;
+
+/**
+ * Serve the responses of the cached operations from memory, the other
+ * operations go straight to the decorated invoker.
+ * 
+ * The cache keeps its own copy of the arguments and of the responses, and
+ * returns a copy of the cached response to each caller : the callers can
+ * reuse or modify their request and response objects.
+ */
+public class CachingInvoker implements PortInvoker, AutoCloseable {
+
+	private final PortInvoker delegate;
+	private final ImmutableMap<Method, LoadingCache<ArgumentsKey, Optional<Object>>> caches;
+	private final ImmutableMap<String, LoadingCache<ArgumentsKey, Optional<Object>>> cachesByOperation;
+	private final Optional<ExecutorService> refresher;
+	private final boolean sharedRefresher;
+
+	/**
+	 * @param portClazz
+	 *            the port interface.
+	 * @param policies
+	 *            the cache policy by operation (port method) name.
+	 */
+	public CachingInvoker(final PortInvoker delegate,
+			final Class<?> portClazz, final Map<String, CachePolicy> policies) {
+		this(delegate, portClazz, policies, Optional.<ExecutorService> absent());
+	}
+
+	/**
+	 * @param workers
+	 *            the shared executor running the background refreshes, a
+	 *            dedicated pool is started when absent.
+	 */
+	public CachingInvoker(final PortInvoker delegate,
+			final Class<?> portClazz, final Map<String, CachePolicy> policies,
+			final Optional<ExecutorService> workers) {
+		this.delegate = delegate;
+		this.sharedRefresher = workers.isPresent();
+		this.refresher = sharedRefresher ? workers
+				: newRefresherIfRequired(policies);
+
+		final ImmutableMap.Builder<Method, LoadingCache<ArgumentsKey, Optional<Object>>> caches = ImmutableMap
+				.builder();
+		final ImmutableMap.Builder<String, LoadingCache<ArgumentsKey, Optional<Object>>> cachesByOperation = ImmutableMap
+				.builder();
+
+		for (final Map.Entry<String, CachePolicy> policy : policies.entrySet()) {
+			final Method method = findMethod(portClazz, policy.getKey());
+			final LoadingCache<ArgumentsKey, Optional<Object>> cache = newCache(
+					method, policy.getValue());
+			caches.put(method, cache);
+			cachesByOperation.put(policy.getKey(), cache);
+		}
+
+		this.caches = caches.build();
+		this.cachesByOperation = cachesByOperation.build();
+	}
+
+	private static Optional<ExecutorService> newRefresherIfRequired(
+			final Map<String, CachePolicy> policies) {
+		for (final CachePolicy policy : policies.values()) {
+			if (policy.isRefreshEnabled()) {
+				return Optional.of(Executors
+						.newCachedThreadPool(new ThreadFactoryBuilder()
+								.setDaemon(true)
+								.setNameFormat("cxf-client-cache-refresh-%d")
+								.build()));
+			}
+		}
+		return Optional.absent();
+	}
+
+	private static Method findMethod(final Class<?> portClazz,
+			final String operation) {
+		for (final Method method : portClazz.getMethods()) {
+			if (method.getName().equals(operation)) {
+				return method;
+			}
+		}
+
+		throw new IllegalArgumentException("no operation named " + operation
+				+ " in " + portClazz.getName());
+	}
+
+	private LoadingCache<ArgumentsKey, Optional<Object>> newCache(
+			final Method method, final CachePolicy policy) {
+		final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+				.expireAfterWrite(policy.ttl, TimeUnit.MILLISECONDS)
+				.maximumSize(policy.maxEntries).recordStats();
+
+		if (policy.isRefreshEnabled()) {
+			builder.refreshAfterWrite(policy.refreshAfter,
+					TimeUnit.MILLISECONDS);
+		}
+
+		return builder.build(new CacheLoader<ArgumentsKey, Optional<Object>>() {
+			@Override
+			public Optional<Object> load(final ArgumentsKey key)
+					throws Exception {
+				key.detach();
+				return invoke(method, key);
+			}
+
+			@Override
+			public ListenableFuture<Optional<Object>> reload(
+					final ArgumentsKey key, final Optional<Object> oldValue) {
+				key.detach();
+				final ListenableFutureTask<Optional<Object>> task = ListenableFutureTask
+						.create(new Callable<Optional<Object>>() {
+							@Override
+							public Optional<Object> call() throws Exception {
+								return invoke(method, key);
+							}
+						});
+				refresher.get().execute(task);
+				return task;
+			}
+		});
+	}
+
+	private Optional<Object> invoke(final Method method, final ArgumentsKey key)
+			throws Exception {
+		try {
+			return Optional.fromNullable(delegate.invoke(method, key.args()));
+		} catch (Throwable t) {
+			Throwables.propagateIfPossible(t, Exception.class);
+			throw new RuntimeException(t);
+		}
+	}
+
+	@Override
+	public Object invoke(final Method method, final Object[] args)
+			throws Throwable {
+		final LoadingCache<ArgumentsKey, Optional<Object>> cache = caches
+				.get(method);
+
+		if (cache == null) {
+			return delegate.invoke(method, args);
+		}
+
+		try {
+			return DeepCopy.of(cache.get(new ArgumentsKey(args)).orNull());
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * @return the hit, miss and eviction counters by operation name.
+	 */
+	public ImmutableMap<String, CacheStats> stats() {
+		final ImmutableMap.Builder<String, CacheStats> stats = ImmutableMap
+				.builder();
+		for (final Map.Entry<String, LoadingCache<ArgumentsKey, Optional<Object>>> cache : cachesByOperation
+				.entrySet()) {
+			stats.put(cache.getKey(), cache.getValue().stats());
+		}
+		return stats.build();
+	}
+
+	public void invalidateAll() {
+		for (final LoadingCache<ArgumentsKey, Optional<Object>> cache : caches
+				.values()) {
+			cache.invalidateAll();
+		}
+	}
+
+	@Override
+	public void close() {
+		if (refresher.isPresent() && !sharedRefresher) {
+			refresher.get().shutdownNow();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Cached" + delegate;
+	}
+}
@@ -0,0 +1,158 @@
+package fr.foop.ws.tools.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.Duration;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+/**
+ * Copy call arguments and responses, so that a cached value is never shared
+ * with a caller who could modify it.
+ *
+ * CXF generated types are copied field by field through their no argument
+ * constructor, collections and arrays element by element. The immutable JDK
+ * types are shared, the mutable ones (dates, calendars) cloned.
+ */
+final class DeepCopy {
+
+	private static final int MAX_DEPTH = 32;
+
+	private DeepCopy() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T of(final T object) {
+		return (T) copy(object, 0);
+	}
+
+	private static Object copy(final Object object, final int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new IllegalArgumentException(
+					"value is too deep to be copied");
+		}
+
+		if (object == null || isImmutable(object)) {
+			return object;
+		} else if (object instanceof XMLGregorianCalendar) {
+			return ((XMLGregorianCalendar) object).clone();
+		} else if (object instanceof Date) {
+			return ((Date) object).clone();
+		} else if (object instanceof Calendar) {
+			return ((Calendar) object).clone();
+		} else if (object instanceof JAXBElement) {
+			return copyElement((JAXBElement<?>) object, depth);
+		} else if (object instanceof List) {
+			return copyInto(new ArrayList<Object>(), (List<?>) object, depth);
+		} else if (object instanceof Set) {
+			return copyInto(new LinkedHashSet<Object>(), (Set<?>) object,
+					depth);
+		} else if (object instanceof Collection) {
+			return copyInto(new ArrayList<Object>(), (Collection<?>) object,
+					depth);
+		} else if (object instanceof Map) {
+			final Map<Object, Object> copy = new LinkedHashMap<Object, Object>();
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+				copy.put(copy(entry.getKey(), depth + 1),
+						copy(entry.getValue(), depth + 1));
+			}
+			return copy;
+		} else if (object.getClass().isArray()) {
+			return copyArray(object, depth);
+		} else if (ArgumentsKey.isJdkType(object.getClass())) {
+			return object;
+		} else {
+			return copyFields(object, depth);
+		}
+	}
+
+	private static boolean isImmutable(final Object object) {
+		return object instanceof String || object instanceof Number
+				|| object instanceof Boolean || object instanceof Character
+				|| object instanceof Enum || object instanceof UUID
+				|| object instanceof QName || object instanceof Class
+				|| object instanceof Duration;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object copyElement(final JAXBElement<?> element,
+			final int depth) {
+		final JAXBElement copy = new JAXBElement(element.getName(),
+				element.getDeclaredType(), element.getScope(), copy(
+						element.getValue(), depth + 1));
+		copy.setNil(element.isNil());
+		return copy;
+	}
+
+	private static <C extends Collection<Object>> C copyInto(final C copy,
+			final Collection<?> objects, final int depth) {
+		for (final Object object : objects) {
+			copy.add(copy(object, depth + 1));
+		}
+		return copy;
+	}
+
+	private static Object copyArray(final Object array, final int depth) {
+		final int length = Array.getLength(array);
+		final Class<?> componentType = array.getClass().getComponentType();
+		final Object copy = Array.newInstance(componentType, length);
+		if (componentType.isPrimitive()) {
+			System.arraycopy(array, 0, copy, 0, length);
+		} else {
+			for (int i = 0; i < length; ++i) {
+				Array.set(copy, i, copy(Array.get(array, i), depth + 1));
+			}
+		}
+		return copy;
+	}
+
+	private static Object copyFields(final Object object, final int depth) {
+		final Object copy = newInstance(object.getClass());
+
+		for (Class<?> clazz = object.getClass(); !ArgumentsKey
+				.isJdkType(clazz); clazz = clazz.getSuperclass()) {
+			for (final Field field : clazz.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())
+						|| field.isSynthetic()) {
+					continue;
+				}
+
+				field.setAccessible(true);
+				try {
+					field.set(copy, copy(field.get(object), depth + 1));
+				} catch (IllegalAccessException e) {
+					throw new IllegalArgumentException("unable to copy field "
+							+ field, e);
+				}
+			}
+		}
+
+		return copy;
+	}
+
+	private static Object newInstance(final Class<?> clazz) {
+		try {
+			final Constructor<?> constructor = clazz.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor.newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("unable to copy "
+					+ clazz.getName() + ", it needs a no argument constructor",
+					e);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package fr.foop.ws.tools.coalescing;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.ws.WebServiceException;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.SettableFuture;
+
+import fr.foop.ws.tools.cache.ArgumentsKey;
+import fr.foop.ws.tools.deadline.Deadline;
+import fr.foop.ws.tools.deadline.DeadlineExceededException;
+import fr.foop.ws.tools.invocation.PortInvoker;
+
+/**
+ * Share a single in-flight request between concurrent calls of the same
+ * operation with equal arguments. Every caller gets the same result, or the
+ * same exception. A caller waiting for another one request still gives up at
+ * its own deadline, or when interrupted.
+ */
+public class CoalescingInvoker implements PortInvoker {
+
+	private final PortInvoker delegate;
+	private final ImmutableMap<Method, ConcurrentMap<ArgumentsKey, SettableFuture<Object>>> inFlight;
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * @param portClazz
+	 *            the port interface.
+	 * @param operations
+	 *            the coalesced operation (port method) names.
+	 */
+	public CoalescingInvoker(final PortInvoker delegate,
+			final Class<?> portClazz, final Set<String> operations) {
+		this.delegate = delegate;
+
+		final ImmutableMap.Builder<Method, ConcurrentMap<ArgumentsKey, SettableFuture<Object>>> inFlight = ImmutableMap
+				.builder();
+
+		for (final Method method : portClazz.getMethods()) {
+			if (operations.contains(method.getName())) {
+				inFlight.put(method,
+						new ConcurrentHashMap<ArgumentsKey, SettableFuture<Object>>());
+			}
+		}
+
+		this.inFlight = inFlight.build();
+	}
+
+	@Override
+	public Object invoke(final Method method, final Object[] args)
+			throws Throwable {
+		final ConcurrentMap<ArgumentsKey, SettableFuture<Object>> calls = inFlight
+				.get(method);
+
+		if (calls == null) {
+			return delegate.invoke(method, args);
+		}
+
+		final ArgumentsKey key = new ArgumentsKey(args);
+		final SettableFuture<Object> call = SettableFuture.create();
+		final SettableFuture<Object> leader = calls.putIfAbsent(key, call);
+
+		if (leader != null) {
+			coalesced.incrementAndGet();
+			return follow(leader, method);
+		}
+
+		try {
+			final Object result = delegate.invoke(method, args);
+			calls.remove(key, call);
+			call.set(result);
+			return result;
+		} catch (Throwable t) {
+			calls.remove(key, call);
+			call.setException(t);
+			throw t;
+		}
+	}
+
+	private static Object follow(final SettableFuture<Object> leader,
+			final Method method) throws Throwable {
+		final Optional<Deadline> deadline = Deadline.current();
+		try {
+			return deadline.isPresent() ? leader.get(deadline.get()
+					.remainingNanos(), TimeUnit.NANOSECONDS) : leader.get();
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		} catch (TimeoutException e) {
+			throw new DeadlineExceededException(
+					"deadline exceeded while waiting for the call of "
+							+ method.getName() + " in flight");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WebServiceException("interrupted while waiting for "
+					+ method.getName(), e);
+		}
+	}
+
+	/**
+	 * @return the number of calls served by another call in-flight request.
+	 */
+	public long coalescedCalls() {
+		return coalesced.get();
+	}
+
+	@Override
+	public String toString() {
+		return "Coalesced" + delegate;
+	}
+}
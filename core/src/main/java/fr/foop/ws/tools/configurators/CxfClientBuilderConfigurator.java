@@ -0,0 +1,465 @@
+package fr.foop.ws.tools.configurators;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
+
+import fr.foop.ws.CxfClientBuilder;
+import fr.foop.ws.tools.cache.CachePolicy;
+import fr.foop.ws.tools.deadline.AdaptiveTimeoutPolicy;
+import fr.foop.ws.tools.hedging.HedgingPolicy;
+import fr.foop.ws.tools.logging.PayloadLogPolicy;
+import fr.foop.ws.tools.ratelimit.RateLimitPolicy;
+import fr.foop.ws.tools.routing.ConcurrencyLimitPolicy;
+import fr.foop.ws.tools.routing.ElectionPolicy;
+import fr.foop.ws.tools.routing.LoadBalancing;
+import fr.foop.ws.tools.warmup.Initialization;
+import fr.foop.ws.tools.wsse.WsseMode;
+
+public interface CxfClientBuilderConfigurator {
+
+	public final static Logger LOGGER = LoggerFactory.getLogger(CxfClientBuilderConfigurator.class);
+	
+	public static abstract class BasicBuilderConfigurator implements
+			CxfClientBuilderConfigurator {
+		@Override
+		public CxfClientBuilder configure(CxfClientBuilder configured,
+				Optional<String> propValue) {
+			LOGGER.debug("autoconfigure : {} -> {}", this.getClass().getName(), propValue.toString());
+			
+			if (propValue.isPresent()) {
+				return ensurePresentConfigured(configured, propValue.get());
+			}
+			
+			return configured;
+		}
+
+		protected abstract CxfClientBuilder ensurePresentConfigured(
+				final CxfClientBuilder configured, final String propValue);
+	}
+
+	public final static CxfClientBuilderConfigurator NOOP_CONFIGURATOR = new CxfClientBuilderConfigurator() {
+
+		@Override
+		public CxfClientBuilder configure(CxfClientBuilder configured,
+				Optional<String> propValue) {
+			return configured;
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator ENDPOINT_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withEndpoint(propValue);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator INLOGGER_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withInLogger(propValue);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator OUTLOGGER_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withOutLogger(propValue);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator LOGGER_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withLogger(propValue);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator WSSE_USER_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withWsseUser(propValue);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator WSSE_PWD_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withWssePwd(propValue);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator CONNECTION_TIMEOUT_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withConnectionTimeout(Long.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator RECEIVE_TIMEOUT_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withReceiveTimeout(Long.valueOf(propValue));
+		}
+	};
+
+
+	public final static CxfClientBuilderConfigurator MOCKED_PORT_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withMockedPort(propValue);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator USE_MOCK_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			final boolean useMock = Boolean.valueOf(propValue);
+			if(useMock) {
+				return configured.enableMocking();
+			}
+			else {
+				return configured.disableMocking();
+			}
+		}
+	};
+	
+	public final static CxfClientBuilderConfigurator SERVERS_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withServers(Iterables.toArray(Splitter.on(",")
+					.trimResults().omitEmptyStrings().split(propValue),
+					String.class));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator PORT_POOL_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			final List<String> bounds = Splitter.on(",").trimResults()
+					.omitEmptyStrings().splitToList(propValue);
+
+			if (bounds.size() == 1) {
+				final int max = Integer.valueOf(bounds.get(0));
+				return configured.withPortPool(max, max);
+			} else if (bounds.size() == 2) {
+				return configured.withPortPool(Integer.valueOf(bounds.get(0)),
+						Integer.valueOf(bounds.get(1)));
+			}
+
+			throw new IllegalArgumentException(
+					"port pool must be defined as min,max : " + propValue);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator PORT_POOL_TIMEOUT_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withPortPoolTimeout(Long.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator LOAD_BALANCING_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withLoadBalancing(LoadBalancing.fromName(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator HEALTH_CHECK_INTERVAL_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withHealthCheck(Long.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator CIRCUIT_BREAKER_FAILURES_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withCircuitBreaker(Integer.valueOf(propValue),
+					configured.circuitBreakerOpenTime);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator CIRCUIT_BREAKER_OPEN_TIME_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withCircuitBreaker(
+					configured.circuitBreakerFailures, Long.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator ELECTION_PARALLELISM_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withParallelElection(Integer.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator ELECTION_POLICY_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withElectionPolicy(ElectionPolicy.fromName(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator RESPONSE_CACHES_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			CxfClientBuilder cached = configured;
+
+			for (final String cache : Splitter.on(",").trimResults()
+					.omitEmptyStrings().split(propValue)) {
+				final int separator = cache.indexOf(':');
+				if (separator < 0) {
+					throw new IllegalArgumentException(
+							"response cache must be defined as operation:ttl:maxEntries[:refreshAfter] : "
+									+ cache);
+				}
+				cached = cached.withResponseCache(cache.substring(0, separator),
+						CachePolicy.fromString(cache.substring(separator + 1)));
+			}
+
+			return cached;
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator COALESCED_OPERATIONS_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withCoalescing(Iterables.toArray(Splitter.on(",")
+					.trimResults().omitEmptyStrings().split(propValue),
+					String.class));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator METRICS_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			if (Boolean.valueOf(propValue)) {
+				return configured.enableMetrics();
+			} else {
+				return configured.disableMetrics();
+			}
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator PHASE_TIMING_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			if (Boolean.valueOf(propValue)) {
+				return configured.enablePhaseTiming();
+			} else {
+				return configured.disablePhaseTiming();
+			}
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator PAYLOAD_LOGGING_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withPayloadLogging(PayloadLogPolicy
+					.fromString(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator WSSE_MODE_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withWsseMode(WsseMode.fromName(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator CHUNKING_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			if (Boolean.valueOf(propValue)) {
+				return configured.enableChunking();
+			} else {
+				return configured.disableChunking();
+			}
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator CHUNKING_THRESHOLD_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withChunkingThreshold(Integer.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator KEEP_ALIVE_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withKeepAlive(Boolean.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator MAX_CONNECTIONS_PER_HOST_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withMaxConnectionsPerHost(Integer.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator COMPRESSION_THRESHOLD_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withCompression(Integer.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator MTOM_THRESHOLD_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withMtom(Integer.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator ATTACHMENT_DIRECTORY_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withAttachmentDirectory(propValue);
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator ATTACHMENT_MEMORY_THRESHOLD_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withAttachmentMemoryThreshold(Long.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator HEDGING_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withHedging(HedgingPolicy.fromString(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator HEDGED_OPERATIONS_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withHedging(Iterables.toArray(Splitter.on(",")
+					.trimResults().omitEmptyStrings().split(propValue),
+					String.class));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator ADAPTIVE_TIMEOUTS_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withAdaptiveTimeouts(AdaptiveTimeoutPolicy
+					.fromString(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator CONCURRENCY_LIMIT_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withConcurrencyLimit(ConcurrencyLimitPolicy
+					.fromString(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator RATE_LIMIT_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withRateLimit(RateLimitPolicy
+					.fromString(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator OPERATION_RATE_LIMITS_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			CxfClientBuilder limited = configured;
+
+			for (final String limit : Splitter.on(",").trimResults()
+					.omitEmptyStrings().split(propValue)) {
+				final int separator = limit.indexOf(':');
+				if (separator < 0) {
+					throw new IllegalArgumentException(
+							"operation rate limit must be defined as operation:rate[:burst[:maxWait]] : "
+									+ limit);
+				}
+				limited = limited.withRateLimit(limit.substring(0, separator),
+						RateLimitPolicy.fromString(limit.substring(separator + 1)));
+			}
+
+			return limited;
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator INITIALIZATION_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withInitialization(Initialization
+					.fromName(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator WARM_UP_CONNECTIONS_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withWarmUpConnections(Integer.valueOf(propValue));
+		}
+	};
+
+	public final static CxfClientBuilderConfigurator RECORDING_CONFIGURATOR = new BasicBuilderConfigurator() {
+		@Override
+		protected CxfClientBuilder ensurePresentConfigured(
+				CxfClientBuilder configured, String propValue) {
+			return configured.withRecording(propValue);
+		}
+	};
+
+	public CxfClientBuilder configure(final CxfClientBuilder configured,
+			final Optional<String> propValue);
+}
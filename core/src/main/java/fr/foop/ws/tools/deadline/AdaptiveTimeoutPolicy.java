@@ -0,0 +1,73 @@
+package fr.foop.ws.tools.deadline;
+
+import java.util.List;
+
+import com.google.common.base.Splitter;
+
+/**
+ * How the receive timeout of an operation is derived from its observed
+ * latency : a multiple of a latency quantile, never below the minimum timeout
+ * nor above the configured receive timeout.
+ */
+public class AdaptiveTimeoutPolicy {
+
+	public final double quantile;
+	public final double factor;
+	public final long minTimeout;
+
+	/**
+	 * @param quantile
+	 *            the latency quantile of the operation (0.99 for the p99).
+	 * @param factor
+	 *            the multiple of the quantile giving the timeout.
+	 * @param minTimeout
+	 *            the lowest timeout in millis.
+	 */
+	public AdaptiveTimeoutPolicy(final double quantile, final double factor,
+			final long minTimeout) {
+		if (quantile <= 0 || quantile >= 1 || factor < 1 || minTimeout <= 0) {
+			throw new IllegalArgumentException(
+					"adaptive timeout quantile must be in ]0, 1[, factor at least 1 and min timeout positive");
+		}
+		this.quantile = quantile;
+		this.factor = factor;
+		this.minTimeout = minTimeout;
+	}
+
+	/**
+	 * Time out the calls three times slower than the operation p99, after 100ms
+	 * at least.
+	 */
+	public AdaptiveTimeoutPolicy() {
+		this(0.99, 3, 100);
+	}
+
+	/**
+	 * Parse a policy written as <code>quantile[:factor[:minTimeout]]</code>.
+	 */
+	public static AdaptiveTimeoutPolicy fromString(final String policy) {
+		final List<String> values = Splitter.on(":").trimResults()
+				.splitToList(policy);
+
+		if (values.size() == 1) {
+			return new AdaptiveTimeoutPolicy(Double.valueOf(values.get(0)), 3,
+					100);
+		} else if (values.size() == 2) {
+			return new AdaptiveTimeoutPolicy(Double.valueOf(values.get(0)),
+					Double.valueOf(values.get(1)), 100);
+		} else if (values.size() == 3) {
+			return new AdaptiveTimeoutPolicy(Double.valueOf(values.get(0)),
+					Double.valueOf(values.get(1)), Long.valueOf(values.get(2)));
+		}
+
+		throw new IllegalArgumentException(
+				"adaptive timeout policy must be defined as quantile[:factor[:minTimeout]] : "
+						+ policy);
+	}
+
+	@Override
+	public String toString() {
+		return "AdaptiveTimeoutPolicy [quantile=" + quantile + ", factor="
+				+ factor + ", minTimeout=" + minTimeout + "]";
+	}
+}
@@ -0,0 +1,114 @@
+package fr.foop.ws.tools.deadline;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableMap;
+
+import fr.foop.ws.tools.metrics.WindowedLatencyHistogram;
+
+/**
+ * The receive timeout of each operation, derived from its recent latency
+ * once enough calls were answered, shared by the ports of a client.
+ */
+public class AdaptiveTimeouts {
+
+	/**
+	 * Number of answered calls between two updates of an operation timeout,
+	 * the first update included.
+	 */
+	private static final int TIMEOUT_REFRESH_CALLS = 100;
+
+	/**
+	 * The latency of the calls older than two windows is forgotten.
+	 */
+	private static final long LATENCY_WINDOW_MILLIS = 60000;
+
+	private final AdaptiveTimeoutPolicy policy;
+	private final long receiveTimeout;
+	private final ConcurrentMap<String, OperationTimeout> operations = new ConcurrentHashMap<String, OperationTimeout>();
+
+	/**
+	 * @param receiveTimeout
+	 *            the configured receive timeout in millis (0 for none), used
+	 *            until the operation latency is known and never exceeded.
+	 */
+	public AdaptiveTimeouts(final AdaptiveTimeoutPolicy policy,
+			final long receiveTimeout) {
+		this.policy = policy;
+		this.receiveTimeout = receiveTimeout;
+	}
+
+	/**
+	 * @return the receive timeout of the operation in millis.
+	 */
+	public long receiveTimeout(final String operation) {
+		final OperationTimeout timeout = operations.get(operation);
+		return timeout == null ? receiveTimeout : timeout.millis;
+	}
+
+	/**
+	 * Record a call which timed out, at its timeout : its latency was at
+	 * least that, and leaving it out would lower the timeout the slower the
+	 * server gets.
+	 * 
+	 * @param timeout
+	 *            the receive timeout of the call in millis.
+	 */
+	public void recordTimeout(final String operation, final long timeout) {
+		record(operation, TimeUnit.MILLISECONDS.toNanos(timeout));
+	}
+
+	/**
+	 * Record the latency of an answered call.
+	 */
+	public void record(final String operation, final long nanos) {
+		OperationTimeout timeout = operations.get(operation);
+		if (timeout == null) {
+			final OperationTimeout created = new OperationTimeout(
+					receiveTimeout);
+			timeout = operations.putIfAbsent(operation, created);
+			if (timeout == null) {
+				timeout = created;
+			}
+		}
+
+		timeout.histogram.record(nanos);
+		if (timeout.recorded.incrementAndGet() % TIMEOUT_REFRESH_CALLS == 0) {
+			final long quantile = TimeUnit.NANOSECONDS.toMillis(timeout.histogram
+					.quantiles(policy.quantile)[0]);
+			final long adaptive = Math.max(policy.minTimeout,
+					(long) (quantile * policy.factor));
+			timeout.millis = receiveTimeout > 0 ? Math.min(receiveTimeout,
+					adaptive) : adaptive;
+		}
+	}
+
+	/**
+	 * @return the current receive timeout of each called operation.
+	 */
+	public ImmutableMap<String, Long> receiveTimeouts() {
+		final ImmutableMap.Builder<String, Long> timeouts = ImmutableMap
+				.builder();
+		for (final Map.Entry<String, OperationTimeout> operation : operations
+				.entrySet()) {
+			timeouts.put(operation.getKey(), operation.getValue().millis);
+		}
+		return timeouts.build();
+	}
+
+	private static class OperationTimeout {
+
+		private final WindowedLatencyHistogram histogram = new WindowedLatencyHistogram(
+				LATENCY_WINDOW_MILLIS);
+		private final AtomicLong recorded = new AtomicLong();
+		private volatile long millis;
+
+		private OperationTimeout(final long millis) {
+			this.millis = millis;
+		}
+	}
+}
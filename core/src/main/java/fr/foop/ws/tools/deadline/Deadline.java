@@ -0,0 +1,116 @@
+package fr.foop.ws.tools.deadline;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+
+/**
+ * The time left to the calls made by the current thread. While a deadline is
+ * active, the connection and receive timeouts of each call are capped to the
+ * remaining time, and calls made once it has passed fail immediately :
+ * 
+ * <pre>
+ * try (Deadline deadline = Deadline.within(200)) {
+ * 	client.port().getById(id);
+ * }
+ * </pre>
+ * 
+ * Nested deadlines never extend the enclosing one.
+ */
+public final class Deadline implements AutoCloseable {
+
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+
+	private final long expiresAtNanos;
+	private final Deadline previous;
+
+	private Deadline(final long expiresAtNanos, final Deadline previous) {
+		this.expiresAtNanos = expiresAtNanos;
+		this.previous = previous;
+	}
+
+	/**
+	 * Start a deadline for the current thread, until closed.
+	 * 
+	 * @param timeout
+	 *            the time left to the calls, in millis.
+	 */
+	public static Deadline within(final long timeout) {
+		return within(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	public static Deadline within(final long timeout, final TimeUnit unit) {
+		return enter(System.nanoTime() + unit.toNanos(timeout));
+	}
+
+	/**
+	 * @return the deadline of the current thread, absent when none is active.
+	 */
+	public static Optional<Deadline> current() {
+		return Optional.fromNullable(CURRENT.get());
+	}
+
+	/**
+	 * Fail fast when the deadline of the current thread has passed.
+	 * 
+	 * @param operation
+	 *            the called operation, for the error message.
+	 * @throws DeadlineExceededException
+	 */
+	public static void check(final String operation) {
+		final Deadline deadline = CURRENT.get();
+		if (deadline != null && deadline.isExpired()) {
+			throw new DeadlineExceededException("deadline exceeded by "
+					+ TimeUnit.NANOSECONDS.toMillis(-deadline.remainingNanos())
+					+ "ms before calling " + operation);
+		}
+	}
+
+	private static Deadline enter(final long expiresAtNanos) {
+		final Deadline previous = CURRENT.get();
+		final Deadline deadline = new Deadline(previous == null
+				|| expiresAtNanos - previous.expiresAtNanos < 0 ? expiresAtNanos
+				: previous.expiresAtNanos, previous);
+		CURRENT.set(deadline);
+		return deadline;
+	}
+
+	/**
+	 * Apply this deadline to the current thread too, for calls made on behalf
+	 * of the thread which started it.
+	 * 
+	 * @return the deadline to close once the calls are made.
+	 */
+	public Deadline propagate() {
+		return enter(expiresAtNanos);
+	}
+
+	public long remainingNanos() {
+		return expiresAtNanos - System.nanoTime();
+	}
+
+	public long remainingMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+	}
+
+	public boolean isExpired() {
+		return remainingNanos() <= 0;
+	}
+
+	/**
+	 * Restore the deadline active when this one was started.
+	 */
+	@Override
+	public void close() {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline [remainingMillis=" + remainingMillis() + "]";
+	}
+}
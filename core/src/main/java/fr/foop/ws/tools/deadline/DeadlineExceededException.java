@@ -0,0 +1,15 @@
+package fr.foop.ws.tools.deadline;
+
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Thrown when a call is made after the deadline of the caller has passed.
+ */
+public class DeadlineExceededException extends WebServiceException {
+
+	private static final long serialVersionUID = 1L;
+
+	public DeadlineExceededException(final String message) {
+		super(message);
+	}
+}
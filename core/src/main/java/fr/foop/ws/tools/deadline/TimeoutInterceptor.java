@@ -0,0 +1,145 @@
+package fr.foop.ws.tools.deadline;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Iterables;
+
+/**
+ * Set the connection and receive timeouts of each call, before the
+ * connection is opened : the operation adaptive receive timeout when
+ * enabled, both capped to the time left by the caller deadline. The
+ * recording interceptor feeds the adaptive timeouts with the latency of the
+ * answered calls, the capping one with the calls which timed out at their
+ * adaptive timeout.
+ */
+public class TimeoutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+	private static final String START_KEY = TimeoutInterceptor.class
+			.getName() + ".START";
+	private static final String ADAPTIVE_TIMEOUT_KEY = TimeoutInterceptor.class
+			.getName() + ".ADAPTIVE_TIMEOUT";
+
+	private final long connectionTimeout;
+	private final long receiveTimeout;
+	private final Optional<AdaptiveTimeouts> adaptive;
+
+	private TimeoutInterceptor(final String phase,
+			final long connectionTimeout, final long receiveTimeout,
+			final Optional<AdaptiveTimeouts> adaptive) {
+		super(TimeoutInterceptor.class.getName() + "." + phase, phase);
+		this.connectionTimeout = connectionTimeout;
+		this.receiveTimeout = receiveTimeout;
+		this.adaptive = adaptive;
+	}
+
+	/**
+	 * @param connectionTimeout
+	 *            the configured connection timeout in millis, 0 for none.
+	 * @param receiveTimeout
+	 *            the configured receive timeout in millis, 0 for none.
+	 */
+	public static TimeoutInterceptor capping(final long connectionTimeout,
+			final long receiveTimeout, final Optional<AdaptiveTimeouts> adaptive) {
+		return new TimeoutInterceptor(Phase.SETUP, connectionTimeout,
+				receiveTimeout, adaptive);
+	}
+
+	public static TimeoutInterceptor recording(final AdaptiveTimeouts adaptive) {
+		return new TimeoutInterceptor(Phase.POST_INVOKE, 0, 0,
+				Optional.of(adaptive));
+	}
+
+	@Override
+	public void handleMessage(final Message message) throws Fault {
+		if (Phase.POST_INVOKE.equals(getPhase())) {
+			record(message.getExchange());
+			return;
+		}
+
+		final Optional<Deadline> deadline = Deadline.current();
+		if (!adaptive.isPresent() && !deadline.isPresent()) {
+			return;
+		}
+
+		long connection = connectionTimeout;
+		long receive = receiveTimeout;
+		long adaptiveReceive = 0;
+
+		if (adaptive.isPresent()) {
+			final Exchange exchange = message.getExchange();
+			adaptiveReceive = adaptive.get().receiveTimeout(operation(exchange));
+			receive = adaptiveReceive;
+			exchange.put(START_KEY, System.nanoTime());
+		}
+
+		if (deadline.isPresent()) {
+			// Rounded up, so that a call timing out on the deadline finds it
+			// expired. A call reaching this point after the deadline times out
+			// at once.
+			final long remaining = Math.max(1, TimeUnit.NANOSECONDS
+					.toMillis(deadline.get().remainingNanos()
+							+ TimeUnit.MILLISECONDS.toNanos(1) - 1));
+			connection = cap(connection, remaining);
+			receive = cap(receive, remaining);
+		}
+
+		if (adaptive.isPresent() && receive == adaptiveReceive) {
+			message.getExchange().put(ADAPTIVE_TIMEOUT_KEY, receive);
+		}
+		message.put(Message.CONNECTION_TIMEOUT, connection);
+		message.put(Message.RECEIVE_TIMEOUT, receive);
+	}
+
+	/**
+	 * Record the calls timing out at their adaptive timeout, not the ones cut
+	 * short by the caller deadline.
+	 */
+	@Override
+	public void handleFault(final Message message) {
+		if (!Phase.SETUP.equals(getPhase()) || !adaptive.isPresent()) {
+			return;
+		}
+
+		final Exchange exchange = message.getExchange();
+		final Long timeout = (Long) exchange.get(ADAPTIVE_TIMEOUT_KEY);
+		if (timeout != null && timeout > 0
+				&& isTimeout(message.getContent(Exception.class))) {
+			adaptive.get().recordTimeout(operation(exchange), timeout);
+		}
+	}
+
+	private static boolean isTimeout(final Exception e) {
+		return e != null
+				&& Iterables.any(Throwables.getCausalChain(e),
+						Predicates.instanceOf(SocketTimeoutException.class));
+	}
+
+	private void record(final Exchange exchange) {
+		final Long start = (Long) exchange.get(START_KEY);
+		if (start != null) {
+			adaptive.get().record(operation(exchange),
+					System.nanoTime() - start);
+		}
+	}
+
+	private static long cap(final long timeout, final long remaining) {
+		return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+	}
+
+	private static String operation(final Exchange exchange) {
+		final BindingOperationInfo operation = exchange
+				.getBindingOperationInfo();
+		return operation == null ? "" : operation.getName().getLocalPart();
+	}
+}
@@ -0,0 +1,121 @@
+package fr.foop.ws.tools.health;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker of a single server.
+ * 
+ * <ul>
+ * <li>CLOSED : the server receives calls. It opens after too many consecutive
+ * call failures or a failed health check.</li>
+ * <li>OPEN : the server does not receive calls nor health checks until the
+ * open time elapsed.</li>
+ * <li>HALF_OPEN : the next health check decides whether the server is closed
+ * again or opened for another period.</li>
+ * </ul>
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	public interface Listener {
+		void stateChanged(final CircuitBreaker breaker, final State from,
+				final State to);
+	}
+
+	private final int failureThreshold;
+	private final long openMillis;
+
+	private final AtomicReference<State> state = new AtomicReference<State>(
+			State.CLOSED);
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final AtomicLong openedAt = new AtomicLong();
+	private volatile Listener listener;
+
+	public CircuitBreaker(final int failureThreshold, final long openMillis) {
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+	}
+
+	public void setListener(final Listener listener) {
+		this.listener = listener;
+	}
+
+	public State state() {
+		return state.get();
+	}
+
+	public boolean isCallPermitted() {
+		return state.get() == State.CLOSED;
+	}
+
+	/**
+	 * @return true when the server should be health checked now, moving an
+	 *         open breaker to half open once its open time elapsed.
+	 */
+	public boolean isCheckDue() {
+		final State current = state.get();
+
+		if (current == State.OPEN) {
+			return System.currentTimeMillis() - openedAt.get() >= openMillis
+					&& transition(State.OPEN, State.HALF_OPEN);
+		}
+
+		return true;
+	}
+
+	/**
+	 * A call or a health check succeeded.
+	 */
+	public void onSuccess() {
+		consecutiveFailures.set(0);
+
+		final State current = state.get();
+		if (current != State.CLOSED) {
+			transition(current, State.CLOSED);
+		}
+	}
+
+	/**
+	 * A call failed for a technical reason, the breaker opens once the
+	 * failure threshold is reached.
+	 */
+	public void onFailure() {
+		if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+			trip();
+		}
+	}
+
+	/**
+	 * Open the breaker right away, typically after a failed health check.
+	 */
+	public void trip() {
+		openedAt.set(System.currentTimeMillis());
+
+		final State current = state.get();
+		if (current != State.OPEN) {
+			transition(current, State.OPEN);
+		}
+	}
+
+	private boolean transition(final State from, final State to) {
+		if (state.compareAndSet(from, to)) {
+			final Listener current = listener;
+			if (current != null) {
+				current.stateChanged(this, from, to);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "CircuitBreaker [state=" + state.get()
+				+ ", consecutiveFailures=" + consecutiveFailures.get() + "]";
+	}
+}
@@ -0,0 +1,137 @@
+package fr.foop.ws.tools.health;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fr.foop.ws.tools.routing.ServerNode;
+
+/**
+ * Periodically run the client health check against every server, on a
+ * dedicated port per server, and feed the result to the server circuit
+ * breaker.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class HealthChecker<Port> implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(HealthChecker.class);
+
+	public interface Probe<Port> {
+		/**
+		 * @throws Exception
+		 *             when the server is considered down.
+		 */
+		void check(final Port port) throws Exception;
+	}
+
+	public interface ProbePortFactory<Port> {
+		Port create(final String server);
+	}
+
+	private final ImmutableList<ServerNode<Port>> nodes;
+	private final ImmutableList<Port> probePorts;
+	private final Probe<Port> probe;
+	private final ScheduledExecutorService scheduler;
+	private final boolean sharedScheduler;
+	private volatile ScheduledFuture<?> checks;
+
+	public HealthChecker(final List<ServerNode<Port>> nodes,
+			final ProbePortFactory<Port> portFactory, final Probe<Port> probe) {
+		this(nodes, portFactory, probe, Optional
+				.<ScheduledExecutorService> absent());
+	}
+
+	/**
+	 * @param timer
+	 *            the shared scheduler running the checks, a dedicated thread
+	 *            is started when absent.
+	 */
+	public HealthChecker(final List<ServerNode<Port>> nodes,
+			final ProbePortFactory<Port> portFactory, final Probe<Port> probe,
+			final Optional<ScheduledExecutorService> timer) {
+		this.nodes = ImmutableList.copyOf(nodes);
+		this.probe = probe;
+
+		final ImmutableList.Builder<Port> ports = ImmutableList.builder();
+		for (final ServerNode<Port> node : nodes) {
+			ports.add(portFactory.create(node.server()));
+		}
+		this.probePorts = ports.build();
+
+		this.sharedScheduler = timer.isPresent();
+		if (sharedScheduler) {
+			this.scheduler = timer.get();
+		} else {
+			final ThreadFactory threads = new ThreadFactoryBuilder()
+					.setDaemon(true).setNameFormat("cxf-client-health-%d")
+					.build();
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(threads);
+		}
+	}
+
+	public void start(final long intervalMillis) {
+		checks = scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				checkAll();
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Check every server whose breaker is due for a check.
+	 */
+	public void checkAll() {
+		for (int i = 0; i < nodes.size(); ++i) {
+			final ServerNode<Port> node = nodes.get(i);
+			final CircuitBreaker breaker = node.breaker().get();
+
+			if (!breaker.isCheckDue()) {
+				continue;
+			}
+
+			try {
+				probe.check(probePorts.get(i));
+				breaker.onSuccess();
+			} catch (Exception e) {
+				if (breaker.isCallPermitted()) {
+					LOGGER.warn("Health check failed for server [{}] : {}",
+							node.server(), e.getMessage());
+				}
+				LOGGER.debug("Health check failed", e);
+				breaker.trip();
+			}
+		}
+	}
+
+	/**
+	 * @return the ports the checks run on, to be destroyed with the client
+	 *         once the checker is closed.
+	 */
+	public ImmutableList<Port> probePorts() {
+		return probePorts;
+	}
+
+	@Override
+	public void close() {
+		if (checks != null) {
+			checks.cancel(false);
+		}
+		if (!sharedScheduler) {
+			scheduler.shutdownNow();
+		}
+	}
+}
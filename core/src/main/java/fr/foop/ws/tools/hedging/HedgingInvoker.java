@@ -0,0 +1,354 @@
+package fr.foop.ws.tools.hedging;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.ws.WebServiceException;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fr.foop.ws.tools.deadline.Deadline;
+import fr.foop.ws.tools.invocation.PortInvoker;
+import fr.foop.ws.tools.metrics.WindowedLatencyHistogram;
+import fr.foop.ws.tools.routing.RoutingInvoker;
+import fr.foop.ws.tools.routing.ServerNode;
+
+/**
+ * Send a hedged operation call again to another available server when it
+ * is not answered after the hedging delay, and return the first answer. The
+ * other call is cancelled, its response ignored.
+ * 
+ * The attempts run on the executor up to {@link #MAX_ATTEMPTS} at once,
+ * the losing ones still running included : over that, the calls are made on
+ * the caller thread and not hedged.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class HedgingInvoker<Port> implements PortInvoker, AutoCloseable {
+
+	/**
+	 * Number of calls between two updates of an adaptive hedging delay.
+	 */
+	private static final int DELAY_REFRESH_CALLS = 100;
+
+	/**
+	 * The latency of the calls older than two windows is forgotten.
+	 */
+	private static final long LATENCY_WINDOW_MILLIS = 60000;
+
+	/**
+	 * Maximum number of attempts running on the executor.
+	 */
+	public static final int MAX_ATTEMPTS = 256;
+
+	private final RoutingInvoker<Port> routing;
+	private final HedgingPolicy policy;
+	private final ImmutableMap<Method, OperationLatency> operations;
+	private final ExecutorService executor;
+	private final boolean sharedExecutor;
+	private final Semaphore running = new Semaphore(MAX_ATTEMPTS);
+
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong hedged = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+	private final AtomicInteger runningLosers = new AtomicInteger();
+
+	/**
+	 * @param portClazz
+	 *            the port interface.
+	 * @param operations
+	 *            the hedged operation (port method) names, they must be
+	 *            idempotent.
+	 */
+	public HedgingInvoker(final RoutingInvoker<Port> routing,
+			final Class<?> portClazz, final HedgingPolicy policy,
+			final Set<String> operations) {
+		this(routing, portClazz, policy, operations, Optional
+				.<ExecutorService> absent());
+	}
+
+	/**
+	 * @param workers
+	 *            the shared executor running the attempts, a dedicated pool
+	 *            of up to {@link #MAX_ATTEMPTS} threads is started when
+	 *            absent.
+	 */
+	public HedgingInvoker(final RoutingInvoker<Port> routing,
+			final Class<?> portClazz, final HedgingPolicy policy,
+			final Set<String> operations,
+			final Optional<ExecutorService> workers) {
+		this.routing = routing;
+		this.policy = policy;
+
+		final ImmutableMap.Builder<Method, OperationLatency> latencies = ImmutableMap
+				.builder();
+		for (final Method method : portClazz.getMethods()) {
+			if (operations.contains(method.getName())) {
+				latencies.put(method, new OperationLatency(policy));
+			}
+		}
+		this.operations = latencies.build();
+
+		this.sharedExecutor = workers.isPresent();
+		this.executor = sharedExecutor ? workers.get() : newPool();
+	}
+
+	/**
+	 * The attempts are bounded by the running permits, the queue only holds
+	 * the ones submitted while an ended attempt thread is not idle yet.
+	 */
+	private static ExecutorService newPool() {
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_ATTEMPTS,
+				MAX_ATTEMPTS, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder()
+						.setDaemon(true).setNameFormat("hedging-%d").build());
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	@Override
+	public Object invoke(final Method method, final Object[] args)
+			throws Throwable {
+		final OperationLatency latency = operations.get(method);
+
+		if (latency == null) {
+			return routing.invoke(method, args);
+		}
+
+		calls.incrementAndGet();
+		final ServerNode<Port> primary = routing.router().select();
+
+		if (!running.tryAcquire()) {
+			return routing.invokeOn(primary, method, args);
+		}
+
+		final ExecutorCompletionService<Object> completion = new ExecutorCompletionService<Object>(
+				executor);
+		final List<Future<Object>> attempts = new ArrayList<Future<Object>>(2);
+		final List<Attempt> started = new ArrayList<Attempt>(2);
+
+		try {
+			final Attempt first = new Attempt(primary, method, args,
+					Optional.of(latency));
+			started.add(first);
+			attempts.add(completion.submit(first));
+
+			Future<Object> done = completion.poll(latency.delayNanos(),
+					TimeUnit.NANOSECONDS);
+			if (done == null) {
+				final Optional<ServerNode<Port>> other = isWithinBudget() ? routing
+						.router().selectOther(primary) : Optional
+						.<ServerNode<Port>> absent();
+				if (other.isPresent() && running.tryAcquire()) {
+					hedged.incrementAndGet();
+					final Attempt second = new Attempt(other.get(), method,
+							args, Optional.<OperationLatency> absent());
+					started.add(second);
+					attempts.add(completion.submit(second));
+				}
+				done = completion.take();
+			}
+
+			Throwable failure = null;
+			for (int remaining = attempts.size(); remaining > 0; --remaining) {
+				try {
+					final Object result = done.get();
+					if (done != attempts.get(0)) {
+						hedgeWins.incrementAndGet();
+					}
+					return result;
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause();
+					}
+				}
+				if (remaining > 1) {
+					done = completion.take();
+				}
+			}
+			throw failure;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WebServiceException("interrupted while waiting for "
+					+ method.getName(), e);
+		} finally {
+			for (final Future<Object> attempt : attempts) {
+				attempt.cancel(true);
+			}
+			for (final Attempt attempt : started) {
+				attempt.abandon();
+			}
+		}
+	}
+
+	/**
+	 * The call of a node, within the caller deadline, holding a running
+	 * permit until done, or until abandoned before it started.
+	 */
+	private class Attempt implements Callable<Object> {
+
+		private static final int NEW = 0;
+		private static final int RUNNING = 1;
+		private static final int DONE = 2;
+		private static final int ABANDONED = 3;
+
+		private final ServerNode<Port> node;
+		private final Method method;
+		private final Object[] args;
+		private final Optional<OperationLatency> latency;
+		private final Optional<Deadline> deadline = Deadline.current();
+		private final AtomicInteger state = new AtomicInteger(NEW);
+
+		/**
+		 * @param latency
+		 *            the operation latency fed with the attempt one, present
+		 *            for the primary attempt only : the latency of the hedged
+		 *            calls would hide the slow answers the delay is derived
+		 *            from.
+		 */
+		private Attempt(final ServerNode<Port> node, final Method method,
+				final Object[] args, final Optional<OperationLatency> latency) {
+			this.node = node;
+			this.method = method;
+			this.args = args;
+			this.latency = latency;
+		}
+
+		@Override
+		public Object call() throws Exception {
+			if (!state.compareAndSet(NEW, RUNNING)) {
+				throw new WebServiceException("attempt of " + method.getName()
+						+ " cancelled");
+			}
+
+			final Deadline propagated = deadline.isPresent() ? deadline.get()
+					.propagate() : null;
+			final long start = System.nanoTime();
+			try {
+				final Object result = invokeOn(node, method, args);
+				if (latency.isPresent()) {
+					latency.get().record(System.nanoTime() - start);
+				}
+				return result;
+			} finally {
+				running.release();
+				if (state.getAndSet(DONE) == ABANDONED) {
+					runningLosers.decrementAndGet();
+				}
+				if (propagated != null) {
+					propagated.close();
+				}
+			}
+		}
+
+		/**
+		 * Give the permit back when the attempt never started, or count it
+		 * as a loser until it ends when still running : a synchronous HTTP
+		 * call already sent cannot be aborted.
+		 */
+		private void abandon() {
+			if (state.compareAndSet(NEW, DONE)) {
+				running.release();
+			} else if (state.compareAndSet(RUNNING, ABANDONED)) {
+				runningLosers.incrementAndGet();
+			}
+		}
+	}
+
+	private Object invokeOn(final ServerNode<Port> node, final Method method,
+			final Object[] args) throws Exception {
+		try {
+			return routing.invokeOn(node, method, args);
+		} catch (Exception | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new WebServiceException(t);
+		}
+	}
+
+	private boolean isWithinBudget() {
+		return hedged.get() < policy.budget * calls.get();
+	}
+
+	/**
+	 * @return the number of calls sent to a second server.
+	 */
+	public long hedgedCalls() {
+		return hedged.get();
+	}
+
+	/**
+	 * @return the number of hedged calls answered first by the second server.
+	 */
+	public long hedgeWins() {
+		return hedgeWins.get();
+	}
+
+	/**
+	 * @return the number of attempts still running after another one
+	 *         answered the call, holding their thread and connection.
+	 */
+	public int runningLosers() {
+		return runningLosers.get();
+	}
+
+	@Override
+	public void close() {
+		if (!sharedExecutor) {
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Hedged" + routing;
+	}
+
+	/**
+	 * The latency of an hedged operation, and the hedging delay it gives.
+	 */
+	private static class OperationLatency {
+
+		private final HedgingPolicy policy;
+		private final WindowedLatencyHistogram histogram = new WindowedLatencyHistogram(
+				LATENCY_WINDOW_MILLIS);
+		private final AtomicLong recorded = new AtomicLong();
+		private volatile long delayNanos;
+
+		private OperationLatency(final HedgingPolicy policy) {
+			this.policy = policy;
+			this.delayNanos = TimeUnit.MILLISECONDS.toNanos(policy.delay);
+		}
+
+		long delayNanos() {
+			return delayNanos;
+		}
+
+		void record(final long nanos) {
+			if (!policy.isAdaptive()) {
+				return;
+			}
+
+			histogram.record(nanos);
+			if (recorded.incrementAndGet() % DELAY_REFRESH_CALLS == 0) {
+				delayNanos = histogram.quantiles(policy.quantile)[0];
+			}
+		}
+	}
+}
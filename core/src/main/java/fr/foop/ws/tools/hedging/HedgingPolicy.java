@@ -0,0 +1,81 @@
+package fr.foop.ws.tools.hedging;
+
+import java.util.List;
+
+import com.google.common.base.Splitter;
+
+/**
+ * When a slow call is sent again to another server, and how many calls can
+ * be.
+ */
+public class HedgingPolicy {
+
+	public final long delay;
+	public final double quantile;
+	public final double budget;
+
+	/**
+	 * @param delay
+	 *            the time in millis after which a call is hedged, until the
+	 *            operation latency is known when the quantile is set.
+	 * @param quantile
+	 *            the latency quantile of the operation after which a call is
+	 *            hedged (0.95 for the p95), 0 to always use the delay.
+	 * @param budget
+	 *            the maximum ratio of hedged calls (0.05 for 5%).
+	 */
+	public HedgingPolicy(final long delay, final double quantile,
+			final double budget) {
+		if (delay < 0 || quantile < 0 || quantile >= 1 || budget <= 0
+				|| budget > 1) {
+			throw new IllegalArgumentException(
+					"hedging delay must be positive, quantile in [0, 1[ and budget in ]0, 1]");
+		}
+		this.delay = delay;
+		this.quantile = quantile;
+		this.budget = budget;
+	}
+
+	/**
+	 * Hedge the calls slower than the operation p95, at most 5% of them.
+	 * 
+	 * @param delay
+	 *            the delay used until the operation p95 is known.
+	 */
+	public HedgingPolicy(final long delay) {
+		this(delay, 0.95, 0.05);
+	}
+
+	public boolean isAdaptive() {
+		return quantile > 0;
+	}
+
+	/**
+	 * Parse a policy written as <code>delay[:quantile[:budget]]</code>.
+	 */
+	public static HedgingPolicy fromString(final String policy) {
+		final List<String> values = Splitter.on(":").trimResults()
+				.splitToList(policy);
+
+		if (values.size() == 1) {
+			return new HedgingPolicy(Long.valueOf(values.get(0)));
+		} else if (values.size() == 2) {
+			return new HedgingPolicy(Long.valueOf(values.get(0)),
+					Double.valueOf(values.get(1)), 0.05);
+		} else if (values.size() == 3) {
+			return new HedgingPolicy(Long.valueOf(values.get(0)),
+					Double.valueOf(values.get(1)),
+					Double.valueOf(values.get(2)));
+		}
+
+		throw new IllegalArgumentException(
+				"hedging policy must be defined as delay[:quantile[:budget]] : "
+						+ policy);
+	}
+
+	@Override
+	public String toString() {
+		return "HedgingPolicy [delay=" + delay + ", quantile=" + quantile
+				+ ", budget=" + budget + "]";
+	}
+}
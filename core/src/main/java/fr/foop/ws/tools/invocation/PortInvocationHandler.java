@@ -0,0 +1,40 @@
+package fr.foop.ws.tools.invocation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+
+/**
+ * Dynamic proxy handler giving the port calls to the client invoker.
+ */
+public class PortInvocationHandler implements InvocationHandler {
+
+	private static final Object[] NO_ARGS = new Object[0];
+
+	private final PortInvoker invoker;
+
+	public PortInvocationHandler(final PortInvoker invoker) {
+		this.invoker = invoker;
+	}
+
+	@Override
+	public Object invoke(final Object proxy, final Method method,
+			final Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class) {
+			return invokeObjectMethod(proxy, method, args);
+		}
+
+		return invoker.invoke(method, args == null ? NO_ARGS : args);
+	}
+
+	private Object invokeObjectMethod(final Object proxy, final Method method,
+			final Object[] args) {
+		switch (method.getName()) {
+		case "equals":
+			return proxy == args[0];
+		case "hashCode":
+			return System.identityHashCode(proxy);
+		default:
+			return "Port" + invoker;
+		}
+	}
+}
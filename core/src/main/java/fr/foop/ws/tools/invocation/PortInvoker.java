@@ -0,0 +1,21 @@
+package fr.foop.ws.tools.invocation;
+
+import java.lang.reflect.Method;
+
+/**
+ * Perform a port call. Client features (caching, metrics...) decorate the
+ * invoker routing the call to a server port.
+ */
+public interface PortInvoker {
+
+	/**
+	 * @param method
+	 *            the port interface method called.
+	 * @param args
+	 *            the call arguments, never null.
+	 * @return the call result.
+	 * @throws Throwable
+	 *             the exception thrown by the port.
+	 */
+	Object invoke(final Method method, final Object[] args) throws Throwable;
+}
@@ -0,0 +1,124 @@
+package fr.foop.ws.tools.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.slf4j.Logger;
+
+/**
+ * The first bytes of a payload, copied while CXF streams it.
+ */
+class PayloadCapture {
+
+	private final Logger logger;
+	private final String direction;
+	private final String address;
+	private final String encoding;
+	private final int maxBytes;
+	private final ByteArrayOutputStream copy;
+	private long total;
+
+	PayloadCapture(final Logger logger, final String direction,
+			final String address, final String encoding, final int maxBytes) {
+		this.logger = logger;
+		this.direction = direction;
+		this.address = address;
+		this.encoding = encoding;
+		this.maxBytes = maxBytes;
+		this.copy = new ByteArrayOutputStream(Math.min(maxBytes, 1024));
+	}
+
+	Logger logger() {
+		return logger;
+	}
+
+	private void copy(final byte[] bytes, final int offset, final int length) {
+		total += length;
+		final int kept = Math.min(length, maxBytes - copy.size());
+		if (kept > 0) {
+			copy.write(bytes, offset, kept);
+		}
+	}
+
+	private void copy(final int b) {
+		total++;
+		if (copy.size() < maxBytes) {
+			copy.write(b);
+		}
+	}
+
+	OutputStream wrap(final OutputStream out) {
+		return new FilterOutputStream(out) {
+			@Override
+			public void write(final int b) throws IOException {
+				out.write(b);
+				copy(b);
+			}
+
+			@Override
+			public void write(final byte[] b, final int off, final int len)
+					throws IOException {
+				out.write(b, off, len);
+				copy(b, off, len);
+			}
+		};
+	}
+
+	InputStream wrap(final InputStream in) {
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				final int b = in.read();
+				if (b >= 0) {
+					copy(b);
+				}
+				return b;
+			}
+
+			@Override
+			public int read(final byte[] b, final int off, final int len)
+					throws IOException {
+				final int read = in.read(b, off, len);
+				if (read > 0) {
+					copy(b, off, read);
+				}
+				return read;
+			}
+
+			@Override
+			public long skip(final long n) throws IOException {
+				final long skipped = in.skip(n);
+				total += skipped;
+				return skipped;
+			}
+		};
+	}
+
+	/**
+	 * Format the captured payload, called from the writer thread only.
+	 */
+	String format(final boolean error) {
+		String payload;
+		try {
+			payload = copy.toString(encoding);
+		} catch (UnsupportedEncodingException e) {
+			payload = copy.toString();
+		}
+
+		final StringBuilder message = new StringBuilder(payload.length() + 128)
+				.append(direction).append(' ').append(address).append(" - ")
+				.append(total).append(" bytes");
+		if (total > copy.size()) {
+			message.append(", first ").append(copy.size()).append(" logged");
+		}
+		if (error) {
+			message.append(", error");
+		}
+		return message.append('\n').append(payload).toString();
+	}
+}
@@ -0,0 +1,60 @@
+package fr.foop.ws.tools.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.cxf.message.Exchange;
+
+/**
+ * The payloads captured for an exchange, kept until the outcome of the call
+ * is known.
+ */
+class PayloadExchange {
+
+	private final boolean sampled;
+	private final List<PayloadCapture> pending = new ArrayList<PayloadCapture>(
+			2);
+
+	private PayloadExchange(final boolean sampled) {
+		this.sampled = sampled;
+	}
+
+	static PayloadExchange of(final Exchange exchange,
+			final PayloadLogWriter writer) {
+		PayloadExchange payloads = exchange.get(PayloadExchange.class);
+		if (payloads == null) {
+			payloads = new PayloadExchange(writer.sample());
+			exchange.put(PayloadExchange.class, payloads);
+		}
+		return payloads;
+	}
+
+	boolean isSampled() {
+		return sampled;
+	}
+
+	synchronized void add(final PayloadCapture capture) {
+		pending.add(capture);
+	}
+
+	/**
+	 * Hand the pending payloads to the writer, unless only errors are logged
+	 * and the call succeeded.
+	 */
+	void flush(final PayloadLogWriter writer, final boolean error) {
+		final List<PayloadCapture> flushed;
+		synchronized (this) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			flushed = new ArrayList<PayloadCapture>(pending);
+			pending.clear();
+		}
+
+		if (error || !writer.policy().errorsOnly) {
+			for (final PayloadCapture capture : flushed) {
+				writer.write(capture, error);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package fr.foop.ws.tools.logging;
+
+import java.util.List;
+
+import com.google.common.base.Splitter;
+
+/**
+ * How the payloads are captured and which calls are logged.
+ */
+public class PayloadLogPolicy {
+
+	public final int maxBytes;
+	public final int sampling;
+	public final boolean errorsOnly;
+	public final int queueSize;
+
+	/**
+	 * @param maxBytes
+	 *            the maximum number of bytes of each payload logged, the rest
+	 *            is not captured.
+	 * @param sampling
+	 *            log one call out of <code>sampling</code>, 1 logs them all.
+	 * @param errorsOnly
+	 *            log only the calls ending in a fault or an exception.
+	 * @param queueSize
+	 *            the number of payloads waiting to be written, the payloads
+	 *            above are dropped.
+	 */
+	public PayloadLogPolicy(final int maxBytes, final int sampling,
+			final boolean errorsOnly, final int queueSize) {
+		if (maxBytes <= 0 || sampling <= 0 || queueSize <= 0) {
+			throw new IllegalArgumentException(
+					"payload log max bytes, sampling and queue size must be positive");
+		}
+		this.maxBytes = maxBytes;
+		this.sampling = sampling;
+		this.errorsOnly = errorsOnly;
+		this.queueSize = queueSize;
+	}
+
+	public PayloadLogPolicy(final int maxBytes) {
+		this(maxBytes, 1, false, 1000);
+	}
+
+	public PayloadLogPolicy withSampling(final int sampling) {
+		return new PayloadLogPolicy(maxBytes, sampling, false, queueSize);
+	}
+
+	public PayloadLogPolicy withErrorsOnly() {
+		return new PayloadLogPolicy(maxBytes, 1, true, queueSize);
+	}
+
+	public PayloadLogPolicy withQueueSize(final int queueSize) {
+		return new PayloadLogPolicy(maxBytes, sampling, errorsOnly, queueSize);
+	}
+
+	/**
+	 * Parse a policy written as
+	 * <code>maxBytes[:sampling|errors[:queueSize]]</code>.
+	 */
+	public static PayloadLogPolicy fromString(final String policy) {
+		final List<String> values = Splitter.on(":").trimResults()
+				.splitToList(policy);
+
+		if (values.isEmpty() || values.size() > 3) {
+			throw new IllegalArgumentException(
+					"payload log policy must be defined as maxBytes[:sampling|errors[:queueSize]] : "
+							+ policy);
+		}
+
+		PayloadLogPolicy parsed = new PayloadLogPolicy(Integer.valueOf(values
+				.get(0)));
+		if (values.size() > 1) {
+			parsed = "errors".equals(values.get(1)) ? parsed.withErrorsOnly()
+					: parsed.withSampling(Integer.valueOf(values.get(1)));
+		}
+		if (values.size() > 2) {
+			parsed = parsed.withQueueSize(Integer.valueOf(values.get(2)));
+		}
+		return parsed;
+	}
+
+	@Override
+	public String toString() {
+		return "PayloadLogPolicy [maxBytes=" + maxBytes + ", sampling="
+				+ sampling + ", errorsOnly=" + errorsOnly + ", queueSize="
+				+ queueSize + "]";
+	}
+}
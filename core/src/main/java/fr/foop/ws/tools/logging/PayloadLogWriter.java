@@ -0,0 +1,73 @@
+package fr.foop.ws.tools.logging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Format and write the captured payloads of a client on a background thread.
+ * The payloads are dropped, and counted, when the queue is full rather than
+ * slowing the calls down.
+ */
+public class PayloadLogWriter implements AutoCloseable {
+
+	private final PayloadLogPolicy policy;
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong exchanges = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	public PayloadLogWriter(final PayloadLogPolicy policy) {
+		this.policy = policy;
+		this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(policy.queueSize),
+				new ThreadFactoryBuilder().setDaemon(true)
+						.setNameFormat("payload-logger-%d").build(),
+				new RejectedExecutionHandler() {
+					@Override
+					public void rejectedExecution(final Runnable r,
+							final ThreadPoolExecutor executor) {
+						dropped.incrementAndGet();
+					}
+				});
+	}
+
+	public PayloadLogPolicy policy() {
+		return policy;
+	}
+
+	/**
+	 * @return true when the payloads of a new exchange are to be captured.
+	 */
+	boolean sample() {
+		return policy.errorsOnly || policy.sampling == 1
+				|| exchanges.getAndIncrement() % policy.sampling == 0;
+	}
+
+	void write(final PayloadCapture capture, final boolean error) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				capture.logger().info(capture.format(error));
+			}
+		});
+	}
+
+	/**
+	 * @return the number of payloads not logged because the queue was full.
+	 */
+	public long dropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Stop the writer thread once the queued payloads are written.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,145 @@
+package fr.foop.ws.tools.logging;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.slf4j.Logger;
+
+import com.google.common.base.Optional;
+
+/**
+ * Capture the first bytes of the payloads while they are streamed, then hand
+ * them to the writer once the outcome of the call is known. Nothing is
+ * captured when the logger is disabled at INFO level or the exchange is not
+ * sampled.
+ */
+public class PayloadLoggingInterceptor extends
+		AbstractPhaseInterceptor<Message> {
+
+	private final PayloadLogWriter writer;
+	private final Optional<Logger> logger;
+	private final boolean fault;
+
+	private PayloadLoggingInterceptor(final String id, final String phase,
+			final PayloadLogWriter writer, final Optional<Logger> logger,
+			final boolean fault) {
+		super(id, phase);
+		this.writer = writer;
+		this.logger = logger;
+		this.fault = fault;
+	}
+
+	/**
+	 * @return the interceptor capturing the requests.
+	 */
+	public static PayloadLoggingInterceptor outbound(
+			final PayloadLogWriter writer, final Optional<Logger> logger) {
+		return new PayloadLoggingInterceptor(
+				PayloadLoggingInterceptor.class.getName() + ".OUT",
+				Phase.PRE_STREAM, writer, logger, false);
+	}
+
+	/**
+	 * @return the interceptor capturing the responses.
+	 */
+	public static PayloadLoggingInterceptor inbound(
+			final PayloadLogWriter writer, final Optional<Logger> logger) {
+		return new PayloadLoggingInterceptor(
+				PayloadLoggingInterceptor.class.getName() + ".IN",
+				Phase.RECEIVE, writer, logger, false);
+	}
+
+	/**
+	 * @return the interceptor logging the calls answered, at the end of the in
+	 *         chain or of the in fault chain.
+	 */
+	public static PayloadLoggingInterceptor flushingIn(
+			final PayloadLogWriter writer, final boolean fault) {
+		return new PayloadLoggingInterceptor(
+				PayloadLoggingInterceptor.class.getName() + ".FLUSH",
+				Phase.POST_INVOKE, writer, Optional.<Logger> absent(), fault);
+	}
+
+	/**
+	 * @return the interceptor logging the synchronous calls, at the end of the
+	 *         out chain once the response is processed.
+	 */
+	public static PayloadLoggingInterceptor flushingOut(
+			final PayloadLogWriter writer) {
+		return new PayloadLoggingInterceptor(
+				PayloadLoggingInterceptor.class.getName() + ".OUT_END",
+				Phase.SETUP_ENDING, writer, Optional.<Logger> absent(), false);
+	}
+
+	public boolean isInbound() {
+		return Phase.RECEIVE.equals(getPhase())
+				|| Phase.POST_INVOKE.equals(getPhase());
+	}
+
+	@Override
+	public void handleMessage(final Message message) throws Fault {
+		if (Phase.POST_INVOKE.equals(getPhase())) {
+			flush(message, fault);
+		} else if (Phase.SETUP_ENDING.equals(getPhase())) {
+			final Exchange exchange = message.getExchange();
+			if (exchange.isOneWay() || exchange.isSynchronous()) {
+				flush(message, isFailed(exchange));
+			}
+		} else if (logger.isPresent() && logger.get().isInfoEnabled()) {
+			final PayloadExchange payloads = PayloadExchange.of(
+					message.getExchange(), writer);
+			if (payloads.isSampled()) {
+				capture(message, payloads);
+			}
+		}
+	}
+
+	private void capture(final Message message, final PayloadExchange payloads) {
+		final String encoding = message.get(Message.ENCODING) == null ? "UTF-8"
+				: (String) message.get(Message.ENCODING);
+
+		if (isInbound()) {
+			final InputStream in = message.getContent(InputStream.class);
+			if (in != null) {
+				final PayloadCapture capture = new PayloadCapture(logger.get(),
+						"Inbound", "HTTP " + message.get(Message.RESPONSE_CODE),
+						encoding, writer.policy().maxBytes);
+				message.setContent(InputStream.class, capture.wrap(in));
+				payloads.add(capture);
+			}
+		} else {
+			final OutputStream out = message.getContent(OutputStream.class);
+			if (out != null) {
+				final PayloadCapture capture = new PayloadCapture(logger.get(),
+						"Outbound", String.valueOf(message
+								.get(Message.ENDPOINT_ADDRESS)), encoding,
+						writer.policy().maxBytes);
+				message.setContent(OutputStream.class, capture.wrap(out));
+				payloads.add(capture);
+			}
+		}
+	}
+
+	private void flush(final Message message, final boolean error) {
+		final PayloadExchange payloads = message.getExchange().get(
+				PayloadExchange.class);
+		if (payloads != null) {
+			payloads.flush(writer, error);
+		}
+	}
+
+	private static boolean isFailed(final Exchange exchange) {
+		return exchange.get(Exception.class) != null
+				|| exchange.getInFaultMessage() != null;
+	}
+
+	@Override
+	public void handleFault(final Message message) {
+		flush(message, true);
+	}
+}
@@ -0,0 +1,97 @@
+package fr.foop.ws.tools.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.ws.soap.SOAPFaultException;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The metrics of the calls of one operation, or to one server.
+ */
+public class CallMetrics {
+
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final ConcurrentMap<String, AtomicLong> errorsByType = new ConcurrentHashMap<String, AtomicLong>();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * @return the start time to give back to {@link #callEnded}.
+	 */
+	public long callStarted() {
+		inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * @param failure
+	 *            the call failure, null when the call succeeded.
+	 */
+	public void callEnded(final long start, final Throwable failure) {
+		latency.record(System.nanoTime() - start);
+		inFlight.decrementAndGet();
+		calls.incrementAndGet();
+
+		if (failure != null) {
+			errors.incrementAndGet();
+			countError(errorType(failure));
+		}
+	}
+
+	private void countError(final String type) {
+		AtomicLong count = errorsByType.get(type);
+
+		if (count == null) {
+			final AtomicLong created = new AtomicLong();
+			count = errorsByType.putIfAbsent(type, created);
+			if (count == null) {
+				count = created;
+			}
+		}
+
+		count.incrementAndGet();
+	}
+
+	/**
+	 * @return the SOAP fault code for SOAP faults, the exception class name
+	 *         otherwise.
+	 */
+	private static String errorType(final Throwable failure) {
+		if (failure instanceof SOAPFaultException
+				&& ((SOAPFaultException) failure).getFault() != null) {
+			return "SOAPFault:"
+					+ ((SOAPFaultException) failure).getFault()
+							.getFaultCodeAsQName().getLocalPart();
+		}
+		return failure.getClass().getSimpleName();
+	}
+
+	public LatencyHistogram latency() {
+		return latency;
+	}
+
+	public CallMetricsSnapshot snapshot() {
+		final long[] quantiles = latency.quantiles(0.5, 0.9, 0.99, 0.999);
+
+		final ImmutableMap.Builder<String, Long> errors = ImmutableMap
+				.builder();
+		for (final Map.Entry<String, AtomicLong> error : errorsByType
+				.entrySet()) {
+			errors.put(error.getKey(), error.getValue().get());
+		}
+
+		return new CallMetricsSnapshot(calls.get(), this.errors.get(),
+				inFlight.get(), errors.build(), latency.meanMillis(),
+				LatencyHistogram.toMillis(quantiles[0]),
+				LatencyHistogram.toMillis(quantiles[1]),
+				LatencyHistogram.toMillis(quantiles[2]),
+				LatencyHistogram.toMillis(quantiles[3]),
+				LatencyHistogram.toMillis(latency.maxNanos()));
+	}
+}
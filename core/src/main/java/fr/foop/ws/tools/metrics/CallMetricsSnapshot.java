@@ -0,0 +1,90 @@
+package fr.foop.ws.tools.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+
+/**
+ * The metrics of an operation or a server at a point in time, latencies are
+ * in millis.
+ */
+public class CallMetricsSnapshot {
+
+	private final long calls;
+	private final long errors;
+	private final int inFlight;
+	private final Map<String, Long> errorsByType;
+	private final double meanMillis;
+	private final double p50Millis;
+	private final double p90Millis;
+	private final double p99Millis;
+	private final double p999Millis;
+	private final double maxMillis;
+
+	@ConstructorProperties({ "calls", "errors", "inFlight", "errorsByType",
+			"meanMillis", "p50Millis", "p90Millis", "p99Millis", "p999Millis",
+			"maxMillis" })
+	public CallMetricsSnapshot(final long calls, final long errors,
+			final int inFlight, final Map<String, Long> errorsByType,
+			final double meanMillis, final double p50Millis,
+			final double p90Millis, final double p99Millis,
+			final double p999Millis, final double maxMillis) {
+		this.calls = calls;
+		this.errors = errors;
+		this.inFlight = inFlight;
+		this.errorsByType = errorsByType;
+		this.meanMillis = meanMillis;
+		this.p50Millis = p50Millis;
+		this.p90Millis = p90Millis;
+		this.p99Millis = p99Millis;
+		this.p999Millis = p999Millis;
+		this.maxMillis = maxMillis;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	public Map<String, Long> getErrorsByType() {
+		return errorsByType;
+	}
+
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	public double getP90Millis() {
+		return p90Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public double getP999Millis() {
+		return p999Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "[calls=" + calls + ", errors=" + errors + ", inFlight="
+				+ inFlight + ", p50=" + p50Millis + "ms, p99=" + p99Millis
+				+ "ms, p99.9=" + p999Millis + "ms, max=" + maxMillis
+				+ "ms, errorsByType=" + errorsByType + "]";
+	}
+}
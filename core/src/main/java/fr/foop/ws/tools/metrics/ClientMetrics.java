@@ -0,0 +1,129 @@
+package fr.foop.ws.tools.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The call metrics of a client, by operation and by server. All the metrics
+ * are created upfront, so recording a call never allocates nor locks.
+ */
+public class ClientMetrics implements ClientMetricsMXBean, AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(ClientMetrics.class);
+
+	private final ImmutableMap<Method, CallMetrics> byMethod;
+	private final ImmutableMap<String, CallMetrics> byOperation;
+	private final ImmutableMap<String, CallMetrics> byServer;
+	private Optional<ObjectName> registeredName = Optional.absent();
+
+	/**
+	 * @param portClazz
+	 *            the port interface.
+	 * @param servers
+	 *            the servers receiving the calls.
+	 */
+	public ClientMetrics(final Class<?> portClazz,
+			final Collection<String> servers) {
+		final ImmutableMap.Builder<Method, CallMetrics> byMethod = ImmutableMap
+				.builder();
+		final Map<String, CallMetrics> byOperation = new TreeMap<String, CallMetrics>();
+
+		for (final Method method : portClazz.getMethods()) {
+			if (!byOperation.containsKey(method.getName())) {
+				byOperation.put(method.getName(), new CallMetrics());
+			}
+			byMethod.put(method, byOperation.get(method.getName()));
+		}
+
+		final ImmutableMap.Builder<String, CallMetrics> byServer = ImmutableMap
+				.builder();
+		for (final String server : servers) {
+			byServer.put(server, new CallMetrics());
+		}
+
+		this.byMethod = byMethod.build();
+		this.byOperation = ImmutableMap.copyOf(byOperation);
+		this.byServer = byServer.build();
+	}
+
+	/**
+	 * @return the metrics of the operation, absent if the method is not a port
+	 *         operation.
+	 */
+	public CallMetrics forOperation(final Method method) {
+		return byMethod.get(method);
+	}
+
+	public CallMetrics forServer(final String server) {
+		return byServer.get(server);
+	}
+
+	@Override
+	public Map<String, CallMetricsSnapshot> getOperations() {
+		return snapshot(byOperation);
+	}
+
+	@Override
+	public Map<String, CallMetricsSnapshot> getServers() {
+		return snapshot(byServer);
+	}
+
+	private static ImmutableMap<String, CallMetricsSnapshot> snapshot(
+			final Map<String, CallMetrics> metrics) {
+		final ImmutableMap.Builder<String, CallMetricsSnapshot> snapshot = ImmutableMap
+				.builder();
+		for (final Map.Entry<String, CallMetrics> entry : metrics.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return snapshot.build();
+	}
+
+	/**
+	 * Expose the metrics in the platform MBean server.
+	 * 
+	 * @param name
+	 *            the client name, used in the object name
+	 *            <code>fr.foop.ws:type=CxfClient,name=...</code>.
+	 */
+	public synchronized void register(final String name) {
+		try {
+			final MBeanServer server = ManagementFactory
+					.getPlatformMBeanServer();
+			final ObjectName objectName = new ObjectName(
+					"fr.foop.ws:type=CxfClient,name="
+							+ ObjectName.quote(name));
+			server.registerMBean(this, objectName);
+			registeredName = Optional.of(objectName);
+		} catch (JMException e) {
+			LOGGER.warn("Failed to register client metrics [{}] : {}", name,
+					e.getMessage());
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (registeredName.isPresent()) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+						registeredName.get());
+			} catch (JMException e) {
+				LOGGER.debug("Failed to unregister client metrics", e);
+			}
+			registeredName = Optional.absent();
+		}
+	}
+}
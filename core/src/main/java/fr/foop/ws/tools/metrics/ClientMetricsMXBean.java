@@ -0,0 +1,13 @@
+package fr.foop.ws.tools.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the client metrics.
+ */
+public interface ClientMetricsMXBean {
+
+	Map<String, CallMetricsSnapshot> getOperations();
+
+	Map<String, CallMetricsSnapshot> getServers();
+}
@@ -0,0 +1,133 @@
+package fr.foop.ws.tools.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free, allocation free, latency histogram in nanoseconds.
+ * 
+ * Buckets are log-linear : each power of two is split in 32 buckets, so a
+ * percentile is known within about 3%, from 1ns up to about 18 minutes.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+	private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+	static final int BUCKETS = SUB_BUCKETS
+			+ (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public void record(final long nanos) {
+		final long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+
+		counts.incrementAndGet(indexOf(value));
+		totalNanos.addAndGet(value);
+
+		long currentMax = maxNanos.get();
+		while (value > currentMax && !maxNanos.compareAndSet(currentMax, value)) {
+			currentMax = maxNanos.get();
+		}
+	}
+
+	static int indexOf(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS))
+				- SUB_BUCKETS;
+
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS
+				+ subBucket;
+	}
+
+	/**
+	 * @return the middle of the values counted in the bucket.
+	 */
+	static long valueOf(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		final int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS
+				+ SUB_BUCKET_BITS;
+		final int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+		final int shift = exponent - SUB_BUCKET_BITS;
+		final long lowest = (long) (SUB_BUCKETS + subBucket) << shift;
+
+		return lowest + ((1L << shift) >> 1);
+	}
+
+	/**
+	 * @param quantiles
+	 *            the requested quantiles, in increasing order, between 0 and
+	 *            1.
+	 * @return the latency in nanos of each quantile, 0 when empty.
+	 */
+	public long[] quantiles(final double... quantiles) {
+		final long[] snapshot = new long[BUCKETS];
+		addTo(snapshot);
+		return quantiles(snapshot, quantiles);
+	}
+
+	/**
+	 * Add the count of each bucket to the given ones.
+	 */
+	void addTo(final long[] snapshot) {
+		for (int i = 0; i < BUCKETS; ++i) {
+			snapshot[i] += counts.get(i);
+		}
+	}
+
+	static long[] quantiles(final long[] snapshot, final double... quantiles) {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			count += snapshot[i];
+		}
+
+		final long[] values = new long[quantiles.length];
+		if (count == 0) {
+			return values;
+		}
+
+		int q = 0;
+		long seen = 0;
+		for (int i = 0; i < BUCKETS && q < quantiles.length; ++i) {
+			seen += snapshot[i];
+			while (q < quantiles.length
+					&& seen >= Math.max(1, (long) Math.ceil(quantiles[q] * count))) {
+				values[q++] = valueOf(i);
+			}
+		}
+
+		return values;
+	}
+
+	public long count() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	public long maxNanos() {
+		return maxNanos.get();
+	}
+
+	public double meanMillis() {
+		final long count = count();
+		return count == 0 ? 0 : toMillis(totalNanos.get() / count);
+	}
+
+	static double toMillis(final long nanos) {
+		return (double) TimeUnit.NANOSECONDS.toMicros(nanos) / 1000;
+	}
+}
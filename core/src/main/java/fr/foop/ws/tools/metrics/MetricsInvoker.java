@@ -0,0 +1,42 @@
+package fr.foop.ws.tools.metrics;
+
+import java.lang.reflect.Method;
+
+import fr.foop.ws.tools.invocation.PortInvoker;
+
+/**
+ * Record the metrics of each operation call, as seen by the caller.
+ */
+public class MetricsInvoker implements PortInvoker {
+
+	private final PortInvoker delegate;
+	private final ClientMetrics metrics;
+
+	public MetricsInvoker(final PortInvoker delegate,
+			final ClientMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Object invoke(final Method method, final Object[] args)
+			throws Throwable {
+		final CallMetrics operation = metrics.forOperation(method);
+		final long start = operation.callStarted();
+		Throwable failure = null;
+
+		try {
+			return delegate.invoke(method, args);
+		} catch (Throwable t) {
+			failure = t;
+			throw t;
+		} finally {
+			operation.callEnded(start, failure);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Measured" + delegate;
+	}
+}
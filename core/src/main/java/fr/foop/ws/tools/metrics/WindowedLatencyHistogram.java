@@ -0,0 +1,94 @@
+package fr.foop.ws.tools.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A latency histogram forgetting the old calls : the quantiles are computed
+ * over the current window and the previous one only, so they follow a
+ * change of the server latency within two windows.
+ */
+public class WindowedLatencyHistogram {
+
+	private final long windowNanos;
+	private final AtomicReference<Window> window;
+
+	/**
+	 * @param windowMillis
+	 *            the length of a window.
+	 */
+	public WindowedLatencyHistogram(final long windowMillis) {
+		if (windowMillis <= 0) {
+			throw new IllegalArgumentException("window must be positive : "
+					+ windowMillis);
+		}
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+		this.window = new AtomicReference<Window>(new Window(
+				new LatencyHistogram(), new LatencyHistogram(),
+				System.nanoTime()));
+	}
+
+	public void record(final long nanos) {
+		current().current.record(nanos);
+	}
+
+	/**
+	 * @param quantiles
+	 *            the requested quantiles, in increasing order, between 0 and
+	 *            1.
+	 * @return the latency in nanos of each quantile over the last two
+	 *         windows, 0 when empty.
+	 */
+	public long[] quantiles(final double... quantiles) {
+		final Window current = current();
+		final long[] snapshot = new long[LatencyHistogram.BUCKETS];
+		current.current.addTo(snapshot);
+		current.previous.addTo(snapshot);
+		return LatencyHistogram.quantiles(snapshot, quantiles);
+	}
+
+	/**
+	 * @return the number of calls recorded over the last two windows.
+	 */
+	public long count() {
+		final Window current = current();
+		return current.current.count() + current.previous.count();
+	}
+
+	/**
+	 * @return the window in which a call ending now is recorded, starting a
+	 *         new one when the current is over.
+	 */
+	private Window current() {
+		while (true) {
+			final Window current = window.get();
+			final long now = System.nanoTime();
+			final long elapsed = now - current.start;
+			if (elapsed < windowNanos) {
+				return current;
+			}
+
+			// A window over for long has no previous calls to keep.
+			final Window next = new Window(new LatencyHistogram(),
+					elapsed < 2 * windowNanos ? current.current
+							: new LatencyHistogram(), now);
+			if (window.compareAndSet(current, next)) {
+				return next;
+			}
+		}
+	}
+
+	private static final class Window {
+
+		private final LatencyHistogram current;
+		private final LatencyHistogram previous;
+		private final long start;
+
+		private Window(final LatencyHistogram current,
+				final LatencyHistogram previous, final long start) {
+			this.current = current;
+			this.previous = previous;
+			this.start = start;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package fr.foop.ws.tools.pool;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A port borrowed from a {@link PortPool}. Close it to give the port back,
+ * ideally with a try-with-resources block.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class PortLease<Port> implements AutoCloseable {
+
+	private final PortPool<Port> pool;
+	private final Port port;
+	private final AtomicBoolean released = new AtomicBoolean(false);
+
+	PortLease(final PortPool<Port> pool, final Port port) {
+		this.pool = pool;
+		this.port = port;
+	}
+
+	public Port port() {
+		return port;
+	}
+
+	/**
+	 * Give the port back to the pool, so it can be reused by another thread.
+	 */
+	@Override
+	public void close() {
+		if (released.compareAndSet(false, true)) {
+			pool.release(port, true);
+		}
+	}
+
+	/**
+	 * Discard the port instead of giving it back, for instance when it is
+	 * left in an unknown state. A new port is created on demand.
+	 */
+	public void invalidate() {
+		if (released.compareAndSet(false, true)) {
+			pool.release(port, false);
+		}
+	}
+}
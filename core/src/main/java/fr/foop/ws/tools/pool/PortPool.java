@@ -0,0 +1,162 @@
+package fr.foop.ws.tools.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of fully configured web service ports.
+ * 
+ * A CXF port is not safe for concurrent use (request context, conduit), so
+ * each thread leases its own port for the duration of a call and gives it
+ * back afterward. At most <code>max</code> ports are created, the pool is
+ * primed with <code>min</code> ports.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class PortPool<Port> {
+
+	public interface PortFactory<Port> {
+		Port create();
+	}
+
+	private final PortFactory<Port> factory;
+	private final int min;
+	private final int max;
+	private final long timeout;
+
+	private final Semaphore permits;
+	private final ConcurrentLinkedDeque<Port> idle = new ConcurrentLinkedDeque<Port>();
+
+	private final AtomicInteger created = new AtomicInteger();
+	private final AtomicInteger leased = new AtomicInteger();
+	private final AtomicLong leaseCount = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	/**
+	 * @param factory
+	 *            creates a new configured port, called when no idle port is
+	 *            available.
+	 * @param min
+	 *            the number of ports created upfront.
+	 * @param max
+	 *            the maximum number of ports living at the same time.
+	 * @param timeout
+	 *            the time in millis to wait for a port when all of them are
+	 *            leased.
+	 */
+	public PortPool(final PortFactory<Port> factory, final int min,
+			final int max, final long timeout) {
+		if (max < 1 || min < 0 || min > max) {
+			throw new IllegalArgumentException("invalid pool bounds : min="
+					+ min + ", max=" + max);
+		}
+
+		this.factory = factory;
+		this.min = min;
+		this.max = max;
+		this.timeout = timeout;
+		this.permits = new Semaphore(max, true);
+
+		for (int i = 0; i < min; ++i) {
+			idle.offerFirst(factory.create());
+			created.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Lease a port, waiting up to the pool timeout if all ports are in use.
+	 * The lease must be closed once the calls are done.
+	 * 
+	 * @return
+	 * @throws PortPoolExhaustedException
+	 *             if no port became available in time.
+	 */
+	public PortLease<Port> lease() {
+		final long start = System.nanoTime();
+		final boolean acquired;
+
+		try {
+			acquired = permits.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PortPoolExhaustedException(
+					"interrupted while waiting for a port", e);
+		} finally {
+			recordWait(System.nanoTime() - start);
+		}
+
+		if (!acquired) {
+			timeouts.incrementAndGet();
+			throw new PortPoolExhaustedException("no port available after "
+					+ timeout + "ms, all " + max + " ports are leased");
+		}
+
+		Port port = idle.pollFirst();
+
+		if (port == null) {
+			try {
+				port = factory.create();
+				created.incrementAndGet();
+			} catch (RuntimeException e) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		leased.incrementAndGet();
+		leaseCount.incrementAndGet();
+
+		return new PortLease<Port>(this, port);
+	}
+
+	void release(final Port port, final boolean reusable) {
+		leased.decrementAndGet();
+
+		if (reusable) {
+			idle.offerFirst(port);
+		} else {
+			created.decrementAndGet();
+		}
+
+		permits.release();
+	}
+
+	/**
+	 * Remove the idle ports from the pool, the next leases create new ones.
+	 * 
+	 * @return the removed ports.
+	 */
+	public List<Port> evictIdle() {
+		final List<Port> evicted = new ArrayList<Port>();
+		Port port;
+		while ((port = idle.pollFirst()) != null) {
+			evicted.add(port);
+			created.decrementAndGet();
+		}
+		return evicted;
+	}
+
+	private void recordWait(final long nanos) {
+		totalWaitNanos.addAndGet(nanos);
+
+		long currentMax = maxWaitNanos.get();
+		while (nanos > currentMax
+				&& !maxWaitNanos.compareAndSet(currentMax, nanos)) {
+			currentMax = maxWaitNanos.get();
+		}
+	}
+
+	public PortPoolStats stats() {
+		return new PortPoolStats(min, max, created.get(), idle.size(),
+				leased.get(), leaseCount.get(), timeouts.get(),
+				totalWaitNanos.get(), maxWaitNanos.get());
+	}
+}
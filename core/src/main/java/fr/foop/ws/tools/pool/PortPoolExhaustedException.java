@@ -0,0 +1,15 @@
+package fr.foop.ws.tools.pool;
+
+public class PortPoolExhaustedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public PortPoolExhaustedException(final String message) {
+		super(message);
+	}
+
+	public PortPoolExhaustedException(final String message,
+			final Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,65 @@
+package fr.foop.ws.tools.pool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the pool usage.
+ */
+public class PortPoolStats {
+
+	public final int min;
+	public final int max;
+	public final int created;
+	public final int idle;
+	public final int leased;
+	public final long leaseCount;
+	public final long timeouts;
+	public final long totalWaitNanos;
+	public final long maxWaitNanos;
+
+	public PortPoolStats(final int min, final int max, final int created,
+			final int idle, final int leased, final long leaseCount,
+			final long timeouts, final long totalWaitNanos,
+			final long maxWaitNanos) {
+		this.min = min;
+		this.max = max;
+		this.created = created;
+		this.idle = idle;
+		this.leased = leased;
+		this.leaseCount = leaseCount;
+		this.timeouts = timeouts;
+		this.totalWaitNanos = totalWaitNanos;
+		this.maxWaitNanos = maxWaitNanos;
+	}
+
+	/**
+	 * @return the ratio of leased ports over the pool maximum size.
+	 */
+	public double utilization() {
+		return (double) leased / max;
+	}
+
+	public double averageWaitMillis() {
+		final long attempts = leaseCount + timeouts;
+
+		if (attempts == 0) {
+			return 0;
+		}
+
+		return (double) TimeUnit.NANOSECONDS.toMicros(totalWaitNanos)
+				/ attempts / 1000;
+	}
+
+	public double maxWaitMillis() {
+		return (double) TimeUnit.NANOSECONDS.toMicros(maxWaitNanos) / 1000;
+	}
+
+	@Override
+	public String toString() {
+		return "PortPoolStats [min=" + min + ", max=" + max + ", created="
+				+ created + ", idle=" + idle + ", leased=" + leased
+				+ ", leaseCount=" + leaseCount + ", timeouts=" + timeouts
+				+ ", averageWaitMillis=" + averageWaitMillis()
+				+ ", maxWaitMillis=" + maxWaitMillis() + "]";
+	}
+}
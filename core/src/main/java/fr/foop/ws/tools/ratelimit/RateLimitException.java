@@ -0,0 +1,15 @@
+package fr.foop.ws.tools.ratelimit;
+
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Thrown when a call over the rate limit cannot wait for its turn.
+ */
+public class RateLimitException extends WebServiceException {
+
+	private static final long serialVersionUID = 1L;
+
+	public RateLimitException(final String message) {
+		super(message);
+	}
+}
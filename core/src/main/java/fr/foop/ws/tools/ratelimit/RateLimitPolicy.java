@@ -0,0 +1,71 @@
+package fr.foop.ws.tools.ratelimit;
+
+import java.util.List;
+
+import com.google.common.base.Splitter;
+
+/**
+ * The calls allowed per second, how many of them can be sent at once after
+ * an idle time, and how long a call over the rate waits for its turn.
+ */
+public class RateLimitPolicy {
+
+	public final double rate;
+	public final int burst;
+	public final long maxWait;
+
+	/**
+	 * @param rate
+	 *            the calls allowed per second.
+	 * @param burst
+	 *            the calls which can be sent at once, at least 1.
+	 * @param maxWait
+	 *            the time in millis a call over the rate can wait, 0 to reject
+	 *            it at once.
+	 */
+	public RateLimitPolicy(final double rate, final int burst,
+			final long maxWait) {
+		if (rate <= 0 || burst < 1 || maxWait < 0) {
+			throw new IllegalArgumentException(
+					"rate limit must be positive, burst at least 1 and max wait positive");
+		}
+		this.rate = rate;
+		this.burst = burst;
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * A non blocking limit, without burst.
+	 */
+	public RateLimitPolicy(final double rate) {
+		this(rate, 1, 0);
+	}
+
+	/**
+	 * Parse a policy written as <code>rate[:burst[:maxWait]]</code>.
+	 */
+	public static RateLimitPolicy fromString(final String policy) {
+		final List<String> values = Splitter.on(":").trimResults()
+				.splitToList(policy);
+
+		if (values.size() == 1) {
+			return new RateLimitPolicy(Double.valueOf(values.get(0)));
+		} else if (values.size() == 2) {
+			return new RateLimitPolicy(Double.valueOf(values.get(0)),
+					Integer.valueOf(values.get(1)), 0);
+		} else if (values.size() == 3) {
+			return new RateLimitPolicy(Double.valueOf(values.get(0)),
+					Integer.valueOf(values.get(1)), Long.valueOf(values.get(2)));
+		}
+
+		throw new IllegalArgumentException(
+				"rate limit must be defined as rate[:burst[:maxWait]] : "
+						+ policy);
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimitPolicy [rate=" + rate + ", burst=" + burst
+				+ ", maxWait=" + maxWait + "]";
+	}
+}
@@ -0,0 +1,40 @@
+package fr.foop.ws.tools.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the calls let through and rejected by a rate limit.
+ */
+public class RateLimitStats {
+
+	public final long acquired;
+	public final long rejected;
+	public final long waited;
+	public final long waitNanos;
+	public final long maxWaitNanos;
+
+	public RateLimitStats(final long acquired, final long rejected,
+			final long waited, final long waitNanos, final long maxWaitNanos) {
+		this.acquired = acquired;
+		this.rejected = rejected;
+		this.waited = waited;
+		this.waitNanos = waitNanos;
+		this.maxWaitNanos = maxWaitNanos;
+	}
+
+	/**
+	 * @return the mean wait of the calls which had to wait, 0 when none did.
+	 */
+	public double meanWaitMillis() {
+		return waited == 0 ? 0 : (double) waitNanos / waited
+				/ TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public String toString() {
+		return "RateLimitStats [acquired=" + acquired + ", rejected="
+				+ rejected + ", waited=" + waited + ", meanWaitMillis="
+				+ meanWaitMillis() + ", maxWaitMillis="
+				+ TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "]";
+	}
+}
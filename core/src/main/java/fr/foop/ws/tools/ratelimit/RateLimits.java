@@ -0,0 +1,115 @@
+package fr.foop.ws.tools.ratelimit;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The rate limit of the whole endpoint, all servers included, and the rate
+ * limits of single operations. A call takes a token from both, or from none
+ * when one of them rejects it.
+ */
+public class RateLimits {
+
+	/**
+	 * The key of the endpoint limit in the statistics.
+	 */
+	public static final String ENDPOINT = "*";
+
+	private final Optional<TokenBucket> endpoint;
+	private final ImmutableMap<Method, TokenBucket> operations;
+
+	/**
+	 * @param portClazz
+	 *            the port interface.
+	 * @param operations
+	 *            the limits by operation (port method) name.
+	 */
+	public RateLimits(final String endpoint,
+			final Optional<RateLimitPolicy> endpointLimit,
+			final Class<?> portClazz,
+			final Map<String, RateLimitPolicy> operations) {
+		this.endpoint = endpointLimit.isPresent() ? Optional
+				.of(new TokenBucket(endpoint, endpointLimit.get())) : Optional
+				.<TokenBucket> absent();
+
+		final ImmutableMap.Builder<Method, TokenBucket> buckets = ImmutableMap
+				.builder();
+		for (final Method method : portClazz.getMethods()) {
+			final RateLimitPolicy policy = operations.get(method.getName());
+			if (policy != null) {
+				buckets.put(method, new TokenBucket(method.getName(), policy));
+			}
+		}
+		this.operations = buckets.build();
+	}
+
+	/**
+	 * Reserve the operation and endpoint tokens, then wait for the latest.
+	 * 
+	 * @throws RateLimitException
+	 *             when one of the tokens would come too late.
+	 */
+	public void acquire(final Method method) {
+		final TokenBucket operation = operations.get(method);
+		final long operationWait = operation != null ? operation.reserve() : 0;
+
+		final long endpointWait;
+		try {
+			endpointWait = endpoint.isPresent() ? endpoint.get().reserve() : 0;
+		} catch (RateLimitException e) {
+			if (operation != null) {
+				operation.refund();
+			}
+			throw e;
+		}
+
+		TokenBucket.await(Math.max(operationWait, endpointWait),
+				method.getName());
+	}
+
+	/**
+	 * Take the operation and endpoint tokens only when both are available at
+	 * once, for the callers which must not wait.
+	 * 
+	 * @throws RateLimitException
+	 *             when one of the rates is reached.
+	 */
+	public void acquireNow(final Method method) {
+		final TokenBucket operation = operations.get(method);
+		if (operation != null) {
+			operation.reserveNow();
+		}
+
+		try {
+			if (endpoint.isPresent()) {
+				endpoint.get().reserveNow();
+			}
+		} catch (RateLimitException e) {
+			if (operation != null) {
+				operation.refund();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the statistics by operation name, the endpoint ones under
+	 *         {@link #ENDPOINT}.
+	 */
+	public ImmutableMap<String, RateLimitStats> stats() {
+		final ImmutableMap.Builder<String, RateLimitStats> stats = ImmutableMap
+				.builder();
+		if (endpoint.isPresent()) {
+			stats.put(ENDPOINT, endpoint.get().stats());
+		}
+		for (final Map.Entry<Method, TokenBucket> operation : operations
+				.entrySet()) {
+			stats.put(operation.getKey().getName(), operation.getValue()
+					.stats());
+		}
+		return stats.build();
+	}
+}
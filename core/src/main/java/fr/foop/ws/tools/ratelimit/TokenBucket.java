@@ -0,0 +1,175 @@
+package fr.foop.ws.tools.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Optional;
+
+import fr.foop.ws.tools.deadline.Deadline;
+
+/**
+ * A lock free token bucket, kept as the time at which the bucket is full
+ * again (generic cell rate algorithm) : taking a token is a single compare
+ * and set, and a call over the rate knows at once how long it has to wait.
+ */
+public class TokenBucket {
+
+	private final String name;
+	private final RateLimitPolicy policy;
+	private final long intervalNanos;
+	private final long burstNanos;
+	private final long maxWaitNanos;
+
+	/**
+	 * The time at which the next token would be produced with an empty bucket.
+	 */
+	private final AtomicLong nextNanos;
+
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong waited = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong maxWait = new AtomicLong();
+
+	/**
+	 * @param name
+	 *            the limited endpoint or operation, for the error messages.
+	 */
+	public TokenBucket(final String name, final RateLimitPolicy policy) {
+		this.name = name;
+		this.policy = policy;
+		this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / policy.rate);
+		this.burstNanos = intervalNanos * (policy.burst - 1);
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(policy.maxWait);
+		this.nextNanos = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Take a token without waiting.
+	 * 
+	 * @return false when the rate is reached.
+	 */
+	public boolean tryAcquire() {
+		if (reserve(0) < 0) {
+			rejected.incrementAndGet();
+			return false;
+		}
+		acquired.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Take a token, waiting for it up to the policy max wait, never past the
+	 * caller deadline.
+	 * 
+	 * @throws RateLimitException
+	 *             when the token would come too late.
+	 */
+	public void acquire() {
+		await(reserve(), name);
+	}
+
+	/**
+	 * Reserve a token without waiting for it, so that the caller can check
+	 * other buckets first.
+	 * 
+	 * @return the time to wait before using the token.
+	 * @throws RateLimitException
+	 *             when the token would come too late.
+	 */
+	long reserve() {
+		long allowedNanos = maxWaitNanos;
+		final Optional<Deadline> deadline = Deadline.current();
+		if (deadline.isPresent()) {
+			allowedNanos = Math.min(allowedNanos, deadline.get()
+					.remainingNanos());
+		}
+		return take(allowedNanos);
+	}
+
+	/**
+	 * Take a token only when it is available at once.
+	 * 
+	 * @throws RateLimitException
+	 *             when the rate is reached.
+	 */
+	void reserveNow() {
+		take(0);
+	}
+
+	private long take(final long allowedNanos) {
+		final long wait = reserve(allowedNanos);
+		if (wait < 0) {
+			rejected.incrementAndGet();
+			throw new RateLimitException("rate limit of " + policy.rate
+					+ " calls per second to " + name + " reached");
+		}
+
+		acquired.incrementAndGet();
+		if (wait > 0) {
+			recordWait(wait);
+		}
+		return wait;
+	}
+
+	/**
+	 * Give back a reserved token which was not used.
+	 */
+	void refund() {
+		nextNanos.addAndGet(-intervalNanos);
+		acquired.decrementAndGet();
+	}
+
+	static void await(final long waitNanos, final String name) {
+		if (waitNanos <= 0) {
+			return;
+		}
+		try {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RateLimitException(
+					"interrupted while waiting for the rate limit of " + name);
+		}
+	}
+
+	/**
+	 * @return the time to wait for the reserved token, negative when it would
+	 *         be more than the allowed wait and no token was reserved.
+	 */
+	private long reserve(final long allowedNanos) {
+		while (true) {
+			final long now = System.nanoTime();
+			final long next = nextNanos.get();
+			final long due = next - now > 0 ? next : now;
+			final long wait = due - burstNanos - now;
+
+			if (wait > allowedNanos) {
+				return -1;
+			}
+			if (nextNanos.compareAndSet(next, due + intervalNanos)) {
+				return Math.max(0, wait);
+			}
+		}
+	}
+
+	private void recordWait(final long nanos) {
+		waited.incrementAndGet();
+		waitNanos.addAndGet(nanos);
+
+		long current = maxWait.get();
+		while (nanos > current && !maxWait.compareAndSet(current, nanos)) {
+			current = maxWait.get();
+		}
+	}
+
+	public RateLimitStats stats() {
+		return new RateLimitStats(acquired.get(), rejected.get(),
+				waited.get(), waitNanos.get(), maxWait.get());
+	}
+
+	@Override
+	public String toString() {
+		return "TokenBucket [" + name + ", " + policy + ", " + stats() + "]";
+	}
+}
@@ -0,0 +1,201 @@
+package fr.foop.ws.tools.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Append the calls of a client, with their response or fault and their
+ * latency, to a recording file.
+ *
+ * The records are encoded on the calling thread and written on a background
+ * thread : they are dropped, and counted, when the queue is full rather than
+ * slowing the calls down.
+ */
+public class CallRecorder implements AutoCloseable {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(CallRecorder.class);
+
+	private static final int QUEUE_SIZE = 1024;
+
+	private final File file;
+	private final FileChannel channel;
+	private final ThreadPoolExecutor writer;
+	private final AtomicLong recorded = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * @param file
+	 *            the recording file, created when missing, appended to
+	 *            otherwise.
+	 * @throws IllegalArgumentException
+	 *             when the file is not a recording of the current version.
+	 */
+	public CallRecorder(final File file) {
+		this.file = file;
+		try {
+			this.channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			try {
+				writeOrCheckHeader();
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("unable to open recording "
+					+ file, e);
+		}
+
+		this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+				new ThreadFactoryBuilder().setDaemon(true)
+						.setNameFormat("call-recorder-%d").build(),
+				new RejectedExecutionHandler() {
+					@Override
+					public void rejectedExecution(final Runnable r,
+							final ThreadPoolExecutor executor) {
+						dropped.incrementAndGet();
+					}
+				});
+	}
+
+	private void writeOrCheckHeader() throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(Recording.HEADER_SIZE);
+		if (channel.size() == 0) {
+			header.putInt(Recording.MAGIC).putInt(Recording.VERSION).flip();
+			channel.write(header);
+			return;
+		}
+
+		// Appending to another version would make the whole file unreadable.
+		channel.read(header, 0);
+		if (header.hasRemaining() || header.getInt(0) != Recording.MAGIC) {
+			throw new IllegalArgumentException(file + " is not a recording");
+		}
+		if (header.getInt(4) != Recording.VERSION) {
+			throw new IllegalArgumentException("unsupported recording version "
+					+ header.getInt(4) + " in " + file);
+		}
+		channel.position(channel.size());
+	}
+
+	public void recordResult(final Method method, final Object[] args,
+			final long nanos, final Object result) {
+		record(method, args, nanos, result, null);
+	}
+
+	public void recordFault(final Method method, final Object[] args,
+			final long nanos, final Throwable fault) {
+		record(method, args, nanos, null, fault);
+	}
+
+	private void record(final Method method, final Object[] args,
+			final long nanos, final Object result, final Throwable fault) {
+		final ByteBuffer record;
+		try {
+			record = encode(method, args, nanos, result, fault);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("unable to record call to {}", method.getName(), e);
+			dropped.incrementAndGet();
+			return;
+		}
+
+		writer.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (record.hasRemaining()) {
+						channel.write(record);
+					}
+					recorded.incrementAndGet();
+				} catch (IOException e) {
+					LOGGER.warn("unable to write recording {}", file, e);
+					dropped.incrementAndGet();
+				}
+			}
+		});
+	}
+
+	private static ByteBuffer encode(final Method method, final Object[] args,
+			final long nanos, final Object result, final Throwable fault)
+			throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0);
+		out.writeLong(ReplayCodec.fingerprint(method, args));
+		out.writeLong(nanos);
+		out.writeUTF(method.getName());
+		if (fault == null) {
+			out.writeBoolean(false);
+			ReplayCodec.writeValue(out, result);
+		} else {
+			out.writeBoolean(true);
+			ReplayCodec.writeFault(out, fault);
+		}
+		out.flush();
+
+		final ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+		record.putInt(0, record.capacity() - 4);
+		return record;
+	}
+
+	public File file() {
+		return file;
+	}
+
+	/**
+	 * @return the number of calls written to the recording.
+	 */
+	public long recorded() {
+		return recorded.get();
+	}
+
+	/**
+	 * @return the number of calls not recorded, because the queue was full or
+	 *         the response could not be encoded.
+	 */
+	public long dropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Write the queued records, then close the file.
+	 */
+	@Override
+	public void close() {
+		writer.shutdown();
+		try {
+			writer.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LOGGER.warn("unable to close recording {}", file, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CallRecorder[" + file + "]";
+	}
+}
@@ -0,0 +1,217 @@
+package fr.foop.ws.tools.replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Ints;
+
+/**
+ * A recording file, memory mapped and indexed by call fingerprint.
+ *
+ * The file starts with a header, then holds the records appended by a
+ * {@link CallRecorder}. Each record is prefixed by its length, followed by
+ * the call fingerprint and latency, so the index is built by skipping from
+ * one record header to the next. A truncated last record, left by a stopped
+ * recorder, is ignored.
+ */
+public class Recording {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(Recording.class);
+
+	static final int MAGIC = 0x43585252;
+	/**
+	 * Version 2 fingerprints the arguments with their types.
+	 */
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 8;
+
+	private final File file;
+	private final MappedByteBuffer buffer;
+	private final ImmutableMap<Long, Responses> index;
+	private final int size;
+
+	private Recording(final File file, final MappedByteBuffer buffer) {
+		this.file = file;
+		this.buffer = buffer;
+
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException(file + " is not a recording");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IllegalArgumentException("unsupported recording version "
+					+ buffer.getInt(4) + " in " + file);
+		}
+
+		final Map<Long, Responses.Builder> builders = new HashMap<Long, Responses.Builder>();
+		int count = 0;
+		int position = HEADER_SIZE;
+		while (position + 4 <= buffer.limit()) {
+			final int length = buffer.getInt(position);
+			if (length < 16 || position + 4 + length > buffer.limit()) {
+				LOGGER.warn("ignoring truncated record at {} in {}",
+						position, file);
+				break;
+			}
+			final long fingerprint = buffer.getLong(position + 4);
+			Responses.Builder builder = builders.get(fingerprint);
+			if (builder == null) {
+				builder = new Responses.Builder();
+				builders.put(fingerprint, builder);
+			}
+			builder.add(position);
+			position += 4 + length;
+			++count;
+		}
+
+		final ImmutableMap.Builder<Long, Responses> index = ImmutableMap
+				.builder();
+		for (final Map.Entry<Long, Responses.Builder> entry : builders
+				.entrySet()) {
+			index.put(entry.getKey(), entry.getValue().build());
+		}
+		this.index = index.build();
+		this.size = count;
+	}
+
+	/**
+	 * Map and index a recording file.
+	 *
+	 * @throws IllegalArgumentException
+	 *             when the file is not a readable recording, or is larger than
+	 *             2GB.
+	 */
+	public static Recording open(final File file) {
+		try (final FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("recording " + file
+						+ " is larger than 2GB");
+			}
+			return new Recording(file, channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("unable to open recording "
+					+ file, e);
+		}
+	}
+
+	public File file() {
+		return file;
+	}
+
+	/**
+	 * @return the number of recorded calls.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of distinct recorded calls.
+	 */
+	public int distinctCalls() {
+		return index.size();
+	}
+
+	/**
+	 * The next recorded response to the call : the responses recorded for the
+	 * same call are served in turn.
+	 */
+	Optional<Response> next(final Method method, final Object[] args) {
+		final Responses responses = index.get(ReplayCodec.fingerprint(method,
+				args));
+		return responses == null ? Optional.<Response> absent() : Optional
+				.of(new Response(responses.next()));
+	}
+
+	/**
+	 * A recorded response, decoded on demand from the mapped file.
+	 */
+	final class Response {
+
+		private final int position;
+
+		private Response(final int position) {
+			this.position = position;
+		}
+
+		long nanos() {
+			return buffer.getLong(position + 12);
+		}
+
+		/**
+		 * @return the recorded result.
+		 * @throws Throwable
+		 *             the recorded fault.
+		 */
+		Object replay(final Method method) throws Throwable {
+			final ByteBuffer record = buffer.duplicate();
+			final byte[] bytes = new byte[buffer.getInt(position) - 16];
+			record.position(position + 20);
+			record.get(bytes);
+
+			final DataInputStream in = new DataInputStream(
+					new ByteArrayInputStream(bytes));
+			in.readUTF();
+			if (in.readBoolean()) {
+				throw ReplayCodec.readFault(in, method);
+			}
+			return ReplayCodec.readValue(in, method.getDeclaringClass()
+					.getClassLoader());
+		}
+	}
+
+	/**
+	 * The positions of the responses recorded for a call.
+	 */
+	private static final class Responses {
+
+		private final int[] positions;
+		private final AtomicInteger next = new AtomicInteger();
+
+		private Responses(final int[] positions) {
+			this.positions = positions;
+		}
+
+		int next() {
+			return positions[(next.getAndIncrement() & Integer.MAX_VALUE)
+					% positions.length];
+		}
+
+		private static final class Builder {
+
+			private final List<Integer> positions = new ArrayList<Integer>();
+
+			void add(final int position) {
+				positions.add(position);
+			}
+
+			Responses build() {
+				return new Responses(Ints.toArray(positions));
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Recording[" + file + ", " + size + " calls]";
+	}
+}
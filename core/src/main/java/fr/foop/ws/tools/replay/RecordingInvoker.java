@@ -0,0 +1,41 @@
+package fr.foop.ws.tools.replay;
+
+import java.lang.reflect.Method;
+
+import fr.foop.ws.tools.invocation.PortInvoker;
+
+/**
+ * Record the calls made by the decorated invoker, with the latency they were
+ * served with.
+ */
+public class RecordingInvoker implements PortInvoker {
+
+	private final PortInvoker delegate;
+	private final CallRecorder recorder;
+
+	public RecordingInvoker(final PortInvoker delegate,
+			final CallRecorder recorder) {
+		this.delegate = delegate;
+		this.recorder = recorder;
+	}
+
+	@Override
+	public Object invoke(final Method method, final Object[] args)
+			throws Throwable {
+		final long start = System.nanoTime();
+		final Object result;
+		try {
+			result = delegate.invoke(method, args);
+		} catch (Throwable t) {
+			recorder.recordFault(method, args, System.nanoTime() - start, t);
+			throw t;
+		}
+		recorder.recordResult(method, args, System.nanoTime() - start, result);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "Recording" + delegate;
+	}
+}
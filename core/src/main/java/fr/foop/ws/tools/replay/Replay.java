@@ -0,0 +1,91 @@
+package fr.foop.ws.tools.replay;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import fr.foop.ws.tools.invocation.PortInvocationHandler;
+
+/**
+ * A recording to replay as mocked port, with the scale applied to its
+ * latencies.
+ */
+public class Replay {
+
+	/**
+	 * The prefix of a mocked port property replaying a recording.
+	 */
+	public static final String PREFIX = "replay:";
+
+	public final File file;
+	public final double latencyScale;
+
+	private final Supplier<Recording> recording;
+
+	public Replay(final File file, final double latencyScale) {
+		if (latencyScale < 0) {
+			throw new IllegalArgumentException(
+					"latency scale must not be negative : " + latencyScale);
+		}
+		this.file = file;
+		this.latencyScale = latencyScale;
+		this.recording = Suppliers.memoize(new Supplier<Recording>() {
+			@Override
+			public Recording get() {
+				return Recording.open(file);
+			}
+		});
+	}
+
+	/**
+	 * Replay the recorded latencies as they are.
+	 */
+	public Replay(final File file) {
+		this(file, 1);
+	}
+
+	/**
+	 * @param replay
+	 *            file[,latencyScale]
+	 */
+	public static Replay fromString(final String replay) {
+		final List<String> values = Splitter.on(",").trimResults()
+				.splitToList(replay);
+
+		if (values.size() == 1) {
+			return new Replay(new File(values.get(0)));
+		} else if (values.size() == 2) {
+			return new Replay(new File(values.get(0)), Double.valueOf(values
+					.get(1)));
+		}
+
+		throw new IllegalArgumentException(
+				"replay must be defined as file[,latencyScale] : " + replay);
+	}
+
+	/**
+	 * @return the recording, mapped on first use.
+	 */
+	public Recording recording() {
+		return recording.get();
+	}
+
+	/**
+	 * @return a port answering from the recording.
+	 */
+	public <Port> Port port(final Class<Port> portClazz) {
+		return portClazz.cast(Proxy.newProxyInstance(
+				portClazz.getClassLoader(), new Class<?>[] { portClazz },
+				new PortInvocationHandler(new ReplayInvoker(recording(),
+						latencyScale))));
+	}
+
+	@Override
+	public String toString() {
+		return PREFIX + file + "," + latencyScale;
+	}
+}
@@ -0,0 +1,203 @@
+package fr.foop.ws.tools.replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.ws.WebServiceException;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
+
+import fr.foop.ws.tools.cache.ArgumentsKey;
+
+/**
+ * Encode the recorded responses and faults as JAXB marshalled XML, and
+ * fingerprint the calls they answer.
+ */
+final class ReplayCodec {
+
+	private static final QName VALUE = new QName("value");
+
+	private static final byte NULL = 0;
+	private static final byte SINGLE = 1;
+	private static final byte LIST = 2;
+
+	/**
+	 * The classes are weakly referenced, so that an undeployed application
+	 * does not leak.
+	 */
+	private static final LoadingCache<Class<?>, JAXBContext> CONTEXTS = CacheBuilder
+			.newBuilder().weakKeys().softValues()
+			.build(new CacheLoader<Class<?>, JAXBContext>() {
+				@Override
+				public JAXBContext load(final Class<?> clazz)
+						throws JAXBException {
+					return JAXBContext.newInstance(clazz);
+				}
+			});
+
+	private ReplayCodec() {
+	}
+
+	/**
+	 * @return the fingerprint of an operation called with the arguments,
+	 *         stable between runs as the arguments are compared by value, with
+	 *         their types.
+	 */
+	static long fingerprint(final Method method, final Object[] args) {
+		return Hashing
+				.murmur3_128()
+				.hashString(
+						method.getName()
+								+ new ArgumentsKey(args).toTypedString(),
+						Charsets.UTF_8).asLong();
+	}
+
+	static void writeValue(final DataOutput out, final Object value)
+			throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof Collection) {
+			final Collection<?> values = (Collection<?>) value;
+			out.writeByte(LIST);
+			out.writeInt(values.size());
+			for (final Object element : values) {
+				writeValue(out, element);
+			}
+		} else {
+			out.writeByte(SINGLE);
+			out.writeUTF(value.getClass().getName());
+			final byte[] xml = marshal(value);
+			out.writeInt(xml.length);
+			out.write(xml);
+		}
+	}
+
+	static Object readValue(final DataInput in, final ClassLoader classLoader)
+			throws IOException {
+		final byte kind = in.readByte();
+		if (kind == NULL) {
+			return null;
+		} else if (kind == LIST) {
+			final int size = in.readInt();
+			final List<Object> values = new ArrayList<Object>(size);
+			for (int i = 0; i < size; ++i) {
+				values.add(readValue(in, classLoader));
+			}
+			return values;
+		} else {
+			final Class<?> clazz = load(in.readUTF(), classLoader);
+			final byte[] xml = new byte[in.readInt()];
+			in.readFully(xml);
+			return unmarshal(xml, clazz);
+		}
+	}
+
+	static void writeFault(final DataOutput out, final Throwable fault)
+			throws IOException {
+		out.writeUTF(fault.getClass().getName());
+		out.writeUTF(String.valueOf(fault.getMessage()));
+		writeValue(out, faultInfo(fault));
+	}
+
+	/**
+	 * Rebuild a recorded fault : the generated fault exceptions get their
+	 * fault info back, other exceptions are replayed as
+	 * {@link WebServiceException} unless they have a message constructor.
+	 */
+	static Throwable readFault(final DataInput in, final Method method)
+			throws IOException {
+		final ClassLoader classLoader = method.getDeclaringClass()
+				.getClassLoader();
+		final String className = in.readUTF();
+		final String message = in.readUTF();
+		final Object faultInfo = readValue(in, classLoader);
+
+		try {
+			final Class<?> clazz = load(className, classLoader);
+			if (Throwable.class.isAssignableFrom(clazz)) {
+				if (faultInfo != null) {
+					final Constructor<?> constructor = clazz.getConstructor(
+							String.class, faultInfo.getClass());
+					return (Throwable) constructor.newInstance(message,
+							faultInfo);
+				}
+				return (Throwable) clazz.getConstructor(String.class)
+						.newInstance(message);
+			}
+		} catch (ReflectiveOperationException | IllegalArgumentException e) {
+			// Fall back to a generic web service exception.
+		}
+		return new WebServiceException(message);
+	}
+
+	private static Object faultInfo(final Throwable fault) {
+		try {
+			return fault.getClass().getMethod("getFaultInfo").invoke(fault);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static byte[] marshal(final Object value) throws IOException {
+		try {
+			final ByteArrayOutputStream xml = new ByteArrayOutputStream();
+			context(value.getClass()).createMarshaller().marshal(
+					new JAXBElement(VALUE, value.getClass(), value), xml);
+			return xml.toByteArray();
+		} catch (JAXBException e) {
+			throw new IOException("unable to marshal recorded value "
+					+ value.getClass().getName(), e);
+		}
+	}
+
+	private static Object unmarshal(final byte[] xml, final Class<?> clazz)
+			throws IOException {
+		try {
+			return context(clazz).createUnmarshaller()
+					.unmarshal(new StreamSource(new ByteArrayInputStream(xml)),
+							clazz).getValue();
+		} catch (JAXBException e) {
+			throw new IOException("unable to unmarshal recorded value "
+					+ clazz.getName(), e);
+		}
+	}
+
+	private static JAXBContext context(final Class<?> clazz)
+			throws JAXBException {
+		try {
+			return CONTEXTS.get(clazz);
+		} catch (ExecutionException e) {
+			Throwables.propagateIfInstanceOf(e.getCause(), JAXBException.class);
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	private static Class<?> load(final String className,
+			final ClassLoader classLoader) throws IOException {
+		try {
+			return Class.forName(className, false, classLoader);
+		} catch (ClassNotFoundException e) {
+			throw new IOException("unknown recorded class " + className, e);
+		}
+	}
+}
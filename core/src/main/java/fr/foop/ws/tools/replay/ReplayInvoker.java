@@ -0,0 +1,66 @@
+package fr.foop.ws.tools.replay;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+
+import fr.foop.ws.tools.invocation.PortInvoker;
+
+/**
+ * Serve the calls from a recording, after the recorded latency multiplied by
+ * the latency scale.
+ */
+public class ReplayInvoker implements PortInvoker {
+
+	private final Recording recording;
+	private final double latencyScale;
+
+	/**
+	 * @param latencyScale
+	 *            the factor applied to the recorded latencies, 1 to reproduce
+	 *            them, 0 to answer at once.
+	 */
+	public ReplayInvoker(final Recording recording, final double latencyScale) {
+		if (latencyScale < 0) {
+			throw new IllegalArgumentException(
+					"latency scale must not be negative : " + latencyScale);
+		}
+		this.recording = recording;
+		this.latencyScale = latencyScale;
+	}
+
+	@Override
+	public Object invoke(final Method method, final Object[] args)
+			throws Throwable {
+		final long start = System.nanoTime();
+		final Optional<Recording.Response> response = recording.next(method,
+				args);
+		if (!response.isPresent()) {
+			throw new ReplayMissException("no recorded response to "
+					+ method.getName() + Arrays.toString(args) + " in "
+					+ recording.file());
+		}
+
+		try {
+			return response.get().replay(method);
+		} finally {
+			pause(start, response.get().nanos());
+		}
+	}
+
+	private void pause(final long start, final long recordedNanos)
+			throws InterruptedException {
+		final long remaining = (long) (recordedNanos * latencyScale)
+				- (System.nanoTime() - start);
+		if (remaining > 0) {
+			TimeUnit.NANOSECONDS.sleep(remaining);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Replay[" + recording + ", x" + latencyScale + "]";
+	}
+}
@@ -0,0 +1,16 @@
+package fr.foop.ws.tools.replay;
+
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Thrown by a replayed port called with arguments it has no recorded response
+ * for.
+ */
+public class ReplayMissException extends WebServiceException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ReplayMissException(final String message) {
+		super(message);
+	}
+}
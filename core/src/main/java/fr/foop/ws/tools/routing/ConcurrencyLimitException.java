@@ -0,0 +1,16 @@
+package fr.foop.ws.tools.routing;
+
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Thrown when a call is over the concurrency limit of a server, and no call
+ * ended within the queue timeout.
+ */
+public class ConcurrencyLimitException extends WebServiceException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ConcurrencyLimitException(final String message) {
+		super(message);
+	}
+}
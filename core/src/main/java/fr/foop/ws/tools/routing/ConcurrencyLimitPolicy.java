@@ -0,0 +1,97 @@
+package fr.foop.ws.tools.routing;
+
+import java.util.List;
+
+import com.google.common.base.Splitter;
+
+/**
+ * How many calls can be in flight to each server, and how long a call over
+ * the limit waits for one of them to end.
+ * 
+ * A fixed limit is a bulkhead. An adaptive limit starts at the initial limit,
+ * grows by one call per limit calls answered in time, and shrinks by 10% when
+ * a call fails or is answered in more than twice the usual latency.
+ */
+public class ConcurrencyLimitPolicy {
+
+	/**
+	 * Ratio of the limit kept when shrinking an adaptive limit.
+	 */
+	static final double BACKOFF = 0.9;
+
+	/**
+	 * Ratio of the usual latency above which a call is a sign of overload.
+	 */
+	static final double LATENCY_TOLERANCE = 2;
+
+	public final boolean adaptive;
+	public final int limit;
+	public final int maxLimit;
+	public final long queueTimeout;
+
+	/**
+	 * @param adaptive
+	 *            true to adapt the limit to the server latency.
+	 * @param limit
+	 *            the fixed limit, or the initial adaptive limit.
+	 * @param maxLimit
+	 *            the highest adaptive limit.
+	 * @param queueTimeout
+	 *            the time in millis a call over the limit waits, 0 to fail
+	 *            fast.
+	 */
+	private ConcurrencyLimitPolicy(final boolean adaptive, final int limit,
+			final int maxLimit, final long queueTimeout) {
+		if (limit <= 0 || maxLimit < limit || queueTimeout < 0) {
+			throw new IllegalArgumentException(
+					"concurrency limit must be positive, max limit at least the limit and queue timeout positive");
+		}
+		this.adaptive = adaptive;
+		this.limit = limit;
+		this.maxLimit = maxLimit;
+		this.queueTimeout = queueTimeout;
+	}
+
+	public static ConcurrencyLimitPolicy fixed(final int limit,
+			final long queueTimeout) {
+		return new ConcurrencyLimitPolicy(false, limit, limit, queueTimeout);
+	}
+
+	public static ConcurrencyLimitPolicy adaptive(final int initialLimit,
+			final int maxLimit, final long queueTimeout) {
+		return new ConcurrencyLimitPolicy(true, initialLimit, maxLimit,
+				queueTimeout);
+	}
+
+	/**
+	 * Parse a policy written as <code>fixed:limit[:queueTimeout]</code> or
+	 * <code>aimd:initialLimit:maxLimit[:queueTimeout]</code>, the queue timeout
+	 * defaults to 0.
+	 */
+	public static ConcurrencyLimitPolicy fromString(final String policy) {
+		final List<String> values = Splitter.on(":").trimResults()
+				.splitToList(policy);
+
+		if ("fixed".equalsIgnoreCase(values.get(0))
+				&& (values.size() == 2 || values.size() == 3)) {
+			return fixed(Integer.valueOf(values.get(1)),
+					values.size() == 3 ? Long.valueOf(values.get(2)) : 0);
+		} else if ("aimd".equalsIgnoreCase(values.get(0))
+				&& (values.size() == 3 || values.size() == 4)) {
+			return adaptive(Integer.valueOf(values.get(1)),
+					Integer.valueOf(values.get(2)),
+					values.size() == 4 ? Long.valueOf(values.get(3)) : 0);
+		}
+
+		throw new IllegalArgumentException(
+				"concurrency limit must be defined as fixed:limit[:queueTimeout] or aimd:initialLimit:maxLimit[:queueTimeout] : "
+						+ policy);
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrencyLimitPolicy [" + (adaptive ? "aimd" : "fixed")
+				+ ", limit=" + limit + ", maxLimit=" + maxLimit
+				+ ", queueTimeout=" + queueTimeout + "]";
+	}
+}
@@ -0,0 +1,164 @@
+package fr.foop.ws.tools.routing;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+
+import fr.foop.ws.tools.deadline.Deadline;
+
+/**
+ * Bound the calls in flight to a server, with a fixed or an adaptive (AIMD)
+ * limit. Calls over the limit fail fast or wait for the queue timeout, never
+ * past the caller deadline.
+ */
+public class ConcurrencyLimiter {
+
+	/**
+	 * Weight of the latest call in the usual latency moving average.
+	 */
+	private static final double BASELINE_ALPHA = 0.05;
+
+	private final ConcurrencyLimitPolicy policy;
+
+	private double limit;
+	private int inFlight;
+	private double baselineNanos;
+	private long lastBackoffNanos;
+	private long rejected;
+
+	public ConcurrencyLimiter(final ConcurrencyLimitPolicy policy) {
+		this.policy = policy;
+		this.limit = policy.limit;
+	}
+
+	public synchronized void acquire(final String server) {
+		if (inFlight >= limit()) {
+			await(server);
+		}
+		inFlight++;
+	}
+
+	/**
+	 * Start a call only when under the limit, without queuing.
+	 * 
+	 * @throws ConcurrencyLimitException
+	 *             when the limit is reached.
+	 */
+	public synchronized void acquireNow(final String server) {
+		if (inFlight >= limit()) {
+			rejected++;
+			throw new ConcurrencyLimitException("concurrency limit of "
+					+ limit() + " calls to " + server + " reached");
+		}
+		inFlight++;
+	}
+
+	private void await(final String server) {
+		long waitNanos = TimeUnit.MILLISECONDS.toNanos(policy.queueTimeout);
+		final Optional<Deadline> deadline = Deadline.current();
+		if (deadline.isPresent()) {
+			waitNanos = Math.min(waitNanos, deadline.get().remainingNanos());
+		}
+
+		final long end = System.nanoTime() + waitNanos;
+		try {
+			while (inFlight >= limit()) {
+				final long remaining = end - System.nanoTime();
+				if (remaining <= 0) {
+					rejected++;
+					throw new ConcurrencyLimitException("concurrency limit of "
+							+ limit() + " calls to " + server + " reached");
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConcurrencyLimitException(
+					"interrupted while waiting for a call to " + server);
+		}
+	}
+
+	/**
+	 * End a call, adapting the limit to its outcome when adaptive.
+	 * 
+	 * @param nanos
+	 *            the call latency.
+	 * @param dropped
+	 *            true when the server did not answer.
+	 */
+	public synchronized void release(final long nanos, final boolean dropped) {
+		final boolean saturated = inFlight >= limit();
+		inFlight--;
+
+		if (policy.adaptive) {
+			adapt(nanos, dropped, saturated);
+		}
+		notifyAll();
+	}
+
+	private void adapt(final long nanos, final boolean dropped,
+			final boolean saturated) {
+		final boolean slow = baselineNanos > 0
+				&& nanos > ConcurrencyLimitPolicy.LATENCY_TOLERANCE
+						* baselineNanos;
+
+		if (dropped || slow) {
+			backOff();
+		} else if (saturated) {
+			// Only grow while the limit is actually used.
+			limit = Math.min(policy.maxLimit, limit + 1 / limit);
+		}
+
+		// The slow calls would drag the usual latency up to the overload one.
+		if (!dropped && !slow) {
+			baselineNanos = baselineNanos == 0 ? nanos : baselineNanos
+					+ BASELINE_ALPHA * (nanos - baselineNanos);
+		}
+	}
+
+	/**
+	 * Shrink the limit once per usual latency at most : the calls in flight
+	 * when the server got overloaded all end slow or dropped, and are a
+	 * single sign of overload.
+	 */
+	private void backOff() {
+		final long now = System.nanoTime();
+		if (lastBackoffNanos != 0 && now - lastBackoffNanos < baselineNanos) {
+			return;
+		}
+		lastBackoffNanos = now;
+		limit = Math.max(1, limit * ConcurrencyLimitPolicy.BACKOFF);
+	}
+
+	/**
+	 * End a call which was not sent, without adapting the limit.
+	 */
+	public synchronized void cancel() {
+		inFlight--;
+		notifyAll();
+	}
+
+	/**
+	 * @return the current limit.
+	 */
+	public synchronized int limit() {
+		return Math.max(1, (int) limit);
+	}
+
+	public synchronized int inFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * @return the number of calls rejected over the limit.
+	 */
+	public synchronized long rejected() {
+		return rejected;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ConcurrencyLimiter [limit=" + limit() + ", inFlight="
+				+ inFlight + ", rejected=" + rejected + "]";
+	}
+}
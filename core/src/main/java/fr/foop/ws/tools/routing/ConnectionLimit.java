@@ -0,0 +1,85 @@
+package fr.foop.ws.tools.routing;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bound the calls in flight to a server, each of them holding one HTTP
+ * connection.
+ */
+public class ConnectionLimit {
+
+	private static final ConnectionLimit UNLIMITED = new ConnectionLimit(0, 0);
+
+	private final int max;
+	private final long timeout;
+	private final Semaphore permits;
+
+	/**
+	 * @param max
+	 *            the maximum number of connections, 0 for no limit.
+	 * @param timeout
+	 *            the time in millis to wait for a connection.
+	 */
+	private ConnectionLimit(final int max, final long timeout) {
+		this.max = max;
+		this.timeout = timeout;
+		this.permits = max > 0 ? new Semaphore(max, true) : null;
+	}
+
+	public static ConnectionLimit of(final int max, final long timeout) {
+		return max > 0 ? new ConnectionLimit(max, timeout) : UNLIMITED;
+	}
+
+	public static ConnectionLimit unlimited() {
+		return UNLIMITED;
+	}
+
+	public boolean isLimited() {
+		return permits != null;
+	}
+
+	public void acquire(final String server) {
+		if (permits == null) {
+			return;
+		}
+
+		try {
+			if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+				throw new ConnectionLimitException("no connection to " + server
+						+ " available within " + timeout + "ms, all " + max
+						+ " in use");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionLimitException(
+					"interrupted while waiting for a connection to " + server);
+		}
+	}
+
+	/**
+	 * Take a connection only when one is free.
+	 * 
+	 * @throws ConnectionLimitException
+	 *             when all of them are in use.
+	 */
+	public void acquireNow(final String server) {
+		if (permits != null && !permits.tryAcquire()) {
+			throw new ConnectionLimitException("no connection to " + server
+					+ " available, all " + max + " in use");
+		}
+	}
+
+	public void release() {
+		if (permits != null) {
+			permits.release();
+		}
+	}
+
+	/**
+	 * @return the connections in use, 0 when not limited.
+	 */
+	public int inUse() {
+		return permits == null ? 0 : max - permits.availablePermits();
+	}
+}
@@ -0,0 +1,16 @@
+package fr.foop.ws.tools.routing;
+
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Thrown when a call waited too long for one of the connections allowed to
+ * a server.
+ */
+public class ConnectionLimitException extends WebServiceException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ConnectionLimitException(final String message) {
+		super(message);
+	}
+}
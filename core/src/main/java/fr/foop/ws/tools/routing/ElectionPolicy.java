@@ -0,0 +1,22 @@
+package fr.foop.ws.tools.routing;
+
+/**
+ * How the server is chosen when several are probed at the same time.
+ */
+public enum ElectionPolicy {
+
+	/**
+	 * The first server up in the configured order, as the sequential
+	 * election does.
+	 */
+	PRIORITY,
+
+	/**
+	 * The first server answering its health check.
+	 */
+	FASTEST;
+
+	public static ElectionPolicy fromName(final String name) {
+		return valueOf(name.trim().replace('-', '_').toUpperCase());
+	}
+}
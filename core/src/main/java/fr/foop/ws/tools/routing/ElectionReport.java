@@ -0,0 +1,41 @@
+package fr.foop.ws.tools.routing;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * What each server probe returned during the election, and how long the
+ * election took.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class ElectionReport<Port> {
+
+	public final ImmutableList<ProbeResult<Port>> results;
+	public final long durationNanos;
+
+	public ElectionReport(final List<ProbeResult<Port>> results,
+			final long durationNanos) {
+		this.results = ImmutableList.copyOf(results);
+		this.durationNanos = durationNanos;
+	}
+
+	public static <Port> ElectionReport<Port> empty() {
+		return new ElectionReport<Port>(ImmutableList.<ProbeResult<Port>> of(),
+				0);
+	}
+
+	public long durationMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+	}
+
+	@Override
+	public String toString() {
+		return "election in " + durationMillis() + "ms : ["
+				+ Joiner.on(", ").join(results) + "]";
+	}
+}
@@ -0,0 +1,16 @@
+package fr.foop.ws.tools.routing;
+
+import java.util.List;
+
+/**
+ * Pick the server node receiving a call.
+ */
+public interface LoadBalancer {
+
+	/**
+	 * @param nodes
+	 *            the candidates, never empty.
+	 * @return the selected node.
+	 */
+	<Port> ServerNode<Port> select(final List<ServerNode<Port>> nodes);
+}
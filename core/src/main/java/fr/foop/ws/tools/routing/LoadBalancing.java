@@ -0,0 +1,143 @@
+package fr.foop.ws.tools.routing;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The available routing strategies between the configured servers.
+ */
+public enum LoadBalancing {
+
+	/**
+	 * All calls go to the first server found up when the client is built.
+	 */
+	FAILOVER {
+		@Override
+		public LoadBalancer newBalancer() {
+			return new LoadBalancer() {
+				@Override
+				public <Port> ServerNode<Port> select(
+						final List<ServerNode<Port>> nodes) {
+					return nodes.get(0);
+				}
+			};
+		}
+	},
+
+	/**
+	 * Each call goes to the next server in turn.
+	 */
+	ROUND_ROBIN {
+		@Override
+		public LoadBalancer newBalancer() {
+			return new LoadBalancer() {
+				private final AtomicInteger next = new AtomicInteger();
+
+				@Override
+				public <Port> ServerNode<Port> select(
+						final List<ServerNode<Port>> nodes) {
+					return nodes.get(indexOf(next.getAndIncrement(), nodes));
+				}
+			};
+		}
+	},
+
+	/**
+	 * Each call goes to the server with the fewest calls in progress.
+	 */
+	LEAST_OUTSTANDING {
+		@Override
+		public LoadBalancer newBalancer() {
+			return new LoadBalancer() {
+				private final AtomicInteger next = new AtomicInteger();
+
+				@Override
+				public <Port> ServerNode<Port> select(
+						final List<ServerNode<Port>> nodes) {
+					// Start the scan on a rotating offset so ties are spread.
+					final int offset = indexOf(next.getAndIncrement(), nodes);
+					ServerNode<Port> best = null;
+
+					for (int i = 0; i < nodes.size(); ++i) {
+						final ServerNode<Port> node = nodes.get((offset + i)
+								% nodes.size());
+						if (best == null
+								|| node.outstanding() < best.outstanding()) {
+							best = node;
+						}
+					}
+
+					return best;
+				}
+			};
+		}
+	},
+
+	/**
+	 * Each call goes to the server with the lowest latency moving average,
+	 * weighted by the calls in progress on it, so a slow server quickly loses
+	 * traffic. A server not answered yet is taken as an average one, neither
+	 * flooded nor starved.
+	 */
+	EWMA {
+		@Override
+		public LoadBalancer newBalancer() {
+			return new LoadBalancer() {
+				private final AtomicInteger next = new AtomicInteger();
+
+				@Override
+				public <Port> ServerNode<Port> select(
+						final List<ServerNode<Port>> nodes) {
+					final int offset = indexOf(next.getAndIncrement(), nodes);
+					final double unknown = meanEwmaMillis(nodes);
+					ServerNode<Port> best = null;
+					double bestCost = Double.MAX_VALUE;
+
+					for (int i = 0; i < nodes.size(); ++i) {
+						final ServerNode<Port> node = nodes.get((offset + i)
+								% nodes.size());
+						final double ewma = node.ewmaMillis();
+						final double cost = (ewma == 0 ? unknown : ewma)
+								* (node.outstanding() + 1);
+						if (cost < bestCost) {
+							best = node;
+							bestCost = cost;
+						}
+					}
+
+					return best;
+				}
+			};
+		}
+	};
+
+	public abstract LoadBalancer newBalancer();
+
+	/**
+	 * @return the mean latency of the answered nodes, 0 when none was.
+	 */
+	private static double meanEwmaMillis(final List<? extends ServerNode<?>> nodes) {
+		double total = 0;
+		int answered = 0;
+		for (final ServerNode<?> node : nodes) {
+			final double ewma = node.ewmaMillis();
+			if (ewma > 0) {
+				total += ewma;
+				answered++;
+			}
+		}
+		return answered == 0 ? 0 : total / answered;
+	}
+
+	private static int indexOf(final int counter, final List<?> nodes) {
+		return (counter & Integer.MAX_VALUE) % nodes.size();
+	}
+
+	/**
+	 * Parse a strategy name, as found in properties, such as
+	 * <code>round-robin</code> or <code>ROUND_ROBIN</code>.
+	 */
+	public static LoadBalancing fromName(final String name) {
+		return valueOf(name.trim().replace('-', '_').toUpperCase());
+	}
+}
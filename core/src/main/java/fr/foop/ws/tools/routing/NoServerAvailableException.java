@@ -0,0 +1,15 @@
+package fr.foop.ws.tools.routing;
+
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Thrown when a call cannot be routed because every server is down.
+ */
+public class NoServerAvailableException extends WebServiceException {
+
+	private static final long serialVersionUID = 1L;
+
+	public NoServerAvailableException(final String message) {
+		super(message);
+	}
+}
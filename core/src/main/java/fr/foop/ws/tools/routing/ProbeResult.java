@@ -0,0 +1,74 @@
+package fr.foop.ws.tools.routing;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+
+/**
+ * The outcome of the health check of one server during election.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class ProbeResult<Port> {
+
+	public enum Status {
+		UP, DOWN, CANCELLED
+	}
+
+	public final String server;
+	public final Status status;
+	public final long durationNanos;
+	public final Optional<String> error;
+
+	private final Optional<Port> port;
+
+	private ProbeResult(final String server, final Status status,
+			final long durationNanos, final Optional<Port> port,
+			final Optional<String> error) {
+		this.server = server;
+		this.status = status;
+		this.durationNanos = durationNanos;
+		this.port = port;
+		this.error = error;
+	}
+
+	public static <Port> ProbeResult<Port> up(final String server,
+			final long durationNanos, final Port port) {
+		return new ProbeResult<Port>(server, Status.UP, durationNanos,
+				Optional.of(port), Optional.<String> absent());
+	}
+
+	public static <Port> ProbeResult<Port> down(final String server,
+			final long durationNanos, final Port port, final String error) {
+		return new ProbeResult<Port>(server, Status.DOWN, durationNanos,
+				Optional.fromNullable(port), Optional.fromNullable(error));
+	}
+
+	public static <Port> ProbeResult<Port> cancelled(final String server) {
+		return new ProbeResult<Port>(server, Status.CANCELLED, 0,
+				Optional.<Port> absent(), Optional.<String> absent());
+	}
+
+	/**
+	 * @return the probed port, absent if it could not be instanciated or the
+	 *         probe was cancelled.
+	 */
+	public Optional<Port> port() {
+		return port;
+	}
+
+	public boolean isUp() {
+		return status == Status.UP;
+	}
+
+	public long durationMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+	}
+
+	@Override
+	public String toString() {
+		return server + "=" + status + " in " + durationMillis() + "ms"
+				+ (error.isPresent() ? " (" + error.get() + ")" : "");
+	}
+}
@@ -0,0 +1,76 @@
+package fr.foop.ws.tools.routing;
+
+import java.lang.reflect.Method;
+
+import com.google.common.base.Optional;
+
+import fr.foop.ws.tools.deadline.Deadline;
+import fr.foop.ws.tools.invocation.PortInvoker;
+import fr.foop.ws.tools.metrics.CallMetrics;
+import fr.foop.ws.tools.metrics.ClientMetrics;
+import fr.foop.ws.tools.ratelimit.RateLimits;
+
+/**
+ * Route each call to a server node elected by the router.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class RoutingInvoker<Port> implements PortInvoker {
+
+	private final ServerRouter<Port> router;
+	private final Optional<ClientMetrics> metrics;
+	private final Optional<RateLimits> rateLimits;
+
+	public RoutingInvoker(final ServerRouter<Port> router,
+			final Optional<ClientMetrics> metrics,
+			final Optional<RateLimits> rateLimits) {
+		this.router = router;
+		this.metrics = metrics;
+		this.rateLimits = rateLimits;
+	}
+
+	@Override
+	public Object invoke(final Method method, final Object[] args)
+			throws Throwable {
+		return invokeOn(router.select(), method, args);
+	}
+
+	/**
+	 * Call the given server node within the rate limits, recording the server
+	 * metrics. Fail fast when the caller deadline has passed.
+	 */
+	public Object invokeOn(final ServerNode<Port> node, final Method method,
+			final Object[] args) throws Throwable {
+		Deadline.check(method.getName());
+		if (rateLimits.isPresent()) {
+			rateLimits.get().acquire(method);
+		}
+
+		if (!metrics.isPresent()) {
+			return node.invoke(method, args);
+		}
+
+		final CallMetrics server = metrics.get().forServer(node.server());
+		final long start = server.callStarted();
+		Throwable failure = null;
+
+		try {
+			return node.invoke(method, args);
+		} catch (Throwable t) {
+			failure = t;
+			throw t;
+		} finally {
+			server.callEnded(start, failure);
+		}
+	}
+
+	public ServerRouter<Port> router() {
+		return router;
+	}
+
+	@Override
+	public String toString() {
+		return router.nodes().toString();
+	}
+}
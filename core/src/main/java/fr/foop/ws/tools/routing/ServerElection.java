@@ -0,0 +1,256 @@
+package fr.foop.ws.tools.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.cxf.frontend.ClientProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import fr.foop.ws.tools.health.HealthChecker.Probe;
+import fr.foop.ws.tools.health.HealthChecker.ProbePortFactory;
+
+/**
+ * Probe the configured servers, one after the other or concurrently on a
+ * bounded number of threads.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class ServerElection<Port> {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(ServerElection.class);
+
+	private final ProbePortFactory<Port> portFactory;
+	private final Probe<Port> probe;
+	private final int parallelism;
+
+	/**
+	 * @param parallelism
+	 *            the maximum number of servers probed at the same time, 1
+	 *            probes the servers one after the other on the caller thread.
+	 */
+	public ServerElection(final ProbePortFactory<Port> portFactory,
+			final Probe<Port> probe, final int parallelism) {
+		this.portFactory = portFactory;
+		this.probe = probe;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Find one server up. Once the winner is known, the pending probes are
+	 * cancelled, and the ports they created destroyed.
+	 */
+	public ElectionReport<Port> elect(final List<String> servers,
+			final ElectionPolicy policy) {
+		return run(servers, Optional.of(policy));
+	}
+
+	/**
+	 * Probe all the servers.
+	 */
+	public ElectionReport<Port> probeAll(final List<String> servers) {
+		return run(servers, Optional.<ElectionPolicy> absent());
+	}
+
+	private ElectionReport<Port> run(final List<String> servers,
+			final Optional<ElectionPolicy> policy) {
+		final long start = System.nanoTime();
+		final List<ProbeResult<Port>> results;
+
+		if (parallelism == 1 || servers.size() < 2) {
+			results = runSequentially(servers, policy.isPresent());
+		} else {
+			results = runConcurrently(servers, policy);
+		}
+
+		return new ElectionReport<Port>(results, System.nanoTime() - start);
+	}
+
+	private List<ProbeResult<Port>> runSequentially(
+			final List<String> servers, final boolean stopOnFirstUp) {
+		final List<ProbeResult<Port>> results = new ArrayList<ProbeResult<Port>>();
+		boolean found = false;
+
+		for (final String server : servers) {
+			if (found) {
+				results.add(ProbeResult.<Port> cancelled(server));
+			} else {
+				final ProbeResult<Port> result = probe(server);
+				results.add(result);
+				found = stopOnFirstUp && result.isUp();
+			}
+		}
+
+		return results;
+	}
+
+	private List<ProbeResult<Port>> runConcurrently(
+			final List<String> servers, final Optional<ElectionPolicy> policy) {
+		final ExecutorService executor = Executors.newFixedThreadPool(Math
+				.min(parallelism, servers.size()), new ThreadFactoryBuilder()
+				.setDaemon(true).setNameFormat("cxf-client-election-%d")
+				.build());
+
+		final List<ProbeTask> tasks = new ArrayList<ProbeTask>();
+		final List<Future<Indexed>> futures = new ArrayList<Future<Indexed>>();
+		final List<ProbeResult<Port>> results = new ArrayList<ProbeResult<Port>>(
+				Collections.<ProbeResult<Port>> nCopies(servers.size(), null));
+
+		try {
+			final CompletionService<Indexed> completion = new ExecutorCompletionService<Indexed>(
+					executor);
+
+			for (int i = 0; i < servers.size(); ++i) {
+				final ProbeTask task = new ProbeTask(i, servers.get(i));
+				tasks.add(task);
+				futures.add(completion.submit(task));
+			}
+
+			for (int done = 0; done < servers.size(); ++done) {
+				final Indexed next = completion.take().get();
+				results.set(next.index, next.result);
+
+				if (policy.isPresent() && isDecided(results, policy.get())) {
+					break;
+				}
+			}
+
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("interrupted during server election", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("failed to probe servers", e.getCause());
+		} finally {
+			// Also on failure, so that no probe port is left behind.
+			for (int i = 0; i < results.size(); ++i) {
+				if (results.get(i) == null) {
+					drop(tasks.get(i), futures.get(i));
+					results.set(i, ProbeResult.<Port> cancelled(servers.get(i)));
+				}
+			}
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Cancel a probe not taken into account, or destroy its port when it
+	 * was already handed over.
+	 */
+	private void drop(final ProbeTask task, final Future<Indexed> future) {
+		if (task.abandon()) {
+			future.cancel(true);
+			return;
+		}
+		try {
+			destroy(Uninterruptibles.getUninterruptibly(future).result);
+		} catch (ExecutionException e) {
+			LOGGER.debug("Failed to probe server " + task.server, e);
+		}
+	}
+
+	/**
+	 * Destroy the CXF client of a probed port which will not be used.
+	 */
+	private static void destroy(final ProbeResult<?> result) {
+		if (!result.port().isPresent()) {
+			return;
+		}
+		try {
+			ClientProxy.getClient(result.port().get()).destroy();
+		} catch (RuntimeException e) {
+			LOGGER.debug("Failed to destroy the probe port of " + result.server,
+					e);
+		}
+	}
+
+	/**
+	 * @return true when the results known so far are enough to pick the
+	 *         server according to the policy.
+	 */
+	private boolean isDecided(final List<ProbeResult<Port>> results,
+			final ElectionPolicy policy) {
+		for (final ProbeResult<Port> result : results) {
+			if (result == null) {
+				if (policy == ElectionPolicy.PRIORITY) {
+					return false;
+				}
+			} else if (result.isUp()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private ProbeResult<Port> probe(final String server) {
+		final long start = System.nanoTime();
+		Port port = null;
+
+		try {
+			port = portFactory.create(server);
+			probe.check(port);
+			return ProbeResult.up(server, System.nanoTime() - start, port);
+		} catch (Exception e) {
+			LOGGER.debug("Failed to probe server " + server, e);
+			return ProbeResult.down(server, System.nanoTime() - start, port,
+					e.getMessage());
+		}
+	}
+
+	/**
+	 * The probe of a server, handing its result over to the election, or
+	 * destroying its port when abandoned by the election first.
+	 */
+	private class ProbeTask implements Callable<Indexed> {
+		private final int index;
+		private final String server;
+		private final AtomicBoolean settled = new AtomicBoolean();
+
+		private ProbeTask(final int index, final String server) {
+			this.index = index;
+			this.server = server;
+		}
+
+		@Override
+		public Indexed call() {
+			final ProbeResult<Port> result = probe(server);
+			if (!settled.compareAndSet(false, true)) {
+				destroy(result);
+			}
+			return new Indexed(index, result);
+		}
+
+		/**
+		 * @return false when the result is already handed over.
+		 */
+		private boolean abandon() {
+			return settled.compareAndSet(false, true);
+		}
+	}
+
+	private class Indexed {
+		private final int index;
+		private final ProbeResult<Port> result;
+
+		private Indexed(final int index, final ProbeResult<Port> result) {
+			this.index = index;
+			this.result = result;
+		}
+	}
+}
@@ -0,0 +1,334 @@
+package fr.foop.ws.tools.routing;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+import fr.foop.ws.tools.deadline.Deadline;
+import fr.foop.ws.tools.health.CircuitBreaker;
+import fr.foop.ws.tools.pool.PortLease;
+import fr.foop.ws.tools.pool.PortPool;
+import fr.foop.ws.tools.pool.PortPoolStats;
+
+/**
+ * One of the configured servers, with the port (or port pool) pointing to it
+ * and the live statistics used to route calls.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class ServerNode<Port> {
+
+	/**
+	 * Weight of the latest call in the latency moving average.
+	 */
+	private static final double EWMA_ALPHA = 0.3;
+
+	private final String server;
+	private final Optional<Port> port;
+	private final Optional<PortPool<Port>> pool;
+	private final Optional<CircuitBreaker> breaker;
+	private final ConnectionLimit connections;
+	private final Optional<ConcurrencyLimiter> limiter;
+
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong ewmaNanos = new AtomicLong(
+			Double.doubleToLongBits(0));
+
+	private ServerNode(final String server, final Optional<Port> port,
+			final Optional<PortPool<Port>> pool,
+			final Optional<CircuitBreaker> breaker,
+			final ConnectionLimit connections,
+			final Optional<ConcurrencyLimiter> limiter) {
+		this.server = server;
+		this.port = port;
+		this.pool = pool;
+		this.breaker = breaker;
+		this.connections = connections;
+		this.limiter = limiter;
+	}
+
+	public static <Port> ServerNode<Port> single(final String server,
+			final Port port, final Optional<CircuitBreaker> breaker,
+			final ConnectionLimit connections,
+			final Optional<ConcurrencyLimiter> limiter) {
+		return new ServerNode<Port>(server, Optional.of(port),
+				Optional.<PortPool<Port>> absent(), breaker, connections,
+				limiter);
+	}
+
+	public static <Port> ServerNode<Port> pooled(final String server,
+			final PortPool<Port> pool, final Optional<CircuitBreaker> breaker,
+			final ConnectionLimit connections,
+			final Optional<ConcurrencyLimiter> limiter) {
+		return new ServerNode<Port>(server, Optional.<Port> absent(),
+				Optional.of(pool), breaker, connections, limiter);
+	}
+
+	/**
+	 * Call the method on this server port, leasing one from the pool when
+	 * pooled, and record the call statistics. The call is rejected or waits
+	 * when over the server concurrency limit, and waits for a connection when
+	 * the server connection limit is reached.
+	 */
+	public Object invoke(final Method method, final Object[] args)
+			throws Throwable {
+		final long start = callStarted();
+		Throwable failure = null;
+
+		try {
+			if (pool.isPresent()) {
+				try (final PortLease<Port> lease = pool.get().lease()) {
+					return method.invoke(lease.port(), args);
+				}
+			} else {
+				return method.invoke(port.get(), args);
+			}
+		} catch (InvocationTargetException e) {
+			failure = e.getCause();
+			throw failure;
+		} catch (Throwable t) {
+			failure = t;
+			throw failure;
+		} finally {
+			callEnded(start, failure);
+		}
+	}
+
+	private void acquire(final boolean wait) {
+		if (limiter.isPresent()) {
+			if (wait) {
+				limiter.get().acquire(server);
+			} else {
+				limiter.get().acquireNow(server);
+			}
+		}
+
+		try {
+			if (wait) {
+				connections.acquire(server);
+			} else {
+				connections.acquireNow(server);
+			}
+		} catch (RuntimeException e) {
+			if (limiter.isPresent()) {
+				limiter.get().cancel();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Start a call made outside of {@link #invoke}, such as a streaming call,
+	 * within the server concurrency and connection limits.
+	 * 
+	 * @return the start time to give back to {@link #callEnded}.
+	 * @throws ConcurrencyLimitException
+	 *             when over the concurrency limit.
+	 * @throws ConnectionLimitException
+	 *             when no connection is available in time.
+	 */
+	public long callStarted() {
+		acquire(true);
+		outstanding.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Start a call which must not wait, such as an asynchronous call, only
+	 * when under the server concurrency and connection limits.
+	 * 
+	 * @return the start time to give back to {@link #callEnded}.
+	 * @throws ConcurrencyLimitException
+	 *             when over the concurrency limit.
+	 * @throws ConnectionLimitException
+	 *             when all the connections are in use.
+	 */
+	public long callStartedNow() {
+		acquire(false);
+		outstanding.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record the end of a call, and release its limits. A call failing once
+	 * the caller deadline has passed counts neither for the circuit breaker
+	 * nor for the concurrency limit, and must end on the caller thread or
+	 * with its deadline propagated.
+	 * 
+	 * @param start
+	 *            the value returned by {@link #callStarted}.
+	 * @param failure
+	 *            the call failure, null when the call succeeded.
+	 */
+	public void callEnded(final long start, final Throwable failure) {
+		final long nanos = System.nanoTime() - start;
+		outstanding.decrementAndGet();
+		connections.release();
+
+		if (failure instanceof Error || failure != null && isDeadlineExceeded()) {
+			// Failed in the client, or cut short by the caller deadline :
+			// nothing is known of the server.
+			if (limiter.isPresent()) {
+				limiter.get().cancel();
+			}
+			record(nanos, true, false);
+			return;
+		}
+
+		if (limiter.isPresent()) {
+			limiter.get().release(nanos,
+					failure != null && isServerFailure(failure));
+		}
+		record(nanos, failure != null, failure == null
+				|| !isServerFailure(failure));
+
+		if (breaker.isPresent()) {
+			if (failure == null) {
+				breaker.get().onSuccess();
+			} else if (isServerFailure(failure)) {
+				breaker.get().onFailure();
+			}
+		}
+	}
+
+	/**
+	 * A SOAP fault is an answer from a living server, any other web service
+	 * exception is a transport failure.
+	 */
+	private static boolean isServerFailure(final Throwable t) {
+		return t instanceof WebServiceException
+				&& !(t instanceof SOAPFaultException);
+	}
+
+	/**
+	 * The connection and receive timeouts are capped to the caller deadline,
+	 * so a call failing once it has passed may have been cut short by it.
+	 */
+	private static boolean isDeadlineExceeded() {
+		final Optional<Deadline> deadline = Deadline.current();
+		return deadline.isPresent() && deadline.get().isExpired();
+	}
+
+	/**
+	 * @param answered
+	 *            true when the server answered, with a response or a fault :
+	 *            the latency of a transport failure tells nothing of the
+	 *            server speed, a refused connection failing fastest.
+	 */
+	private void record(final long nanos, final boolean failed,
+			final boolean answered) {
+		calls.incrementAndGet();
+		if (failed) {
+			failures.incrementAndGet();
+		}
+		if (!answered) {
+			return;
+		}
+
+		long current = ewmaNanos.get();
+		while (true) {
+			final double previous = Double.longBitsToDouble(current);
+			final double next = previous == 0 ? nanos : previous
+					+ EWMA_ALPHA * (nanos - previous);
+			if (ewmaNanos.compareAndSet(current, Double.doubleToLongBits(next))) {
+				return;
+			}
+			current = ewmaNanos.get();
+		}
+	}
+
+	public PortLease<Port> lease() {
+		if (!pool.isPresent()) {
+			throw new IllegalStateException(
+					"port pool is not enabled for server : " + server);
+		}
+		return pool.get().lease();
+	}
+
+	/**
+	 * @return the port of this server, or the idle ports removed from its
+	 *         pool.
+	 */
+	public List<Port> evictPorts() {
+		if (pool.isPresent()) {
+			return pool.get().evictIdle();
+		}
+		return ImmutableList.of(port.get());
+	}
+
+	public String server() {
+		return server;
+	}
+
+	/**
+	 * @return the port when not pooled, absent otherwise.
+	 */
+	public Optional<Port> port() {
+		return port;
+	}
+
+	public Optional<CircuitBreaker> breaker() {
+		return breaker;
+	}
+
+	/**
+	 * @return the concurrency limiter of this server, absent when not
+	 *         limited.
+	 */
+	public Optional<ConcurrencyLimiter> limiter() {
+		return limiter;
+	}
+
+	public boolean isPooled() {
+		return pool.isPresent();
+	}
+
+	public Optional<PortPoolStats> poolStats() {
+		if (pool.isPresent()) {
+			return Optional.of(pool.get().stats());
+		}
+		return Optional.absent();
+	}
+
+	public int outstanding() {
+		return outstanding.get();
+	}
+
+	public long calls() {
+		return calls.get();
+	}
+
+	public long failures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return the exponentially weighted moving average of the latency of the
+	 *         answered calls, 0 until the first answer.
+	 */
+	public double ewmaMillis() {
+		return Double.longBitsToDouble(ewmaNanos.get())
+				/ TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public String toString() {
+		return "ServerNode [server=" + server + ", outstanding="
+				+ outstanding() + ", calls=" + calls() + ", failures="
+				+ failures() + ", ewmaMillis=" + ewmaMillis()
+				+ (breaker.isPresent() ? ", " + breaker.get() : "")
+				+ (limiter.isPresent() ? ", " + limiter.get() : "") + "]";
+	}
+}
@@ -0,0 +1,133 @@
+package fr.foop.ws.tools.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+import fr.foop.ws.tools.health.CircuitBreaker;
+import fr.foop.ws.tools.health.CircuitBreaker.State;
+
+/**
+ * Select the server node receiving a call among the nodes whose circuit
+ * breaker is closed.
+ * 
+ * The list of available nodes is rebuilt when a breaker changes state and
+ * swapped atomically, so callers never wait on a failover.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class ServerRouter<Port> {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(ServerRouter.class);
+
+	private final ImmutableList<ServerNode<Port>> nodes;
+	private final LoadBalancer balancer;
+	private final AtomicReference<ImmutableList<ServerNode<Port>>> available;
+	private final AtomicLong refreshes = new AtomicLong();
+
+	public ServerRouter(final List<ServerNode<Port>> nodes,
+			final LoadBalancer balancer) {
+		this.nodes = ImmutableList.copyOf(nodes);
+		this.balancer = balancer;
+		this.available = new AtomicReference<ImmutableList<ServerNode<Port>>>(
+				availableNodes());
+
+		for (final ServerNode<Port> node : nodes) {
+			if (node.breaker().isPresent()) {
+				node.breaker().get().setListener(new CircuitBreaker.Listener() {
+					@Override
+					public void stateChanged(final CircuitBreaker breaker,
+							final State from, final State to) {
+						LOGGER.info("Server [{}] is now {}", node.server(), to);
+						refresh();
+					}
+				});
+			}
+		}
+	}
+
+	private ImmutableList<ServerNode<Port>> availableNodes() {
+		final ImmutableList.Builder<ServerNode<Port>> up = ImmutableList
+				.builder();
+
+		for (final ServerNode<Port> node : nodes) {
+			if (!node.breaker().isPresent()
+					|| node.breaker().get().isCallPermitted()) {
+				up.add(node);
+			}
+		}
+
+		return up.build();
+	}
+
+	/**
+	 * Rebuild the list of available nodes after a breaker state change. A
+	 * list built while another state change happened may be stale and set
+	 * last, so it is built again until no refresh was requested meanwhile.
+	 */
+	public void refresh() {
+		long seen = refreshes.incrementAndGet();
+		while (true) {
+			available.set(availableNodes());
+			final long current = refreshes.get();
+			if (current == seen) {
+				return;
+			}
+			seen = current;
+		}
+	}
+
+	/**
+	 * @return the node to call.
+	 * @throws NoServerAvailableException
+	 *             when all the servers are down.
+	 */
+	public ServerNode<Port> select() {
+		final ImmutableList<ServerNode<Port>> candidates = available.get();
+
+		if (candidates.isEmpty()) {
+			throw new NoServerAvailableException("no server available among "
+					+ nodes);
+		}
+
+		return balancer.select(candidates);
+	}
+
+	/**
+	 * @return another node to call, absent when the excluded node is the only
+	 *         one available.
+	 */
+	public Optional<ServerNode<Port>> selectOther(final ServerNode<Port> excluded) {
+		final ImmutableList<ServerNode<Port>> candidates = available.get();
+		final List<ServerNode<Port>> others = new ArrayList<ServerNode<Port>>(
+				candidates.size());
+
+		for (final ServerNode<Port> node : candidates) {
+			if (node != excluded) {
+				others.add(node);
+			}
+		}
+
+		if (others.isEmpty()) {
+			return Optional.absent();
+		}
+		return Optional.of(balancer.select(others));
+	}
+
+	public ImmutableList<ServerNode<Port>> nodes() {
+		return nodes;
+	}
+
+	public ImmutableList<ServerNode<Port>> available() {
+		return available.get();
+	}
+}
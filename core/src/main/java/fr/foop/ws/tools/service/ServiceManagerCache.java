@@ -0,0 +1,134 @@
+package fr.foop.ws.tools.service;
+
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * The service managers shared by all the ports of a contract, across
+ * clients : the service model, the WSDL definition and the JAXB context are
+ * built once per service manager class instead of once per port.
+ * 
+ * The classes are weakly referenced, so that an undeployed application does
+ * not leak, and the service managers are released under memory pressure.
+ * Ports are created one at a time from a shared service manager, as JAX-WS
+ * does not require services to be thread safe.
+ */
+public final class ServiceManagerCache {
+
+	private static final ServiceManagerCache SHARED = new ServiceManagerCache(
+			Optional.<Bus> absent());
+
+	private final Optional<Bus> bus;
+	private final LoadingCache<Class<?>, Object> noEndpoint;
+	private final LoadingCache<Class<?>, Object> withDefaultWsdl;
+
+	/**
+	 * @param bus
+	 *            the bus of the service managers, the thread default one when
+	 *            absent.
+	 */
+	private ServiceManagerCache(final Optional<Bus> bus) {
+		this.bus = bus;
+		this.noEndpoint = CacheBuilder.newBuilder().weakKeys().softValues()
+				.build(new CacheLoader<Class<?>, Object>() {
+					@Override
+					public Object load(final Class<?> smClazz) throws Exception {
+						return create(smClazz, true);
+					}
+				});
+		this.withDefaultWsdl = CacheBuilder.newBuilder().weakKeys()
+				.softValues().build(new CacheLoader<Class<?>, Object>() {
+					@Override
+					public Object load(final Class<?> smClazz) throws Exception {
+						return create(smClazz, false);
+					}
+				});
+	}
+
+	/**
+	 * The service managers of the given bus.
+	 */
+	public ServiceManagerCache(final Bus bus) {
+		this(Optional.of(bus));
+	}
+
+	/**
+	 * @return the service managers of the thread default bus, shared by the
+	 *         clients without a bus of their own.
+	 */
+	public static ServiceManagerCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * @return the shared service manager without WSDL location, for ports
+	 *         which endpoint is configured.
+	 */
+	public <ServiceManager> ServiceManager noEndpoint(
+			final Class<ServiceManager> smClazz) {
+		return get(noEndpoint, smClazz);
+	}
+
+	/**
+	 * @return the shared service manager built from its default WSDL location.
+	 */
+	public <ServiceManager> ServiceManager withDefaultWsdl(
+			final Class<ServiceManager> smClazz) {
+		return get(withDefaultWsdl, smClazz);
+	}
+
+	/**
+	 * Drop the shared service managers, the next ports get new ones.
+	 */
+	public void clear() {
+		noEndpoint.invalidateAll();
+		withDefaultWsdl.invalidateAll();
+	}
+
+	/**
+	 * Create the service manager with the bus as thread default bus, which the
+	 * JAX-WS service and its ports then use.
+	 */
+	private Object create(final Class<?> smClazz, final boolean noWsdl)
+			throws Exception {
+		if (!bus.isPresent()) {
+			return newInstance(smClazz, noWsdl);
+		}
+
+		final Bus previous = BusFactory.getThreadDefaultBus(false);
+		BusFactory.setThreadDefaultBus(bus.get());
+		try {
+			return newInstance(smClazz, noWsdl);
+		} finally {
+			BusFactory.setThreadDefaultBus(previous);
+		}
+	}
+
+	private static Object newInstance(final Class<?> smClazz,
+			final boolean noWsdl) throws Exception {
+		return noWsdl ? smClazz.getConstructor(URL.class).newInstance(
+				(URL) null) : smClazz.newInstance();
+	}
+
+	private static <ServiceManager> ServiceManager get(
+			final LoadingCache<Class<?>, Object> cache,
+			final Class<ServiceManager> smClazz) {
+		try {
+			return smClazz.cast(cache.getUnchecked(smClazz));
+		} catch (UncheckedExecutionException e) {
+			final Throwable cause = e.getCause() instanceof InvocationTargetException ? e
+					.getCause().getCause() : e.getCause();
+			throw new RuntimeException(
+					"failed to instanciate new service manager", cause);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package fr.foop.ws.tools.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The CXF bus, service managers and threads shared by several clients : the
+ * clients built with them create their ports on the bus, run their health
+ * checks on the shared timer, and their cache refreshes and hedged calls on
+ * the shared workers, instead of their own.
+ */
+public class SharedResources implements AutoCloseable {
+
+	private final Bus bus;
+	private final ServiceManagerCache serviceManagers;
+	private final ScheduledExecutorService timer;
+	private final ExecutorService workers;
+
+	/**
+	 * @param bus
+	 *            the configured bus, with its HTTP conduit and work queue
+	 *            settings.
+	 * @param timerThreads
+	 *            the threads running the health checks.
+	 */
+	public SharedResources(final Bus bus, final int timerThreads) {
+		this.bus = bus;
+		this.serviceManagers = new ServiceManagerCache(bus);
+		this.timer = Executors.newScheduledThreadPool(timerThreads,
+				new ThreadFactoryBuilder().setDaemon(true)
+						.setNameFormat("cxf-client-timer-%d").build());
+		this.workers = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+				.setDaemon(true).setNameFormat("cxf-client-worker-%d").build());
+	}
+
+	/**
+	 * Share a new bus, with a single timer thread.
+	 */
+	public SharedResources() {
+		this(BusFactory.newInstance().createBus(), 1);
+	}
+
+	public Bus bus() {
+		return bus;
+	}
+
+	public ServiceManagerCache serviceManagers() {
+		return serviceManagers;
+	}
+
+	public ScheduledExecutorService timer() {
+		return timer;
+	}
+
+	public ExecutorService workers() {
+		return workers;
+	}
+
+	/**
+	 * Stop the shared threads and shut the bus down, once the clients using
+	 * them are closed.
+	 */
+	@Override
+	public void close() {
+		timer.shutdownNow();
+		workers.shutdownNow();
+		bus.shutdown(true);
+	}
+}
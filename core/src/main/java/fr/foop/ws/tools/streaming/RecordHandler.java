@@ -0,0 +1,12 @@
+package fr.foop.ws.tools.streaming;
+
+/**
+ * Receive the records of a streamed response, one at a time, as soon as each
+ * of them is unmarshalled.
+ * 
+ * @param <T>
+ *            the record type.
+ */
+public interface RecordHandler<T> {
+	void onRecord(final T record);
+}
@@ -0,0 +1,80 @@
+package fr.foop.ws.tools.streaming;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The repeated elements to read from a response, and where to give them.
+ * 
+ * @param <T>
+ *            the record type.
+ */
+public class RecordStream<T> {
+
+	static final String KEY = RecordStream.class.getName();
+
+	private final String element;
+	private final Class<T> type;
+	private final RecordHandler<? super T> handler;
+	private long records;
+
+	/**
+	 * @param element
+	 *            the local name of the repeated elements, at any depth in the
+	 *            response body.
+	 * @param type
+	 *            the JAXB type of the elements.
+	 * @param handler
+	 */
+	public RecordStream(final String element, final Class<T> type,
+			final RecordHandler<? super T> handler) {
+		this.element = element;
+		this.type = type;
+		this.handler = handler;
+	}
+
+	/**
+	 * Unmarshal the matching elements one at a time, until the end of the
+	 * element the reader is in.
+	 */
+	void consume(final XMLStreamReader reader, final Unmarshaller unmarshaller)
+			throws XMLStreamException, JAXBException {
+		int depth = 0;
+		int event = reader.getEventType();
+
+		while (true) {
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (element.equals(reader.getLocalName())) {
+					handler.onRecord(unmarshaller.unmarshal(reader, type)
+							.getValue());
+					records++;
+					// The reader is left right after the end of the record.
+					event = reader.getEventType();
+					continue;
+				}
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (--depth < 0) {
+					return;
+				}
+			} else if (event == XMLStreamConstants.END_DOCUMENT) {
+				return;
+			}
+
+			if (!reader.hasNext()) {
+				return;
+			}
+			event = reader.next();
+		}
+	}
+
+	/**
+	 * @return the number of records given to the handler.
+	 */
+	public long records() {
+		return records;
+	}
+}
@@ -0,0 +1,90 @@
+package fr.foop.ws.tools.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.cxf.binding.soap.interceptor.RPCInInterceptor;
+import org.apache.cxf.databinding.DataBinding;
+import org.apache.cxf.interceptor.DocLiteralInInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.InterceptorChain;
+import org.apache.cxf.jaxb.JAXBDataBinding;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+/**
+ * Read the response of a streamed call from the StAX reader, record after
+ * record, in place of the JAXB unmarshalling of the whole response. Other
+ * calls are left untouched.
+ */
+public class StreamingInterceptor extends AbstractPhaseInterceptor<Message> {
+
+	public StreamingInterceptor() {
+		super(Phase.UNMARSHAL);
+		addBefore(DocLiteralInInterceptor.class.getName());
+		addBefore(RPCInInterceptor.class.getName());
+	}
+
+	@Override
+	public void handleMessage(final Message message) throws Fault {
+		final Message request = message.getExchange().getOutMessage();
+		final RecordStream<?> stream = request == null ? null
+				: (RecordStream<?>) request.get(RecordStream.KEY);
+		if (stream == null) {
+			return;
+		}
+
+		final DataBinding binding = message.getExchange().getService()
+				.getDataBinding();
+		if (!(binding instanceof JAXBDataBinding)) {
+			throw new Fault(new IllegalStateException(
+					"streamed responses require the JAXB data binding"));
+		}
+
+		final XMLStreamReader reader = message
+				.getContent(XMLStreamReader.class);
+		try {
+			stream.consume(reader, ((JAXBDataBinding) binding).getContext()
+					.createUnmarshaller());
+
+			while (reader.hasNext()) {
+				reader.next();
+			}
+			reader.close();
+			final InputStream in = message.getContent(InputStream.class);
+			if (in != null) {
+				in.close();
+			}
+		} catch (XMLStreamException | JAXBException | IOException e) {
+			throw new Fault(e);
+		}
+
+		// The records are consumed : the call returns nothing, and the
+		// unmarshalling interceptors are skipped. The chain is a copy made for
+		// this response, the following interceptors still run.
+		message.setContent(List.class, new MessageContentsList());
+		removeUnmarshalling(message.getInterceptorChain());
+	}
+
+	private static void removeUnmarshalling(final InterceptorChain chain) {
+		final List<Interceptor<? extends Message>> unmarshalling = new ArrayList<Interceptor<? extends Message>>();
+		for (final Interceptor<? extends Message> interceptor : chain) {
+			if (interceptor instanceof DocLiteralInInterceptor
+					|| interceptor instanceof RPCInInterceptor) {
+				unmarshalling.add(interceptor);
+			}
+		}
+		for (final Interceptor<? extends Message> interceptor : unmarshalling) {
+			chain.remove(interceptor);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package fr.foop.ws.tools.streaming;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.frontend.ClientProxy;
+import org.apache.cxf.service.invoker.MethodDispatcher;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMap;
+
+import fr.foop.ws.tools.async.AsyncCall;
+import fr.foop.ws.tools.async.Faults;
+import fr.foop.ws.tools.async.RecordedCall;
+import fr.foop.ws.tools.deadline.Deadline;
+import fr.foop.ws.tools.ratelimit.RateLimits;
+import fr.foop.ws.tools.routing.ServerNode;
+import fr.foop.ws.tools.routing.ServerRouter;
+
+/**
+ * Streaming facade of the client port, for operations returning many
+ * repeated elements : each of them is given to the handler as soon as it is
+ * read, instead of unmarshalling the whole response first. The ports are
+ * configured as the synchronous ones (endpoint, WSSE, loggers, timeouts).
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class StreamingPort<Port> {
+
+	private final Class<?> portClazz;
+	private final ServerRouter<Port> router;
+	private final ImmutableMap<String, Port> ports;
+	private final Optional<RateLimits> rateLimits;
+	private final Optional<Port> mockedPort;
+
+	/**
+	 * @param ports
+	 *            the streaming port of each router server.
+	 * @param rateLimits
+	 *            the rate limits shared with the synchronous port.
+	 */
+	public StreamingPort(final Class<?> portClazz,
+			final ServerRouter<Port> router, final Map<String, Port> ports,
+			final Optional<RateLimits> rateLimits) {
+		this(portClazz, router, ImmutableMap.copyOf(ports), rateLimits,
+				Optional.<Port> absent());
+	}
+
+	/**
+	 * Run the calls on the mocked port, and give the handler the records of
+	 * the returned collection.
+	 */
+	public static <Port> StreamingPort<Port> mocked(final Class<?> portClazz,
+			final Port mockedPort) {
+		return new StreamingPort<Port>(portClazz, null,
+				ImmutableMap.<String, Port> of(),
+				Optional.<RateLimits> absent(), Optional.of(mockedPort));
+	}
+
+	private StreamingPort(final Class<?> portClazz,
+			final ServerRouter<Port> router,
+			final ImmutableMap<String, Port> ports,
+			final Optional<RateLimits> rateLimits,
+			final Optional<Port> mockedPort) {
+		this.portClazz = portClazz;
+		this.router = router;
+		this.ports = ports;
+		this.rateLimits = rateLimits;
+		this.mockedPort = mockedPort;
+	}
+
+	/**
+	 * @return the port of each server, empty when mocked : they are destroyed
+	 *         with the client.
+	 */
+	public ImmutableCollection<Port> ports() {
+		return ports.values();
+	}
+
+	/**
+	 * Call the recorded operation, and give each <code>element</code> of the
+	 * response to the handler while the response is read. The call is checked
+	 * against the caller deadline, and waits for the rate, concurrency and
+	 * connection limits as a synchronous call.
+	 * 
+	 * @param call
+	 *            the operation to call, its returned value is ignored.
+	 * @param element
+	 *            the local name of the repeated elements.
+	 * @param type
+	 *            the JAXB type of the repeated elements.
+	 * @param handler
+	 * @return the number of records handled.
+	 */
+	public <T> long stream(final AsyncCall<Port, ?> call,
+			final String element, final Class<T> type,
+			final RecordHandler<? super T> handler) {
+		final RecordedCall recorded = RecordedCall.record(portClazz, call);
+
+		if (mockedPort.isPresent()) {
+			return streamMock(recorded, type, handler);
+		}
+
+		Deadline.check(recorded.method().getName());
+		if (rateLimits.isPresent()) {
+			rateLimits.get().acquire(recorded.method());
+		}
+
+		final ServerNode<Port> node = router.select();
+		final Port port = ports.get(node.server());
+		final Client client = ClientProxy.getClient(port);
+		final BindingOperationInfo operation = bindingOperation(client,
+				recorded);
+		final RecordStream<T> stream = new RecordStream<T>(element, type,
+				handler);
+
+		final Map<String, Object> requestContext = new HashMap<String, Object>(
+				client.getRequestContext());
+		requestContext.put(RecordStream.KEY, stream);
+		final Map<String, Object> context = new HashMap<String, Object>();
+		context.put(Client.REQUEST_CONTEXT, requestContext);
+		context.put(Client.RESPONSE_CONTEXT, new HashMap<String, Object>());
+
+		final long start = node.callStarted();
+		Throwable failure = null;
+		try {
+			client.invoke(operation, recorded.args(), context);
+			return stream.records();
+		} catch (Exception e) {
+			failure = Faults.toJaxWs(recorded.method(),
+					((BindingProvider) port).getBinding(), e);
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			throw new WebServiceException(failure);
+		} finally {
+			node.callEnded(start, failure);
+		}
+	}
+
+	private BindingOperationInfo bindingOperation(final Client client,
+			final RecordedCall recorded) {
+		final MethodDispatcher dispatcher = (MethodDispatcher) client
+				.getEndpoint().getService()
+				.get(MethodDispatcher.class.getName());
+
+		final BindingOperationInfo operation = dispatcher.getBindingOperation(
+				recorded.method(), client.getEndpoint());
+
+		if (operation == null) {
+			throw new IllegalArgumentException("no operation bound to "
+					+ recorded.method());
+		}
+
+		return operation;
+	}
+
+	private <T> long streamMock(final RecordedCall recorded,
+			final Class<T> type, final RecordHandler<? super T> handler) {
+		final Object result;
+		try {
+			result = recorded.method().invoke(mockedPort.get(),
+					recorded.args());
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new WebServiceException(e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new WebServiceException(e);
+		}
+
+		long records = 0;
+		if (result instanceof Iterable) {
+			for (final Object record : (Iterable<?>) result) {
+				if (type.isInstance(record)) {
+					handler.onRecord(type.cast(record));
+					records++;
+				}
+			}
+		}
+		return records;
+	}
+}
@@ -0,0 +1,60 @@
+package fr.foop.ws.tools.timing;
+
+import org.apache.cxf.phase.Phase;
+
+/**
+ * The steps of a SOAP call, each one starting at a CXF interceptor chain
+ * phase and lasting until the next step starts.
+ */
+public enum CallPhase {
+
+	/**
+	 * Out chain setup and logical handlers, until the body marshalling.
+	 */
+	PREPARE(false, Phase.SETUP),
+
+	/**
+	 * JAXB marshalling of the request body.
+	 */
+	MARSHAL(false, Phase.PRE_MARSHAL),
+
+	/**
+	 * SOAP protocol interceptors, such as the WS-Security header processing.
+	 */
+	SECURITY(false, Phase.POST_MARSHAL),
+
+	/**
+	 * Ending interceptors writing the message, such as the SAAJ document
+	 * serialization.
+	 */
+	SERIALIZE(false, Phase.SEND),
+
+	/**
+	 * Connection, request sending and wait for the response.
+	 */
+	NETWORK(false, Phase.PREPARE_SEND_ENDING),
+
+	/**
+	 * Response reading and in protocol interceptors, until the body
+	 * unmarshalling.
+	 */
+	RECEIVE(true, Phase.RECEIVE),
+
+	/**
+	 * JAXB unmarshalling of the response body.
+	 */
+	UNMARSHAL(true, Phase.UNMARSHAL),
+
+	/**
+	 * In logical interceptors, until the result is handed to the caller.
+	 */
+	COMPLETE(true, Phase.PRE_LOGICAL);
+
+	final boolean inbound;
+	final String cxfPhase;
+
+	private CallPhase(final boolean inbound, final String cxfPhase) {
+		this.inbound = inbound;
+		this.cxfPhase = cxfPhase;
+	}
+}
@@ -0,0 +1,84 @@
+package fr.foop.ws.tools.timing;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+/**
+ * Timestamp the start of a call phase. The first out interceptor reports
+ * calls aborted by a fault, the reporting interceptors report completed
+ * calls.
+ */
+public class PhaseMarkInterceptor extends AbstractPhaseInterceptor<Message> {
+
+	private final CallPhase phase;
+	private final PhaseTimingListener listener;
+
+	private PhaseMarkInterceptor(final String id, final String cxfPhase,
+			final CallPhase phase, final PhaseTimingListener listener) {
+		super(id, cxfPhase);
+		this.phase = phase;
+		this.listener = listener;
+	}
+
+	public static PhaseMarkInterceptor marking(final CallPhase phase,
+			final PhaseTimingListener listener) {
+		return new PhaseMarkInterceptor(PhaseMarkInterceptor.class.getName()
+				+ "." + phase, phase.cxfPhase, phase, listener);
+	}
+
+	/**
+	 * @return the interceptor reporting the call once the response is
+	 *         processed, at the end of the in chain.
+	 */
+	public static PhaseMarkInterceptor reportingIn(
+			final PhaseTimingListener listener) {
+		return new PhaseMarkInterceptor(PhaseMarkInterceptor.class.getName()
+				+ ".IN_END", Phase.POST_INVOKE, null, listener);
+	}
+
+	/**
+	 * @return the interceptor reporting calls without response, at the end of
+	 *         the out chain.
+	 */
+	public static PhaseMarkInterceptor reportingOut(
+			final PhaseTimingListener listener) {
+		return new PhaseMarkInterceptor(PhaseMarkInterceptor.class.getName()
+				+ ".OUT_END", Phase.SETUP_ENDING, null, listener);
+	}
+
+	public boolean isInbound() {
+		return phase == null ? Phase.POST_INVOKE.equals(getPhase())
+				: phase.inbound;
+	}
+
+	@Override
+	public void handleMessage(final Message message) throws Fault {
+		final PhaseTimeline timeline = PhaseTimeline.of(message);
+
+		if (phase != null) {
+			timeline.mark(phase);
+		} else if (Phase.POST_INVOKE.equals(getPhase())) {
+			timeline.report(message, false, listener);
+		} else if (message.getExchange().isOneWay()
+				|| message.getExchange().isSynchronous()) {
+			// Synchronous calls answered by a fault skip the in chain.
+			timeline.report(message, isFailed(message.getExchange()),
+					listener);
+		}
+	}
+
+	private static boolean isFailed(final Exchange exchange) {
+		return exchange.get(Exception.class) != null
+				|| exchange.getInFaultMessage() != null;
+	}
+
+	@Override
+	public void handleFault(final Message message) {
+		if (phase == CallPhase.PREPARE) {
+			PhaseTimeline.of(message).report(message, true, listener);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package fr.foop.ws.tools.timing;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+
+import fr.foop.ws.tools.metrics.LatencyHistogram;
+
+/**
+ * Aggregate the phase breakdown of all the calls in a latency histogram per
+ * phase, and forward each call to an optional listener.
+ */
+public class PhaseStatistics implements PhaseTimingListener {
+
+	private final EnumMap<CallPhase, LatencyHistogram> phases = new EnumMap<CallPhase, LatencyHistogram>(
+			CallPhase.class);
+	private final LatencyHistogram total = new LatencyHistogram();
+	private final Optional<PhaseTimingListener> listener;
+
+	public PhaseStatistics(final Optional<PhaseTimingListener> listener) {
+		this.listener = listener;
+
+		for (final CallPhase phase : CallPhase.values()) {
+			phases.put(phase, new LatencyHistogram());
+		}
+	}
+
+	@Override
+	public void onCall(final PhaseTimings timings) {
+		for (final Map.Entry<CallPhase, Long> phase : timings.nanos()
+				.entrySet()) {
+			phases.get(phase.getKey()).record(phase.getValue());
+		}
+		total.record(timings.totalNanos());
+
+		if (listener.isPresent()) {
+			listener.get().onCall(timings);
+		}
+	}
+
+	/**
+	 * @return the latency histogram of each phase.
+	 */
+	public ImmutableMap<CallPhase, LatencyHistogram> phases() {
+		return ImmutableMap.copyOf(phases);
+	}
+
+	public LatencyHistogram total() {
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("PhaseStatistics [");
+		for (final Map.Entry<CallPhase, LatencyHistogram> phase : phases
+				.entrySet()) {
+			final long[] p = phase.getValue().quantiles(0.5, 0.99);
+			sb.append(phase.getKey()).append(" mean=")
+					.append(phase.getValue().meanMillis()).append("ms p50=")
+					.append(p[0] / 1000).append("us p99=")
+					.append(p[1] / 1000).append("us, ");
+		}
+		return sb.append("total mean=").append(total.meanMillis())
+				.append("ms]").toString();
+	}
+}
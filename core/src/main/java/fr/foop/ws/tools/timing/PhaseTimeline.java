@@ -0,0 +1,79 @@
+package fr.foop.ws.tools.timing;
+
+import java.util.EnumMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+/**
+ * The phase start times of a call, kept in the CXF exchange.
+ */
+class PhaseTimeline {
+
+	private final long[] starts = new long[CallPhase.values().length];
+	private final AtomicBoolean reported = new AtomicBoolean(false);
+
+	static PhaseTimeline of(final Message message) {
+		final Exchange exchange = message.getExchange();
+		PhaseTimeline timeline = exchange.get(PhaseTimeline.class);
+
+		if (timeline == null) {
+			timeline = new PhaseTimeline();
+			exchange.put(PhaseTimeline.class, timeline);
+		}
+
+		return timeline;
+	}
+
+	void mark(final CallPhase phase) {
+		if (starts[phase.ordinal()] == 0) {
+			starts[phase.ordinal()] = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Give the phase durations to the listener, once per call.
+	 */
+	void report(final Message message, final boolean failed,
+			final PhaseTimingListener listener) {
+		if (!reported.compareAndSet(false, true)) {
+			return;
+		}
+
+		final long end = System.nanoTime();
+		final EnumMap<CallPhase, Long> nanos = new EnumMap<CallPhase, Long>(
+				CallPhase.class);
+		final CallPhase[] phases = CallPhase.values();
+
+		for (int i = 0; i < phases.length; ++i) {
+			if (starts[i] == 0) {
+				continue;
+			}
+
+			long next = end;
+			for (int j = i + 1; j < phases.length; ++j) {
+				if (starts[j] != 0) {
+					next = starts[j];
+					break;
+				}
+			}
+			nanos.put(phases[i], next - starts[i]);
+		}
+
+		final long start = starts[CallPhase.PREPARE.ordinal()];
+		listener.onCall(new PhaseTimings(operation(message), String
+				.valueOf(message.getExchange().getOutMessage() == null ? null
+						: message.getExchange().getOutMessage()
+								.get(Message.ENDPOINT_ADDRESS)), failed, nanos,
+				start == 0 ? 0 : end - start));
+	}
+
+	private static String operation(final Message message) {
+		final BindingOperationInfo operation = message.getExchange()
+				.getBindingOperationInfo();
+		return operation == null ? "unknown" : operation.getName()
+				.getLocalPart();
+	}
+}
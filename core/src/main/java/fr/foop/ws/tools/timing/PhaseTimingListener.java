@@ -0,0 +1,9 @@
+package fr.foop.ws.tools.timing;
+
+/**
+ * Receive the phase breakdown of each call. Called on the thread completing
+ * the call, it must be fast.
+ */
+public interface PhaseTimingListener {
+	void onCall(final PhaseTimings timings);
+}
@@ -0,0 +1,55 @@
+package fr.foop.ws.tools.timing;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time spent in each phase of a single call. Phases not reached, for
+ * instance the response phases of a failed call, are absent.
+ */
+public class PhaseTimings {
+
+	public final String operation;
+	public final String address;
+	public final boolean failed;
+
+	private final EnumMap<CallPhase, Long> nanos;
+	private final long totalNanos;
+
+	PhaseTimings(final String operation, final String address,
+			final boolean failed, final EnumMap<CallPhase, Long> nanos,
+			final long totalNanos) {
+		this.operation = operation;
+		this.address = address;
+		this.failed = failed;
+		this.nanos = nanos;
+		this.totalNanos = totalNanos;
+	}
+
+	/**
+	 * @return the time in nanos spent in each reached phase.
+	 */
+	public Map<CallPhase, Long> nanos() {
+		return nanos;
+	}
+
+	public long totalNanos() {
+		return totalNanos;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(operation).append(" @ ")
+				.append(address).append(failed ? " failed" : "")
+				.append(" in ")
+				.append(TimeUnit.NANOSECONDS.toMicros(totalNanos))
+				.append("us :");
+		for (final Map.Entry<CallPhase, Long> phase : nanos.entrySet()) {
+			sb.append(' ').append(phase.getKey()).append('=')
+					.append(TimeUnit.NANOSECONDS.toMicros(phase.getValue()))
+					.append("us");
+		}
+		return sb.toString();
+	}
+}
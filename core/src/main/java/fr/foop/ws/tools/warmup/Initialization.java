@@ -0,0 +1,27 @@
+package fr.foop.ws.tools.warmup;
+
+/**
+ * When the client elects its servers and creates its ports.
+ */
+public enum Initialization {
+
+	/**
+	 * While the client is built, on the caller thread.
+	 */
+	EAGER,
+
+	/**
+	 * On the first call, or the first access to the servers.
+	 */
+	LAZY,
+
+	/**
+	 * On a background thread started once the client is built, the calls made
+	 * meanwhile wait for it.
+	 */
+	BACKGROUND;
+
+	public static Initialization fromName(final String name) {
+		return valueOf(name.trim().toUpperCase());
+	}
+}
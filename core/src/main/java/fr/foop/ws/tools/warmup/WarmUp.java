@@ -0,0 +1,177 @@
+package fr.foop.ws.tools.warmup;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fr.foop.ws.tools.async.AsyncCall;
+import fr.foop.ws.tools.async.RecordedCall;
+import fr.foop.ws.tools.health.HealthChecker;
+import fr.foop.ws.tools.pool.PortLease;
+import fr.foop.ws.tools.routing.ServerNode;
+
+/**
+ * Calls made to every server before the traffic comes : each connection runs
+ * the client health check, then replays the sample calls, so that the HTTP
+ * connections are open, the marshallers initialized and the call path
+ * compiled. Their responses are ignored, failures only counted.
+ * 
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class WarmUp<Port> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WarmUp.class);
+
+	private final int connections;
+	private final int rounds;
+	private final ImmutableList<AsyncCall<Port, ?>> samples;
+
+	private WarmUp(final int connections, final int rounds,
+			final ImmutableList<AsyncCall<Port, ?>> samples) {
+		if (connections < 1 || rounds < 1) {
+			throw new IllegalArgumentException(
+					"warm-up connections and rounds must be at least 1");
+		}
+		this.connections = connections;
+		this.rounds = rounds;
+		this.samples = samples;
+	}
+
+	/**
+	 * @param connections
+	 *            the connections opened to each server, with as many
+	 *            concurrent calls.
+	 */
+	public static <Port> WarmUp<Port> connections(final int connections) {
+		return new WarmUp<Port>(connections, 1,
+				ImmutableList.<AsyncCall<Port, ?>> of());
+	}
+
+	/**
+	 * @param rounds
+	 *            how many times each connection replays the samples.
+	 */
+	public WarmUp<Port> withRounds(final int rounds) {
+		return new WarmUp<Port>(connections, rounds, samples);
+	}
+
+	/**
+	 * Replay this call on every connection, it should be read only.
+	 */
+	public WarmUp<Port> withSample(final AsyncCall<Port, ?> sample) {
+		return new WarmUp<Port>(connections, rounds, ImmutableList
+				.<AsyncCall<Port, ?>> builder().addAll(samples).add(sample)
+				.build());
+	}
+
+	/**
+	 * Warm the servers up, and wait until done.
+	 */
+	public WarmUpReport run(final Class<?> portClazz,
+			final List<ServerNode<Port>> nodes,
+			final HealthChecker.Probe<Port> probe) {
+		final List<RecordedCall> calls = new ArrayList<RecordedCall>();
+		for (final AsyncCall<Port, ?> sample : samples) {
+			calls.add(RecordedCall.record(portClazz, sample));
+		}
+
+		final long start = System.nanoTime();
+		final ExecutorService executor = Executors.newFixedThreadPool(
+				Math.max(1, connections * nodes.size()),
+				new ThreadFactoryBuilder().setDaemon(true)
+						.setNameFormat("cxf-client-warmup-%d").build());
+		try {
+			final List<Future<int[]>> results = new ArrayList<Future<int[]>>();
+			for (final ServerNode<Port> node : nodes) {
+				for (int i = 0; i < connections; ++i) {
+					results.add(executor.submit(connection(node, probe, calls)));
+				}
+			}
+
+			int total = 0;
+			int failures = 0;
+			for (final Future<int[]> result : results) {
+				final int[] counts = result.get();
+				total += counts[0];
+				failures += counts[1];
+			}
+
+			final WarmUpReport report = new WarmUpReport(total, failures,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			LOGGER.info("Warm-up of {} done : {}", portClazz.getSimpleName(),
+					report);
+			return report;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while warming up", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("failed to warm up", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the calls of a connection, counting the calls made and failed.
+	 */
+	private Callable<int[]> connection(final ServerNode<Port> node,
+			final HealthChecker.Probe<Port> probe,
+			final List<RecordedCall> calls) {
+		return new Callable<int[]>() {
+			@Override
+			public int[] call() {
+				final int[] counts = new int[2];
+
+				if (node.isPooled()) {
+					try (final PortLease<Port> lease = node.lease()) {
+						warmUp(lease.port(), probe, calls, counts);
+					} catch (RuntimeException e) {
+						// No port left in the pool for this connection.
+						LOGGER.debug("Warm-up of {} failed", node.server(), e);
+					}
+				} else if (node.port().isPresent()) {
+					warmUp(node.port().get(), probe, calls, counts);
+				}
+
+				return counts;
+			}
+		};
+	}
+
+	private void warmUp(final Port port, final HealthChecker.Probe<Port> probe,
+			final List<RecordedCall> calls, final int[] counts) {
+		try {
+			counts[0]++;
+			probe.check(port);
+		} catch (Exception e) {
+			counts[1]++;
+			LOGGER.debug("Warm-up probe failed", e);
+		}
+
+		for (int round = 0; round < rounds; ++round) {
+			for (final RecordedCall call : calls) {
+				try {
+					counts[0]++;
+					call.method().invoke(port, call.args());
+				} catch (InvocationTargetException | IllegalAccessException e) {
+					counts[1]++;
+					LOGGER.debug("Warm-up call of {} failed", call.method()
+							.getName(), e);
+				}
+			}
+		}
+	}
+}
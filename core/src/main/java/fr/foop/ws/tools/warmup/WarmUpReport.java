@@ -0,0 +1,25 @@
+package fr.foop.ws.tools.warmup;
+
+/**
+ * What a warm-up did : the probe and sample calls made, how many of them
+ * failed, and how long it took.
+ */
+public class WarmUpReport {
+
+	public final int calls;
+	public final int failures;
+	public final long durationMillis;
+
+	public WarmUpReport(final int calls, final int failures,
+			final long durationMillis) {
+		this.calls = calls;
+		this.failures = failures;
+		this.durationMillis = durationMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "WarmUpReport [calls=" + calls + ", failures=" + failures
+				+ ", durationMillis=" + durationMillis + "]";
+	}
+}
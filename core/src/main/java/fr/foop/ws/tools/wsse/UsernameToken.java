@@ -0,0 +1,170 @@
+package fr.foop.ws.tools.wsse;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.callback.UnsupportedCallbackException;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.cxf.common.util.Base64Utility;
+import org.apache.ws.security.WSConstants;
+import org.apache.ws.security.WSPasswordCallback;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+/**
+ * A PasswordText or PasswordDigest UsernameToken, with the password resolved
+ * once from the callback handler, written with StAX calls only.
+ */
+public class UsernameToken {
+
+	public final static QName SECURITY = new QName(WSConstants.WSSE_NS,
+			WSConstants.WSSE_LN, WSConstants.WSSE_PREFIX);
+
+	private final static ThreadLocal<DateFormat> CREATED = new ThreadLocal<DateFormat>() {
+		@Override
+		protected DateFormat initialValue() {
+			final DateFormat format = new SimpleDateFormat(
+					"yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+			return format;
+		}
+	};
+
+	private final static String BASE64_ENCODING = WSConstants.SOAPMESSAGE_NS
+			+ "#Base64Binary";
+
+	private final static SecureRandom RANDOM = new SecureRandom();
+
+	private final String username;
+	private final String password;
+	private final boolean nonce;
+	private final boolean digest;
+
+	/**
+	 * @param username
+	 * @param passwordCallback
+	 *            asked for the password of the user once, with a
+	 *            <code>WSPasswordCallback</code> as WSS4J does.
+	 * @param nonce
+	 *            add a nonce and a created timestamp to each token.
+	 */
+	public UsernameToken(final String username,
+			final CallbackHandler passwordCallback, final boolean nonce) {
+		this(username, passwordCallback, nonce, false);
+	}
+
+	/**
+	 * @param digest
+	 *            send the digest of the password, with a nonce and a created
+	 *            timestamp, instead of the password text.
+	 */
+	public UsernameToken(final String username,
+			final CallbackHandler passwordCallback, final boolean nonce,
+			final boolean digest) {
+		this.username = username;
+		this.password = resolvePassword(username, passwordCallback);
+		this.nonce = nonce || digest;
+		this.digest = digest;
+	}
+
+	private static String resolvePassword(final String username,
+			final CallbackHandler passwordCallback) {
+		final WSPasswordCallback callback = new WSPasswordCallback(username,
+				WSPasswordCallback.USERNAME_TOKEN);
+		try {
+			passwordCallback.handle(new Callback[] { callback });
+		} catch (IOException | UnsupportedCallbackException e) {
+			throw new RuntimeException("failed to get password for user : "
+					+ username, e);
+		}
+
+		if (callback.getPassword() == null) {
+			throw new IllegalArgumentException("no password for user : "
+					+ username);
+		}
+		return callback.getPassword();
+	}
+
+	/**
+	 * Write the <code>wsse:Security</code> element.
+	 */
+	public void writeTo(final XMLStreamWriter out) throws XMLStreamException {
+		out.writeStartElement(WSConstants.WSSE_PREFIX, WSConstants.WSSE_LN,
+				WSConstants.WSSE_NS);
+		out.writeNamespace(WSConstants.WSSE_PREFIX, WSConstants.WSSE_NS);
+
+		out.writeStartElement(WSConstants.WSSE_PREFIX,
+				WSConstants.USERNAME_TOKEN_LN, WSConstants.WSSE_NS);
+
+		out.writeStartElement(WSConstants.WSSE_PREFIX,
+				WSConstants.USERNAME_LN, WSConstants.WSSE_NS);
+		out.writeCharacters(username);
+		out.writeEndElement();
+
+		final byte[] bytes = new byte[16];
+		final String created;
+		if (nonce) {
+			RANDOM.nextBytes(bytes);
+			created = CREATED.get().format(new Date());
+		} else {
+			created = null;
+		}
+
+		out.writeStartElement(WSConstants.WSSE_PREFIX,
+				WSConstants.PASSWORD_LN, WSConstants.WSSE_NS);
+		if (digest) {
+			out.writeAttribute(WSConstants.PASSWORD_TYPE_ATTR,
+					WSConstants.PASSWORD_DIGEST);
+			out.writeCharacters(digest(bytes, created, password));
+		} else {
+			out.writeAttribute(WSConstants.PASSWORD_TYPE_ATTR,
+					WSConstants.PASSWORD_TEXT);
+			out.writeCharacters(password);
+		}
+		out.writeEndElement();
+
+		if (nonce) {
+			out.writeStartElement(WSConstants.WSSE_PREFIX,
+					WSConstants.NONCE_LN, WSConstants.WSSE_NS);
+			out.writeAttribute("EncodingType", BASE64_ENCODING);
+			out.writeCharacters(Base64Utility.encode(bytes));
+			out.writeEndElement();
+
+			out.writeStartElement(WSConstants.WSU_PREFIX,
+					WSConstants.CREATED_LN, WSConstants.WSU_NS);
+			out.writeNamespace(WSConstants.WSU_PREFIX, WSConstants.WSU_NS);
+			out.writeCharacters(created);
+			out.writeEndElement();
+		}
+
+		out.writeEndElement();
+		out.writeEndElement();
+	}
+
+	/**
+	 * @return Base64(SHA-1(nonce + created + password)), as defined by the
+	 *         UsernameToken profile.
+	 */
+	static String digest(final byte[] nonce, final String created,
+			final String password) {
+		return Base64Utility.encode(Hashing.sha1().newHasher()
+				.putBytes(nonce).putString(created, Charsets.UTF_8)
+				.putString(password, Charsets.UTF_8).hash().asBytes());
+	}
+
+	@Override
+	public String toString() {
+		return "UsernameToken [username=" + username + ", nonce=" + nonce
+				+ ", digest=" + digest + "]";
+	}
+}
@@ -0,0 +1,111 @@
+package fr.foop.ws.tools.wsse;
+
+import java.util.Collection;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.validation.Schema;
+
+import org.apache.cxf.binding.soap.SoapHeader;
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
+import org.apache.cxf.databinding.AbstractDataBinding;
+import org.apache.cxf.databinding.DataReader;
+import org.apache.cxf.databinding.DataWriter;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Attachment;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.Service;
+import org.apache.cxf.service.model.MessagePartInfo;
+
+/**
+ * Add the UsernameToken as a SOAP header, written by the SOAP binding while
+ * it streams the envelope : the request is never converted to a DOM.
+ */
+public class UsernameTokenInterceptor extends AbstractSoapInterceptor {
+
+	private final UsernameToken token;
+	private final TokenBinding binding = new TokenBinding();
+
+	public UsernameTokenInterceptor(final UsernameToken token) {
+		super(Phase.PRE_PROTOCOL);
+		this.token = token;
+	}
+
+	@Override
+	public void handleMessage(final SoapMessage message) throws Fault {
+		final SoapHeader header = new SoapHeader(UsernameToken.SECURITY,
+				token, binding);
+		header.setMustUnderstand(true);
+		message.getHeaders().add(header);
+	}
+
+	/**
+	 * The data binding of the header, writing the token with StAX.
+	 */
+	private static class TokenBinding extends AbstractDataBinding {
+
+		private final TokenWriter writer = new TokenWriter();
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> DataWriter<T> createWriter(final Class<T> format) {
+			if (format == XMLStreamWriter.class) {
+				return (DataWriter<T>) writer;
+			}
+			throw new UnsupportedOperationException(
+					"UsernameToken header can only be written with StAX : "
+							+ format);
+		}
+
+		@Override
+		public <T> DataReader<T> createReader(final Class<T> format) {
+			throw new UnsupportedOperationException(
+					"UsernameToken header is never read");
+		}
+
+		@Override
+		public Class<?>[] getSupportedWriterFormats() {
+			return new Class<?>[] { XMLStreamWriter.class };
+		}
+
+		@Override
+		public Class<?>[] getSupportedReaderFormats() {
+			return new Class<?>[0];
+		}
+
+		@Override
+		public void initialize(final Service service) {
+		}
+	}
+
+	private static class TokenWriter implements DataWriter<XMLStreamWriter> {
+
+		@Override
+		public void write(final Object obj, final XMLStreamWriter output) {
+			try {
+				((UsernameToken) obj).writeTo(output);
+			} catch (XMLStreamException e) {
+				throw new Fault(e);
+			}
+		}
+
+		@Override
+		public void write(final Object obj, final MessagePartInfo part,
+				final XMLStreamWriter output) {
+			write(obj, output);
+		}
+
+		@Override
+		public void setSchema(final Schema s) {
+		}
+
+		@Override
+		public void setAttachments(final Collection<Attachment> attachments) {
+		}
+
+		@Override
+		public void setProperty(final String key, final Object value) {
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package fr.foop.ws.tools.wsse;
+
+/**
+ * How the WSSE UsernameToken header is added to the requests.
+ */
+public enum WsseMode {
+
+	/**
+	 * By WSS4J, which converts each request to a SAAJ DOM.
+	 */
+	DOM,
+
+	/**
+	 * Written straight to the StAX output, without DOM.
+	 */
+	STREAMING,
+
+	/**
+	 * Written straight to the StAX output, with a nonce and a created
+	 * timestamp in each token.
+	 */
+	STREAMING_NONCE,
+
+	/**
+	 * Written straight to the StAX output, with the password digest, a nonce
+	 * and a created timestamp in each token.
+	 */
+	STREAMING_DIGEST;
+
+	public boolean isStreaming() {
+		return this != DOM;
+	}
+
+	public static WsseMode fromName(final String name) {
+		return valueOf(name.trim().replace('-', '_').toUpperCase());
+	}
+}
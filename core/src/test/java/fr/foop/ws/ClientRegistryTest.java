@@ -0,0 +1,108 @@
+package fr.foop.ws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class ClientRegistryTest {
+
+	public interface Port {
+		String call();
+	}
+
+	public static class MockedPort implements Port {
+		@Override
+		public String call() {
+			return "mocked";
+		}
+	}
+
+	public static class TestClient extends CxfClient<Port, Object> {
+
+		public TestClient(final CxfClientBuilder config) {
+			super(config, Object.class);
+			built.incrementAndGet();
+		}
+
+		@Override
+		public void checkIfPortUp(final Port port) {
+		}
+
+		@Override
+		public Port newPort(final Object serviceManager) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	public static class FailingClient extends TestClient {
+
+		public FailingClient(final CxfClientBuilder config) {
+			super(config);
+			throw new IllegalStateException("misconfigured");
+		}
+	}
+
+	private static final AtomicInteger built = new AtomicInteger();
+
+	private final CxfClientBuilder builder = new CxfClientBuilder()
+			.enableMocking().withMockedPort(MockedPort.class.getName());
+
+	private ClientRegistry registry;
+
+	@Before
+	public void setUp() {
+		built.set(0);
+		registry = new ClientRegistry();
+	}
+
+	@After
+	public void tearDown() {
+		registry.close();
+	}
+
+	@Test
+	public void duplicatesAreRejectedBeforeBeingBuilt() {
+		registry.register("crm", builder, TestClient.class);
+		try {
+			registry.register("crm", builder, TestClient.class);
+			fail("the name is registered");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		assertEquals(1, built.get());
+		assertEquals("mocked", registry.get("crm", TestClient.class).get()
+				.service().call());
+	}
+
+	@Test
+	public void aFailedBuildReleasesTheName() {
+		try {
+			registry.register("crm", builder, FailingClient.class);
+			fail("the client fails to build");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertTrue(registry.names().isEmpty());
+
+		registry.register("crm", builder, TestClient.class);
+		assertEquals(ImmutableSet.of("crm"), registry.names());
+	}
+
+	@Test
+	public void aClosedClientReleasesTheName() {
+		registry.register("crm", builder, TestClient.class);
+		registry.close("crm");
+
+		registry.register("crm", builder, TestClient.class);
+		assertEquals(2, built.get());
+	}
+}
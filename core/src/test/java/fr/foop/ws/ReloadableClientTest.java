@@ -0,0 +1,239 @@
+package fr.foop.ws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class ReloadableClientTest {
+
+	public interface Port {
+		String call();
+	}
+
+	/**
+	 * Its calls wait for the gate to open.
+	 */
+	public static class FirstPort implements Port {
+		@Override
+		public String call() {
+			entered.countDown();
+			Uninterruptibles.awaitUninterruptibly(gate);
+			return "first";
+		}
+	}
+
+	/**
+	 * It is built once the build gate opens.
+	 */
+	public static class SecondPort implements Port {
+		public SecondPort() {
+			building.countDown();
+			Uninterruptibles.awaitUninterruptibly(buildGate);
+		}
+
+		@Override
+		public String call() {
+			return "second";
+		}
+	}
+
+	public static class ThirdPort implements Port {
+		@Override
+		public String call() {
+			return "third";
+		}
+	}
+
+	public static class TestClient extends CxfClient<Port, Object> {
+
+		public TestClient(final CxfClientBuilder config) {
+			super(config, Object.class);
+		}
+
+		@Override
+		public void checkIfPortUp(final Port port) {
+		}
+
+		@Override
+		public Port newPort(final Object serviceManager) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void destroy() {
+			destroyed.add(service().getClass().getSimpleName());
+			super.destroy();
+		}
+	}
+
+	private static volatile CountDownLatch gate;
+	private static volatile CountDownLatch entered;
+	private static volatile CountDownLatch buildGate;
+	private static volatile CountDownLatch building;
+	private static final List<String> destroyed = new CopyOnWriteArrayList<String>();
+
+	private final ExecutorService callers = Executors.newCachedThreadPool();
+	private ReloadableClient<Port, TestClient> reloadable;
+
+	@Before
+	public void setUp() {
+		gate = new CountDownLatch(0);
+		entered = new CountDownLatch(1);
+		buildGate = new CountDownLatch(0);
+		building = new CountDownLatch(1);
+		destroyed.clear();
+	}
+
+	@After
+	public void tearDown() {
+		gate = new CountDownLatch(0);
+		buildGate = new CountDownLatch(0);
+		reloadable.close();
+		callers.shutdownNow();
+	}
+
+	private static Properties props(final Class<? extends Port> mockedPort) {
+		final Properties props = new Properties();
+		props.setProperty("test.mockedPort", mockedPort.getName());
+		return props;
+	}
+
+	private void build(final long drainTimeout) {
+		reloadable = new ReloadableClient<Port, TestClient>(
+				new CxfClientBuilder().enableMocking(), "test",
+				props(FirstPort.class), TestClient.class, drainTimeout);
+	}
+
+	private Future<String> blockedCall() throws InterruptedException {
+		gate = new CountDownLatch(1);
+		final Future<String> call = callers.submit(new Callable<String>() {
+			@Override
+			public String call() {
+				return reloadable.service().call();
+			}
+		});
+		assertTrue(entered.await(1, TimeUnit.SECONDS));
+		return call;
+	}
+
+	@Test
+	public void reloadsSwapTheClient() throws Exception {
+		build(1000);
+		assertEquals("first", reloadable.service().call());
+
+		reloadable.reload(props(ThirdPort.class)).get(1, TimeUnit.SECONDS);
+
+		assertEquals("third", reloadable.service().call());
+		assertEquals(ImmutableList.of("FirstPort"), destroyed);
+	}
+
+	@Test
+	public void theReplacedClientIsDestroyedOnceItsCallsAreDone()
+			throws Exception {
+		build(5000);
+		final Future<String> call = blockedCall();
+
+		final ListenableFuture<TestClient> reload = reloadable
+				.reload(props(ThirdPort.class));
+		Thread.sleep(100);
+		assertEquals("third", reloadable.service().call());
+		assertFalse(reload.isDone());
+		assertTrue(destroyed.isEmpty());
+
+		gate.countDown();
+		reload.get(1, TimeUnit.SECONDS);
+		assertEquals("first", call.get());
+		assertEquals(ImmutableList.of("FirstPort"), destroyed);
+	}
+
+	@Test
+	public void aStuckCallIsCutAtTheDrainTimeout() throws Exception {
+		build(100);
+		blockedCall();
+
+		reloadable.reload(props(ThirdPort.class)).get(1, TimeUnit.SECONDS);
+
+		assertEquals(ImmutableList.of("FirstPort"), destroyed);
+	}
+
+	@Test
+	public void aDrainDoesNotDelayTheNextReload() throws Exception {
+		build(5000);
+		blockedCall();
+
+		final ListenableFuture<TestClient> first = reloadable
+				.reload(props(ThirdPort.class));
+		reloadable.reload(props(ThirdPort.class)).get(1, TimeUnit.SECONDS);
+
+		assertFalse(first.isDone());
+		assertEquals(ImmutableList.of("ThirdPort"), destroyed);
+	}
+
+	@Test
+	public void closeWaitsForTheCallsInFlight() throws Exception {
+		build(5000);
+		final Future<String> call = blockedCall();
+
+		final Future<?> close = callers.submit(new Runnable() {
+			@Override
+			public void run() {
+				reloadable.close();
+			}
+		});
+		Thread.sleep(100);
+		assertFalse(close.isDone());
+		assertTrue(destroyed.isEmpty());
+
+		gate.countDown();
+		close.get(1, TimeUnit.SECONDS);
+		assertEquals("first", call.get());
+		assertEquals(ImmutableList.of("FirstPort"), destroyed);
+
+		try {
+			reloadable.service().call();
+			fail();
+		} catch (IllegalStateException e) {
+			// Closed.
+		}
+	}
+
+	@Test
+	public void aClientBuiltWhileClosingIsDestroyed() throws Exception {
+		build(1000);
+		buildGate = new CountDownLatch(1);
+
+		final ListenableFuture<TestClient> reload = reloadable
+				.reload(props(SecondPort.class));
+		assertTrue(building.await(1, TimeUnit.SECONDS));
+		reloadable.close();
+		buildGate.countDown();
+
+		try {
+			reload.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(ImmutableList.of("FirstPort", "SecondPort"), destroyed);
+	}
+}
@@ -0,0 +1,33 @@
+package fr.foop.ws.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+import org.junit.Test;
+
+public class WebServicePortConfigurerTest {
+
+	@Test
+	public void clientPoliciesAreCopiedBeforeBeingChanged() {
+		final HTTPClientPolicy shared = new HTTPClientPolicy();
+		shared.setConnectionTimeout(1000);
+		shared.setConnection(ConnectionType.CLOSE);
+		shared.setProxyServer("proxy");
+		shared.setProxyServerPort(3128);
+
+		final HTTPClientPolicy copy = WebServicePortConfigurer.copyOf(shared);
+		copy.setConnectionTimeout(50);
+
+		assertNotSame(shared, copy);
+		assertEquals(1000, shared.getConnectionTimeout());
+		assertEquals(ConnectionType.CLOSE, copy.getConnection());
+		assertEquals("proxy", copy.getProxyServer());
+		assertEquals(3128, copy.getProxyServerPort());
+		assertTrue(copy.isSetConnectionTimeout());
+		assertFalse(copy.isSetReceiveTimeout());
+	}
+}
@@ -0,0 +1,56 @@
+package fr.foop.ws.tools.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.ConnectException;
+
+import javax.xml.ws.WebServiceException;
+
+import org.apache.cxf.interceptor.Fault;
+import org.junit.Test;
+
+public class FaultsTest {
+
+	public static class UnknownCustomerException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	public interface Port {
+		String find(String name) throws UnknownCustomerException;
+	}
+
+	private static final Method FIND = Port.class.getMethods()[0];
+
+	@Test
+	public void declaredFaultsAreKept() {
+		final UnknownCustomerException fault = new UnknownCustomerException();
+		assertSame(fault, Faults.toJaxWs(FIND, null, fault));
+	}
+
+	@Test
+	public void webServiceExceptionsAreKept() {
+		final WebServiceException e = new WebServiceException("down");
+		assertSame(e, Faults.toJaxWs(FIND, null, e));
+	}
+
+	@Test
+	public void transportFailuresBecomeWebServiceExceptions() {
+		final IOException refused = new ConnectException("refused");
+		final Throwable mapped = Faults.toJaxWs(FIND, null, new Fault(refused));
+
+		assertEquals(WebServiceException.class, mapped.getClass());
+		assertSame(refused, mapped.getCause());
+	}
+
+	@Test
+	public void otherFaultsOfNonSoapBindingsBecomeWebServiceExceptions() {
+		final Throwable mapped = Faults.toJaxWs(FIND, null, new Fault(
+				new IllegalStateException("unmarshalling")));
+
+		assertTrue(mapped instanceof WebServiceException);
+	}
+}
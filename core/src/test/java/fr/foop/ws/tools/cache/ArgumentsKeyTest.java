@@ -0,0 +1,97 @@
+package fr.foop.ws.tools.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+
+import org.junit.Test;
+
+public class ArgumentsKeyTest {
+
+	private static final QName NAME = new QName("http://ws.foop.fr/test",
+			"customer");
+
+	/**
+	 * A CXF generated like type, without equals and hashCode.
+	 */
+	static class Customer {
+		String name;
+		List<String> phones;
+		JAXBElement<String> nickname;
+
+		Customer(final String name, final String... phones) {
+			this.name = name;
+			this.phones = Arrays.asList(phones);
+		}
+	}
+
+	private static ArgumentsKey key(final Object... args) {
+		return new ArgumentsKey(args);
+	}
+
+	@Test
+	public void equalArgumentsGiveEqualKeys() {
+		assertEquals(key(new Customer("bob", "1", "2"), 3),
+				key(new Customer("bob", "1", "2"), 3));
+		assertEquals(key(new Customer("bob", "1")).hashCode(),
+				key(new Customer("bob", "1")).hashCode());
+	}
+
+	@Test
+	public void differentArgumentsGiveDifferentKeys() {
+		assertFalse(key(new Customer("bob", "1")).equals(
+				key(new Customer("bob", "2"))));
+		assertFalse(key(new Customer("bob")).equals(
+				key(new Customer("alice"))));
+	}
+
+	@Test
+	public void nullDiffersFromTheNullString() {
+		assertFalse(key((Object) null).equals(key("null")));
+		assertEquals(key((Object) null), key((Object) null));
+	}
+
+	@Test
+	public void jaxbElementsAreComparedByNameTypeAndValue() {
+		final Customer bob = new Customer("bob");
+		bob.nickname = new JAXBElement<String>(NAME, String.class, "b");
+		final Customer otherBob = new Customer("bob");
+		otherBob.nickname = new JAXBElement<String>(NAME, String.class, "b");
+		final Customer bobby = new Customer("bob");
+		bobby.nickname = new JAXBElement<String>(NAME, String.class, "bobby");
+
+		assertEquals(key(bob), key(otherBob));
+		assertFalse(key(bob).equals(key(bobby)));
+	}
+
+	@Test
+	public void jdkTypesAreValues() {
+		assertEquals(key(String.class, URI.create("http://a")),
+				key(String.class, URI.create("http://a")));
+		assertFalse(key(String.class).equals(key(Integer.class)));
+		assertFalse(key(URI.create("http://a")).equals(
+				key(URI.create("http://b"))));
+	}
+
+	@Test
+	public void datesAreComparedByTime() {
+		assertEquals(key(new Date(1000)), key(new Date(1000)));
+		assertFalse(key(new Date(1000)).equals(key(1000L)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooDeepArgumentsAreRejected() {
+		Object nested = "leaf";
+		for (int i = 0; i < 40; ++i) {
+			nested = Arrays.asList(nested);
+		}
+		key(nested);
+	}
+}
@@ -0,0 +1,151 @@
+package fr.foop.ws.tools.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import fr.foop.ws.tools.invocation.PortInvoker;
+
+public class CachingInvokerTest {
+
+	public static class Request {
+		String name;
+		XMLGregorianCalendar date;
+	}
+
+	public static class Response {
+		List<String> items = new ArrayList<String>();
+	}
+
+	public interface Port {
+		Response find(Request request);
+	}
+
+	/**
+	 * Answer the request name as single item, recording the received names.
+	 */
+	private final List<String> received = new CopyOnWriteArrayList<String>();
+
+	private final PortInvoker backend = new PortInvoker() {
+		@Override
+		public Object invoke(final Method method, final Object[] args) {
+			final String name = ((Request) args[0]).name;
+			received.add(name);
+			final Response response = new Response();
+			response.items.add(name);
+			return response;
+		}
+	};
+
+	private CachingInvoker invoker;
+
+	private static final Method FIND = Port.class.getMethods()[0];
+
+	private static Request request(final String name) {
+		final Request request = new Request();
+		request.name = name;
+		return request;
+	}
+
+	private Response find(final Request request) throws Throwable {
+		return (Response) invoker.invoke(FIND, new Object[] { request });
+	}
+
+	@After
+	public void tearDown() {
+		invoker.close();
+	}
+
+	@Test
+	public void hitsAreServedFromTheCache() throws Throwable {
+		invoker = new CachingInvoker(backend, Port.class, ImmutableMap.of(
+				"find", new CachePolicy(60000, 10)));
+
+		assertEquals("bob", find(request("bob")).items.get(0));
+		assertEquals("bob", find(request("bob")).items.get(0));
+		assertEquals("alice", find(request("alice")).items.get(0));
+
+		assertEquals(2, received.size());
+		assertEquals(1, invoker.stats().get("find").hitCount());
+	}
+
+	@Test
+	public void callersCannotModifyTheCachedResponse() throws Throwable {
+		invoker = new CachingInvoker(backend, Port.class, ImmutableMap.of(
+				"find", new CachePolicy(60000, 10)));
+
+		find(request("bob")).items.add("corrupted");
+		find(request("bob")).items.clear();
+
+		assertEquals(1, find(request("bob")).items.size());
+	}
+
+	@Test
+	public void keysAreNotChangedByTheCallerArguments() throws Throwable {
+		invoker = new CachingInvoker(backend, Port.class, ImmutableMap.of(
+				"find", new CachePolicy(60000, 10)));
+
+		final Request reused = request("bob");
+		reused.date = DatatypeFactory.newInstance().newXMLGregorianCalendar(
+				"2014-06-01");
+		find(reused);
+		reused.date.setYear(2015);
+
+		final Request same = request("bob");
+		same.date = DatatypeFactory.newInstance().newXMLGregorianCalendar(
+				"2014-06-01");
+		find(same);
+
+		assertEquals(1, received.size());
+		assertEquals(1, invoker.stats().get("find").hitCount());
+	}
+
+	@Test
+	public void refreshesSendTheArgumentsTheResponseWasCachedFor()
+			throws Throwable {
+		final CountDownLatch refreshing = new CountDownLatch(1);
+		final ExecutorService refresher = Executors.newSingleThreadExecutor();
+		refresher.execute(new Runnable() {
+			@Override
+			public void run() {
+				Uninterruptibles.awaitUninterruptibly(refreshing);
+			}
+		});
+		invoker = new CachingInvoker(backend, Port.class, ImmutableMap.of(
+				"find", new CachePolicy(60000, 10, 50)),
+				Optional.of(refresher));
+
+		final Request reused = request("bob");
+		find(reused);
+		reused.name = "alice";
+		Thread.sleep(100);
+
+		// The refresh runs once the caller has reused its request.
+		final Request triggering = request("bob");
+		find(triggering);
+		triggering.name = "alice";
+		refreshing.countDown();
+
+		refresher.shutdown();
+		refresher.awaitTermination(1, TimeUnit.SECONDS);
+		assertEquals(ImmutableList.of("bob", "bob"), received);
+	}
+}
@@ -0,0 +1,183 @@
+package fr.foop.ws.tools.coalescing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.ws.WebServiceException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import fr.foop.ws.tools.deadline.Deadline;
+import fr.foop.ws.tools.deadline.DeadlineExceededException;
+import fr.foop.ws.tools.invocation.PortInvoker;
+
+public class CoalescingInvokerTest {
+
+	public interface Port {
+		String find(String name);
+
+		String other(String name);
+	}
+
+	private static Method method(final String name) {
+		for (final Method method : Port.class.getMethods()) {
+			if (method.getName().equals(name)) {
+				return method;
+			}
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	private static final Method FIND = method("find");
+	private static final Method OTHER = method("other");
+
+	private final AtomicInteger sent = new AtomicInteger();
+	private final CountDownLatch answer = new CountDownLatch(1);
+	private final CountDownLatch leading = new CountDownLatch(1);
+	private final ExecutorService callers = Executors.newCachedThreadPool();
+
+	/**
+	 * Answer once allowed, counting the requests sent.
+	 */
+	private final PortInvoker backend = new PortInvoker() {
+		@Override
+		public Object invoke(final Method method, final Object[] args) {
+			sent.incrementAndGet();
+			leading.countDown();
+			Uninterruptibles.awaitUninterruptibly(answer);
+			if ("fail".equals(args[0])) {
+				throw new WebServiceException("down");
+			}
+			return "found " + args[0];
+		}
+	};
+
+	private final CoalescingInvoker invoker = new CoalescingInvoker(backend,
+			Port.class, ImmutableSet.of("find"));
+
+	@After
+	public void tearDown() {
+		answer.countDown();
+		callers.shutdownNow();
+	}
+
+	private Future<Object> call(final Method method, final String name) {
+		return callers.submit(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				try {
+					return invoker.invoke(method, new Object[] { name });
+				} catch (Exception | Error e) {
+					throw e;
+				} catch (Throwable t) {
+					throw new IllegalStateException(t);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Start a call, and wait until its request is sent.
+	 */
+	private Future<Object> lead(final String name) throws InterruptedException {
+		final Future<Object> leader = call(FIND, name);
+		assertTrue(leading.await(1, TimeUnit.SECONDS));
+		return leader;
+	}
+
+	/**
+	 * Start a call, and wait until it joins the call in flight.
+	 */
+	private Future<Object> follow(final String name) throws InterruptedException {
+		final long joined = invoker.coalescedCalls() + 1;
+		final Future<Object> follower = call(FIND, name);
+		final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (invoker.coalescedCalls() < joined && System.nanoTime() < end) {
+			Thread.sleep(1);
+		}
+		assertEquals(joined, invoker.coalescedCalls());
+		return follower;
+	}
+
+	@Test
+	public void concurrentEqualCallsShareOneRequest() throws Exception {
+		final Future<Object> leader = lead("bob");
+		final Future<Object> follower = follow("bob");
+		answer.countDown();
+
+		assertEquals("found bob", leader.get());
+		assertEquals("found bob", follower.get());
+		assertEquals(1, sent.get());
+		assertEquals(1, invoker.coalescedCalls());
+	}
+
+	@Test
+	public void followersGetTheLeaderFailure() throws Exception {
+		lead("fail");
+		final Future<Object> follower = follow("fail");
+		answer.countDown();
+
+		try {
+			follower.get();
+			fail("the leader failed");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof WebServiceException);
+		}
+		assertEquals(1, sent.get());
+	}
+
+	@Test
+	public void otherOperationsAreNotCoalesced() throws Exception {
+		answer.countDown();
+		call(OTHER, "bob").get();
+		call(OTHER, "bob").get();
+
+		assertEquals(2, sent.get());
+		assertEquals(0, invoker.coalescedCalls());
+	}
+
+	@Test(expected = DeadlineExceededException.class)
+	public void followersGiveUpAtTheirDeadline() throws Throwable {
+		lead("bob");
+
+		try (final Deadline deadline = Deadline.within(50)) {
+			invoker.invoke(FIND, new Object[] { "bob" });
+		}
+	}
+
+	@Test
+	public void followersCanBeInterrupted() throws Throwable {
+		lead("bob");
+		final Thread follower = Thread.currentThread();
+		callers.submit(new Runnable() {
+			@Override
+			public void run() {
+				Uninterruptibles.sleepUninterruptibly(50, TimeUnit.MILLISECONDS);
+				follower.interrupt();
+			}
+		});
+
+		try {
+			invoker.invoke(FIND, new Object[] { "bob" });
+		} catch (WebServiceException e) {
+			assertTrue(Thread.interrupted());
+			return;
+		}
+		throw new AssertionError("the follower was not interrupted");
+	}
+}
@@ -0,0 +1,54 @@
+package fr.foop.ws.tools.deadline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AdaptiveTimeoutsTest {
+
+	private final AdaptiveTimeouts timeouts = new AdaptiveTimeouts(
+			new AdaptiveTimeoutPolicy(0.9, 2, 10), 1000);
+
+	private void record(final int calls, final long millis) {
+		for (int i = 0; i < calls; ++i) {
+			timeouts.record("find", TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+	}
+
+	@Test
+	public void theConfiguredTimeoutIsUsedUntilEnoughCallsAreAnswered() {
+		record(99, 20);
+		assertEquals(1000, timeouts.receiveTimeout("find"));
+	}
+
+	@Test
+	public void theTimeoutFollowsTheOperationLatency() {
+		record(100, 20);
+		final long timeout = timeouts.receiveTimeout("find");
+		assertTrue(timeout >= 38 && timeout <= 42);
+	}
+
+	@Test
+	public void timeoutsAreNeverAboveTheConfiguredOneNorBelowTheMinimum() {
+		record(100, 1);
+		assertEquals(10, timeouts.receiveTimeout("find"));
+
+		record(100, 5000);
+		assertEquals(1000, timeouts.receiveTimeout("find"));
+	}
+
+	@Test
+	public void timedOutCallsRaiseTheTimeout() {
+		record(100, 20);
+		final long timeout = timeouts.receiveTimeout("find");
+
+		for (int i = 0; i < 100; ++i) {
+			timeouts.recordTimeout("find", timeout);
+		}
+
+		assertTrue(timeouts.receiveTimeout("find") > timeout);
+	}
+}
@@ -0,0 +1,73 @@
+package fr.foop.ws.tools.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.foop.ws.tools.health.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+	private final List<State> changes = new ArrayList<State>();
+
+	private CircuitBreaker breaker(final int failureThreshold,
+			final long openMillis) {
+		final CircuitBreaker breaker = new CircuitBreaker(failureThreshold,
+				openMillis);
+		breaker.setListener(new CircuitBreaker.Listener() {
+			@Override
+			public void stateChanged(final CircuitBreaker breaker,
+					final State from, final State to) {
+				changes.add(to);
+			}
+		});
+		return breaker;
+	}
+
+	@Test
+	public void theBreakerOpensAfterConsecutiveFailures() {
+		final CircuitBreaker breaker = breaker(3, 60000);
+		breaker.onFailure();
+		breaker.onFailure();
+		assertTrue(breaker.isCallPermitted());
+
+		breaker.onFailure();
+		assertFalse(breaker.isCallPermitted());
+		assertEquals(State.OPEN, breaker.state());
+	}
+
+	@Test
+	public void aSuccessResetsTheFailures() {
+		final CircuitBreaker breaker = breaker(2, 60000);
+		breaker.onFailure();
+		breaker.onSuccess();
+		breaker.onFailure();
+
+		assertEquals(State.CLOSED, breaker.state());
+		assertTrue(changes.isEmpty());
+	}
+
+	@Test
+	public void anOpenBreakerIsCheckedOnceItsOpenTimeElapsed()
+			throws InterruptedException {
+		final CircuitBreaker breaker = breaker(1, 50);
+		breaker.onFailure();
+		assertFalse(breaker.isCheckDue());
+
+		Thread.sleep(60);
+		assertTrue(breaker.isCheckDue());
+		assertEquals(State.HALF_OPEN, breaker.state());
+		assertFalse(breaker.isCallPermitted());
+
+		breaker.onSuccess();
+		assertEquals(State.CLOSED, breaker.state());
+		assertEquals(Arrays.asList(State.OPEN, State.HALF_OPEN, State.CLOSED),
+				changes);
+	}
+}
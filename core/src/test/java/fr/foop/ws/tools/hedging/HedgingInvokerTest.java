@@ -0,0 +1,97 @@
+package fr.foop.ws.tools.hedging;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import fr.foop.ws.tools.health.CircuitBreaker;
+import fr.foop.ws.tools.metrics.ClientMetrics;
+import fr.foop.ws.tools.ratelimit.RateLimits;
+import fr.foop.ws.tools.routing.ConcurrencyLimiter;
+import fr.foop.ws.tools.routing.ConnectionLimit;
+import fr.foop.ws.tools.routing.LoadBalancing;
+import fr.foop.ws.tools.routing.RoutingInvoker;
+import fr.foop.ws.tools.routing.ServerNode;
+import fr.foop.ws.tools.routing.ServerRouter;
+
+public class HedgingInvokerTest {
+
+	public interface Port {
+		String find(String name);
+	}
+
+	private static final Method FIND = Port.class.getMethods()[0];
+
+	private static Port answering(final String server, final long millis) {
+		return new Port() {
+			@Override
+			public String find(final String name) {
+				Uninterruptibles.sleepUninterruptibly(millis,
+						TimeUnit.MILLISECONDS);
+				return server;
+			}
+		};
+	}
+
+	private static ServerNode<Port> node(final String server, final Port port) {
+		return ServerNode.single(server, port,
+				Optional.<CircuitBreaker> absent(),
+				ConnectionLimit.unlimited(),
+				Optional.<ConcurrencyLimiter> absent());
+	}
+
+	private HedgingInvoker<Port> invoker;
+
+	private HedgingInvoker<Port> hedging(final long primaryMillis) {
+		final ServerRouter<Port> router = new ServerRouter<Port>(
+				Arrays.asList(node("primary", answering("primary",
+						primaryMillis)), node("other", answering("other", 0))),
+				LoadBalancing.FAILOVER.newBalancer());
+		invoker = new HedgingInvoker<Port>(new RoutingInvoker<Port>(router,
+				Optional.<ClientMetrics> absent(),
+				Optional.<RateLimits> absent()), Port.class,
+				new HedgingPolicy(20, 0, 1), ImmutableSet.of("find"));
+		return invoker;
+	}
+
+	@After
+	public void tearDown() {
+		invoker.close();
+	}
+
+	@Test
+	public void fastCallsAreNotHedged() throws Throwable {
+		assertEquals("primary",
+				hedging(0).invoke(FIND, new Object[] { "bob" }));
+		assertEquals(0, invoker.hedgedCalls());
+	}
+
+	@Test
+	public void slowCallsAreAnsweredByAnotherServer() throws Throwable {
+		assertEquals("other",
+				hedging(500).invoke(FIND, new Object[] { "bob" }));
+		assertEquals(1, invoker.hedgedCalls());
+		assertEquals(1, invoker.hedgeWins());
+	}
+
+	@Test
+	public void losersAreCountedUntilTheyEnd() throws Throwable {
+		hedging(200).invoke(FIND, new Object[] { "bob" });
+		assertEquals(1, invoker.runningLosers());
+
+		final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (invoker.runningLosers() > 0 && System.nanoTime() < end) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, invoker.runningLosers());
+	}
+}
@@ -0,0 +1,71 @@
+package fr.foop.ws.tools.logging;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+public class PayloadCaptureTest {
+
+	private static final byte[] PAYLOAD = "<find>bob</find>"
+			.getBytes(Charsets.UTF_8);
+
+	private static PayloadCapture capture(final int maxBytes) {
+		return new PayloadCapture(LoggerFactory.getLogger(
+				PayloadCaptureTest.class), "Outbound", "http://server",
+				"UTF-8", maxBytes);
+	}
+
+	@Test
+	public void theFirstBytesOfTheRequestsAreLogged() throws IOException {
+		final PayloadCapture capture = capture(6);
+		final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+		try (final OutputStream out = capture.wrap(sent)) {
+			out.write(PAYLOAD[0]);
+			out.write(PAYLOAD, 1, PAYLOAD.length - 1);
+		}
+
+		assertArrayEquals(PAYLOAD, sent.toByteArray());
+		assertEquals("Outbound http://server - 16 bytes, first 6 logged\n"
+				+ "<find>", capture.format(false));
+	}
+
+	@Test
+	public void theFirstBytesOfTheResponsesAreLogged() throws IOException {
+		final PayloadCapture capture = capture(6);
+
+		final byte[] read;
+		try (final InputStream in = capture.wrap(new ByteArrayInputStream(
+				PAYLOAD))) {
+			read = ByteStreams.toByteArray(in);
+		}
+
+		assertArrayEquals(PAYLOAD, read);
+		assertEquals("Outbound http://server - 16 bytes, first 6 logged\n"
+				+ "<find>", capture.format(false));
+	}
+
+	@Test
+	public void smallPayloadsAreLoggedWhole() throws IOException {
+		final PayloadCapture capture = capture(1024);
+
+		try (final OutputStream out = capture
+				.wrap(new ByteArrayOutputStream())) {
+			out.write(PAYLOAD);
+		}
+
+		assertEquals("Outbound http://server - 16 bytes, error\n"
+				+ "<find>bob</find>", capture.format(true));
+	}
+}
@@ -0,0 +1,176 @@
+package fr.foop.ws.tools.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class PayloadLogWriterTest {
+
+	private final BlockingQueue<String> logged = new LinkedBlockingQueue<String>();
+	private volatile boolean infoEnabled = true;
+	private volatile CountDownLatch writing = new CountDownLatch(0);
+	private final CountDownLatch entered = new CountDownLatch(1);
+
+	/**
+	 * Queue the INFO messages, once the writing latch is open.
+	 */
+	private final Logger logger = (Logger) Proxy.newProxyInstance(getClass()
+			.getClassLoader(), new Class<?>[] { Logger.class },
+			new InvocationHandler() {
+				@Override
+				public Object invoke(final Object proxy, final Method method,
+						final Object[] args) {
+					if ("isInfoEnabled".equals(method.getName())) {
+						return infoEnabled;
+					}
+					if ("info".equals(method.getName())) {
+						entered.countDown();
+						Uninterruptibles.awaitUninterruptibly(writing);
+						logged.add((String) args[0]);
+					}
+					return null;
+				}
+			});
+
+	private PayloadLogWriter writer;
+
+	@After
+	public void tearDown() {
+		writing.countDown();
+		writer.close();
+	}
+
+	private PayloadCapture capture(final String payload) throws IOException {
+		final PayloadCapture capture = new PayloadCapture(logger, "Outbound",
+				"http://server", "UTF-8", 1024);
+		try (final OutputStream out = capture
+				.wrap(new ByteArrayOutputStream())) {
+			out.write(payload.getBytes("UTF-8"));
+		}
+		return capture;
+	}
+
+	private static Message request(final OutputStream out) {
+		final Message message = new MessageImpl();
+		final Exchange exchange = new ExchangeImpl();
+		message.setExchange(exchange);
+		exchange.setOutMessage(message);
+		message.setContent(OutputStream.class, out);
+		return message;
+	}
+
+	private String nextLogged() throws InterruptedException {
+		return logged.poll(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void oneExchangeOutOfTheSamplingIsCaptured() {
+		writer = new PayloadLogWriter(new PayloadLogPolicy(1024)
+				.withSampling(3));
+
+		final List<Boolean> sampled = Lists.newArrayList();
+		for (int i = 0; i < 6; ++i) {
+			sampled.add(writer.sample());
+		}
+
+		assertEquals(Lists.newArrayList(true, false, false, true, false,
+				false), sampled);
+	}
+
+	@Test
+	public void onlyTheFailedExchangesAreLoggedWithErrorsOnly()
+			throws Exception {
+		writer = new PayloadLogWriter(new PayloadLogPolicy(1024)
+				.withErrorsOnly());
+		final Message succeeded = request(new ByteArrayOutputStream());
+		final Message failed = request(new ByteArrayOutputStream());
+
+		for (final Message message : Lists.newArrayList(succeeded, failed)) {
+			PayloadLoggingInterceptor.outbound(writer, Optional.of(logger))
+					.handleMessage(message);
+			message.getContent(OutputStream.class).write(
+					(message == failed ? "failed" : "succeeded")
+							.getBytes("UTF-8"));
+		}
+		PayloadLoggingInterceptor.flushingIn(writer, false).handleMessage(
+				succeeded);
+		PayloadLoggingInterceptor.flushingIn(writer, true).handleMessage(
+				failed);
+
+		// Written in order : the successful call would come first.
+		final String first = nextLogged();
+		assertTrue(first, first.endsWith(", error\nfailed"));
+		assertNull(logged.poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void payloadsOverTheQueueAreDroppedAndCounted() throws Exception {
+		writer = new PayloadLogWriter(new PayloadLogPolicy(1024)
+				.withQueueSize(1));
+		writing = new CountDownLatch(1);
+
+		// The first one blocks the writer thread, the second one is queued.
+		writer.write(capture("first"), false);
+		assertTrue(entered.await(1, TimeUnit.SECONDS));
+		writer.write(capture("second"), false);
+		writer.write(capture("third"), false);
+		assertEquals(1, writer.dropped());
+
+		writing.countDown();
+		assertTrue(nextLogged().endsWith("first"));
+		assertTrue(nextLogged().endsWith("second"));
+		assertNull(logged.poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void nothingIsCapturedWhenInfoIsDisabled() {
+		writer = new PayloadLogWriter(new PayloadLogPolicy(1024));
+		infoEnabled = false;
+		final OutputStream out = new ByteArrayOutputStream();
+		final Message message = request(out);
+
+		PayloadLoggingInterceptor.outbound(writer, Optional.of(logger))
+				.handleMessage(message);
+
+		assertSame(out, message.getContent(OutputStream.class));
+		assertNull(message.getExchange().get(PayloadExchange.class));
+	}
+
+	@Test
+	public void requestsAreCapturedWhenInfoIsEnabled() {
+		writer = new PayloadLogWriter(new PayloadLogPolicy(1024));
+		final OutputStream out = new ByteArrayOutputStream();
+		final Message message = request(out);
+
+		PayloadLoggingInterceptor.outbound(writer, Optional.of(logger))
+				.handleMessage(message);
+
+		assertFalse(out == message.getContent(OutputStream.class));
+	}
+}
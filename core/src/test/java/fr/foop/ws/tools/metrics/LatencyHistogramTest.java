@@ -0,0 +1,72 @@
+package fr.foop.ws.tools.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static void assertWithin3Percent(final long expected,
+			final long actual) {
+		assertTrue(expected + " expected, got " + actual,
+				Math.abs(actual - expected) <= expected * 0.03);
+	}
+
+	@Test
+	public void everyValueFallsInTheBucketAroundIt() {
+		for (long value = 1; value < 1L << 40; value = value * 3 + 1) {
+			final int index = LatencyHistogram.indexOf(value);
+			assertTrue(index < LatencyHistogram.BUCKETS);
+			assertWithin3Percent(value, LatencyHistogram.valueOf(index));
+		}
+	}
+
+	@Test
+	public void smallValuesAreExact() {
+		for (int value = 0; value < 32; ++value) {
+			assertEquals(value,
+					LatencyHistogram.valueOf(LatencyHistogram.indexOf(value)));
+		}
+	}
+
+	@Test
+	public void quantilesAreReadInOrder() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; ++i) {
+			histogram.record(i * MILLI);
+		}
+
+		final long[] quantiles = histogram.quantiles(0.5, 0.9, 0.99, 1);
+		assertWithin3Percent(50 * MILLI, quantiles[0]);
+		assertWithin3Percent(90 * MILLI, quantiles[1]);
+		assertWithin3Percent(99 * MILLI, quantiles[2]);
+		assertWithin3Percent(100 * MILLI, quantiles[3]);
+		assertEquals(100, histogram.count());
+		assertEquals(100 * MILLI, histogram.maxNanos());
+		assertEquals(50.5, histogram.meanMillis(), 0.01);
+	}
+
+	@Test
+	public void anEmptyHistogramAnswersZero() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+
+		assertArrayEquals(new long[] { 0, 0 }, histogram.quantiles(0.5, 1));
+		assertEquals(0, histogram.meanMillis(), 0);
+	}
+
+	@Test
+	public void outOfRangeValuesAreClamped() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+
+		assertEquals(0, histogram.quantiles(0.5)[0]);
+		assertTrue(histogram.quantiles(1)[0] > TimeUnit.MINUTES.toNanos(15));
+	}
+}
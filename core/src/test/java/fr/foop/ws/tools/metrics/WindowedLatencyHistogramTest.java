@@ -0,0 +1,42 @@
+package fr.foop.ws.tools.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class WindowedLatencyHistogramTest {
+
+	private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Test
+	public void quantilesCoverTheCurrentAndPreviousWindows()
+			throws InterruptedException {
+		final WindowedLatencyHistogram histogram = new WindowedLatencyHistogram(
+				100);
+		for (int i = 0; i < 10; ++i) {
+			histogram.record(10 * MILLI);
+		}
+		Thread.sleep(120);
+		histogram.record(50 * MILLI);
+
+		assertEquals(11, histogram.count());
+		assertTrue(histogram.quantiles(1)[0] > 45 * MILLI);
+		assertTrue(histogram.quantiles(0.5)[0] < 11 * MILLI);
+	}
+
+	@Test
+	public void oldCallsAreForgotten() throws InterruptedException {
+		final WindowedLatencyHistogram histogram = new WindowedLatencyHistogram(
+				50);
+		for (int i = 0; i < 10; ++i) {
+			histogram.record(10 * MILLI);
+		}
+		Thread.sleep(120);
+
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.quantiles(0.99)[0]);
+	}
+}
@@ -0,0 +1,102 @@
+package fr.foop.ws.tools.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class PortPoolTest {
+
+	private final AtomicInteger creations = new AtomicInteger();
+
+	private final PortPool.PortFactory<Object> factory = new PortPool.PortFactory<Object>() {
+		@Override
+		public Object create() {
+			creations.incrementAndGet();
+			return new Object();
+		}
+	};
+
+	@Test
+	public void thePoolIsPrimedWithTheMinimum() {
+		final PortPool<Object> pool = new PortPool<Object>(factory, 2, 4, 10);
+
+		assertEquals(2, creations.get());
+		assertEquals(2, pool.stats().idle);
+	}
+
+	@Test
+	public void releasedPortsAreReused() {
+		final PortPool<Object> pool = new PortPool<Object>(factory, 0, 4, 10);
+
+		final PortLease<Object> first = pool.lease();
+		final Object port = first.port();
+		first.close();
+		first.close();
+
+		try (final PortLease<Object> second = pool.lease()) {
+			assertSame(port, second.port());
+		}
+		assertEquals(1, creations.get());
+		assertEquals(0, pool.stats().leased);
+		assertEquals(2, pool.stats().leaseCount);
+	}
+
+	@Test
+	public void invalidatedPortsAreReplaced() {
+		final PortPool<Object> pool = new PortPool<Object>(factory, 0, 1, 10);
+
+		final PortLease<Object> first = pool.lease();
+		first.invalidate();
+
+		try (final PortLease<Object> second = pool.lease()) {
+			assertNotSame(first.port(), second.port());
+		}
+		assertEquals(1, pool.stats().created);
+	}
+
+	@Test
+	public void leasesTimeOutWhenAllPortsAreLeased() {
+		final PortPool<Object> pool = new PortPool<Object>(factory, 0, 1, 10);
+
+		try (final PortLease<Object> leased = pool.lease()) {
+			pool.lease();
+			fail();
+		} catch (PortPoolExhaustedException e) {
+			assertEquals(1, pool.stats().timeouts);
+		}
+		assertEquals(1, creations.get());
+	}
+
+	@Test
+	public void aFailedCreationGivesItsPermitBack() {
+		final PortPool<Object> pool = new PortPool<Object>(
+				new PortPool.PortFactory<Object>() {
+					@Override
+					public Object create() {
+						if (creations.incrementAndGet() == 1) {
+							throw new IllegalStateException("down");
+						}
+						return new Object();
+					}
+				}, 0, 1, 10);
+
+		try {
+			pool.lease();
+			fail();
+		} catch (IllegalStateException e) {
+			// The next lease gets the permit back.
+		}
+		pool.lease().close();
+		assertEquals(0, pool.stats().timeouts);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void theMinimumCannotExceedTheMaximum() {
+		new PortPool<Object>(factory, 2, 1, 10);
+	}
+}
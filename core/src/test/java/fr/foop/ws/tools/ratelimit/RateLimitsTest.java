@@ -0,0 +1,74 @@
+package fr.foop.ws.tools.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+
+public class RateLimitsTest {
+
+	public interface Port {
+		String find(String name);
+	}
+
+	private static final Method FIND = Port.class.getMethods()[0];
+
+	@Test
+	public void callsTakeATokenFromTheOperationAndTheEndpoint() {
+		final RateLimits limits = new RateLimits("http://server",
+				Optional.of(new RateLimitPolicy(1, 2, 0)), Port.class,
+				ImmutableMap.of("find", new RateLimitPolicy(1, 2, 0)));
+
+		limits.acquire(FIND);
+
+		assertEquals(1, limits.stats().get(RateLimits.ENDPOINT).acquired);
+		assertEquals(1, limits.stats().get("find").acquired);
+	}
+
+	@Test
+	public void endpointRejectionsGiveTheOperationTokenBack()
+			throws InterruptedException {
+		final RateLimits limits = new RateLimits("http://server",
+				Optional.of(new RateLimitPolicy(100, 1, 0)), Port.class,
+				ImmutableMap.of("find", new RateLimitPolicy(1, 2, 0)));
+
+		limits.acquire(FIND);
+		try {
+			limits.acquire(FIND);
+			fail("the endpoint limit is reached");
+		} catch (RateLimitException e) {
+			// expected
+		}
+		Thread.sleep(20);
+
+		// The second operation token was given back.
+		limits.acquire(FIND);
+		assertEquals(1, limits.stats().get(RateLimits.ENDPOINT).rejected);
+		assertEquals(0, limits.stats().get("find").rejected);
+		assertEquals(2, limits.stats().get("find").acquired);
+	}
+
+	@Test
+	public void callsWhichMustNotWaitAreRejectedAtOnce() {
+		final RateLimits limits = new RateLimits("http://server",
+				Optional.of(new RateLimitPolicy(1, 2, 60000)), Port.class,
+				ImmutableMap.of("find", new RateLimitPolicy(1, 1, 60000)));
+
+		limits.acquireNow(FIND);
+		try {
+			limits.acquireNow(FIND);
+			fail("the operation limit is reached");
+		} catch (RateLimitException e) {
+			// expected
+		}
+
+		assertEquals(1, limits.stats().get("find").rejected);
+		assertEquals(0, limits.stats().get("find").waited);
+		assertEquals(1, limits.stats().get(RateLimits.ENDPOINT).acquired);
+	}
+}
@@ -0,0 +1,72 @@
+package fr.foop.ws.tools.ratelimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import fr.foop.ws.tools.deadline.Deadline;
+
+public class TokenBucketTest {
+
+	@Test
+	public void theBurstIsTakenWithoutWaiting() {
+		final TokenBucket bucket = new TokenBucket("test", new RateLimitPolicy(
+				1, 3, 0));
+
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+
+		assertEquals(3, bucket.stats().acquired);
+		assertEquals(1, bucket.stats().rejected);
+	}
+
+	@Test
+	public void callsOverTheRateWaitUpToTheMaxWait() {
+		final TokenBucket bucket = new TokenBucket("test", new RateLimitPolicy(
+				20, 1, 100));
+
+		final long start = System.nanoTime();
+		bucket.acquire();
+		bucket.acquire();
+		final long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+		assertTrue(elapsedMillis >= 40);
+		assertEquals(1, bucket.stats().waited);
+	}
+
+	@Test(expected = RateLimitException.class)
+	public void tokensComingTooLateAreRejected() {
+		final TokenBucket bucket = new TokenBucket("test", new RateLimitPolicy(
+				1, 1, 100));
+
+		bucket.acquire();
+		bucket.acquire();
+	}
+
+	@Test(expected = RateLimitException.class)
+	public void waitsNeverGoPastTheDeadline() {
+		final TokenBucket bucket = new TokenBucket("test", new RateLimitPolicy(
+				10, 1, 1000));
+
+		bucket.acquire();
+		try (final Deadline deadline = Deadline.within(20)) {
+			bucket.acquire();
+		}
+	}
+
+	@Test
+	public void refundedTokensCanBeTakenAgain() {
+		final TokenBucket bucket = new TokenBucket("test", new RateLimitPolicy(
+				1, 1, 0));
+
+		assertEquals(0, bucket.reserve());
+		bucket.refund();
+
+		assertTrue(bucket.tryAcquire());
+		assertEquals(1, bucket.stats().acquired);
+	}
+}
@@ -0,0 +1,114 @@
+package fr.foop.ws.tools.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class RecordingTest {
+
+	public interface Port {
+		String find(String name);
+	}
+
+	private static final Method FIND = Port.class.getMethods()[0];
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File record(final Object... results) throws IOException {
+		final File file = new File(folder.getRoot(), "calls.rec");
+		final CallRecorder recorder = new CallRecorder(file);
+		try {
+			for (int i = 0; i < results.length; ++i) {
+				final Object[] args = { "call" + i };
+				if (results[i] instanceof Throwable) {
+					recorder.recordFault(FIND, args, 1000, (Throwable) results[i]);
+				} else {
+					recorder.recordResult(FIND, args, 1000, results[i]);
+				}
+			}
+		} finally {
+			recorder.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void recordedCallsAreReplayed() throws Throwable {
+		final Recording recording = Recording.open(record(null,
+				new IllegalStateException("down")));
+
+		assertEquals(2, recording.size());
+		assertEquals(2, recording.distinctCalls());
+		assertNull(recording.next(FIND, new Object[] { "call0" }).get()
+				.replay(FIND));
+		try {
+			recording.next(FIND, new Object[] { "call1" }).get().replay(FIND);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("down", e.getMessage());
+		}
+		assertFalse(recording.next(FIND, new Object[] { "call2" }).isPresent());
+	}
+
+	@Test
+	public void aTruncatedLastRecordIsIgnored() throws IOException {
+		final File file = record(null, null);
+		try (final RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+			truncated.setLength(truncated.length() - 1);
+		}
+
+		assertEquals(1, Recording.open(file).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void recordingsOfAnotherVersionAreRejected() throws IOException {
+		final File file = record((Object) null);
+		try (final RandomAccessFile previous = new RandomAccessFile(file, "rw")) {
+			previous.seek(4);
+			previous.writeInt(Recording.VERSION - 1);
+		}
+
+		Recording.open(file);
+	}
+
+	@Test
+	public void recordingsOfAnotherVersionAreNotAppendedTo()
+			throws IOException {
+		final File file = record((Object) null);
+		try (final RandomAccessFile previous = new RandomAccessFile(file, "rw")) {
+			previous.seek(4);
+			previous.writeInt(Recording.VERSION - 1);
+		}
+		final long length = file.length();
+
+		try {
+			new CallRecorder(file);
+			fail("the recording version is checked");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(length, file.length());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void otherFilesAreNotAppendedTo() throws IOException {
+		final File file = folder.newFile();
+		Files.write("not a recording", file, Charsets.UTF_8);
+
+		new CallRecorder(file);
+	}
+}
@@ -0,0 +1,60 @@
+package fr.foop.ws.tools.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ReplayCodecTest {
+
+	public interface Port {
+		String find(Object name);
+
+		String get(Object name);
+	}
+
+	private static final Method FIND = method("find");
+	private static final Method GET = method("get");
+
+	private static Method method(final String name) {
+		try {
+			return Port.class.getMethod(name, Object.class);
+		} catch (NoSuchMethodException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static long fingerprint(final Method method, final Object... args) {
+		return ReplayCodec.fingerprint(method, args);
+	}
+
+	@Test
+	public void equalCallsHaveTheSameFingerprint() {
+		assertEquals(fingerprint(FIND, Arrays.asList("a", "b")),
+				fingerprint(FIND, Arrays.asList("a", "b")));
+	}
+
+	@Test
+	public void operationsHaveDistinctFingerprints() {
+		assertFalse(fingerprint(FIND, "a") == fingerprint(GET, "a"));
+	}
+
+	@Test
+	public void argumentTypesAreFingerprinted() {
+		assertFalse(fingerprint(FIND, "1") == fingerprint(FIND, 1));
+		assertFalse(fingerprint(FIND, 1) == fingerprint(FIND, 1L));
+		assertFalse(fingerprint(FIND, "null") == fingerprint(FIND,
+				(Object) null));
+	}
+
+	@Test
+	public void separatorsInValuesAreFingerprinted() {
+		assertFalse(fingerprint(FIND, "a,b") == fingerprint(FIND,
+				Arrays.asList("a", "b")));
+		assertFalse(fingerprint(FIND, Arrays.asList("a,", "b")) == fingerprint(
+				FIND, Arrays.asList("a", ",b")));
+	}
+}
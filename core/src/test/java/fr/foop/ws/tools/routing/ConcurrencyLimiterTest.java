@@ -0,0 +1,100 @@
+package fr.foop.ws.tools.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+	private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static void call(final ConcurrencyLimiter limiter,
+			final long nanos, final boolean dropped) {
+		limiter.acquire("server");
+		limiter.release(nanos, dropped);
+	}
+
+	@Test(expected = ConcurrencyLimitException.class)
+	public void callsOverAFixedLimitFailFast() {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+				ConcurrencyLimitPolicy.fixed(2, 0));
+		limiter.acquire("server");
+		limiter.acquire("server");
+		limiter.acquire("server");
+	}
+
+	@Test
+	public void callsOverTheLimitWaitForARelease() throws Exception {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+				ConcurrencyLimitPolicy.fixed(1, 1000));
+		limiter.acquire("server");
+
+		final CountDownLatch acquired = new CountDownLatch(1);
+		new Thread() {
+			@Override
+			public void run() {
+				limiter.acquire("server");
+				acquired.countDown();
+			}
+		}.start();
+
+		assertEquals(1, acquired.getCount());
+		limiter.release(MILLI, false);
+		assertTrue(acquired.await(1, TimeUnit.SECONDS));
+		assertEquals(1, limiter.inFlight());
+	}
+
+	@Test
+	public void cancelledCallsDoNotAdaptTheLimit() {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+				ConcurrencyLimitPolicy.adaptive(10, 100, 0));
+		limiter.acquire("server");
+		limiter.cancel();
+
+		assertEquals(10, limiter.limit());
+		assertEquals(0, limiter.inFlight());
+	}
+
+	@Test
+	public void theLimitGrowsOnlyWhileUsed() {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+				ConcurrencyLimitPolicy.adaptive(1, 100, 0));
+		for (int i = 0; i < 3; ++i) {
+			call(limiter, MILLI, false);
+		}
+
+		// A single caller never uses more than the first increase.
+		assertEquals(2, limiter.limit());
+	}
+
+	@Test
+	public void aBurstOfDroppedCallsBacksOffOnce() {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+				ConcurrencyLimitPolicy.adaptive(10, 100, 0));
+		call(limiter, TimeUnit.SECONDS.toNanos(1), false);
+		for (int i = 0; i < 5; ++i) {
+			call(limiter, TimeUnit.SECONDS.toNanos(1), true);
+		}
+
+		assertEquals(9, limiter.limit());
+	}
+
+	@Test
+	public void slowCallsDoNotRaiseTheUsualLatency()
+			throws InterruptedException {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+				ConcurrencyLimitPolicy.adaptive(100, 100, 0));
+		call(limiter, MILLI, false);
+		for (int i = 0; i < 20; ++i) {
+			Thread.sleep(2);
+			call(limiter, 10 * MILLI, false);
+		}
+
+		// 100 * 0.9^20, each slow call still being a sign of overload.
+		assertEquals(12, limiter.limit());
+	}
+}
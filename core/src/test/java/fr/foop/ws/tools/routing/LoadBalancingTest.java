@@ -0,0 +1,89 @@
+package fr.foop.ws.tools.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import fr.foop.ws.tools.health.CircuitBreaker;
+
+public class LoadBalancingTest {
+
+	private static ServerNode<Object> node(final String server) {
+		return ServerNode.single(server, new Object(),
+				Optional.<CircuitBreaker> absent(),
+				ConnectionLimit.unlimited(),
+				Optional.<ConcurrencyLimiter> absent());
+	}
+
+	/**
+	 * End a call on the node, as if it took the given time.
+	 */
+	private static void answered(final ServerNode<Object> node,
+			final long millis) {
+		node.callEnded(node.callStarted()
+				- TimeUnit.MILLISECONDS.toNanos(millis), null);
+	}
+
+	private final ServerNode<Object> first = node("first");
+	private final ServerNode<Object> second = node("second");
+	private final ServerNode<Object> third = node("third");
+	private final List<ServerNode<Object>> nodes = Arrays.asList(first,
+			second, third);
+
+	@Test
+	public void roundRobinCallsEachServerInTurn() {
+		final LoadBalancer balancer = LoadBalancing.ROUND_ROBIN.newBalancer();
+
+		assertSame(first, balancer.select(nodes));
+		assertSame(second, balancer.select(nodes));
+		assertSame(third, balancer.select(nodes));
+		assertSame(first, balancer.select(nodes));
+	}
+
+	@Test
+	public void leastOutstandingAvoidsBusyServers() {
+		final LoadBalancer balancer = LoadBalancing.LEAST_OUTSTANDING
+				.newBalancer();
+		first.callStarted();
+		third.callStarted();
+
+		assertSame(second, balancer.select(nodes));
+	}
+
+	@Test
+	public void ewmaPrefersTheFastestServer() {
+		final LoadBalancer balancer = LoadBalancing.EWMA.newBalancer();
+		answered(first, 30);
+		answered(second, 10);
+		answered(third, 20);
+
+		for (int i = 0; i < nodes.size(); ++i) {
+			assertSame(second, balancer.select(nodes));
+		}
+	}
+
+	@Test
+	public void serversNotAnsweredYetAreTakenAsAverage() {
+		final LoadBalancer balancer = LoadBalancing.EWMA.newBalancer();
+		answered(first, 10);
+		answered(second, 30);
+
+		for (int i = 0; i < nodes.size(); ++i) {
+			assertSame(first, balancer.select(nodes));
+		}
+	}
+
+	@Test
+	public void parsesPropertyNames() {
+		assertEquals(LoadBalancing.ROUND_ROBIN,
+				LoadBalancing.fromName(" round-robin"));
+		assertEquals(LoadBalancing.EWMA, LoadBalancing.fromName("EWMA"));
+	}
+}
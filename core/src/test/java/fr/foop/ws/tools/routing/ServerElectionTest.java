@@ -0,0 +1,144 @@
+package fr.foop.ws.tools.routing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.frontend.ClientProxy;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import fr.foop.ws.tools.health.HealthChecker.Probe;
+import fr.foop.ws.tools.health.HealthChecker.ProbePortFactory;
+
+public class ServerElectionTest {
+
+	public interface Port {
+		String find(String name);
+	}
+
+	private final List<String> created = new CopyOnWriteArrayList<String>();
+	private final List<String> destroyed = new CopyOnWriteArrayList<String>();
+
+	/**
+	 * The servers are named after the time their probe takes.
+	 */
+	private final ProbePortFactory<Port> factory = new ProbePortFactory<Port>() {
+		@Override
+		public Port create(final String server) {
+			created.add(server);
+			return port(server);
+		}
+	};
+
+	private final Probe<Port> probe = new Probe<Port>() {
+		@Override
+		public void check(final Port port) {
+			final String server = server(port);
+			Uninterruptibles.sleepUninterruptibly(
+					Long.parseLong(server.split("-")[1]),
+					TimeUnit.MILLISECONDS);
+			if (server.startsWith("down")) {
+				throw new IllegalStateException(server + " is down");
+			}
+		}
+	};
+
+	/**
+	 * A port with a CXF client recording its destruction.
+	 */
+	private Port port(final String server) {
+		final Client client = (Client) Proxy.newProxyInstance(getClass()
+				.getClassLoader(), new Class<?>[] { Client.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy,
+							final Method method, final Object[] args) {
+						if ("destroy".equals(method.getName())) {
+							destroyed.add(server);
+						}
+						return "toString".equals(method.getName()) ? server
+								: null;
+					}
+				});
+		return (Port) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { Port.class }, new ClientProxy(client));
+	}
+
+	private static String server(final Port port) {
+		return ClientProxy.getClient(port).toString();
+	}
+
+	private static List<ProbeResult.Status> statuses(
+			final ElectionReport<Port> report) {
+		final ImmutableList.Builder<ProbeResult.Status> statuses = ImmutableList
+				.builder();
+		for (final ProbeResult<Port> result : report.results) {
+			statuses.add(result.status);
+		}
+		return statuses.build();
+	}
+
+	private void awaitDestroyed(final String server)
+			throws InterruptedException {
+		final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!destroyed.contains(server) && System.nanoTime() < end) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void priorityWaitsForTheServersConfiguredFirst() {
+		final ElectionReport<Port> report = new ServerElection<Port>(factory,
+				probe, 3).elect(Arrays.asList("down-100", "up-200", "up-0"),
+				ElectionPolicy.PRIORITY);
+
+		assertEquals(Arrays.asList(ProbeResult.Status.DOWN,
+				ProbeResult.Status.UP, ProbeResult.Status.UP), statuses(report));
+	}
+
+	@Test
+	public void fastestTakesTheFirstServerUp() throws InterruptedException {
+		final ElectionReport<Port> report = new ServerElection<Port>(factory,
+				probe, 3).elect(Arrays.asList("up-300", "down-0", "up-50"),
+				ElectionPolicy.FASTEST);
+
+		assertEquals(Arrays.asList(ProbeResult.Status.CANCELLED,
+				ProbeResult.Status.DOWN, ProbeResult.Status.UP),
+				statuses(report));
+
+		// The slow probe ends after the decision, its port is not used.
+		awaitDestroyed("up-300");
+		assertEquals(Arrays.asList("up-300"), destroyed);
+	}
+
+	@Test
+	public void theProbesPendingAtTheDecisionAreCancelled()
+			throws InterruptedException {
+		final ElectionReport<Port> report = new ServerElection<Port>(factory,
+				probe, 2).elect(Arrays.asList("up-0", "up-200", "up-0-queued"),
+				ElectionPolicy.FASTEST);
+
+		assertEquals(Arrays.asList(ProbeResult.Status.UP,
+				ProbeResult.Status.CANCELLED, ProbeResult.Status.CANCELLED),
+				statuses(report));
+
+		// The queued probe may start before being cancelled, and end before
+		// the slow one : all the ports but the winner one are destroyed.
+		awaitDestroyed("up-200");
+		final Set<String> unused = new HashSet<String>(created);
+		unused.remove("up-0");
+		assertEquals(unused, new HashSet<String>(destroyed));
+	}
+}
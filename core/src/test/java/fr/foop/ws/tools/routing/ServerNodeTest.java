@@ -0,0 +1,123 @@
+package fr.foop.ws.tools.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+
+import javax.xml.ws.WebServiceException;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+
+import fr.foop.ws.tools.deadline.Deadline;
+import fr.foop.ws.tools.health.CircuitBreaker;
+
+public class ServerNodeTest {
+
+	public interface Port {
+		String find(String name);
+	}
+
+	private static final Method FIND = Port.class.getMethods()[0];
+
+	private final Port failing = new Port() {
+		@Override
+		public String find(final String name) {
+			throw new WebServiceException("read timed out");
+		}
+	};
+
+	private final CircuitBreaker breaker = new CircuitBreaker(1, 60000);
+
+	private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+			ConcurrencyLimitPolicy.adaptive(10, 100, 0));
+
+	private final ServerNode<Port> node = ServerNode.single("server",
+			failing, Optional.of(breaker), ConnectionLimit.unlimited(),
+			Optional.of(limiter));
+
+	private void callFailing() throws Throwable {
+		try {
+			node.invoke(FIND, new Object[] { "bob" });
+			fail("the call fails");
+		} catch (WebServiceException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void transportFailuresTripTheBreakerAndShrinkTheLimit()
+			throws Throwable {
+		callFailing();
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+		assertEquals(9, limiter.limit());
+		assertEquals(0, limiter.inFlight());
+	}
+
+	@Test
+	public void transportFailuresDoNotChangeTheLatencyAverage()
+			throws Throwable {
+		callFailing();
+
+		assertEquals(1, node.failures());
+		assertEquals(0, node.ewmaMillis(), 0);
+	}
+
+	@Test
+	public void errorsAreFailuresButNotServerSamples() throws Throwable {
+		final ServerNode<Port> erring = ServerNode.<Port> single("server", new Port() {
+			@Override
+			public String find(final String name) {
+				throw new AssertionError("broken");
+			}
+		}, Optional.of(breaker), ConnectionLimit.unlimited(),
+				Optional.of(limiter));
+
+		try {
+			erring.invoke(FIND, new Object[] { "bob" });
+			fail("the call fails");
+		} catch (AssertionError e) {
+			// expected
+		}
+
+		assertEquals(1, erring.failures());
+		assertEquals(0, erring.ewmaMillis(), 0);
+		assertEquals(10, limiter.limit());
+		assertEquals(0, limiter.inFlight());
+	}
+
+	@Test
+	public void callsCutShortByTheDeadlineAreNotServerFailures()
+			throws Throwable {
+		try (final Deadline deadline = Deadline.within(0)) {
+			callFailing();
+		}
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+		assertEquals(10, limiter.limit());
+		assertEquals(0, limiter.inFlight());
+		assertEquals(1, node.failures());
+	}
+
+	@Test
+	public void callsWhichMustNotWaitAreRejectedAtOnce() {
+		final ConcurrencyLimiter queuing = new ConcurrencyLimiter(
+				ConcurrencyLimitPolicy.fixed(5, 60000));
+		final ServerNode<Port> limited = ServerNode.single("server", failing,
+				Optional.<CircuitBreaker> absent(),
+				ConnectionLimit.of(1, 60000), Optional.of(queuing));
+		limited.callStartedNow();
+
+		try {
+			limited.callStartedNow();
+			fail("the connection is in use");
+		} catch (ConnectionLimitException e) {
+			// expected, the concurrency slot was given back
+		}
+		assertEquals(1, queuing.inFlight());
+		assertEquals(1, limited.outstanding());
+	}
+}
@@ -0,0 +1,93 @@
+package fr.foop.ws.tools.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+import fr.foop.ws.tools.health.CircuitBreaker;
+
+public class ServerRouterTest {
+
+	private final CircuitBreaker firstBreaker = new CircuitBreaker(1, 60000);
+	private final CircuitBreaker secondBreaker = new CircuitBreaker(1, 60000);
+
+	private final ServerNode<Object> first = node("first", firstBreaker);
+	private final ServerNode<Object> second = node("second", secondBreaker);
+
+	private final ServerRouter<Object> router = new ServerRouter<Object>(
+			Arrays.asList(first, second), LoadBalancing.FAILOVER.newBalancer());
+
+	private static ServerNode<Object> node(final String server,
+			final CircuitBreaker breaker) {
+		return ServerNode.single(server, new Object(), Optional.of(breaker),
+				ConnectionLimit.unlimited(),
+				Optional.<ConcurrencyLimiter> absent());
+	}
+
+	@Test
+	public void callsGoToTheAvailableNodes() {
+		assertSame(first, router.select());
+
+		firstBreaker.trip();
+		assertEquals(ImmutableList.of(second), router.available());
+		assertSame(second, router.select());
+
+		firstBreaker.onSuccess();
+		assertSame(first, router.select());
+	}
+
+	@Test(expected = NoServerAvailableException.class)
+	public void callsFailWhenAllServersAreDown() {
+		firstBreaker.trip();
+		secondBreaker.trip();
+		router.select();
+	}
+
+	@Test
+	public void anotherNodeIsSelectedForARetry() {
+		assertSame(second, router.selectOther(first).get());
+
+		secondBreaker.trip();
+		assertFalse(router.selectOther(first).isPresent());
+	}
+
+	@Test
+	public void concurrentStateChangesLeaveTheAvailableNodesUpToDate()
+			throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; ++t) {
+			final CircuitBreaker breaker = t % 2 == 0 ? firstBreaker
+					: secondBreaker;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < 2000; ++i) {
+						breaker.trip();
+						breaker.onSuccess();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		start.countDown();
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(ImmutableList.of(first, second), router.available());
+	}
+}
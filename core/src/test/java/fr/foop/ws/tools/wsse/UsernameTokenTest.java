@@ -0,0 +1,148 @@
+package fr.foop.ws.tools.wsse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.security.MessageDigest;
+
+import javax.security.auth.callback.Callback;
+import javax.security.auth.callback.CallbackHandler;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.cxf.binding.soap.SoapHeader;
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.ws.security.WSConstants;
+import org.apache.ws.security.WSPasswordCallback;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+
+public class UsernameTokenTest {
+
+	private static final CallbackHandler PASSWORDS = new CallbackHandler() {
+		@Override
+		public void handle(final Callback[] callbacks) {
+			((WSPasswordCallback) callbacks[0]).setPassword("secret");
+		}
+	};
+
+	private static UsernameToken token(final boolean nonce,
+			final boolean digest) {
+		return new UsernameToken("bob", PASSWORDS, nonce, digest);
+	}
+
+	private static Element write(final UsernameToken token) throws Exception {
+		final StringWriter xml = new StringWriter();
+		final XMLStreamWriter out = XMLOutputFactory.newInstance()
+				.createXMLStreamWriter(xml);
+		token.writeTo(out);
+		out.close();
+		return parse(xml.toString());
+	}
+
+	private static Element parse(final String xml) throws Exception {
+		final DocumentBuilderFactory factory = DocumentBuilderFactory
+				.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder()
+				.parse(new InputSource(new StringReader(xml)))
+				.getDocumentElement();
+	}
+
+	private static Element child(final Element parent, final String ns,
+			final String name) {
+		return (Element) parent.getElementsByTagNameNS(ns, name).item(0);
+	}
+
+	private static Element token(final Element security) {
+		return child(security, WSConstants.WSSE_NS,
+				WSConstants.USERNAME_TOKEN_LN);
+	}
+
+	@Test
+	public void passwordTextTokens() throws Exception {
+		final Element security = write(token(false, false));
+
+		assertEquals(WSConstants.WSSE_NS, security.getNamespaceURI());
+		assertEquals(WSConstants.WSSE_LN, security.getLocalName());
+		final Element token = token(security);
+		assertEquals("bob", child(token, WSConstants.WSSE_NS,
+				WSConstants.USERNAME_LN).getTextContent());
+
+		final Element password = child(token, WSConstants.WSSE_NS,
+				WSConstants.PASSWORD_LN);
+		assertEquals(WSConstants.PASSWORD_TEXT,
+				password.getAttribute(WSConstants.PASSWORD_TYPE_ATTR));
+		assertEquals("secret", password.getTextContent());
+		assertEquals(0, token.getElementsByTagNameNS(WSConstants.WSSE_NS,
+				WSConstants.NONCE_LN).getLength());
+	}
+
+	@Test
+	public void nonceAndCreatedTimestamp() throws Exception {
+		final Element token = token(write(token(true, false)));
+
+		final Element nonce = child(token, WSConstants.WSSE_NS,
+				WSConstants.NONCE_LN);
+		assertEquals(WSConstants.SOAPMESSAGE_NS + "#Base64Binary",
+				nonce.getAttribute("EncodingType"));
+		assertEquals(16, BaseEncoding.base64().decode(nonce.getTextContent())
+				.length);
+
+		final Element created = child(token, WSConstants.WSU_NS,
+				WSConstants.CREATED_LN);
+		assertTrue(created.getTextContent(), created.getTextContent().matches(
+				"\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z"));
+	}
+
+	@Test
+	public void passwordDigestTokens() throws Exception {
+		final Element token = token(write(token(false, true)));
+
+		final Element password = child(token, WSConstants.WSSE_NS,
+				WSConstants.PASSWORD_LN);
+		assertEquals(WSConstants.PASSWORD_DIGEST,
+				password.getAttribute(WSConstants.PASSWORD_TYPE_ATTR));
+
+		final byte[] nonce = BaseEncoding.base64().decode(
+				child(token, WSConstants.WSSE_NS, WSConstants.NONCE_LN)
+						.getTextContent());
+		final String created = child(token, WSConstants.WSU_NS,
+				WSConstants.CREATED_LN).getTextContent();
+		final MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+		sha1.update(nonce);
+		sha1.update(created.getBytes(Charsets.UTF_8));
+		sha1.update("secret".getBytes(Charsets.UTF_8));
+		assertEquals(BaseEncoding.base64().encode(sha1.digest()),
+				password.getTextContent());
+	}
+
+	@Test
+	public void theInterceptorAddsAMandatorySecurityHeader() throws Exception {
+		final UsernameToken token = token(false, false);
+		final SoapMessage message = new SoapMessage(new MessageImpl());
+
+		new UsernameTokenInterceptor(token).handleMessage(message);
+
+		final SoapHeader header = (SoapHeader) message.getHeaders().get(0);
+		assertEquals(UsernameToken.SECURITY, header.getName());
+		assertTrue(header.isMustUnderstand());
+
+		final StringWriter xml = new StringWriter();
+		final XMLStreamWriter out = XMLOutputFactory.newInstance()
+				.createXMLStreamWriter(xml);
+		header.getDataBinding().createWriter(XMLStreamWriter.class)
+				.write(header.getObject(), out);
+		out.close();
+		assertEquals("secret", child(token(parse(xml.toString())),
+				WSConstants.WSSE_NS, WSConstants.PASSWORD_LN).getTextContent());
+	}
+}
@@ -0,0 +1,70 @@
+package fr.foop.ws.loadgen;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+
+import fr.foop.ws.CxfClientBuilder;
+import fr.foop.ws.tools.async.AsyncCall;
+import fr.foop.ws.tools.stub.EchoClient;
+import fr.foop.ws.tools.stub.EchoPort;
+import fr.foop.ws.tools.stub.StubSoapServer;
+
+/**
+ * Call the echo contract at a fixed rate, on a local stub server or on a
+ * real endpoint, and print the report :
+ *
+ * <pre>
+ * java -jar target/loadgen.jar rate seconds [server [callers]]
+ * </pre>
+ *
+ * Without server, a stub answering after 5 ms is started.
+ */
+public final class EchoLoad {
+
+	private static final String PATH = "/echo";
+	private static final int STUB_DELAY = 5;
+	private static final String PAYLOAD = Strings.repeat("x", 128);
+
+	private EchoLoad() {
+	}
+
+	public static void main(final String[] args) {
+		if (args.length < 2) {
+			System.err
+					.println("usage : EchoLoad rate seconds [server [callers]]");
+			System.exit(1);
+		}
+
+		final double rate = Double.valueOf(args[0]);
+		final long durationMillis = Long.valueOf(args[1]) * 1000;
+		final int callers = args.length > 3 ? Integer.valueOf(args[3]) : 64;
+
+		final Optional<StubSoapServer> stub = args.length > 2 ? Optional
+				.<StubSoapServer> absent() : Optional.of(StubSoapServer
+				.onFreePort().respond(
+						PATH,
+						"<ns:echoResponse xmlns:ns=\"" + EchoPort.NS + "\">"
+								+ PAYLOAD + "</ns:echoResponse>", STUB_DELAY));
+		final String server = stub.isPresent() ? stub.get().server() : args[2];
+
+		try (final EchoClient client = new CxfClientBuilder("http://{{server}}"
+				+ PATH, server).withPortPool(callers, callers).build(
+				EchoClient.class)) {
+			final LoadReport report = LoadGenerator.<EchoPort> at(rate)
+					.withWarmUp(Math.min(10000, durationMillis / 5))
+					.withDuration(durationMillis).withCallers(callers)
+					.withOperation("echo", new AsyncCall<EchoPort, String>() {
+						@Override
+						public String on(final EchoPort port) {
+							return port.echo(PAYLOAD);
+						}
+					}).run(client.service());
+
+			System.out.println(report);
+		} finally {
+			if (stub.isPresent()) {
+				stub.get().close();
+			}
+		}
+	}
+}
@@ -0,0 +1,368 @@
+package fr.foop.ws.loadgen;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fr.foop.ws.tools.async.AsyncCall;
+
+/**
+ * An open model load generator : the calls are scheduled at a fixed rate,
+ * whatever the time the previous ones take, and made by a pool of callers.
+ *
+ * A call is measured from when it was scheduled, not from when a caller was
+ * free to make it, so the stalls of the server or the client show in the
+ * latencies instead of slowing the load down (coordinated omission). The
+ * measured calls still queued or running after the drain period are errors,
+ * measured until the end of the drain.
+ *
+ * <pre>
+ * LoadGenerator.&lt;CRMServicePT&gt; at(200)
+ * 	.withWarmUp(10000)
+ * 	.withDuration(60000)
+ * 	.withOperation("getAll", new AsyncCall&lt;CRMServicePT, List&lt;CustomerType&gt;&gt;() {
+ * 		public List&lt;CustomerType&gt; on(CRMServicePT port) {
+ * 			return port.getAll();
+ * 		}
+ * 	}).run(client.service());
+ * </pre>
+ *
+ * @param <Port>
+ *            the CXF generated port interface.
+ */
+public class LoadGenerator<Port> {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(LoadGenerator.class);
+
+	private final double rate;
+	private final long durationMillis;
+	private final long warmUpMillis;
+	private final int callers;
+	private final long drainMillis;
+	private final ImmutableList<Operation<Port>> operations;
+
+	private LoadGenerator(final double rate, final long durationMillis,
+			final long warmUpMillis, final int callers, final long drainMillis,
+			final ImmutableList<Operation<Port>> operations) {
+		if (rate <= 0) {
+			throw new IllegalArgumentException("rate must be positive : "
+					+ rate);
+		}
+		if (durationMillis <= 0 || warmUpMillis < 0 || drainMillis < 0) {
+			throw new IllegalArgumentException(
+					"duration must be positive, warm-up and drain must not be negative");
+		}
+		if (callers < 1) {
+			throw new IllegalArgumentException("callers must be at least 1");
+		}
+		this.rate = rate;
+		this.durationMillis = durationMillis;
+		this.warmUpMillis = warmUpMillis;
+		this.callers = callers;
+		this.drainMillis = drainMillis;
+		this.operations = operations;
+	}
+
+	/**
+	 * Schedule calls for 60 seconds, without warm-up, with 64 callers.
+	 *
+	 * @param rate
+	 *            the calls per second.
+	 */
+	public static <Port> LoadGenerator<Port> at(final double rate) {
+		return new LoadGenerator<Port>(rate, 60000, 0, 64, 30000,
+				ImmutableList.<Operation<Port>> of());
+	}
+
+	/**
+	 * @param durationMillis
+	 *            the measured period.
+	 */
+	public LoadGenerator<Port> withDuration(final long durationMillis) {
+		return new LoadGenerator<Port>(rate, durationMillis, warmUpMillis,
+				callers, drainMillis, operations);
+	}
+
+	/**
+	 * @param warmUpMillis
+	 *            the period the calls are made at the rate, but not measured,
+	 *            before the measured period.
+	 */
+	public LoadGenerator<Port> withWarmUp(final long warmUpMillis) {
+		return new LoadGenerator<Port>(rate, durationMillis, warmUpMillis,
+				callers, drainMillis, operations);
+	}
+
+	/**
+	 * @param callers
+	 *            the threads making the calls, the maximum of concurrent
+	 *            calls : the calls scheduled while they are all busy wait,
+	 *            and their waiting time is measured.
+	 */
+	public LoadGenerator<Port> withCallers(final int callers) {
+		return new LoadGenerator<Port>(rate, durationMillis, warmUpMillis,
+				callers, drainMillis, operations);
+	}
+
+	/**
+	 * @param drainMillis
+	 *            how long the calls still queued or running at the end of the
+	 *            measured period are waited for.
+	 */
+	public LoadGenerator<Port> withDrain(final long drainMillis) {
+		return new LoadGenerator<Port>(rate, durationMillis, warmUpMillis,
+				callers, drainMillis, operations);
+	}
+
+	public LoadGenerator<Port> withOperation(final String name,
+			final AsyncCall<Port, ?> call) {
+		return withOperation(name, 1, call);
+	}
+
+	/**
+	 * @param weight
+	 *            the share of the calls made to this operation, relative to
+	 *            the weight of the other operations.
+	 */
+	public LoadGenerator<Port> withOperation(final String name,
+			final int weight, final AsyncCall<Port, ?> call) {
+		if (weight < 1) {
+			throw new IllegalArgumentException("weight must be at least 1 : "
+					+ weight);
+		}
+		return new LoadGenerator<Port>(rate, durationMillis, warmUpMillis,
+				callers, drainMillis, ImmutableList.<Operation<Port>> builder()
+						.addAll(operations)
+						.add(new Operation<Port>(name, weight, call)).build());
+	}
+
+	/**
+	 * Call the port at the rate, and wait until done.
+	 */
+	public LoadReport run(final Port port) {
+		if (operations.isEmpty()) {
+			throw new IllegalStateException("no operation to call");
+		}
+
+		final ImmutableList<Operation<Port>> schedule = schedule();
+		final ImmutableMap.Builder<Operation<Port>, OperationStats> statsBuilder = ImmutableMap
+				.builder();
+		for (final Operation<Port> operation : operations) {
+			statsBuilder.put(operation, new OperationStats(operation.name));
+		}
+		final ImmutableMap<Operation<Port>, OperationStats> stats = statsBuilder
+				.build();
+		final OperationStats total = new OperationStats("total");
+		final Set<Call<Port>> running = Collections
+				.newSetFromMap(new ConcurrentHashMap<Call<Port>, Boolean>());
+
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(callers,
+				callers, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder()
+						.setDaemon(true).setNameFormat("loadgen-caller-%d")
+						.build());
+
+		final long start = System.nanoTime();
+		final long measureStart = start
+				+ TimeUnit.MILLISECONDS.toNanos(warmUpMillis);
+		final long end = measureStart
+				+ TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		final double interval = TimeUnit.SECONDS.toNanos(1) / rate;
+
+		LOGGER.info("Calling at {} calls/s for {} ms after {} ms of warm-up",
+				rate, durationMillis, warmUpMillis);
+
+		long scheduled = 0;
+		long unsent = 0;
+		try {
+			for (long i = 0;; ++i) {
+				final long intended = start + Math.round(i * interval);
+				if (intended >= end) {
+					break;
+				}
+				waitUntil(intended);
+
+				final boolean measured = intended >= measureStart;
+				if (measured) {
+					++scheduled;
+				}
+				final Operation<Port> operation = schedule.get((int) (i % schedule
+						.size()));
+				final Call<Port> call = new Call<Port>(port, operation.call,
+						intended, measured ? stats.get(operation) : null, total,
+						running);
+				// Tracked from now on, a call taken off the queue but not
+				// started yet would be neither queued nor running.
+				if (measured) {
+					running.add(call);
+				}
+				executor.execute(call);
+			}
+
+			executor.shutdown();
+			if (!executor.awaitTermination(drainMillis, TimeUnit.MILLISECONDS)) {
+				// Given up before being interrupted, which would end them.
+				final long drainEnd = System.nanoTime();
+				int unfinished = 0;
+				for (final Call<Port> call : running) {
+					if (call.giveUp(drainEnd)) {
+						++unfinished;
+					}
+				}
+				unsent = executor.shutdownNow().size();
+				LOGGER.warn(
+						"{} calls unfinished after the drain period, {} of them never sent",
+						unfinished, unsent);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while calling", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		final long durationNanos = end - measureStart;
+		final ImmutableList.Builder<OperationReport> reports = ImmutableList
+				.builder();
+		for (final Operation<Port> operation : operations) {
+			reports.add(stats.get(operation).report(durationNanos));
+		}
+
+		final LoadReport report = new LoadReport(rate, durationMillis,
+				scheduled, unsent, total.report(durationNanos),
+				reports.build());
+		LOGGER.info("Load done :\n{}", report);
+		return report;
+	}
+
+	/**
+	 * @return the operations, each repeated by its weight, spread evenly
+	 *         among the calls.
+	 */
+	private ImmutableList<Operation<Port>> schedule() {
+		final ImmutableList.Builder<Operation<Port>> schedule = ImmutableList
+				.builder();
+		int max = 0;
+		for (final Operation<Port> operation : operations) {
+			max = Math.max(max, operation.weight);
+		}
+		for (int round = 0; round < max; ++round) {
+			for (final Operation<Port> operation : operations) {
+				if (round < operation.weight) {
+					schedule.add(operation);
+				}
+			}
+		}
+		return schedule.build();
+	}
+
+	private static void waitUntil(final long nanoTime)
+			throws InterruptedException {
+		for (long remaining = nanoTime - System.nanoTime(); remaining > 0; remaining = nanoTime
+				- System.nanoTime()) {
+			LockSupport.parkNanos(remaining);
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+	}
+
+	/**
+	 * A scheduled call, recorded once : when it returns, or when the run gives
+	 * up on it at the end of the drain period.
+	 */
+	private static final class Call<Port> implements Runnable {
+
+		private final Port port;
+		private final AsyncCall<Port, ?> call;
+		private final long intended;
+		private final OperationStats stats;
+		private final OperationStats total;
+		/**
+		 * The measured calls not recorded yet, queued or running.
+		 */
+		private final Set<Call<Port>> running;
+		private boolean recorded;
+
+		/**
+		 * @param stats
+		 *            the operation statistics, null when the call is not
+		 *            measured.
+		 */
+		private Call(final Port port, final AsyncCall<Port, ?> call,
+				final long intended, final OperationStats stats,
+				final OperationStats total, final Set<Call<Port>> running) {
+			this.port = port;
+			this.call = call;
+			this.intended = intended;
+			this.stats = stats;
+			this.total = total;
+			this.running = running;
+		}
+
+		@Override
+		public void run() {
+			try {
+				final long sent = System.nanoTime();
+				Throwable error = null;
+				try {
+					call.on(port);
+				} catch (Throwable t) {
+					error = t;
+				}
+				final long done = System.nanoTime();
+
+				synchronized (this) {
+					if (stats != null && !recorded) {
+						recorded = true;
+						stats.record(intended, sent, done, error);
+						total.record(intended, sent, done, error);
+					}
+				}
+			} finally {
+				running.remove(this);
+			}
+		}
+
+		/**
+		 * Record the call as unfinished, unless it is already recorded.
+		 *
+		 * @return true when the call was measured and is now recorded.
+		 */
+		private synchronized boolean giveUp(final long end) {
+			if (stats == null || recorded) {
+				return false;
+			}
+			recorded = true;
+			stats.recordUnfinished(intended, end);
+			total.recordUnfinished(intended, end);
+			return true;
+		}
+	}
+
+	private static final class Operation<Port> {
+
+		private final String name;
+		private final int weight;
+		private final AsyncCall<Port, ?> call;
+
+		private Operation(final String name, final int weight,
+				final AsyncCall<Port, ?> call) {
+			this.name = name;
+			this.weight = weight;
+			this.call = call;
+		}
+	}
+}
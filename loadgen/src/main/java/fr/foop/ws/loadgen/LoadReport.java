@@ -0,0 +1,49 @@
+package fr.foop.ws.loadgen;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * What a load run did : the calls scheduled at the target rate during the
+ * measured period, and the report of each operation.
+ */
+public class LoadReport {
+
+	private static final String HEADER = String.format(
+			"%-20s %8s %8s %9s %9s %9s %9s %9s %9s %9s %9s %s", "operation",
+			"calls", "errors", "calls/s", "p50", "p90", "p99", "p99.9", "max",
+			"svc p50", "svc p99", "error types");
+
+	public final double targetRate;
+	public final long durationMillis;
+	public final long scheduled;
+	/** Calls scheduled but never made, still queued at the end of the run. */
+	public final long unsent;
+	public final OperationReport total;
+	public final ImmutableList<OperationReport> operations;
+
+	LoadReport(final double targetRate, final long durationMillis,
+			final long scheduled, final long unsent,
+			final OperationReport total,
+			final ImmutableList<OperationReport> operations) {
+		this.targetRate = targetRate;
+		this.durationMillis = durationMillis;
+		this.scheduled = scheduled;
+		this.unsent = unsent;
+		this.total = total;
+		this.operations = operations;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder report = new StringBuilder();
+		report.append(String.format(
+				"target %.1f calls/s for %d ms : %d scheduled, %d unsent%n",
+				targetRate, durationMillis, scheduled, unsent));
+		report.append(HEADER).append(String.format("%n"));
+		for (final OperationReport operation : operations) {
+			report.append(operation).append(String.format("%n"));
+		}
+		report.append(total);
+		return report.toString();
+	}
+}
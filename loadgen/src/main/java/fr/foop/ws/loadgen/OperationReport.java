@@ -0,0 +1,73 @@
+package fr.foop.ws.loadgen;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMultiset;
+
+import fr.foop.ws.tools.metrics.LatencyHistogram;
+
+/**
+ * The calls of an operation during a run : their throughput, errors by
+ * exception type, and latency percentiles.
+ * 
+ * The response times are measured from when each call was scheduled, so a
+ * stall delaying the following calls shows in their latency. The service
+ * times are measured from when each call was actually made, they hide the
+ * stalls (coordinated omission) and are only given to compare.
+ */
+public class OperationReport {
+
+	/**
+	 * The reported quantiles.
+	 */
+	public static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+	public final String name;
+	public final long calls;
+	public final ImmutableMultiset<String> errors;
+	public final double throughput;
+	/** The response time of each quantile, in millis. */
+	public final double[] responseTimes;
+	public final double maxResponseTime;
+	/** The service time of each quantile, in millis. */
+	public final double[] serviceTimes;
+
+	OperationReport(final String name, final long calls,
+			final ImmutableMultiset<String> errors, final long durationNanos,
+			final LatencyHistogram responseTimes,
+			final LatencyHistogram serviceTimes) {
+		this.name = name;
+		this.calls = calls;
+		this.errors = errors;
+		this.throughput = durationNanos == 0 ? 0 : (double) calls
+				* TimeUnit.SECONDS.toNanos(1) / durationNanos;
+		this.responseTimes = toMillis(responseTimes.quantiles(QUANTILES));
+		this.maxResponseTime = toMillis(responseTimes.maxNanos());
+		this.serviceTimes = toMillis(serviceTimes.quantiles(QUANTILES));
+	}
+
+	private static double[] toMillis(final long[] nanos) {
+		final double[] millis = new double[nanos.length];
+		for (int i = 0; i < nanos.length; ++i) {
+			millis[i] = toMillis(nanos[i]);
+		}
+		return millis;
+	}
+
+	private static double toMillis(final long nanos) {
+		return (double) TimeUnit.NANOSECONDS.toMicros(nanos) / 1000;
+	}
+
+	public long errorCount() {
+		return errors.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%-20s %8d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %s",
+				name, calls, errorCount(), throughput, responseTimes[0],
+				responseTimes[1], responseTimes[2], responseTimes[3],
+				maxResponseTime, serviceTimes[0], serviceTimes[2],
+				errors.isEmpty() ? "" : errors.toString());
+	}
+}
@@ -0,0 +1,62 @@
+package fr.foop.ws.loadgen;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.ImmutableMultiset;
+
+import fr.foop.ws.tools.metrics.LatencyHistogram;
+
+/**
+ * The calls of an operation measured during a run.
+ */
+final class OperationStats {
+
+	static final String UNFINISHED = "Unfinished";
+
+	private final String name;
+	private final LatencyHistogram responseTimes = new LatencyHistogram();
+	private final LatencyHistogram serviceTimes = new LatencyHistogram();
+	private final AtomicLong calls = new AtomicLong();
+	private final ConcurrentHashMultiset<String> errors = ConcurrentHashMultiset
+			.create();
+
+	OperationStats(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @param intended
+	 *            when the call was scheduled.
+	 * @param sent
+	 *            when the call was actually made, later than intended when
+	 *            the callers are all busy.
+	 * @param done
+	 *            when the call returned.
+	 */
+	void record(final long intended, final long sent, final long done,
+			final Throwable error) {
+		calls.incrementAndGet();
+		responseTimes.record(done - intended);
+		serviceTimes.record(done - sent);
+		if (error != null) {
+			errors.add(error.getClass().getSimpleName());
+		}
+	}
+
+	/**
+	 * Record a call still queued or running at the end of the run, as an
+	 * error lasting until then.
+	 */
+	void recordUnfinished(final long intended, final long end) {
+		calls.incrementAndGet();
+		responseTimes.record(end - intended);
+		errors.add(UNFINISHED);
+	}
+
+	OperationReport report(final long durationNanos) {
+		return new OperationReport(name, calls.get(),
+				ImmutableMultiset.copyOf(errors), durationNanos, responseTimes,
+				serviceTimes);
+	}
+}
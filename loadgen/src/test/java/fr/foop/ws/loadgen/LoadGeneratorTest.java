@@ -0,0 +1,62 @@
+package fr.foop.ws.loadgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+
+import fr.foop.ws.tools.async.AsyncCall;
+
+public class LoadGeneratorTest {
+
+	public interface Port {
+		String find(String name);
+	}
+
+	private final CountDownLatch stall = new CountDownLatch(1);
+
+	private final Port stalled = new Port() {
+		@Override
+		public String find(final String name) {
+			try {
+				stall.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return name;
+		}
+	};
+
+	private static final AsyncCall<Port, String> FIND = new AsyncCall<Port, String>() {
+		@Override
+		public String on(final Port port) {
+			return port.find("bob");
+		}
+	};
+
+	@After
+	public void release() {
+		stall.countDown();
+	}
+
+	@Test
+	public void unfinishedCallsAreErrorsLastingSinceTheyWereScheduled() {
+		final LoadReport report = LoadGenerator.<Port> at(100)
+				.withDuration(200).withCallers(2).withDrain(100)
+				.withOperation("find", FIND).run(stalled);
+
+		// Two calls stuck running, the others still queued : none is lost.
+		assertEquals(report.scheduled, report.total.calls);
+		assertEquals(report.scheduled - 2, report.unsent);
+		assertEquals(report.scheduled,
+				report.total.errors.count(OperationStats.UNFINISHED));
+
+		// Each of them lasted at least the drain period, the first one the
+		// whole run.
+		assertTrue(report.total.responseTimes[0] >= 100);
+		assertTrue(report.total.maxResponseTime >= 290);
+	}
+}
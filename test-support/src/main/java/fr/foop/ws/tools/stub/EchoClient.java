@@ -0,0 +1,21 @@
+package fr.foop.ws.tools.stub;
+
+import fr.foop.ws.CxfClient;
+import fr.foop.ws.CxfClientBuilder;
+
+public class EchoClient extends CxfClient<EchoPort, EchoService> {
+
+	public EchoClient(final CxfClientBuilder config) {
+		super(config, EchoService.class);
+	}
+
+	@Override
+	public void checkIfPortUp(final EchoPort port) throws Exception {
+		port.echo("ping");
+	}
+
+	@Override
+	public EchoPort newPort(final EchoService serviceManager) {
+		return serviceManager.getEchoPort();
+	}
+}
@@ -0,0 +1,21 @@
+package fr.foop.ws.tools.stub;
+
+import javax.jws.WebParam;
+import javax.jws.WebResult;
+import javax.jws.WebService;
+import javax.jws.soap.SOAPBinding;
+
+/**
+ * A contract for stub servers : a single document/literal operation echoing a
+ * string.
+ */
+@WebService(targetNamespace = EchoPort.NS, name = "EchoPort")
+@SOAPBinding(parameterStyle = SOAPBinding.ParameterStyle.BARE)
+public interface EchoPort {
+
+	String NS = "http://ws.foop.fr/stub";
+
+	@WebResult(name = "echoResponse", targetNamespace = NS, partName = "response")
+	String echo(
+			@WebParam(name = "echo", targetNamespace = NS, partName = "request") String payload);
+}
@@ -0,0 +1,34 @@
+package fr.foop.ws.tools.stub;
+
+import java.net.URL;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.Service;
+import javax.xml.ws.WebEndpoint;
+import javax.xml.ws.soap.SOAPBinding;
+
+/**
+ * Hand written equivalent of a CXF generated service, without WSDL.
+ */
+public class EchoService extends Service {
+
+	public final static QName SERVICE = new QName(EchoPort.NS, "EchoService");
+
+	public final static QName ECHO_PORT = new QName(EchoPort.NS, "EchoPort");
+
+	public final static String DEFAULT_ADDRESS = "http://localhost:8080/echo";
+
+	public EchoService() {
+		this(null);
+	}
+
+	public EchoService(final URL wsdlLocation) {
+		super(wsdlLocation, SERVICE);
+		addPort(ECHO_PORT, SOAPBinding.SOAP11HTTP_BINDING, DEFAULT_ADDRESS);
+	}
+
+	@WebEndpoint(name = "EchoPort")
+	public EchoPort getEchoPort() {
+		return super.getPort(ECHO_PORT, EchoPort.class);
+	}
+}
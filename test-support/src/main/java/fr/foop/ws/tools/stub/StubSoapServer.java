@@ -0,0 +1,84 @@
+package fr.foop.ws.tools.stub;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+
+/**
+ * A local HTTP server answering canned SOAP responses, to exercise a client
+ * without the real backend (benchmarks, load tests).
+ */
+public class StubSoapServer implements AutoCloseable {
+
+	private static final String ENVELOPE_START = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>";
+	private static final String ENVELOPE_END = "</soap:Body></soap:Envelope>";
+
+	private final int port;
+	private final WireMockServer server;
+	private final WireMock admin;
+
+	public StubSoapServer(final int port) {
+		this.port = port;
+		this.server = new WireMockServer(port);
+		this.server.start();
+		this.admin = new WireMock("localhost", port);
+	}
+
+	public static StubSoapServer onFreePort() {
+		try (final ServerSocket socket = new ServerSocket(0)) {
+			socket.setReuseAddress(true);
+			return new StubSoapServer(socket.getLocalPort());
+		} catch (IOException e) {
+			throw new RuntimeException("unable to find a free port", e);
+		}
+	}
+
+	/**
+	 * Answer the POST requests on the path with the body wrapped in a SOAP
+	 * 1.1 envelope.
+	 * 
+	 * @param path
+	 *            the request path, such as <code>/echo</code>.
+	 * @param soapBody
+	 *            the SOAP body content.
+	 * @param delay
+	 *            the time in millis to wait before answering.
+	 * @return
+	 */
+	public StubSoapServer respond(final String path, final String soapBody,
+			final int delay) {
+		admin.register(post(urlEqualTo(path)).willReturn(
+				aResponse().withStatus(200)
+						.withHeader("Content-Type", "text/xml;charset=UTF-8")
+						.withBody(ENVELOPE_START + soapBody + ENVELOPE_END)
+						.withFixedDelay(delay)));
+		return this;
+	}
+
+	public StubSoapServer respond(final String path, final String soapBody) {
+		return respond(path, soapBody, 0);
+	}
+
+	/**
+	 * @return the server, as used in the <code>servers</code> client
+	 *         property.
+	 */
+	public String server() {
+		return "localhost:" + port;
+	}
+
+	public int port() {
+		return port;
+	}
+
+	@Override
+	public void close() {
+		server.stop();
+	}
+}